@@ -0,0 +1,65 @@
+package com.cloudflare.storage.benchmark;
+
+import com.cloudflare.storage.model.ListedObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Mapping a full ListObjectsV2 page into what the listing endpoints return: the keys of
+ * {@code listDirectoryBucketObjectsV2} and the entries of {@code streamDirectoryBucketObjectsV2}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ListMappingBenchmark {
+    private static final int PAGE_SIZE = 1000;
+
+    private ListObjectsV2Response page;
+
+    @Setup
+    public void setUp() {
+        Instant lastModified = Instant.parse("2025-01-01T00:00:00Z");
+        page = ListObjectsV2Response.builder()
+                .name("benchmark")
+                .keyCount(PAGE_SIZE)
+                .contents(IntStream.range(0, PAGE_SIZE)
+                        .mapToObj(i -> S3Object.builder()
+                                .key("photos/2025/01/image-%06d.jpg".formatted(i))
+                                .size(1024L * i)
+                                .eTag("\"%032x\"".formatted(i))
+                                .lastModified(lastModified)
+                                .build())
+                        .toList())
+                .commonPrefixes(CommonPrefix.builder().prefix("photos/2025/02/").build())
+                .build();
+    }
+
+    @Benchmark
+    public List<String> keys() {
+        return page.contents().stream()
+                .map(S3Object::key)
+                .toList();
+    }
+
+    @Benchmark
+    public List<ListedObject> listedObjects() {
+        return Stream.concat(
+                        page.contents().stream().map(ListedObject::of),
+                        page.commonPrefixes().stream().map(ListedObject::of))
+                .toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.cloudflare.storage.benchmark;
+
+import com.cloudflare.storage.support.BufferPool;
+import com.cloudflare.storage.support.FileRegionBodies;
+import com.cloudflare.storage.support.MultipartParts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Slicing a file into multipart parts and checksumming each one, as the resumable upload does: read-only mappings
+ * the way {@code multipartUploadForDirectoryBucket} slices parts, against reads into pooled direct buffers and
+ * into fresh heap arrays.
+ * <p>
+ * Each variant checksums its parts, so all of them touch every byte. Mappings are only released by GC, so a loop
+ * that maps without reading outruns the collector and exhausts the process's map count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PartSlicingBenchmark {
+    private static final long FILE_SIZE = 64L * 1024 * 1024;
+
+    @Param({"5242880", "16777216"})
+    public long partSize;
+
+    private Path file;
+    private FileChannel channel;
+    private BufferPool bufferPool;
+    private int partCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("part-slicing", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < FILE_SIZE; written += chunk.length) {
+                out.write(ByteBuffer.wrap(chunk));
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        bufferPool = new BufferPool(4 * partSize, Duration.ofSeconds(30));
+        partCount = MultipartParts.partCount(FILE_SIZE, partSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void mappedRegions(Blackhole blackhole) throws IOException {
+        for (int index = 0; index < partCount; index++) {
+            blackhole.consume(FileRegionBodies.crc32c(channel, index * partSize,
+                    MultipartParts.partLength(FILE_SIZE, partSize, index)));
+        }
+    }
+
+    @Benchmark
+    public void pooledBufferReads(Blackhole blackhole) throws IOException, InterruptedException {
+        for (int index = 0; index < partCount; index++) {
+            int length = (int) MultipartParts.partLength(FILE_SIZE, partSize, index);
+            try (BufferPool.Lease lease = bufferPool.acquire(length)) {
+                ByteBuffer buffer = lease.buffer();
+                readFully(buffer, index * partSize, length);
+                blackhole.consume(crc32c(buffer));
+            }
+        }
+    }
+
+    @Benchmark
+    public void heapArrayReads(Blackhole blackhole) throws IOException {
+        for (int index = 0; index < partCount; index++) {
+            int length = (int) MultipartParts.partLength(FILE_SIZE, partSize, index);
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            readFully(buffer, index * partSize, length);
+            blackhole.consume(crc32c(buffer));
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private static long crc32c(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,83 @@
+package com.cloudflare.storage.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Building the requests of the hot paths, as the services do for every call and every part.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestBuildingBenchmark {
+    private static final String BUCKET = "benchmark";
+    private static final String KEY = "photos/2025/01/image-000001.jpg";
+    private static final String UPLOAD_ID = "2~1b7f3c0e-8c1f-4b5e-9f3a-6d2e1c0b9a87";
+
+    private List<CompletedPart> completedParts;
+
+    @Setup
+    public void setUp() {
+        completedParts = IntStream.rangeClosed(1, 1000)
+                .mapToObj(partNumber -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag("\"%032x\"".formatted(partNumber))
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public PutObjectRequest putObject() {
+        return PutObjectRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .contentType("image/jpeg")
+                .build();
+    }
+
+    @Benchmark
+    public UploadPartRequest uploadPart() {
+        return UploadPartRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .uploadId(UPLOAD_ID)
+                .partNumber(42)
+                .build();
+    }
+
+    @Benchmark
+    public GetObjectRequest rangedGetObject() {
+        return GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .range("bytes=1048576-2097151")
+                .build();
+    }
+
+    @Benchmark
+    public CompleteMultipartUploadRequest completeMultipartUpload() {
+        return CompleteMultipartUploadRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .uploadId(UPLOAD_ID)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(completedParts)
+                        .build())
+                .build();
+    }
+}
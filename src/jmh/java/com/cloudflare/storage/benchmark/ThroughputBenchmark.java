@@ -0,0 +1,117 @@
+package com.cloudflare.storage.benchmark;
+
+import com.cloudflare.storage.S3Application;
+import com.cloudflare.storage.service.S3DirectoryService;
+import com.cloudflare.storage.support.LocalS3Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end upload and download throughput of {@link S3DirectoryService}, running in a Spring context whose
+ * clients point at an in-process {@link LocalS3Server}. The server injects {@code latency} before every response
+ * and nothing else, so the results measure this service and the SDK rather than the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThroughputBenchmark {
+    private static final String BUCKET = "benchmark";
+    private static final String LISTING_BUCKET = "listing";
+
+    @Param({"1048576", "16777216"})
+    public int objectSize;
+
+    @Param({"0"})
+    public int latencyMillis;
+
+    private LocalS3Server server;
+    private ConfigurableApplicationContext context;
+    private S3DirectoryService service;
+    private Path upload;
+    private Path download;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new LocalS3Server(0, new LocalS3Server.Faults(Duration.ofMillis(latencyMillis), 0, 0, 0));
+        byte[] payload = new byte[objectSize];
+        new Random(42).nextBytes(payload);
+        server.putObject(BUCKET, "download", payload);
+        for (int i = 0; i < 1000; i++) {
+            server.putObject(LISTING_BUCKET, "key-%04d".formatted(i), new byte[0]);
+        }
+        upload = Files.createTempFile("throughput", ".bin");
+        Files.write(upload, payload);
+        download = Files.createTempFile("throughput", ".download");
+
+        context = new SpringApplicationBuilder(S3Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--cloudflare.account-id=benchmark",
+                        "--cloudflare.access-key=benchmark",
+                        "--cloudflare.secret-key=benchmark",
+                        "--cloudflare.endpoint=" + server.endpoint(),
+                        // Downloads would otherwise be served from local disk after the first one
+                        "--cloudflare.disk-cache.max-size=0",
+                        "--logging.level.root=WARN");
+        service = context.getBean(S3DirectoryService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        server.close();
+        Files.deleteIfExists(upload);
+        Files.deleteIfExists(download);
+    }
+
+    @Benchmark
+    public void putObject() {
+        service.putDirectoryBucketObject(BUCKET, "upload", upload);
+    }
+
+    @Benchmark
+    public long getObjectStream() throws IOException {
+        try (ResponseInputStream<GetObjectResponse> in = service.getDirectoryBucketObjectStream(BUCKET, "download", null)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long downloadToPath() throws IOException {
+        return service.downloadDirectoryBucketObjectToPath(BUCKET, "download", download);
+    }
+
+    @Benchmark
+    public boolean multipartUpload() throws IOException {
+        String uploadId = service.createDirectoryBucketMultipartUpload(BUCKET, "multipart");
+        List<CompletedPart> parts = service.multipartUploadForDirectoryBucket(BUCKET, "multipart", uploadId, upload);
+        return service.completeDirectoryBucketMultipartUpload(BUCKET, "multipart", uploadId, parts);
+    }
+
+    @Benchmark
+    public int listObjectsV2() {
+        return service.listDirectoryBucketObjectsV2(LISTING_BUCKET).size();
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.BufferPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+public class BufferPoolConfig {
+
+    @Value("${cloudflare.buffers.max-memory:256MB}")
+    private DataSize maxMemory;
+
+    @Value("${cloudflare.buffers.max-wait:30s}")
+    private Duration maxWait;
+
+    /**
+     * The off-heap buffers shared by every path that holds part data in memory. All of them together stay
+     * within {@code cloudflare.buffers.max-memory}; beyond that, callers wait for buffers to be released.
+     */
+    @Bean
+    public BufferPool bufferPool() {
+        return new BufferPool(maxMemory.toBytes(), maxWait);
+    }
+}
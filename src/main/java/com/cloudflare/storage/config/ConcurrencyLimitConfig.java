@@ -0,0 +1,52 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter;
+import com.cloudflare.storage.support.ThrottleSignalInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "cloudflare.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Value("${cloudflare.concurrency-limit.initial-limit:128}")
+    private int initialLimit;
+
+    @Value("${cloudflare.concurrency-limit.min-limit:1}")
+    private int minLimit;
+
+    @Value("${cloudflare.concurrency-limit.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${cloudflare.concurrency-limit.backoff-ratio:0.5}")
+    private double backoffRatio;
+
+    @Value("${cloudflare.concurrency-limit.decrease-interval:1s}")
+    private Duration decreaseInterval;
+
+    @Value("${cloudflare.concurrency-limit.max-wait:2m}")
+    private Duration maxWait;
+
+    /**
+     * Shared by the blocking and async clients, so one limit per bucket and operation class covers the calls of
+     * every service.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, decreaseInterval,
+                maxWait, meterRegistry);
+    }
+
+    /**
+     * Registered on every S3 client: feeds the 429 and 503 responses of each attempt back into the limiter.
+     */
+    @Bean
+    public ThrottleSignalInterceptor throttleSignalInterceptor(AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter) {
+        return new ThrottleSignalInterceptor(adaptiveConcurrencyLimiter);
+    }
+}
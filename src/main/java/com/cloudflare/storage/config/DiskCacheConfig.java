@@ -0,0 +1,36 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.ObjectDiskCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class DiskCacheConfig {
+
+    @Value("${cloudflare.disk-cache.directory:${java.io.tmpdir}/r2-object-cache}")
+    private Path directory;
+
+    @Value("${cloudflare.disk-cache.max-size:1GB}")
+    private DataSize maxSize;
+
+    @Value("${cloudflare.disk-cache.max-object-size:64MB}")
+    private DataSize maxObjectSize;
+
+    @Value("${cloudflare.disk-cache.revalidate-after:30s}")
+    private Duration revalidateAfter;
+
+    /**
+     * Local copies of frequently read objects, served to downloads in place of a GET from R2.
+     * A {@code cloudflare.disk-cache.max-size} of 0 turns the cache off.
+     */
+    @Bean
+    public ObjectDiskCache objectDiskCache() throws IOException {
+        return new ObjectDiskCache(directory, maxSize.toBytes(), maxObjectSize.toBytes(), revalidateAfter);
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudflare.storage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Runs the blocking fan-out work of the service layer (for example listing shards over the sync client).
+     * Callers bound their own concurrency; with virtual threads enabled every task gets its own virtual
+     * thread, so a task blocked on R2 does not tie up a platform thread.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService s3FanOutExecutor() {
+        if (virtualThreadsEnabled) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("r2-fanout-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("r2-fanout-", 0).daemon(true).factory());
+    }
+}
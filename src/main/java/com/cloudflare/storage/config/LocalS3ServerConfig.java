@@ -0,0 +1,46 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.LocalS3Server;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "cloudflare.local-server.enabled", havingValue = "true")
+public class LocalS3ServerConfig {
+
+    @Value("${cloudflare.local-server.port:9000}")
+    private int port;
+
+    @Value("${cloudflare.local-server.buckets:}")
+    private List<String> buckets;
+
+    @Value("${cloudflare.local-server.latency:0ms}")
+    private Duration latency;
+
+    @Value("${cloudflare.local-server.bandwidth:0B}")
+    private DataSize bandwidth;
+
+    @Value("${cloudflare.local-server.throttle-rate:0}")
+    private double throttleRate;
+
+    @Value("${cloudflare.local-server.slow-down-rate:0}")
+    private double slowDownRate;
+
+    /**
+     * An in-memory S3 endpoint for running the service offline. Point {@code cloudflare.endpoint} at it.
+     */
+    @Bean(destroyMethod = "close")
+    public LocalS3Server localS3Server() throws IOException {
+        LocalS3Server server = new LocalS3Server(port,
+                new LocalS3Server.Faults(latency, bandwidth.toBytes(), throttleRate, slowDownRate));
+        buckets.forEach(server::createBucket);
+        return server;
+    }
+}
@@ -0,0 +1,35 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.MetadataCache;
+import com.cloudflare.storage.support.MetadataInvalidationInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class MetadataCacheConfig {
+
+    @Value("${cloudflare.metadata-cache.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${cloudflare.metadata-cache.ttl:60s}")
+    private Duration ttl;
+
+    @Value("${cloudflare.metadata-cache.negative-ttl:10s}")
+    private Duration negativeTtl;
+
+    @Bean
+    public MetadataCache metadataCache() {
+        return new MetadataCache(maxEntries, ttl, negativeTtl);
+    }
+
+    /**
+     * Registered on every S3 client, so writes through any of them invalidate the cache.
+     */
+    @Bean
+    public MetadataInvalidationInterceptor metadataInvalidationInterceptor(MetadataCache metadataCache) {
+        return new MetadataInvalidationInterceptor(metadataCache);
+    }
+}
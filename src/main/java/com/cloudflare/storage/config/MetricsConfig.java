@@ -0,0 +1,110 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.model.SingleFlightStats;
+import com.cloudflare.storage.support.BufferPool;
+import com.cloudflare.storage.support.MetadataCache;
+import com.cloudflare.storage.support.ObjectDiskCache;
+import com.cloudflare.storage.support.R2MetricPublisher;
+import com.cloudflare.storage.support.R2MetricsInterceptor;
+import com.cloudflare.storage.support.SingleFlights;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Registered on every S3 client: latency, retries, throttling and connection pool metrics of every call.
+     */
+    @Bean
+    public R2MetricPublisher r2MetricPublisher(MeterRegistry meterRegistry) {
+        return new R2MetricPublisher(meterRegistry);
+    }
+
+    /**
+     * Registered on every S3 client: calls in flight and bytes transferred.
+     */
+    @Bean
+    public R2MetricsInterceptor r2MetricsInterceptor(MeterRegistry meterRegistry) {
+        return new R2MetricsInterceptor(meterRegistry);
+    }
+
+    /**
+     * The state of the buffer pool, the caches and the single-flight layers, read from their stats on each scrape.
+     */
+    @Bean
+    public MeterBinder storageMetrics(BufferPool bufferPool, MetadataCache metadataCache, ObjectDiskCache objectDiskCache,
+                                      SingleFlights singleFlights) {
+        return registry -> {
+            gauge(registry, "r2.buffers.capacity", "bytes", bufferPool, pool -> pool.stats().capacityBytes());
+            gauge(registry, "r2.buffers.leased", "bytes", bufferPool, pool -> pool.stats().leasedBytes());
+            gauge(registry, "r2.buffers.idle", "bytes", bufferPool, pool -> pool.stats().idleBytes());
+            gauge(registry, "r2.buffers.waiting", null, bufferPool, pool -> pool.stats().waiting());
+            counter(registry, "r2.buffers.leases", bufferPool, pool -> pool.stats().leases());
+            counter(registry, "r2.buffers.hits", bufferPool, pool -> pool.stats().hits());
+            counter(registry, "r2.buffers.waits", bufferPool, pool -> pool.stats().waits());
+            counter(registry, "r2.buffers.timeouts", bufferPool, pool -> pool.stats().timeouts());
+
+            cache(registry, "objects", metadataCache::objectStats);
+            cache(registry, "buckets", metadataCache::bucketStats);
+
+            gauge(registry, "r2.disk.cache.capacity", "bytes", objectDiskCache, cache -> cache.stats().capacityBytes());
+            gauge(registry, "r2.disk.cache.used", "bytes", objectDiskCache, cache -> cache.stats().usedBytes());
+            counter(registry, "r2.disk.cache.hits", objectDiskCache, cache -> cache.stats().hits());
+            counter(registry, "r2.disk.cache.coalesced", objectDiskCache, cache -> cache.stats().coalesced());
+            counter(registry, "r2.disk.cache.loads", objectDiskCache, cache -> cache.stats().loads());
+            counter(registry, "r2.disk.cache.revalidations", objectDiskCache, cache -> cache.stats().revalidations());
+            counter(registry, "r2.disk.cache.not.modified", objectDiskCache, cache -> cache.stats().notModified());
+
+            for (String operation : SingleFlights.OPERATIONS) {
+                singleFlight(registry, operation, () -> singleFlights.forOperation(operation).stats());
+            }
+            singleFlight(registry, "HeadBucket", () -> metadataCache.flightStats().getFirst());
+            singleFlight(registry, "HeadObject", () -> metadataCache.flightStats().getLast());
+        };
+    }
+
+    private static void cache(MeterRegistry registry, String cache, Supplier<CacheStats> stats) {
+        FunctionCounter.builder("r2.metadata.cache.requests", stats, s -> s.get().hitCount())
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("r2.metadata.cache.requests", stats, s -> s.get().missCount())
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("r2.metadata.cache.evictions", stats, s -> s.get().evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private static void singleFlight(MeterRegistry registry, String operation, Supplier<SingleFlightStats> stats) {
+        FunctionCounter.builder("r2.singleflight.calls", stats, s -> s.get().calls())
+                .tag("operation", operation)
+                .register(registry);
+        FunctionCounter.builder("r2.singleflight.shared", stats, s -> s.get().shared())
+                .description("Calls answered by another call's request to R2")
+                .tag("operation", operation)
+                .register(registry);
+        Gauge.builder("r2.singleflight.inflight", stats, s -> s.get().inFlight())
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String baseUnit, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value)
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value) {
+        FunctionCounter.builder(name, source, value)
+                .register(registry);
+    }
+}
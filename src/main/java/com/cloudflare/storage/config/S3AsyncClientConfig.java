@@ -1,18 +1,28 @@
 package com.cloudflare.storage.config;
 
 import com.cloudflare.storage.constant.S3DirectoryConstants;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter;
+import com.cloudflare.storage.support.ConcurrencyLimitedS3AsyncClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.unit.DataSize;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
 import software.amazon.awssdk.core.retry.RetryMode;
 import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.net.URI;
@@ -21,20 +31,63 @@ import java.time.Duration;
 @Configuration
 public class S3AsyncClientConfig {
 
-    @Value("${cloudflare.account-id}")
-    private String accountId;
+    @Value("${cloudflare.endpoint:https://${cloudflare.account-id}.r2.cloudflarestorage.com}")
+    private URI endpoint;
 
     @Value("${cloudflare.access-key}")
     private String accessKey;
 
     @Value("${cloudflare.secret-key}")
     private String secretKey;
-    
+
+    @Value("${cloudflare.async.max-concurrency:500}")
+    private int maxConcurrency;
+
+    @Value("${cloudflare.async.max-pending-connection-acquires:10000}")
+    private int maxPendingConnectionAcquires;
+
+    @Value("${cloudflare.transfer.multipart-threshold:16MB}")
+    private DataSize transferMultipartThreshold;
+
+    @Value("${cloudflare.transfer.part-size:8MB}")
+    private DataSize transferPartSize;
+
     @Bean
-    public S3AsyncClient s3AsyncClient() {
+    @Primary
+    public S3AsyncClient s3AsyncClient(ObjectProvider<ExecutionInterceptor> interceptors,
+                                       ObjectProvider<MetricPublisher> metricPublishers,
+                                       ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        S3AsyncClient client = s3AsyncClientBuilder(interceptors, metricPublishers).build();
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        return limiter != null ? new ConcurrencyLimitedS3AsyncClient(client, limiter) : client;
+    }
 
+    /**
+     * The client behind the transfer manager. Multipart is enabled here only, so the transfer manager can split
+     * large files and pause an upload between parts, while the other services keep issuing exactly the requests
+     * they build. It is not wrapped by the concurrency limiter, as the transfer manager needs the multipart client
+     * itself; its 429 and 503 responses still lower the limits through the interceptor.
+     */
+    @Bean
+    public S3AsyncClient s3TransferClient(ObjectProvider<ExecutionInterceptor> interceptors,
+                                          ObjectProvider<MetricPublisher> metricPublishers) {
+        MultipartConfiguration multipartConfiguration = MultipartConfiguration.builder()
+                .thresholdInBytes(transferMultipartThreshold.toBytes())
+                .minimumPartSizeInBytes(transferPartSize.toBytes())
+                .build();
+
+        return s3AsyncClientBuilder(interceptors, metricPublishers)
+                .multipartEnabled(true)
+                .multipartConfiguration(multipartConfiguration)
+                .build();
+    }
+
+    private S3AsyncClientBuilder s3AsyncClientBuilder(ObjectProvider<ExecutionInterceptor> interceptors,
+                                                      ObjectProvider<MetricPublisher> metricPublishers) {
+        // Requests beyond the connection limit wait in the pending-acquire queue instead of occupying a thread
         SdkAsyncHttpClient httpClient = NettyNioAsyncHttpClient.builder()
-                .maxConcurrency(50)
+                .maxConcurrency(maxConcurrency)
+                .maxPendingConnectionAcquires(maxPendingConnectionAcquires)
                 .connectionTimeout(Duration.ofSeconds(60))
                 .readTimeout(Duration.ofSeconds(60))
                 .writeTimeout(Duration.ofSeconds(60))
@@ -44,6 +97,8 @@ public class S3AsyncClientConfig {
                 .apiCallTimeout(Duration.ofMinutes(2))
                 .apiCallAttemptTimeout(Duration.ofSeconds(90))
                 .retryStrategy(RetryMode.STANDARD)
+                .executionInterceptors(interceptors.orderedStream().toList())
+                .metricPublishers(metricPublishers.orderedStream().toList())
                 .build();
 
         AwsBasicCredentials credentials = AwsBasicCredentials.create(
@@ -56,19 +111,18 @@ public class S3AsyncClientConfig {
                 .build();
 
         return S3AsyncClient.builder()
-                .endpointOverride(URI.create(String.format("https://%s.r2.cloudflarestorage.com", accountId)))
+                .endpointOverride(endpoint)
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .region(Region.of(S3DirectoryConstants.AUTO))
                 .serviceConfiguration(serviceConfiguration)
                 .httpClient(httpClient)
-                .overrideConfiguration(overrideConfig)
-                .build();
+                .overrideConfiguration(overrideConfig);
     }
 
     @Bean
-    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+    public S3TransferManager s3TransferManager(@Qualifier("s3TransferClient") S3AsyncClient s3TransferClient) {
         return S3TransferManager.builder()
-                .s3Client(s3AsyncClient)
+                .s3Client(s3TransferClient)
                 .build();
     }
 }
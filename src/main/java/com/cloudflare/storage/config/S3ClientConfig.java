@@ -1,31 +1,131 @@
 package com.cloudflare.storage.config;
 
 import com.cloudflare.storage.constant.S3DirectoryConstants;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter;
+import com.cloudflare.storage.support.ConcurrencyLimitedS3Client;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 
 import java.net.URI;
+import java.time.Duration;
 
 @Configuration
 public class S3ClientConfig {
 
-    @Value("${cloudflare.account-id}")
-    private String accountId;
+    /**
+     * Transport used by the synchronous client.
+     */
+    public enum HttpClientType {
+        /** Apache HttpClient: pooled connections with TTL and idle reaping. */
+        APACHE,
+        /** AWS Common Runtime client: native I/O with lower per-request overhead. */
+        CRT
+    }
+
+    @Value("${cloudflare.endpoint:https://${cloudflare.account-id}.r2.cloudflarestorage.com}")
+    private URI endpoint;
 
     @Value("${cloudflare.access-key}")
     private String accessKey;
 
     @Value("${cloudflare.secret-key}")
     private String secretKey;
-    
+
+    @Value("${cloudflare.http.client:apache}")
+    private HttpClientType httpClientType;
+
+    @Value("${cloudflare.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${cloudflare.http.connection-timeout:10s}")
+    private Duration connectionTimeout;
+
+    @Value("${cloudflare.http.socket-timeout:60s}")
+    private Duration socketTimeout;
+
+    @Value("${cloudflare.http.connection-acquisition-timeout:10s}")
+    private Duration connectionAcquisitionTimeout;
+
+    @Value("${cloudflare.http.connection-ttl:5m}")
+    private Duration connectionTimeToLive;
+
+    @Value("${cloudflare.http.connection-max-idle-time:60s}")
+    private Duration connectionMaxIdleTime;
+
+    @Value("${cloudflare.http.use-idle-connection-reaper:true}")
+    private boolean useIdleConnectionReaper;
+
+    @Value("${cloudflare.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    @Value("${cloudflare.http.tcp-keep-alive-interval:30s}")
+    private Duration tcpKeepAliveInterval;
+
+    @Value("${cloudflare.http.tcp-keep-alive-timeout:5s}")
+    private Duration tcpKeepAliveTimeout;
+
+    @Value("${cloudflare.http.api-call-timeout:2m}")
+    private Duration apiCallTimeout;
+
+    @Value("${cloudflare.http.api-call-attempt-timeout:90s}")
+    private Duration apiCallAttemptTimeout;
+
+    @Value("${cloudflare.http.retry-mode:standard}")
+    private RetryMode retryMode;
+
     @Bean
-    public S3Client s3client() {
+    public S3Client s3client(ObjectProvider<ExecutionInterceptor> interceptors,
+                             ObjectProvider<MetricPublisher> metricPublishers,
+                             ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        // With virtual threads the request threads no longer cap concurrent R2 calls, so the pool must be sized for them
+        SdkHttpClient httpClient = switch (httpClientType) {
+            case APACHE -> ApacheHttpClient.builder()
+                    .maxConnections(maxConnections)
+                    .connectionTimeout(connectionTimeout)
+                    .socketTimeout(socketTimeout)
+                    .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                    .connectionTimeToLive(connectionTimeToLive)
+                    .connectionMaxIdleTime(connectionMaxIdleTime)
+                    .useIdleConnectionReaper(useIdleConnectionReaper)
+                    .tcpKeepAlive(tcpKeepAlive)
+                    .build();
+            case CRT -> {
+                AwsCrtHttpClient.Builder crtBuilder = AwsCrtHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                        .connectionMaxIdleTime(connectionMaxIdleTime);
+                if (tcpKeepAlive) {
+                    crtBuilder.tcpKeepAliveConfiguration(keepAlive -> keepAlive
+                            .keepAliveInterval(tcpKeepAliveInterval)
+                            .keepAliveTimeout(tcpKeepAliveTimeout));
+                }
+                yield crtBuilder.build();
+            }
+        };
+
+        ClientOverrideConfiguration overrideConfig = ClientOverrideConfiguration.builder()
+                .apiCallTimeout(apiCallTimeout)
+                .apiCallAttemptTimeout(apiCallAttemptTimeout)
+                .retryStrategy(retryMode)
+                .executionInterceptors(interceptors.orderedStream().toList())
+                .metricPublishers(metricPublishers.orderedStream().toList())
+                .build();
+
         AwsBasicCredentials credentials = AwsBasicCredentials.create(
                 accessKey,
                 secretKey
@@ -35,11 +135,16 @@ public class S3ClientConfig {
                 .pathStyleAccessEnabled(true)
                 .build();
 
-        return S3Client.builder()
-                .endpointOverride(URI.create(String.format("https://%s.r2.cloudflarestorage.com", accountId)))
+        S3Client client = S3Client.builder()
+                .endpointOverride(endpoint)
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .region(Region.of(S3DirectoryConstants.AUTO))
                 .serviceConfiguration(serviceConfiguration)
+                .httpClient(httpClient)
+                .overrideConfiguration(overrideConfig)
                 .build();
+
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        return limiter != null ? new ConcurrencyLimitedS3Client(client, limiter) : client;
     }
-}
\ No newline at end of file
+}
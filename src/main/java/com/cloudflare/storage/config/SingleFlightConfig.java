@@ -0,0 +1,17 @@
+package com.cloudflare.storage.config;
+
+import com.cloudflare.storage.support.SingleFlights;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SingleFlightConfig {
+
+    /**
+     * Shared by the blocking and async services, so duplicate reads through either are coalesced together.
+     */
+    @Bean
+    public SingleFlights singleFlights() {
+        return new SingleFlights();
+    }
+}
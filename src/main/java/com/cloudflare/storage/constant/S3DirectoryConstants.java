@@ -2,5 +2,15 @@ package com.cloudflare.storage.constant;
 
 public final class S3DirectoryConstants {
     public static final String AUTO = "auto";
-}
 
+    /** Smallest part size S3/R2 accepts for every part except the last one. */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /** Maximum number of parts a single multipart upload may contain. */
+    public static final int MAX_PARTS = 10_000;
+    /** Maximum number of keys a single DeleteObjects request may contain. */
+    public static final int MAX_DELETE_KEYS = 1_000;
+    /** Largest object a single CopyObject request may copy; larger objects are copied in parts. */
+    public static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+    /** Maximum number of keys one batch existence check may contain. */
+    public static final int MAX_BATCH_HEAD_KEYS = 10_000;
+}
@@ -1,14 +1,223 @@
 package com.cloudflare.storage.controller;
 
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.requests.S3DirectoryRequests.*;
+import com.cloudflare.storage.service.S3DirectoryAsyncService;
 import com.cloudflare.storage.service.S3ServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+import software.amazon.awssdk.services.s3.model.Part;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking endpoints: each handler returns the future of the async service, so the request
+ * thread is released while the R2 call is in flight and the response is written on completion.
+ */
 @RestController
 @RequiredArgsConstructor
-@RequestMapping("/s3")
+@RequestMapping("/s3/async")
+@Tag(name = "Cloudflare R2 Async API", description = "Cloudflare R2 异步非阻塞操作接口")
 public class S3Controller {
     private final S3ServiceImpl s3Service;
+    private final S3DirectoryAsyncService s3DirectoryAsyncService;
+
+    @Operation(summary = "异步复制通用桶对象", description = "从源桶复制对象到目标桶，返回复制结果")
+    @PostMapping("/copyBucketObject")
+    public CompletableFuture<String> copyBucketObject(@Valid @RequestBody CopyObjectRequest req) {
+        return s3Service.copyBucketObjectAsync(req.sourceBucket(), req.sourceObjectKey(), req.targetBucket(), req.targetObjectKey());
+    }
+
+    @Operation(summary = "异步创建通用桶", description = "创建通用桶并等待其可用")
+    @PostMapping("/createBucket")
+    public CompletableFuture<Void> createBucket(@Valid @RequestBody CreateGeneralPurposeBucketRequest req) {
+        return s3Service.createBucketAsync(req.bucketName());
+    }
+
+    @Operation(summary = "异步删除桶", description = "删除指定的桶（桶必须为空）")
+    @DeleteMapping("/deleteBucket")
+    public CompletableFuture<Void> deleteBucket(@Valid @RequestBody DeleteBucketRequest req) {
+        return s3Service.deleteBucketAsync(req.bucketName());
+    }
+
+    @Operation(summary = "异步复制对象", description = "从源桶复制对象到目标桶")
+    @PostMapping("/copyDirectoryBucketObject")
+    public CompletableFuture<Void> copyDirectoryBucketObject(@Valid @RequestBody CopyObjectRequest req) {
+        return s3DirectoryAsyncService.copyDirectoryBucketObject(req.sourceBucket(), req.sourceObjectKey(), req.targetBucket(), req.targetObjectKey());
+    }
+
+    @Operation(summary = "异步创建目录桶", description = "创建一个新的目录桶，可指定可用区")
+    @PostMapping("/createDirectoryBucket")
+    public CompletableFuture<Void> createDirectoryBucket(@Valid @RequestBody CreateBucketRequest req) {
+        return s3DirectoryAsyncService.createDirectoryBucket(req.bucketName(), req.zone());
+    }
+
+    @Operation(summary = "异步删除目录桶", description = "删除指定的目录桶（桶必须为空）")
+    @DeleteMapping("/deleteDirectoryBucket")
+    public CompletableFuture<Void> deleteDirectoryBucket(@Valid @RequestBody DeleteBucketRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucket(req.bucketName());
+    }
+
+    @Operation(summary = "异步删除桶加密配置", description = "删除目录桶的加密配置")
+    @DeleteMapping("/deleteDirectoryBucketEncryption")
+    public CompletableFuture<Void> deleteDirectoryBucketEncryption(@Valid @RequestBody DeleteBucketEncryptionRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucketEncryption(req.bucketName());
+    }
+
+    @Operation(summary = "异步删除桶策略", description = "删除目录桶的访问策略")
+    @DeleteMapping("/deleteDirectoryBucketPolicy")
+    public CompletableFuture<Void> deleteDirectoryBucketPolicy(@Valid @RequestBody DeleteBucketPolicyRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucketPolicy(req.bucketName());
+    }
+
+    @Operation(summary = "异步删除对象", description = "删除目录桶中的单个对象")
+    @DeleteMapping("/deleteDirectoryBucketObject")
+    public CompletableFuture<Void> deleteDirectoryBucketObject(@Valid @RequestBody DeleteObjectRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucketObject(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步批量删除对象", description = "批量删除目录桶中的多个对象，按每批 1000 个键并发执行，返回删除与失败数量")
+    @DeleteMapping("/deleteDirectoryBucketObjects")
+    public CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjects(@Valid @RequestBody DeleteObjectsRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucketObjects(req.bucketName(), req.objectKeys());
+    }
+
+    @Operation(summary = "异步按前缀批量删除对象", description = "列出指定前缀下的所有对象并分批并发删除，返回删除与失败数量")
+    @DeleteMapping("/deleteDirectoryBucketObjectsByPrefix")
+    public CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjectsByPrefix(@Valid @RequestBody DeleteObjectsByPrefixRequest req) {
+        return s3DirectoryAsyncService.deleteDirectoryBucketObjectsByPrefix(req.bucketName(), req.prefix());
+    }
+
+    @Operation(summary = "异步获取桶加密配置", description = "获取目录桶的加密配置信息")
+    @GetMapping("/getDirectoryBucketEncryption")
+    public CompletableFuture<String> getDirectoryBucketEncryption(@Valid @RequestBody GetBucketEncryptionRequest req) {
+        return s3DirectoryAsyncService.getDirectoryBucketEncryption(req.bucketName());
+    }
+
+    @Operation(summary = "异步获取桶策略", description = "获取目录桶的访问策略")
+    @GetMapping("/getDirectoryBucketPolicy")
+    public CompletableFuture<String> getDirectoryBucketPolicy(@Valid @RequestBody GetBucketPolicyRequest req) {
+        return s3DirectoryAsyncService.getDirectoryBucketPolicy(req.bucketName());
+    }
+
+    @Operation(summary = "异步获取对象", description = "从目录桶中获取指定对象")
+    @GetMapping("/getDirectoryBucketObject")
+    public CompletableFuture<Boolean> getDirectoryBucketObject(@Valid @RequestBody GetObjectRequest req) {
+        return s3DirectoryAsyncService.getDirectoryBucketObject(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步获取对象属性", description = "获取对象的元数据信息，如大小、ETag等")
+    @GetMapping("/getDirectoryBucketObjectAttributes")
+    public CompletableFuture<Boolean> getDirectoryBucketObjectAttributes(@Valid @RequestBody GetObjectAttributesRequest req) {
+        return s3DirectoryAsyncService.getDirectoryBucketObjectAttributes(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步检查桶是否存在", description = "检查指定的目录桶是否存在")
+    @PostMapping("/headDirectoryBucket")
+    public CompletableFuture<Boolean> headDirectoryBucket(@Valid @RequestBody HeadBucketRequest req) {
+        return s3DirectoryAsyncService.headDirectoryBucket(req.bucketName());
+    }
+
+    @Operation(summary = "异步检查对象是否存在", description = "检查目录桶中指定对象是否存在")
+    @PostMapping("/headDirectoryBucketObject")
+    public CompletableFuture<Boolean> headDirectoryBucketObject(@Valid @RequestBody HeadObjectRequest req) {
+        return s3DirectoryAsyncService.headDirectoryBucketObject(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步获取对象元数据", description = "返回对象的大小、ETag、最后修改时间和内容类型，优先读取元数据缓存")
+    @PostMapping("/headDirectoryBucketObjectMetadata")
+    public CompletableFuture<ObjectMetadata> headDirectoryBucketObjectMetadata(@Valid @RequestBody HeadObjectRequest req) {
+        return s3DirectoryAsyncService.headDirectoryBucketObjectMetadata(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步列出所有目录桶", description = "获取当前账号下所有目录桶的名称列表")
+    @GetMapping("/listDirectoryBuckets")
+    public CompletableFuture<List<String>> listDirectoryBuckets() {
+        return s3DirectoryAsyncService.listDirectoryBuckets();
+    }
+
+    @Operation(summary = "异步列出桶中对象", description = "自动跟随分页令牌，列出目录桶中的所有对象")
+    @GetMapping("/listDirectoryBucketObjectsV2")
+    public CompletableFuture<List<String>> listDirectoryBucketObjectsV2(@Valid @RequestBody ListObjectsV2Request req) {
+        return s3DirectoryAsyncService.listDirectoryBucketObjectsV2(req.bucketName());
+    }
+
+    @Operation(summary = "异步设置桶加密", description = "为目录桶设置加密配置")
+    @PutMapping("/putDirectoryBucketEncryption")
+    public CompletableFuture<Void> putDirectoryBucketEncryption(@Valid @RequestBody PutBucketEncryptionRequest req) {
+        return s3DirectoryAsyncService.putDirectoryBucketEncryption(req.bucketName(), req.kmsKeyId());
+    }
+
+    @Operation(summary = "异步设置桶策略", description = "为目录桶设置访问策略")
+    @PutMapping("/putDirectoryBucketPolicy")
+    public CompletableFuture<Void> putDirectoryBucketPolicy(@Valid @RequestBody PutBucketPolicyRequest req) {
+        return s3DirectoryAsyncService.putDirectoryBucketPolicy(req.bucketName(), req.policyText());
+    }
+
+    @Operation(summary = "异步上传对象", description = "将本地文件上传到目录桶中")
+    @PutMapping("/putDirectoryBucketObject")
+    public CompletableFuture<Void> putDirectoryBucketObject(@Valid @RequestBody PutObjectRequest req) {
+        return s3DirectoryAsyncService.putDirectoryBucketObject(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "异步列出已上传分片", description = "列出指定分片上传任务中已上传的分片信息")
+    @PostMapping("/listDirectoryBucketMultipartUploadParts")
+    public CompletableFuture<List<Part>> listDirectoryBucketMultipartUploadParts(@Valid @RequestBody ListMultipartUploadPartsRequest req) {
+        return s3DirectoryAsyncService.listDirectoryBucketMultipartUploadParts(req.bucketName(), req.objectKey(), req.uploadId());
+    }
+
+    @Operation(summary = "异步列出分片上传任务", description = "列出目录桶中正在进行的分片上传任务")
+    @GetMapping("/listDirectoryBucketMultipartUploads")
+    public CompletableFuture<List<MultipartUpload>> listDirectoryBucketMultipartUploads(@Valid @RequestBody ListMultipartUploadsRequest req) {
+        return s3DirectoryAsyncService.listDirectoryBucketMultipartUploads(req.bucketName());
+    }
+
+    @Operation(summary = "异步创建分片上传任务", description = "为大文件上传创建分片上传任务，返回 uploadId")
+    @PostMapping("/createDirectoryBucketMultipartUpload")
+    public CompletableFuture<String> createDirectoryBucketMultipartUpload(@Valid @RequestBody CreateMultipartUploadRequest req) {
+        return s3DirectoryAsyncService.createDirectoryBucketMultipartUpload(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "异步完成分片上传", description = "提交所有已上传的分片，合并成完整对象")
+    @PostMapping("/completeDirectoryBucketMultipartUpload")
+    public CompletableFuture<Boolean> completeDirectoryBucketMultipartUpload(@Valid @RequestBody CompleteMultipartUploadRequest req) {
+        return s3DirectoryAsyncService.completeDirectoryBucketMultipartUpload(req.bucketName(), req.objectKey(), req.uploadId(), req.uploadParts());
+    }
+
+    @Operation(summary = "异步中止分片上传", description = "根据 bucket、objectKey 和 uploadId 中止一个未完成的分片上传")
+    @PostMapping("/abortDirectoryBucketMultipartUpload")
+    public CompletableFuture<Boolean> abortDirectoryBucketMultipartUpload(@Valid @RequestBody AbortMultipartUploadRequest req) {
+        return s3DirectoryAsyncService.abortDirectoryBucketMultipartUpload(req.bucketName(), req.objectKey(), req.uploadId());
+    }
+
+    @Operation(summary = "异步分片上传", description = "执行大文件的分片上传，返回已完成的分片信息")
+    @PostMapping("/multipartUploadForDirectoryBucket")
+    public CompletableFuture<List<CompletedPart>> multipartUploadForDirectoryBucket(@Valid @RequestBody MultipartUploadRequest req) {
+        return s3DirectoryAsyncService.multipartUploadForDirectoryBucket(req.bucketName(), req.objectKey(), req.uploadId(), req.filePath());
+    }
+
+    @Operation(summary = "异步断点续传分片上传", description = "以本地日志记录已完成的分片，重启后与 ListParts 核对，仅上传缺失的分片并完成上传，返回对象 ETag")
+    @PostMapping("/resumableMultipartUploadForDirectoryBucket")
+    public CompletableFuture<String> resumableMultipartUploadForDirectoryBucket(@Valid @RequestBody ResumableMultipartUploadRequest req) {
+        return s3DirectoryAsyncService.resumableMultipartUploadForDirectoryBucket(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "异步并行下载到本地", description = "以并发的分段 GET 将大对象下载到服务器本地文件")
+    @PostMapping("/downloadDirectoryBucketObjectToPath")
+    public CompletableFuture<Long> downloadDirectoryBucketObjectToPath(@Valid @RequestBody DownloadObjectRequest req) {
+        return s3DirectoryAsyncService.downloadDirectoryBucketObjectToPath(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "异步分片复制", description = "通过分片方式复制大对象到目标位置")
+    @PostMapping("/multipartUploadCopyForDirectoryBucket")
+    public CompletableFuture<List<CompletedPart>> multipartUploadCopyForDirectoryBucket(@Valid @RequestBody MultipartUploadCopyRequest req) {
+        return s3DirectoryAsyncService.multipartUploadCopyForDirectoryBucket(req.sourceBucket(), req.sourceKey(), req.destinationBucket(), req.destinationKey(), req.uploadId());
+    }
 }
@@ -1,26 +1,70 @@
 package com.cloudflare.storage.controller;
 
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.model.BufferPoolStats;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ConcurrencyLimitStats;
+import com.cloudflare.storage.model.DiskCacheStats;
+import com.cloudflare.storage.model.ObjectExistence;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.model.ListedObject;
+import com.cloudflare.storage.model.SingleFlightStats;
+import com.cloudflare.storage.model.SyncResult;
 import com.cloudflare.storage.requests.S3DirectoryRequests.*;
 import com.cloudflare.storage.service.S3DirectoryService;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter;
+import com.cloudflare.storage.support.BufferPool;
+import com.cloudflare.storage.support.FormDataFileStream;
+import com.cloudflare.storage.support.MetadataCache;
+import com.cloudflare.storage.support.NdJson;
+import com.cloudflare.storage.support.ObjectDiskCache;
+import com.cloudflare.storage.support.ShardedListing;
+import com.cloudflare.storage.support.SingleFlights;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.MultipartUpload;
 import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/s3")
 @Tag(name = "Cloudflare R2 Bucket API", description = "Cloudflare R2 目录桶操作接口")
 public class S3DirectoryController {
+    private static final int DEFAULT_LIST_FAN_OUT = 64;
+    private static final String FORM_FILE_FIELD = "file";
+
     private final S3DirectoryService s3DirectoryService;
+    private final ObjectMapper objectMapper;
+    private final BufferPool bufferPool;
+    private final ObjectDiskCache objectDiskCache;
+    private final MetadataCache metadataCache;
+    private final SingleFlights singleFlights;
+    private final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter;
 
     @Operation(summary = "复制对象", description = "从源桶复制对象到目标桶")
     @PostMapping("/copyDirectoryBucketObject")
@@ -28,6 +72,18 @@ public class S3DirectoryController {
         s3DirectoryService.copyDirectoryBucketObject(req.sourceBucket(), req.sourceObjectKey(), req.targetBucket(), req.targetObjectKey());
     }
 
+    @Operation(summary = "批量复制对象", description = "按源前缀或键列表批量复制对象到目标桶/前缀，超过 5GB 的对象自动分片复制；进度写入检查点，重复提交同一任务时从断点继续")
+    @PostMapping("/copyDirectoryBucketObjects")
+    public BatchCopyResult copyDirectoryBucketObjects(@Valid @RequestBody BatchCopyRequest req) {
+        return s3DirectoryService.copyDirectoryBucketObjects(req.sourceBucket(), req.sourcePrefix(), req.objectKeys(), req.destinationBucket(), req.destinationPrefix());
+    }
+
+    @Operation(summary = "批量移动对象", description = "批量复制对象后按每批 1000 个删除源对象；进度写入检查点，重复提交同一任务时从断点继续")
+    @PostMapping("/moveDirectoryBucketObjects")
+    public BatchCopyResult moveDirectoryBucketObjects(@Valid @RequestBody BatchCopyRequest req) {
+        return s3DirectoryService.moveDirectoryBucketObjects(req.sourceBucket(), req.sourcePrefix(), req.objectKeys(), req.destinationBucket(), req.destinationPrefix());
+    }
+
     @Operation(summary = "创建目录桶", description = "创建一个新的目录桶，可指定可用区")
     @PostMapping("/createDirectoryBucket")
     public void createDirectoryBucket(@Valid @RequestBody CreateBucketRequest req) {
@@ -58,10 +114,16 @@ public class S3DirectoryController {
         s3DirectoryService.deleteDirectoryBucketObject(req.bucketName(), req.objectKey());
     }
 
-    @Operation(summary = "批量删除对象", description = "批量删除目录桶中的多个对象")
+    @Operation(summary = "批量删除对象", description = "批量删除目录桶中的多个对象，按每批 1000 个键并发执行，返回删除与失败数量")
     @DeleteMapping("/deleteDirectoryBucketObjects")
-    public void deleteDirectoryBucketObjects(@Valid @RequestBody DeleteObjectsRequest req) {
-        s3DirectoryService.deleteDirectoryBucketObjects(req.bucketName(), req.objectKeys());
+    public BulkDeleteResult deleteDirectoryBucketObjects(@Valid @RequestBody DeleteObjectsRequest req) {
+        return s3DirectoryService.deleteDirectoryBucketObjects(req.bucketName(), req.objectKeys());
+    }
+
+    @Operation(summary = "按前缀批量删除对象", description = "列出指定前缀下的所有对象并分批并发删除，返回删除与失败数量")
+    @DeleteMapping("/deleteDirectoryBucketObjectsByPrefix")
+    public BulkDeleteResult deleteDirectoryBucketObjectsByPrefix(@Valid @RequestBody DeleteObjectsByPrefixRequest req) {
+        return s3DirectoryService.deleteDirectoryBucketObjectsByPrefix(req.bucketName(), req.prefix());
     }
 
     @Operation(summary = "获取桶加密配置", description = "获取目录桶的加密配置信息")
@@ -82,6 +144,133 @@ public class S3DirectoryController {
         return s3DirectoryService.getDirectoryBucketObject(req.bucketName(), req.objectKey());
     }
 
+    @Operation(summary = "下载对象", description = "流式下载目录桶中的对象，支持 Range 请求；较小的对象经本地磁盘缓存读取")
+    @GetMapping("/downloadDirectoryBucketObject")
+    public ResponseEntity<StreamingResponseBody> downloadDirectoryBucketObject(@Valid GetObjectRequest req,
+                                                                               @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                                               HttpServletRequest request) {
+        ObjectDiskCache.Hit cached = s3DirectoryService.openCachedDirectoryBucketObject(req.bucketName(), req.objectKey());
+        if (cached != null) {
+            try {
+                // The body may never run (client gone, async timeout), so the hit is also released when the request ends
+                WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(cached, new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        cached.close();
+                    }
+                });
+                return cachedDownload(cached, range);
+            } catch (RuntimeException e) {
+                cached.close();
+                throw e;
+            }
+        }
+
+        ResponseInputStream<GetObjectResponse> object;
+        try {
+            object = s3DirectoryService.getDirectoryBucketObjectStream(req.bucketName(), req.objectKey(), range);
+        } catch (S3Exception e) {
+            if (e.statusCode() != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw e;
+            }
+            // Answer as the cached path does; the metadata is cached by the lookup that ruled the disk cache out
+            long size = s3DirectoryService.headDirectoryBucketObjectMetadata(req.bucketName(), req.objectKey()).size();
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+        GetObjectResponse response = object.response();
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity
+                .status(response.contentRange() != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(response.eTag())
+                .contentLength(response.contentLength());
+        if (response.contentType() != null) {
+            builder.contentType(MediaType.parseMediaType(response.contentType()));
+        }
+        if (response.contentRange() != null) {
+            builder.header(HttpHeaders.CONTENT_RANGE, response.contentRange());
+        }
+        if (response.lastModified() != null) {
+            builder.lastModified(response.lastModified());
+        }
+
+        return builder.body(outputStream -> {
+            try (object) {
+                object.transferTo(outputStream);
+            }
+        });
+    }
+
+    /**
+     * Serves a download from the disk cache. A single satisfiable range is answered with 206; other range headers
+     * are ignored, as HTTP allows.
+     * <p>
+     * The file is copied through a heap buffer rather than handed to Tomcat's sendfile: sendfile opens the file by
+     * name after the handler has returned and reports no completion, so the hit could not be held until the copy
+     * ends and an eviction could delete the file under it. Cached objects are bounded by
+     * {@code cloudflare.disk-cache.max-object-size}, which bounds that copy.
+     */
+    private ResponseEntity<StreamingResponseBody> cachedDownload(ObjectDiskCache.Hit cached, String range) {
+        ObjectMetadata metadata = cached.metadata();
+        long size = metadata.size();
+        long position = 0;
+        long length = size;
+
+        List<HttpRange> ranges = List.of();
+        try {
+            ranges = range != null ? HttpRange.parseRanges(range) : List.of();
+        } catch (IllegalArgumentException ignored) {
+            // Malformed: serve the whole object
+        }
+        if (ranges.size() == 1) {
+            try {
+                position = ranges.getFirst().getRangeStart(size);
+                length = ranges.getFirst().getRangeEnd(size) - position + 1;
+            } catch (IllegalArgumentException e) {
+                length = 0;
+            }
+            // A range starting at or past the end is not rejected by HttpRange, but is just as unsatisfiable
+            if (length <= 0) {
+                cached.close();
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
+        boolean partial = length != size;
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity
+                .status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(metadata.eTag())
+                .contentLength(length);
+        if (metadata.contentType() != null) {
+            builder.contentType(MediaType.parseMediaType(metadata.contentType()));
+        }
+        if (partial) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + position + "-" + (position + length - 1) + "/" + size);
+        }
+        if (metadata.lastModified() != null) {
+            builder.lastModified(metadata.lastModified());
+        }
+
+        long start = position;
+        long count = length;
+        return builder.body(outputStream -> {
+            try (cached) {
+                cached.copyTo(start, count, outputStream);
+            }
+        });
+    }
+
+    @Operation(summary = "磁盘缓存统计", description = "查看本地磁盘对象缓存的占用、命中、合并读取及重新验证情况")
+    @GetMapping("/diskCacheStats")
+    public DiskCacheStats diskCacheStats() {
+        return objectDiskCache.stats();
+    }
+
     @Operation(summary = "获取对象属性", description = "获取对象的元数据信息，如大小、ETag等")
     @GetMapping("/getDirectoryBucketObjectAttributes")
     public boolean getDirectoryBucketObjectAttributes(@Valid @RequestBody GetObjectAttributesRequest req) {
@@ -100,6 +289,18 @@ public class S3DirectoryController {
         return s3DirectoryService.headDirectoryBucketObject(req.bucketName(), req.objectKey());
     }
 
+    @Operation(summary = "获取对象元数据", description = "返回对象的大小、ETag、最后修改时间和内容类型，优先读取元数据缓存")
+    @PostMapping("/headDirectoryBucketObjectMetadata")
+    public ObjectMetadata headDirectoryBucketObjectMetadata(@Valid @RequestBody HeadObjectRequest req) {
+        return s3DirectoryService.headDirectoryBucketObjectMetadata(req.bucketName(), req.objectKey());
+    }
+
+    @Operation(summary = "批量检查对象是否存在", description = "一次检查最多 10000 个对象是否存在，返回每个对象的大小和 ETag；键集中于同一前缀时改用一次分页列举代替逐个 HEAD")
+    @PostMapping("/headDirectoryBucketObjects")
+    public List<ObjectExistence> headDirectoryBucketObjects(@Valid @RequestBody HeadObjectsRequest req) {
+        return s3DirectoryService.headDirectoryBucketObjects(req.bucketName(), req.objectKeys());
+    }
+
     @Operation(summary = "列出所有目录桶", description = "获取当前账号下所有目录桶的名称列表")
     @GetMapping("/listDirectoryBuckets")
     public List<String> listDirectoryBuckets() {
@@ -112,6 +313,37 @@ public class S3DirectoryController {
         return s3DirectoryService.listDirectoryBucketObjectsV2(req.bucketName());
     }
 
+    @Operation(summary = "流式列出桶中对象", description = "自动跟随分页令牌，以 NDJSON 逐行流式返回对象，支持 prefix、delimiter、startAfter 与 maxKeys")
+    @GetMapping(value = "/streamDirectoryBucketObjectsV2", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDirectoryBucketObjectsV2(@Valid StreamObjectsV2Request req) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> {
+                    try (Stream<ListedObject> entries = s3DirectoryService.streamDirectoryBucketObjectsV2(
+                            req.bucketName(), req.prefix(), req.delimiter(), req.startAfter(), req.maxKeys())) {
+                        NdJson.write(objectMapper, outputStream, entries);
+                    }
+                });
+    }
+
+    @Operation(summary = "分片并行列出桶中对象", description = "按前缀发现分片并并行列举，以 NDJSON 流式返回；可选有序合并或无序高吞吐输出，并附带每个分片的吞吐统计")
+    @GetMapping(value = "/streamDirectoryBucketObjectsV2Sharded", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDirectoryBucketObjectsV2Sharded(@Valid ShardedListObjectsV2Request req) {
+        int fanOut = req.fanOut() == null ? DEFAULT_LIST_FAN_OUT : req.fanOut();
+        boolean ordered = !Boolean.FALSE.equals(req.ordered());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> {
+                    try (ShardedListing listing = s3DirectoryService.listDirectoryBucketObjectsV2Sharded(req.bucketName(), req.prefix(), fanOut, ordered);
+                         Stream<ListedObject> entries = listing.entries()) {
+                        NdJson.write(objectMapper, outputStream, entries);
+                        if (Boolean.TRUE.equals(req.includeStats())) {
+                            NdJson.write(objectMapper, outputStream, listing.stats().stream());
+                        }
+                    }
+                });
+    }
+
     @Operation(summary = "设置桶加密", description = "为目录桶设置加密配置")
     @PutMapping("/putDirectoryBucketEncryption")
     public void putDirectoryBucketEncryption(@Valid @RequestBody PutBucketEncryptionRequest req) {
@@ -130,6 +362,44 @@ public class S3DirectoryController {
         s3DirectoryService.putDirectoryBucketObject(req.bucketName(), req.objectKey(), req.filePath());
     }
 
+    @Operation(summary = "流式上传对象", description = "将请求体直接流式写入目录桶，不落本地磁盘；小于分片大小时单次 PUT，否则用固定数量的复用缓冲区边读边并发分片上传")
+    @PutMapping("/streamDirectoryBucketObject")
+    public long streamDirectoryBucketObject(@RequestParam String bucketName, @RequestParam String objectKey,
+                                            HttpServletRequest request) throws IOException {
+        return s3DirectoryService.streamDirectoryBucketObject(bucketName, objectKey, request.getContentType(), request.getInputStream());
+    }
+
+    @Operation(summary = "表单流式上传对象", description = "从 multipart/form-data 请求的 file 字段边接收边写入目录桶，不落本地磁盘")
+    @PostMapping(value = "/streamDirectoryBucketObjectForm", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public long streamDirectoryBucketObjectForm(@RequestParam String bucketName, @RequestParam String objectKey,
+                                                HttpServletRequest request) throws IOException {
+        String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+        if (boundary == null) {
+            throw new IllegalArgumentException("Missing multipart boundary");
+        }
+        FormDataFileStream file = FormDataFileStream.open(request.getInputStream(), boundary.replace("\"", ""), FORM_FILE_FIELD);
+        return s3DirectoryService.streamDirectoryBucketObject(bucketName, objectKey, file.contentType(), file);
+    }
+
+    @Operation(summary = "缓冲池统计", description = "查看分片缓冲池的内存占用、命中、未命中及等待情况")
+    @GetMapping("/bufferPoolStats")
+    public BufferPoolStats bufferPoolStats() {
+        return bufferPool.stats();
+    }
+
+    @Operation(summary = "请求合并统计", description = "查看 GET、HEAD 及 GetObjectAttributes 并发重复请求的合并情况与去重比例")
+    @GetMapping("/singleFlightStats")
+    public List<SingleFlightStats> singleFlightStats() {
+        return Stream.concat(metadataCache.flightStats().stream(), singleFlights.stats().stream()).toList();
+    }
+
+    @Operation(summary = "并发限流统计", description = "查看各存储桶、各类操作的自适应并发上限、在途与排队请求数及 429/503 限流次数")
+    @GetMapping("/concurrencyLimitStats")
+    public List<ConcurrencyLimitStats> concurrencyLimitStats() {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        return limiter != null ? limiter.stats() : List.of();
+    }
+
     @Operation(summary = "列出已上传分片", description = "列出指定分片上传任务中已上传的分片信息")
     @PostMapping("/listDirectoryBucketMultipartUploadParts")
     public List<Part> listDirectoryBucketMultipartUploadParts(@Valid @RequestBody ListMultipartUploadPartsRequest req) {
@@ -167,6 +437,30 @@ public class S3DirectoryController {
         return s3DirectoryService.multipartUploadForDirectoryBucket(req.bucketName(), req.objectKey(), req.uploadId(), filePath);
     }
 
+    @Operation(summary = "断点续传分片上传", description = "以本地日志记录已完成的分片，重启后与 ListParts 核对，仅上传缺失的分片并完成上传，返回对象 ETag")
+    @PostMapping("/resumableMultipartUploadForDirectoryBucket")
+    public String resumableMultipartUploadForDirectoryBucket(@Valid @RequestBody ResumableMultipartUploadRequest req) throws IOException {
+        return s3DirectoryService.resumableMultipartUploadForDirectoryBucket(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "并行下载到本地", description = "以并发的分段 GET 将大对象下载到服务器本地文件")
+    @PostMapping("/downloadDirectoryBucketObjectToPath")
+    public long downloadDirectoryBucketObjectToPath(@Valid @RequestBody DownloadObjectRequest req) throws IOException {
+        return s3DirectoryService.downloadDirectoryBucketObjectToPath(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "上传同步目录", description = "遍历本地目录树并与远端列表按大小、修改时间和 ETag 比对，仅并发上传新增或变更的文件，小文件单次 PUT，大文件分片上传")
+    @PostMapping("/syncDirectoryToBucket")
+    public SyncResult syncDirectoryToBucket(@Valid @RequestBody SyncDirectoryRequest req) throws IOException {
+        return s3DirectoryService.syncDirectoryToBucket(req.localDirectory(), req.bucketName(), req.prefix());
+    }
+
+    @Operation(summary = "下载同步目录", description = "列出前缀下的对象并与本地目录树比对，仅并发下载新增或变更的对象，大对象按范围并发下载")
+    @PostMapping("/syncBucketToDirectory")
+    public SyncResult syncBucketToDirectory(@Valid @RequestBody SyncDirectoryRequest req) throws IOException {
+        return s3DirectoryService.syncBucketToDirectory(req.bucketName(), req.prefix(), req.localDirectory());
+    }
+
     @Operation(summary = "分片复制", description = "通过分片方式复制大对象到目标位置")
     @PostMapping("/multipartUploadCopyForDirectoryBucket")
     public List<CompletedPart> multipartUploadCopyForDirectoryBucket(@Valid @RequestBody MultipartUploadCopyRequest req) {
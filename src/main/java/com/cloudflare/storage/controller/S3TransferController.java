@@ -0,0 +1,78 @@
+package com.cloudflare.storage.controller;
+
+import com.cloudflare.storage.model.TransferStatus;
+import com.cloudflare.storage.requests.S3DirectoryRequests.*;
+import com.cloudflare.storage.service.S3TransferManagerServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Background transfers: each start endpoint returns the new transfer's status at once, and the
+ * transfer is then followed and controlled through its ID.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/s3/transfer")
+@Tag(name = "Cloudflare R2 Transfer API", description = "Cloudflare R2 后台传输任务接口")
+public class S3TransferController {
+    private final S3TransferManagerServiceImpl s3TransferManagerService;
+
+    @Operation(summary = "后台上传文件", description = "提交上传任务并立即返回传输 ID，大文件自动分片上传")
+    @PostMapping("/uploadFile")
+    public TransferStatus uploadFile(@Valid @RequestBody PutObjectRequest req) {
+        return s3TransferManagerService.uploadFile(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "后台下载文件", description = "提交下载任务并立即返回传输 ID")
+    @PostMapping("/downloadFile")
+    public TransferStatus downloadFile(@Valid @RequestBody DownloadObjectRequest req) {
+        return s3TransferManagerService.downloadFile(req.bucketName(), req.objectKey(), req.filePath());
+    }
+
+    @Operation(summary = "后台复制对象", description = "提交复制任务并立即返回传输 ID，大对象自动分片复制")
+    @PostMapping("/copyObject")
+    public TransferStatus copyObject(@Valid @RequestBody CopyObjectRequest req) {
+        return s3TransferManagerService.copyObject(req.sourceBucket(), req.sourceObjectKey(), req.targetBucket(), req.targetObjectKey());
+    }
+
+    @Operation(summary = "后台上传目录", description = "提交目录上传任务并立即返回传输 ID，进度为所有文件之和")
+    @PostMapping("/uploadDirectory")
+    public TransferStatus uploadDirectory(@Valid @RequestBody UploadDirectoryRequest req) {
+        return s3TransferManagerService.uploadDirectory(req.localDirectory(), req.bucketName(), req.prefix());
+    }
+
+    @Operation(summary = "查询传输进度", description = "返回已传输字节数、总字节数、速率和预计剩余时间")
+    @PostMapping("/getTransfer")
+    public TransferStatus getTransfer(@Valid @RequestBody TransferRequest req) {
+        return s3TransferManagerService.getTransfer(req.transferId());
+    }
+
+    @Operation(summary = "列出传输任务", description = "列出进行中、已暂停及保留期内已结束的传输任务")
+    @GetMapping("/listTransfers")
+    public List<TransferStatus> listTransfers() {
+        return s3TransferManagerService.listTransfers();
+    }
+
+    @Operation(summary = "暂停传输", description = "暂停文件上传或下载，已完成的分片或已写入的字节保留")
+    @PostMapping("/pauseTransfer")
+    public TransferStatus pauseTransfer(@Valid @RequestBody TransferRequest req) {
+        return s3TransferManagerService.pauseTransfer(req.transferId());
+    }
+
+    @Operation(summary = "恢复传输", description = "从暂停处继续文件上传或下载")
+    @PostMapping("/resumeTransfer")
+    public TransferStatus resumeTransfer(@Valid @RequestBody TransferRequest req) {
+        return s3TransferManagerService.resumeTransfer(req.transferId());
+    }
+
+    @Operation(summary = "取消传输", description = "取消进行中或已暂停的传输，并清理未完成的分片上传或部分下载的文件")
+    @DeleteMapping("/cancelTransfer")
+    public TransferStatus cancelTransfer(@Valid @RequestBody TransferRequest req) {
+        return s3TransferManagerService.cancelTransfer(req.transferId());
+    }
+}
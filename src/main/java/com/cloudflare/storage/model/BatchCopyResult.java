@@ -0,0 +1,28 @@
+package com.cloudflare.storage.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch copy or move. The counts cover this run only; a resumed job does not repeat the
+ * objects before its checkpoint, except the ones that failed.
+ *
+ * @param copied        The number of objects copied
+ * @param skipped       The number of sources already gone when a resumed move reached them, moved by the run
+ *                      that was interrupted
+ * @param failed        The number of objects that could not be copied, or for a move whose source could not be
+ *                      deleted
+ * @param deleted       The number of sources deleted after being copied, for a move
+ * @param bytes         The bytes copied
+ * @param resumedAfter  The key the run continued after, or null if the job started from the beginning
+ * @param elapsedMillis The time the run took
+ * @param failures      The first failures, capped so the result stays small for huge jobs
+ */
+public record BatchCopyResult(long copied, long skipped, long failed, long deleted, long bytes, String resumedAfter,
+                              long elapsedMillis, List<Failure> failures) {
+
+    /**
+     * A source key that failed, with the error code and message of the failure.
+     */
+    public record Failure(String key, String code, String message) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.cloudflare.storage.model;
+
+/**
+ * Usage and counters of the shared part buffer pool.
+ *
+ * @param capacityBytes     The memory cap over leased and idle buffers
+ * @param leasedBytes       The bytes currently on loan
+ * @param idleBytes         The bytes held in released buffers kept for reuse
+ * @param waiting           The requests currently waiting for memory
+ * @param leases            The requests since startup
+ * @param hits              The requests served from a released buffer
+ * @param misses            The requests that allocated a new buffer
+ * @param waits             The requests that had to wait for memory
+ * @param timeouts          The requests that gave up waiting
+ * @param averageWaitMillis The average wait of the requests that waited and got a buffer
+ * @param maxWaitMillis     The longest such wait
+ */
+public record BufferPoolStats(long capacityBytes, long leasedBytes, long idleBytes, int waiting, long leases,
+                              long hits, long misses, long waits, long timeouts, long averageWaitMillis,
+                              long maxWaitMillis) {
+}
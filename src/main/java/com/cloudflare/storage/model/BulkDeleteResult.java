@@ -0,0 +1,19 @@
+package com.cloudflare.storage.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete.
+ *
+ * @param deleted  The number of keys deleted
+ * @param failed   The number of keys that could not be deleted after all attempts
+ * @param failures A sample of the keys that failed, capped so the result stays small for huge deletes
+ */
+public record BulkDeleteResult(long deleted, long failed, List<Failure> failures) {
+
+    /**
+     * A key that could not be deleted, with the error code and message from the last attempt.
+     */
+    public record Failure(String key, String code, String message) {
+    }
+}
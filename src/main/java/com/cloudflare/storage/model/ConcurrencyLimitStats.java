@@ -0,0 +1,18 @@
+package com.cloudflare.storage.model;
+
+/**
+ * State and counters of the adaptive concurrency limit of one bucket and operation class.
+ *
+ * @param bucketName     The bucket, or empty for calls without one
+ * @param operationClass The class of operations sharing the limit
+ * @param limit          The current limit on calls in flight
+ * @param inFlight       The calls currently in flight
+ * @param queued         The calls currently waiting for a slot
+ * @param throttled      The attempts R2 answered with 429 or 503 since startup
+ * @param decreases      The times the limit was cut since startup
+ * @param waits          The calls that had to wait for a slot
+ * @param timeouts       The calls that gave up waiting
+ */
+public record ConcurrencyLimitStats(String bucketName, String operationClass, double limit, int inFlight, int queued,
+                                    long throttled, long decreases, long waits, long timeouts) {
+}
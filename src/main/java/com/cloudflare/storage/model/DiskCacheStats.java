@@ -0,0 +1,18 @@
+package com.cloudflare.storage.model;
+
+/**
+ * Usage and counters of the local disk object cache.
+ *
+ * @param capacityBytes The byte budget over all cached objects
+ * @param usedBytes     The bytes of the objects currently cached
+ * @param entries       The objects currently cached
+ * @param hits          The reads served from disk without contacting R2
+ * @param coalesced     The reads that waited for a download or revalidation started by another read
+ * @param loads         The downloads of objects that were not cached
+ * @param revalidations The conditional GETs of cached objects that were stale or had a different ETag
+ * @param notModified   The revalidations answered with 304 Not Modified
+ * @param fetchedBytes  The bytes downloaded into the cache
+ */
+public record DiskCacheStats(long capacityBytes, long usedBytes, long entries, long hits, long coalesced, long loads,
+                             long revalidations, long notModified, long fetchedBytes) {
+}
@@ -0,0 +1,22 @@
+package com.cloudflare.storage.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+
+/**
+ * One entry of a bucket listing: either an object, or a common prefix when the listing uses a delimiter.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ListedObject(String key, Long size, String eTag, Instant lastModified, String prefix) {
+
+    public static ListedObject of(S3Object object) {
+        return new ListedObject(object.key(), object.size(), object.eTag(), object.lastModified(), null);
+    }
+
+    public static ListedObject of(CommonPrefix commonPrefix) {
+        return new ListedObject(null, null, null, null, commonPrefix.prefix());
+    }
+}
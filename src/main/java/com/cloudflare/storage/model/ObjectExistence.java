@@ -0,0 +1,28 @@
+package com.cloudflare.storage.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Whether one key of a batch existence check exists, with its size and ETag when it does.
+ *
+ * @param key    The object key
+ * @param exists Whether the object exists; false as well when the check failed
+ * @param size   The object size in bytes
+ * @param eTag   The object's ETag
+ * @param error  Why the check failed, when it did
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ObjectExistence(String key, boolean exists, Long size, String eTag, String error) {
+
+    public static ObjectExistence found(String key, Long size, String eTag) {
+        return new ObjectExistence(key, true, size, eTag, null);
+    }
+
+    public static ObjectExistence missing(String key) {
+        return new ObjectExistence(key, false, null, null, null);
+    }
+
+    public static ObjectExistence failed(String key, String error) {
+        return new ObjectExistence(key, false, null, null, error);
+    }
+}
@@ -0,0 +1,21 @@
+package com.cloudflare.storage.model;
+
+import java.time.Instant;
+
+/**
+ * What a {@code HeadObject} reports about an object, or that the object does not exist.
+ *
+ * @param exists       Whether the object exists; all other fields are null when it does not
+ * @param size         The object size in bytes
+ * @param eTag         The object's ETag
+ * @param lastModified When the object was last written
+ * @param contentType  The stored content type
+ */
+public record ObjectMetadata(boolean exists, Long size, String eTag, Instant lastModified, String contentType) {
+
+    private static final ObjectMetadata MISSING = new ObjectMetadata(false, null, null, null, null);
+
+    public static ObjectMetadata missing() {
+        return MISSING;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cloudflare.storage.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Throughput of one shard of a sharded bucket listing.
+ *
+ * @param shard         The shard index, in key order
+ * @param fromKey       The first key of the shard's range (inclusive), empty for the start of the listing
+ * @param toKey         The end of the shard's range (exclusive), null for the end of the listing
+ * @param keys          The number of keys listed so far
+ * @param elapsedMillis The time the shard has spent listing
+ * @param keysPerSecond The listing rate of the shard
+ * @param finished      Whether the shard has listed its whole range
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ShardStats(int shard, String fromKey, String toKey, long keys, long elapsedMillis, double keysPerSecond,
+                         boolean finished) {
+}
@@ -0,0 +1,20 @@
+package com.cloudflare.storage.model;
+
+/**
+ * Deduplication counters of one coalesced operation.
+ *
+ * @param operation     The operation
+ * @param calls         The calls since startup
+ * @param upstreamCalls The calls that went to R2
+ * @param shared        The calls answered by another call's request to R2
+ * @param inFlight      The requests to R2 currently in flight
+ * @param dedupRatio    The share of calls that did not go to R2, from 0 to 1
+ */
+public record SingleFlightStats(String operation, long calls, long upstreamCalls, long shared, long inFlight,
+                                double dedupRatio) {
+
+    public static SingleFlightStats of(String operation, long calls, long shared, long inFlight) {
+        return new SingleFlightStats(operation, calls, calls - shared, shared, inFlight,
+                calls == 0 ? 0 : (double) shared / calls);
+    }
+}
@@ -0,0 +1,27 @@
+package com.cloudflare.storage.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a directory tree sync.
+ *
+ * @param scanned       The number of files or objects compared
+ * @param transferred   The number that were new or changed and were transferred
+ * @param skipped       The number found unchanged
+ * @param failed        The number that could not be compared or transferred
+ * @param bytes         The bytes transferred
+ * @param elapsedMillis The time the sync took
+ * @param failures      The first failures, capped so the result stays small
+ */
+public record SyncResult(long scanned, long transferred, long skipped, long failed, long bytes, long elapsedMillis,
+                         List<Failure> failures) {
+
+    /**
+     * One file or object that failed to sync.
+     *
+     * @param key     The object key
+     * @param message The failure message
+     */
+    public record Failure(String key, String message) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.cloudflare.storage.model;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of a background transfer.
+ *
+ * @param transferId       The ID the transfer was registered under
+ * @param type             What the transfer does
+ * @param state            Where the transfer is in its lifecycle
+ * @param bucketName       The bucket written to, or read from for downloads
+ * @param objectKey        The object key, or the key prefix for directory uploads
+ * @param transferredBytes The bytes transferred so far
+ * @param totalBytes       The bytes to transfer, or null while unknown
+ * @param bytesPerSecond   The average rate since the transfer last started or resumed
+ * @param etaSeconds       The estimated seconds left at that rate, or null while unknown
+ * @param startedAt        When the transfer was submitted
+ * @param finishedAt       When the transfer completed, failed or was cancelled, or null while it is not finished
+ * @param result           The ETag of a completed object transfer, the failed file count of a directory upload,
+ *                         or the failure message
+ */
+public record TransferStatus(String transferId, Type type, State state, String bucketName, String objectKey,
+                             long transferredBytes, Long totalBytes, long bytesPerSecond, Long etaSeconds,
+                             Instant startedAt, Instant finishedAt, String result) {
+
+    public enum Type {
+        UPLOAD_FILE, DOWNLOAD_FILE, COPY, UPLOAD_DIRECTORY
+    }
+
+    public enum State {
+        RUNNING, PAUSED, COMPLETED, FAILED, CANCELLED;
+
+        public boolean finished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ObjectExistence;
+import com.cloudflare.storage.model.ObjectMetadata;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link S3DirectoryService}. Every operation returns as soon as its
+ * requests are issued; failures complete the returned future exceptionally with the SDK exception.
+ */
+public interface S3DirectoryAsyncService {
+    CompletableFuture<Boolean> abortDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId);
+    CompletableFuture<Boolean> completeDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId, List<CompletedPart> uploadParts);
+    CompletableFuture<Void> copyDirectoryBucketObject(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey);
+    CompletableFuture<BatchCopyResult> copyDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys, String destinationBucket, String destinationPrefix);
+    CompletableFuture<BatchCopyResult> moveDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys, String destinationBucket, String destinationPrefix);
+    CompletableFuture<Void> createDirectoryBucket(String bucketName, String zone);
+    CompletableFuture<String> createDirectoryBucketMultipartUpload(String bucketName, String objectKey);
+    CompletableFuture<Void> deleteDirectoryBucket(String bucketName);
+    CompletableFuture<Void> deleteDirectoryBucketEncryption(String bucketName);
+    CompletableFuture<Void> deleteDirectoryBucketPolicy(String bucketName);
+    CompletableFuture<Void> deleteDirectoryBucketObject(String bucketName, String objectKey);
+    CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys);
+    CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjectsByPrefix(String bucketName, String prefix);
+    CompletableFuture<String> getDirectoryBucketEncryption(String bucketName);
+    CompletableFuture<String> getDirectoryBucketPolicy(String bucketName);
+    CompletableFuture<Boolean> getDirectoryBucketObject(String bucketName, String objectKey);
+    CompletableFuture<Boolean> getDirectoryBucketObjectAttributes(String bucketName, String objectKey);
+    CompletableFuture<Boolean> headDirectoryBucket(String bucketName);
+    CompletableFuture<Boolean> headDirectoryBucketObject(String bucketName, String objectKey);
+    CompletableFuture<ObjectMetadata> headDirectoryBucketObjectMetadata(String bucketName, String objectKey);
+    CompletableFuture<List<ObjectExistence>> headDirectoryBucketObjects(String bucketName, List<String> objectKeys);
+    CompletableFuture<List<String>> listDirectoryBuckets();
+    CompletableFuture<List<MultipartUpload>> listDirectoryBucketMultipartUploads(String bucketName);
+    CompletableFuture<List<String>> listDirectoryBucketObjectsV2(String bucketName);
+    CompletableFuture<List<Part>> listDirectoryBucketMultipartUploadParts(String bucketName, String objectKey, String uploadId);
+    CompletableFuture<Void> putDirectoryBucketEncryption(String bucketName, String kmsKeyId);
+    CompletableFuture<Void> putDirectoryBucketPolicy(String bucketName, String policyText);
+    CompletableFuture<Void> putDirectoryBucketObject(String bucketName, String objectKey, Path filePath);
+    CompletableFuture<List<CompletedPart>> multipartUploadForDirectoryBucket(String bucketName, String objectKey, String uploadId, Path filePath);
+    CompletableFuture<String> resumableMultipartUploadForDirectoryBucket(String bucketName, String objectKey, Path filePath);
+    CompletableFuture<Long> downloadDirectoryBucketObjectToPath(String bucketName, String objectKey, Path filePath);
+    CompletableFuture<List<CompletedPart>> multipartUploadCopyForDirectoryBucket(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey, String uploadId);
+}
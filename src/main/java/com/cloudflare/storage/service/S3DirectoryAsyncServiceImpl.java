@@ -0,0 +1,1826 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.constant.S3DirectoryConstants;
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ObjectExistence;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.support.AsyncRetry;
+import com.cloudflare.storage.support.Batches;
+import com.cloudflare.storage.support.BoundedDispatcher;
+import com.cloudflare.storage.support.CopyJournal;
+import com.cloudflare.storage.support.FileRegionBodies;
+import com.cloudflare.storage.support.MetadataCache;
+import com.cloudflare.storage.support.MultipartParts;
+import com.cloudflare.storage.support.ShardedListing;
+import com.cloudflare.storage.support.SingleFlights;
+import com.cloudflare.storage.support.UploadJournal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.FileTransformerConfiguration;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Implements the directory bucket operations on the async client only. No method blocks: each
+ * returns once its first request is issued, and fan-out operations are driven by completion
+ * callbacks rather than by a waiting thread, so thousands of calls can be in flight on the
+ * client's event loop. Blocking file system work (preallocating, checksumming, journaling) runs on
+ * the fan-out executor, never on the client's completion threads. Failures are logged and then
+ * propagated through the returned future.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class S3DirectoryAsyncServiceImpl implements S3DirectoryAsyncService {
+    private static final Duration COPY_RETRY_BACKOFF = Duration.ofMillis(200);
+    private static final Duration DELETE_RETRY_BACKOFF = Duration.ofMillis(200);
+    private static final int MAX_REPORTED_DELETE_FAILURES = 1000;
+    private static final int MAX_REPORTED_COPY_FAILURES = 1000;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final ExecutorService s3FanOutExecutor;
+    private final MetadataCache metadataCache;
+    private final SingleFlights singleFlights;
+
+    @Value("${cloudflare.multipart.part-size:5MB}")
+    private DataSize multipartPartSize;
+
+    @Value("${cloudflare.multipart.max-concurrency:8}")
+    private int multipartMaxConcurrency;
+
+    @Value("${cloudflare.copy.part-size:20MB}")
+    private DataSize copyPartSize;
+
+    @Value("${cloudflare.copy.max-concurrency:16}")
+    private int copyMaxConcurrency;
+
+    @Value("${cloudflare.copy.max-part-attempts:3}")
+    private int copyMaxPartAttempts;
+
+    @Value("${cloudflare.delete.max-concurrency:8}")
+    private int deleteMaxConcurrency;
+
+    @Value("${cloudflare.delete.max-attempts:3}")
+    private int deleteMaxAttempts;
+
+    @Value("${cloudflare.batch-head.max-concurrency:64}")
+    private int batchHeadMaxConcurrency;
+
+    @Value("${cloudflare.batch-head.min-keys-per-page:16}")
+    private int batchHeadMinKeysPerPage;
+
+    @Value("${cloudflare.batch-copy.max-batches:2}")
+    private int batchCopyMaxBatches;
+
+    @Value("${cloudflare.batch-copy.max-concurrency:32}")
+    private int batchCopyMaxConcurrency;
+
+    @Value("${cloudflare.batch-copy.checkpoint-directory:${java.io.tmpdir}/r2-copy-jobs}")
+    private Path batchCopyCheckpointDirectory;
+
+    @Value("${cloudflare.download.range-size:8MB}")
+    private DataSize downloadRangeSize;
+
+    @Value("${cloudflare.download.max-concurrency:8}")
+    private int downloadMaxConcurrency;
+
+    /**
+     * Aborts a specific multipart upload for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be uploaded
+     * @param uploadId   The upload ID of the multipart upload to abort
+     * @return True if the multipart upload is successfully aborted, false otherwise
+     */
+    @Override
+    public CompletableFuture<Boolean> abortDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId) {
+        log.info("Aborting multipart upload: {} for bucket: {}", uploadId, bucketName);
+
+        AbortMultipartUploadRequest abortMultipartUploadRequest = AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .build();
+
+        return succeeded(s3AsyncClient.abortMultipartUpload(abortMultipartUploadRequest)
+                .thenRun(() -> log.info("Aborted multipart upload: {} for object: {}", uploadId, objectKey)), "abort multipart upload");
+    }
+
+    /**
+     * Completes the multipart upload request by collating all the upload parts.
+     *
+     * @param bucketName  The name of the directory bucket
+     * @param objectKey   The key (name) of the object to be uploaded
+     * @param uploadId    The upload ID used to track the multipart upload
+     * @param uploadParts The list of completed parts
+     * @return True if the multipart upload is successfully completed, false otherwise
+     */
+    @Override
+    public CompletableFuture<Boolean> completeDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId, List<CompletedPart> uploadParts) {
+        CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(uploadParts)
+                        .build())
+                .build();
+
+        return succeeded(s3AsyncClient.completeMultipartUpload(completeMultipartUploadRequest)
+                .thenAccept(response -> log.info("Multipart upload completed. ETag: {}", response.eTag())), "complete multipart upload");
+    }
+
+    /**
+     * Copies an object from one bucket to another.
+     *
+     * @param sourceBucket    The name of the source bucket
+     * @param sourceObjectKey The key (name) of the source object
+     * @param targetBucket    The name of the target bucket
+     * @param targetObjectKey The key (name) of the target object
+     */
+    @Override
+    public CompletableFuture<Void> copyDirectoryBucketObject(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey) {
+        log.info("Copying object: {} from bucket: {} to bucket: {} with new key: {}", sourceObjectKey, sourceBucket, targetBucket, targetObjectKey);
+
+        CopyObjectRequest copyReq = CopyObjectRequest.builder()
+                .sourceBucket(sourceBucket)
+                .sourceKey(sourceObjectKey)
+                .destinationBucket(targetBucket)
+                .destinationKey(targetObjectKey)
+                .build();
+
+        return logged(s3AsyncClient.copyObject(copyReq)
+                .thenAccept(copyRes -> log.info("Successfully copied {} from bucket {} into bucket {} as {}. CopyObjectResponse: {}",
+                        sourceObjectKey, sourceBucket, targetBucket, targetObjectKey, copyRes.copyObjectResult())), "copy object");
+    }
+
+    /**
+     * Copies many objects, selected by a source prefix or listed by key, to
+     * another bucket or prefix. See {@link #batchCopy} for how the job runs.
+     *
+     * @param sourceBucket      The name of the source bucket
+     * @param sourcePrefix      The prefix of the source keys, replaced by the destination prefix
+     * @param objectKeys        The source keys to copy, or null to copy every key under the source prefix
+     * @param destinationBucket The name of the destination bucket
+     * @param destinationPrefix The prefix the copies are written under, or null to keep the source keys
+     * @return The copied, failed and skipped counts
+     */
+    @Override
+    public CompletableFuture<BatchCopyResult> copyDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys,
+                                                                       String destinationBucket, String destinationPrefix) {
+        return batchCopy(sourceBucket, sourcePrefix, objectKeys, destinationBucket, destinationPrefix, false);
+    }
+
+    /**
+     * Moves many objects, selected by a source prefix or listed by key, to
+     * another bucket or prefix: each object is copied, and the sources copied
+     * from each batch are then deleted with one {@code DeleteObjects} per
+     * {@value S3DirectoryConstants#MAX_DELETE_KEYS} keys. A source is only
+     * deleted once its copy has succeeded. See {@link #batchCopy} for how the
+     * job runs.
+     *
+     * @param sourceBucket      The name of the source bucket
+     * @param sourcePrefix      The prefix of the source keys, replaced by the destination prefix
+     * @param objectKeys        The source keys to move, or null to move every key under the source prefix
+     * @param destinationBucket The name of the destination bucket
+     * @param destinationPrefix The prefix the objects are moved under, or null to keep the source keys
+     * @return The copied, deleted, failed and skipped counts
+     */
+    @Override
+    public CompletableFuture<BatchCopyResult> moveDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys,
+                                                                       String destinationBucket, String destinationPrefix) {
+        return batchCopy(sourceBucket, sourcePrefix, objectKeys, destinationBucket, destinationPrefix, true);
+    }
+
+    /**
+     * Runs a batch copy or move job. The sources are taken in key order, in
+     * batches of {@value S3DirectoryConstants#MAX_DELETE_KEYS}: listing pages
+     * of the source prefix, or the requested keys with their sizes looked up by
+     * {@link #headDirectoryBucketObjects}. Up to
+     * {@code cloudflare.batch-copy.max-batches} batches are in flight, each
+     * copying up to {@code cloudflare.batch-copy.max-concurrency} objects at
+     * once, so the next page is listed while the previous one is still being
+     * copied. Objects up to 5 GB are copied with one {@code CopyObject};
+     * larger ones with a multipart copy.
+     * <p>
+     * Whenever every batch up to some key has finished, that key is checkpointed
+     * in a journal under {@code cloudflare.batch-copy.checkpoint-directory},
+     * named after the job, together with the keys that failed. Submitting the
+     * same job again, for example after a restart, first retries the keys that
+     * failed up to the checkpoint and then continues after it. The journal is
+     * removed once a run has reached the end without failures; otherwise it is
+     * kept with just the keys that failed, for the next submission to retry.
+     */
+    private CompletableFuture<BatchCopyResult> batchCopy(String sourceBucket, String sourcePrefix, List<String> objectKeys,
+                                                        String destinationBucket, String destinationPrefix, boolean move) {
+        String fromPrefix = sourcePrefix == null ? "" : sourcePrefix;
+        String toPrefix = destinationPrefix == null ? fromPrefix : destinationPrefix;
+        List<String> sortedKeys = objectKeys == null ? null
+                : objectKeys.stream().distinct().sorted(ShardedListing::compareKeys).toList();
+        if (sortedKeys != null && sortedKeys.stream().anyMatch(key -> !key.startsWith(fromPrefix))) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Every key must start with the source prefix: " + fromPrefix));
+        }
+        if (sourceBucket.equals(destinationBucket)) {
+            if (fromPrefix.equals(toPrefix)) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("The source and destination are the same"));
+            }
+            if (sortedKeys == null && toPrefix.startsWith(fromPrefix)) {
+                // The listing would pick up the copies themselves
+                return CompletableFuture.failedFuture(new IllegalArgumentException("The destination prefix lies under the source prefix"));
+            }
+        }
+
+        CopyJournal.Header header = new CopyJournal.Header(sourceBucket, fromPrefix, destinationBucket, toPrefix, move,
+                sortedKeys == null ? "" : CopyJournal.digest(sortedKeys));
+        Path journalPath = batchCopyCheckpointDirectory.resolve(header.fileName());
+        CopyJournal.State resumed;
+        CopyJournal journal;
+        try {
+            Files.createDirectories(batchCopyCheckpointDirectory);
+            resumed = CopyJournal.read(journalPath, header).orElse(null);
+            journal = resumed != null ? CopyJournal.reopen(journalPath) : CopyJournal.create(journalPath, header);
+        } catch (IOException e) {
+            log.error("Failed to open the copy journal {}: {}", journalPath, e.getMessage());
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        String resumedAfter = resumed != null ? resumed.lastKey() : null;
+        List<String> retriedKeys = resumed != null ? resumed.failedKeys() : List.of();
+        log.info("{} objects from bucket: {} prefix: {} to bucket: {} prefix: {}{}", move ? "Moving" : "Copying",
+                sourceBucket, fromPrefix, destinationBucket, toPrefix, resumedAfter != null
+                        ? ", resuming after: " + resumedAfter + ", retrying " + retriedKeys.size() + " failed keys" : "");
+
+        CopyJob job = new CopyJob(sourceBucket, fromPrefix, destinationBucket, toPrefix, move, resumedAfter, journal);
+        return retryFailedKeys(job, retriedKeys)
+                .thenCompose(ignored -> copyRemaining(job, sortedKeys))
+                .whenCompleteAsync((ignored, ex) -> {
+                    closeQuietly(journal);
+                    if (ex != null) {
+                        return;
+                    }
+                    if (job.failedKeys().isEmpty()) {
+                        deleteQuietly(journalPath);
+                        return;
+                    }
+                    try {
+                        CopyJournal.rewrite(journalPath, header, job.checkpoint(), job.failedKeys());
+                    } catch (IOException e) {
+                        // The journal as appended still lists the failed keys, only less compactly
+                        log.warn("Failed to compact the copy journal {}: {}", journalPath, e.getMessage());
+                    }
+                }, s3FanOutExecutor)
+                .thenApply(ignored -> job.result());
+    }
+
+    /**
+     * Copies the keys that failed in an earlier run, in batches looked up by {@link #headDirectoryBucketObjects}.
+     * They lie before the checkpoint, so they are not checkpointed again.
+     */
+    private CompletableFuture<Void> retryFailedKeys(CopyJob job, List<String> failedKeys) {
+        return BoundedDispatcher.dispatchEachAsync(Batches.of(failedKeys.iterator(), S3DirectoryConstants.MAX_DELETE_KEYS), batchCopyMaxBatches,
+                keys -> headDirectoryBucketObjects(job.sourceBucket(), keys)
+                        .thenCompose(existences -> copyBatch(job, job.sources(existences))));
+    }
+
+    /**
+     * Copies the sources after the checkpoint of the job, or all of them, checkpointing each batch.
+     *
+     * @param sortedKeys The requested keys in key order, or null to copy every key under the source prefix
+     */
+    private CompletableFuture<Void> copyRemaining(CopyJob job, List<String> sortedKeys) {
+        String sourceBucket = job.sourceBucket();
+        String fromPrefix = job.sourcePrefix();
+        String resumedAfter = job.resumedAfter();
+        if (sortedKeys == null) {
+            ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                    .bucket(sourceBucket)
+                    .prefix(fromPrefix)
+                    .startAfter(resumedAfter)
+                    .maxKeys(S3DirectoryConstants.MAX_DELETE_KEYS)
+                    .build();
+            // Pages arrive one at a time, so numbering them in arrival order is safe
+            AtomicInteger pageNumber = new AtomicInteger();
+            return logged(BoundedDispatcher.dispatchEachAsync(s3AsyncClient.listObjectsV2Paginator(listObjectsV2Request), batchCopyMaxBatches,
+                    page -> checkpointed(job, pageNumber.getAndIncrement(), page.contents().isEmpty() ? null : page.contents().getLast().key(),
+                            copyBatch(job, page.contents().stream()
+                                    .map(object -> new CopySource(object.key(), object.size()))
+                                    .toList()))), "list objects for copying");
+        }
+
+        List<List<String>> keyBatches = new ArrayList<>();
+        Batches.of(sortedKeys.stream()
+                .filter(key -> resumedAfter == null || ShardedListing.compareKeys(key, resumedAfter) > 0)
+                .iterator(), S3DirectoryConstants.MAX_DELETE_KEYS).forEachRemaining(keyBatches::add);
+        return BoundedDispatcher.dispatchEachAsync(IntStream.range(0, keyBatches.size()).iterator(), batchCopyMaxBatches,
+                index -> checkpointed(job, index, keyBatches.get(index).getLast(), headDirectoryBucketObjects(sourceBucket, keyBatches.get(index))
+                        .thenCompose(existences -> copyBatch(job, job.sources(existences)))));
+    }
+
+    /**
+     * Checkpoints a batch once it has been copied. The journal is written on the fan-out executor; the returned
+     * future fails only if it cannot be written.
+     *
+     * @param lastKey The last source key the batch covers, or null if it covers none
+     */
+    private CompletableFuture<Void> checkpointed(CopyJob job, int batchNumber, String lastKey, CompletableFuture<Void> batch) {
+        return batch.thenRunAsync(() -> job.batchDone(batchNumber, lastKey), s3FanOutExecutor);
+    }
+
+    /**
+     * Copies one batch of sources and deletes the copied ones for a move. Never completes exceptionally; the
+     * failures of single objects are tallied.
+     */
+    private CompletableFuture<Void> copyBatch(CopyJob job, List<CopySource> sources) {
+        List<String> copiedKeys = Collections.synchronizedList(new ArrayList<>());
+        return BoundedDispatcher.dispatchEachAsync(sources.iterator(), batchCopyMaxConcurrency, source ->
+                        copyObject(job, source).thenAccept(copied -> {
+                            if (copied) {
+                                copiedKeys.add(source.key());
+                            }
+                        }))
+                .thenCompose(ignored -> !job.move() || copiedKeys.isEmpty()
+                        ? CompletableFuture.completedFuture(null)
+                        : deleteBatch(job.sourceBucket(), List.copyOf(copiedKeys), 1)
+                        .thenAccept(errors -> job.recordDeletes(copiedKeys.size(), errors)));
+    }
+
+    /**
+     * Copies one object, completing with whether it was copied. Never completes exceptionally.
+     */
+    private CompletableFuture<Boolean> copyObject(CopyJob job, CopySource source) {
+        String destinationKey = job.destinationPrefix() + source.key().substring(job.sourcePrefix().length());
+        CompletableFuture<?> copy;
+        if (source.size() > S3DirectoryConstants.MAX_COPY_OBJECT_SIZE) {
+            copy = multipartCopy(job.sourceBucket(), source.key(), job.destinationBucket(), destinationKey);
+        } else {
+            CopyObjectRequest copyObjectRequest = CopyObjectRequest.builder()
+                    .sourceBucket(job.sourceBucket())
+                    .sourceKey(source.key())
+                    .destinationBucket(job.destinationBucket())
+                    .destinationKey(destinationKey)
+                    .overrideConfiguration(AsyncRetry::withoutSdkRetries)
+                    .build();
+            copy = AsyncRetry.withRetry(copyMaxPartAttempts, COPY_RETRY_BACKOFF, () -> s3AsyncClient.copyObject(copyObjectRequest));
+        }
+
+        return copy.handle((response, ex) -> {
+            if (ex == null) {
+                job.recordCopy(source.size());
+                return true;
+            }
+            Throwable cause = BoundedDispatcher.unwrap(ex);
+            if (job.move() && job.resumedAfter() != null && isNotFound(cause)) {
+                job.recordSkip();
+            } else {
+                log.warn("Failed to copy {} to {}: {}", source.key(), destinationKey, cause.getMessage());
+                job.recordFailure(source.key(), cause);
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Copies an object too large for {@code CopyObject} in parts, aborting the upload if any step fails.
+     */
+    private CompletableFuture<Void> multipartCopy(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey) {
+        return createDirectoryBucketMultipartUpload(destinationBucket, destinationKey).thenCompose(uploadId ->
+                multipartUploadCopyForDirectoryBucket(sourceBucket, sourceKey, destinationBucket, destinationKey, uploadId)
+                        .thenCompose(parts -> s3AsyncClient.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                                .bucket(destinationBucket)
+                                .key(destinationKey)
+                                .uploadId(uploadId)
+                                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                                .build()))
+                        .<Void>thenApply(response -> null)
+                        .whenComplete((ignored, ex) -> {
+                            if (ex != null) {
+                                abortDirectoryBucketMultipartUpload(destinationBucket, destinationKey, uploadId);
+                            }
+                        }));
+    }
+
+    /**
+     * Creates a new S3 directory bucket in a specified zone.
+     *
+     * @param bucketName The name of the bucket to be created
+     * @param zone       The zone where the bucket will be created
+     */
+    @Override
+    public CompletableFuture<Void> createDirectoryBucket(String bucketName, String zone) {
+        log.info("Creating bucket: {}", bucketName);
+
+        CreateBucketConfiguration bucketConfiguration = CreateBucketConfiguration.builder()
+                .location(LocationInfo.builder()
+                        .type(LocationType.AVAILABILITY_ZONE)
+                        .name(zone).build())
+                .bucket(BucketInfo.builder()
+                        .type(BucketType.DIRECTORY)
+                        .dataRedundancy(DataRedundancy.SINGLE_AVAILABILITY_ZONE)
+                        .build())
+                .build();
+        CreateBucketRequest bucketRequest = CreateBucketRequest.builder()
+                .bucket(bucketName)
+                .createBucketConfiguration(bucketConfiguration)
+                .build();
+
+        return logged(s3AsyncClient.createBucket(bucketRequest)
+                .thenAccept(response -> log.info("Bucket created successfully with location: {}", response.location())), "create bucket");
+    }
+
+    /**
+     * Creates a multipart upload request that generates a unique upload ID used
+     * to track all the upload parts.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be uploaded
+     * @return The upload ID used to track the multipart upload
+     */
+    @Override
+    public CompletableFuture<String> createDirectoryBucketMultipartUpload(String bucketName, String objectKey) {
+        log.info("Creating multipart upload for object: {} in bucket: {}", objectKey, bucketName);
+
+        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+
+        return logged(s3AsyncClient.createMultipartUpload(createMultipartUploadRequest)
+                .thenApply(response -> {
+                    log.info("Multipart upload initiated. Upload ID: {}", response.uploadId());
+                    return response.uploadId();
+                }), "create multipart upload");
+    }
+
+    /**
+     * Deletes the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket to delete
+     */
+    @Override
+    public CompletableFuture<Void> deleteDirectoryBucket(String bucketName) {
+        log.info("Deleting bucket: {}", bucketName);
+
+        return logged(s3AsyncClient.deleteBucket(DeleteBucketRequest.builder().bucket(bucketName).build())
+                .thenRun(() -> log.info("Successfully deleted bucket: {}", bucketName)), "delete bucket");
+    }
+
+    /**
+     * Deletes the encryption configuration from an S3 bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     */
+    @Override
+    public CompletableFuture<Void> deleteDirectoryBucketEncryption(String bucketName) {
+        return logged(s3AsyncClient.deleteBucketEncryption(DeleteBucketEncryptionRequest.builder().bucket(bucketName).build())
+                .thenRun(() -> log.info("Bucket encryption deleted for bucket: {}", bucketName)), "delete bucket encryption");
+    }
+
+    /**
+     * Deletes the bucket policy for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     */
+    @Override
+    public CompletableFuture<Void> deleteDirectoryBucketPolicy(String bucketName) {
+        log.info("Deleting policy for bucket: {}", bucketName);
+
+        return logged(s3AsyncClient.deleteBucketPolicy(DeleteBucketPolicyRequest.builder().bucket(bucketName).build())
+                .thenRun(() -> log.info("Successfully deleted bucket policy")), "delete bucket policy");
+    }
+
+    /**
+     * Deletes an object from the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be deleted
+     */
+    @Override
+    public CompletableFuture<Void> deleteDirectoryBucketObject(String bucketName, String objectKey) {
+        log.info("Deleting object: {} from bucket: {}", objectKey, bucketName);
+
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+
+        return logged(s3AsyncClient.deleteObject(deleteObjectRequest)
+                .thenRun(() -> log.info("Object {} has been deleted", objectKey)), "delete object");
+    }
+
+    /**
+     * Deletes multiple objects from the specified S3 directory bucket. Keys are
+     * sent in batches of {@value S3DirectoryConstants#MAX_DELETE_KEYS}, with up to
+     * {@code cloudflare.delete.max-concurrency} batches in flight. Keys reported in
+     * a response's errors are retried on their own; a batch that fails as a whole
+     * is retried when the failure is transient.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKeys The list of keys (names) of the objects to be deleted
+     * @return The deleted and failed counts
+     */
+    @Override
+    public CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys) {
+        log.info("Deleting {} objects from bucket: {}", objectKeys.size(), bucketName);
+
+        DeleteTally tally = new DeleteTally();
+        return BoundedDispatcher.dispatchEachAsync(Batches.of(objectKeys.iterator(), S3DirectoryConstants.MAX_DELETE_KEYS), deleteMaxConcurrency,
+                        batch -> deleteBatch(bucketName, batch, 1).thenAccept(errors -> tally.record(batch.size(), errors)))
+                .thenApply(ignored -> tally.result(bucketName));
+    }
+
+    /**
+     * Deletes every object under a prefix in the specified S3 directory bucket.
+     * Each listing page is deleted as one batch, and the next page is only
+     * requested once a batch slot frees up, so the listing never runs ahead of
+     * the deletes.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param prefix     The prefix of the keys to delete
+     * @return The deleted and failed counts
+     */
+    @Override
+    public CompletableFuture<BulkDeleteResult> deleteDirectoryBucketObjectsByPrefix(String bucketName, String prefix) {
+        log.info("Deleting objects with prefix: {} from bucket: {}", prefix, bucketName);
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .maxKeys(S3DirectoryConstants.MAX_DELETE_KEYS)
+                .build();
+
+        DeleteTally tally = new DeleteTally();
+        return logged(BoundedDispatcher.dispatchEachAsync(s3AsyncClient.listObjectsV2Paginator(listObjectsV2Request), deleteMaxConcurrency, page -> {
+                    List<String> keys = page.contents().stream().map(S3Object::key).toList();
+                    return keys.isEmpty()
+                            ? CompletableFuture.completedFuture(null)
+                            : deleteBatch(bucketName, keys, 1).thenAccept(errors -> tally.record(keys.size(), errors));
+                }), "list objects for deletion")
+                .thenApply(ignored -> tally.result(bucketName));
+    }
+
+    /**
+     * Deletes one batch, retrying only the keys that failed. Never completes exceptionally:
+     * keys that still fail after the last attempt are returned as failures.
+     */
+    private CompletableFuture<List<BulkDeleteResult.Failure>> deleteBatch(String bucketName, List<String> keys, int attempt) {
+        // Create a list of ObjectIdentifier.
+        List<ObjectIdentifier> identifiers = keys.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(identifiers)
+                        .quiet(true)
+                        .build())
+                .overrideConfiguration(AsyncRetry::withoutSdkRetries)
+                .build();
+
+        return AsyncRetry.withRetry(deleteMaxAttempts, DELETE_RETRY_BACKOFF, () -> s3AsyncClient.deleteObjects(deleteObjectsRequest))
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = BoundedDispatcher.unwrap(ex);
+                        log.error("Failed to delete batch of {} objects: {}", keys.size(), cause.getMessage());
+                        String code = cause instanceof S3Exception s3Exception ? s3Exception.awsErrorDetails().errorCode() : null;
+                        return CompletableFuture.completedFuture(keys.stream()
+                                .map(key -> new BulkDeleteResult.Failure(key, code, cause.getMessage()))
+                                .toList());
+                    }
+                    if (!response.hasErrors() || response.errors().isEmpty()) {
+                        return CompletableFuture.completedFuture(List.<BulkDeleteResult.Failure>of());
+                    }
+                    if (attempt >= deleteMaxAttempts) {
+                        return CompletableFuture.completedFuture(response.errors().stream()
+                                .map(error -> new BulkDeleteResult.Failure(error.key(), error.code(), error.message()))
+                                .toList());
+                    }
+                    List<String> retryKeys = response.errors().stream().map(S3Error::key).toList();
+                    log.warn("Retrying {} of {} keys that failed to delete (attempt {})", retryKeys.size(), keys.size(), attempt + 1);
+                    return deleteBatch(bucketName, retryKeys, attempt + 1);
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Retrieves the encryption configuration for an S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @return The type of server-side encryption applied to the bucket (e.g., AES256, aws:kms)
+     */
+    @Override
+    public CompletableFuture<String> getDirectoryBucketEncryption(String bucketName) {
+        return logged(s3AsyncClient.getBucketEncryption(GetBucketEncryptionRequest.builder().bucket(bucketName).build())
+                .thenApply(response -> {
+                    ServerSideEncryptionRule rule = response.serverSideEncryptionConfiguration().rules().get(0);
+                    String encryptionType = rule.applyServerSideEncryptionByDefault().sseAlgorithmAsString();
+                    log.info("Bucket encryption algorithm: {}", encryptionType);
+                    log.info("KMS Customer Managed Key ID: {}", rule.applyServerSideEncryptionByDefault().kmsMasterKeyID());
+                    log.info("Bucket Key Enabled: {}", rule.bucketKeyEnabled());
+                    return encryptionType;
+                }), "get bucket encryption");
+    }
+
+    /**
+     * Retrieves the bucket policy for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @return The bucket policy text
+     */
+    @Override
+    public CompletableFuture<String> getDirectoryBucketPolicy(String bucketName) {
+        log.info("Getting policy for bucket: {}", bucketName);
+
+        return logged(s3AsyncClient.getBucketPolicy(GetBucketPolicyRequest.builder().bucket(bucketName).build())
+                .thenApply(response -> {
+                    log.info("Bucket policy: {}", response.policy());
+                    return response.policy();
+                }), "get bucket policy");
+    }
+
+    /**
+     * Retrieves an object from the specified S3 directory bucket. The body is
+     * consumed as a publisher of buffers and discarded, so memory use does not
+     * depend on the object size. Concurrent retrievals of the same version of
+     * the object share one GET, conditional on that version.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be retrieved
+     * @return True if the object is successfully retrieved, false otherwise
+     */
+    @Override
+    public CompletableFuture<Boolean> getDirectoryBucketObject(String bucketName, String objectKey) {
+        return succeeded(coalesced(SingleFlights.GET_OBJECT, bucketName, objectKey, eTag -> {
+            log.info("Retrieving object: {} from bucket: {}", objectKey, bucketName);
+
+            GetObjectRequest objectRequest = GetObjectRequest.builder()
+                    .key(objectKey)
+                    .bucket(bucketName)
+                    .ifMatch(eTag)
+                    .build();
+
+            return s3AsyncClient.getObject(objectRequest, AsyncResponseTransformer.toPublisher())
+                    .thenCompose(object -> {
+                        AtomicLong bytes = new AtomicLong();
+                        return object.subscribe(buffer -> bytes.addAndGet(buffer.remaining()))
+                                .thenRun(() -> log.info("Retrieved object: {} ({} bytes, ETag: {})", objectKey, bytes.get(), object.response().eTag()));
+                    });
+        }), "retrieve object");
+    }
+
+    /**
+     * Retrieves attributes for an object in the specified S3 directory bucket.
+     * Concurrent retrievals for the same version of the object share one
+     * {@code GetObjectAttributes}. That request cannot be made conditional, so
+     * an answer for another version drops the cached metadata of the object.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to retrieve attributes for
+     * @return True if the object attributes are successfully retrieved, false otherwise
+     */
+    @Override
+    public CompletableFuture<Boolean> getDirectoryBucketObjectAttributes(String bucketName, String objectKey) {
+        return succeeded(coalesced(SingleFlights.GET_OBJECT_ATTRIBUTES, bucketName, objectKey, eTag -> {
+            log.info("Retrieving attributes for object: {} from bucket: {}", objectKey, bucketName);
+
+            GetObjectAttributesRequest getObjectAttributesRequest = GetObjectAttributesRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .objectAttributes(ObjectAttributes.E_TAG, ObjectAttributes.STORAGE_CLASS,
+                            ObjectAttributes.OBJECT_SIZE)
+                    .build();
+
+            return s3AsyncClient.getObjectAttributes(getObjectAttributesRequest)
+                    .thenAccept(response -> {
+                        log.info("Attributes for object {}: ETag: {}, Storage Class: {}, Object Size: {}",
+                                objectKey, response.eTag(), response.storageClass(), response.objectSize());
+                        // GetObjectAttributes returns the ETag unquoted
+                        if (eTag != null && !eTag.replace("\"", "").equals(response.eTag().replace("\"", ""))) {
+                            metadataCache.invalidateObject(bucketName, objectKey);
+                        }
+                    });
+        }), "retrieve object attributes");
+    }
+
+    /**
+     * Checks if the specified S3 directory bucket exists and is accessible. The
+     * answer, including a missing bucket, comes from the metadata cache when
+     * present; concurrent checks of an uncached bucket share one
+     * {@code HeadBucket}.
+     *
+     * @param bucketName The name of the directory bucket to check
+     * @return True if the bucket exists and is accessible, false if it does not exist
+     */
+    @Override
+    public CompletableFuture<Boolean> headDirectoryBucket(String bucketName) {
+        return logged(metadataCache.bucket(bucketName, () -> {
+            log.info("Checking if bucket exists: {}", bucketName);
+            return s3AsyncClient.headBucket(HeadBucketRequest.builder().bucket(bucketName).build())
+                    .handle((response, ex) -> {
+                        if (ex == null) {
+                            log.info("Amazon S3 directory bucket: \"{}\" found.", bucketName);
+                            return true;
+                        }
+                        if (isNotFound(ex)) {
+                            return false;
+                        }
+                        throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+                    });
+        }), "access bucket");
+    }
+
+    /**
+     * Checks whether an object exists in the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to retrieve metadata for
+     * @return True if the object exists, false otherwise
+     */
+    @Override
+    public CompletableFuture<Boolean> headDirectoryBucketObject(String bucketName, String objectKey) {
+        return headDirectoryBucketObjectMetadata(bucketName, objectKey).handle((metadata, ex) -> {
+            if (ex == null) {
+                return metadata.exists();
+            }
+            // Already logged by the lookup; as the blocking service does, other S3 errors also read as absent
+            if (BoundedDispatcher.unwrap(ex) instanceof S3Exception) {
+                return false;
+            }
+            throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+        });
+    }
+
+    /**
+     * Retrieves the metadata of an object in the specified S3 directory bucket.
+     * The answer, including a missing object, comes from the metadata cache
+     * when present; concurrent lookups of an uncached key share one
+     * {@code HeadObject}. Writes through this service drop the key from the
+     * cache.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to retrieve metadata for
+     * @return The object's size, ETag, last-modified time and content type, or that it does not exist
+     */
+    @Override
+    public CompletableFuture<ObjectMetadata> headDirectoryBucketObjectMetadata(String bucketName, String objectKey) {
+        return metadataCache.object(bucketName, objectKey, () -> {
+            log.info("Retrieving metadata for object: {} from bucket: {}", objectKey, bucketName);
+            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .build();
+
+            return logged(s3AsyncClient.headObject(headObjectRequest).handle((response, ex) -> {
+                if (ex == null) {
+                    log.info("Amazon S3 object: \"{}\" found in bucket: \"{}\" with ETag: \"{}\", Content-Length: {}",
+                            objectKey, bucketName, response.eTag(), response.contentLength());
+                    return new ObjectMetadata(true, response.contentLength(), response.eTag(), response.lastModified(),
+                            response.contentType());
+                }
+                if (isNotFound(ex)) {
+                    log.info("Amazon S3 object: \"{}\" not found in bucket: \"{}\"", objectKey, bucketName);
+                    return ObjectMetadata.missing();
+                }
+                throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+            }), "retrieve object metadata");
+        });
+    }
+
+    /**
+     * Checks whether each of many objects in the specified S3 directory bucket
+     * exists, returning one result per requested key in request order.
+     * <p>
+     * When the batch holds at least {@code cloudflare.batch-head.min-keys-per-page}
+     * keys, the key range they span is listed first: one listing page answers
+     * up to 1,000 keys at once, where each key would otherwise cost a
+     * {@code HeadObject}. The listing continues only while each page covers at
+     * least that many of the requested keys; once the keys turn out to be
+     * sparse, or the listing fails, the keys it has not reached are checked with
+     * up to {@code cloudflare.batch-head.max-concurrency} HEADs in flight, which
+     * are answered from the metadata cache when present. A key whose check fails
+     * is reported with the error instead of failing the batch.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKeys The keys (names) of the objects to check
+     * @return Whether each object exists, with its size and ETag when it does
+     */
+    @Override
+    public CompletableFuture<List<ObjectExistence>> headDirectoryBucketObjects(String bucketName, List<String> objectKeys) {
+        log.info("Checking {} objects in bucket: {}", objectKeys.size(), bucketName);
+
+        List<String> sortedKeys = objectKeys.stream().distinct().sorted(ShardedListing::compareKeys).toList();
+        Map<String, ObjectExistence> results = new ConcurrentHashMap<>();
+        CompletableFuture<Integer> listed = sortedKeys.size() >= batchHeadMinKeysPerPage
+                ? listKeyRange(bucketName, sortedKeys, results)
+                : CompletableFuture.completedFuture(0);
+
+        return listed.thenCompose(covered -> {
+                    List<String> remaining = sortedKeys.subList(covered, sortedKeys.size());
+                    log.info("Listing answered {} of {} keys in bucket: {}; checking {} with HEAD",
+                            covered, sortedKeys.size(), bucketName, remaining.size());
+                    return BoundedDispatcher.dispatchEachAsync(remaining.iterator(), batchHeadMaxConcurrency,
+                            key -> headExistence(bucketName, key).thenAccept(result -> results.put(key, result)));
+                })
+                .thenApply(ignored -> objectKeys.stream().map(results::get).toList());
+    }
+
+    /**
+     * Lists the range from the first to the last of the sorted keys, under their common prefix, and records the
+     * keys it answers. Completes with the number of leading keys answered; never completes exceptionally.
+     */
+    private CompletableFuture<Integer> listKeyRange(String bucketName, List<String> sortedKeys, Map<String, ObjectExistence> results) {
+        String firstKey = sortedKeys.getFirst();
+        String lastKey = sortedKeys.getLast();
+        int prefixLength = 0;
+        while (prefixLength < Math.min(firstKey.length(), lastKey.length())
+                && firstKey.charAt(prefixLength) == lastKey.charAt(prefixLength)) {
+            prefixLength++;
+        }
+        if (prefixLength > 0 && Character.isHighSurrogate(firstKey.charAt(prefixLength - 1))) {
+            prefixLength--;
+        }
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(firstKey.substring(0, prefixLength))
+                .startAfter(firstKey.isEmpty() ? null : ShardedListing.predecessor(firstKey))
+                .maxKeys(S3DirectoryConstants.MAX_DELETE_KEYS)
+                .build();
+        return listKeyPage(listObjectsV2Request, sortedKeys, 0, results);
+    }
+
+    private CompletableFuture<Integer> listKeyPage(ListObjectsV2Request listObjectsV2Request, List<String> sortedKeys,
+                                                   int covered, Map<String, ObjectExistence> results) {
+        return s3AsyncClient.listObjectsV2(listObjectsV2Request).handle((response, ex) -> {
+            if (ex != null) {
+                log.warn("Failed to list keys of bucket: {}, checking the rest with HEAD: {}",
+                        listObjectsV2Request.bucket(), BoundedDispatcher.unwrap(ex).getMessage());
+                return CompletableFuture.completedFuture(covered);
+            }
+
+            // A page answers every requested key up to its last listed key, or every key left when it is the last page
+            Map<String, S3Object> listed = new HashMap<>();
+            response.contents().forEach(object -> listed.put(object.key(), object));
+            boolean truncated = Boolean.TRUE.equals(response.isTruncated());
+            String lastListed = response.contents().isEmpty() ? null : response.contents().getLast().key();
+            int end = covered;
+            while (end < sortedKeys.size()
+                    && (!truncated || lastListed != null && ShardedListing.compareKeys(sortedKeys.get(end), lastListed) <= 0)) {
+                String key = sortedKeys.get(end++);
+                S3Object object = listed.get(key);
+                results.put(key, object != null ? ObjectExistence.found(key, object.size(), object.eTag()) : ObjectExistence.missing(key));
+            }
+
+            if (!truncated || end == sortedKeys.size() || end - covered < batchHeadMinKeysPerPage) {
+                return CompletableFuture.completedFuture(end);
+            }
+            return listKeyPage(listObjectsV2Request.toBuilder().continuationToken(response.nextContinuationToken()).build(),
+                    sortedKeys, end, results);
+        }).thenCompose(next -> next);
+    }
+
+    private CompletableFuture<ObjectExistence> headExistence(String bucketName, String objectKey) {
+        return headDirectoryBucketObjectMetadata(bucketName, objectKey).handle((metadata, ex) -> {
+            if (ex != null) {
+                return ObjectExistence.failed(objectKey, BoundedDispatcher.unwrap(ex).getMessage());
+            }
+            return metadata.exists() ? ObjectExistence.found(objectKey, metadata.size(), metadata.eTag()) : ObjectExistence.missing(objectKey);
+        });
+    }
+
+    /**
+     * Lists all S3 directory buckets and no general purpose buckets.
+     *
+     * @return A list of bucket names
+     */
+    @Override
+    public CompletableFuture<List<String>> listDirectoryBuckets() {
+        log.info("Listing all directory buckets");
+
+        return logged(s3AsyncClient.listBuckets(ListBucketsRequest.builder().build())
+                .thenApply(response -> response.buckets().stream()
+                        .map(Bucket::name)
+                        .toList()), "list buckets");
+    }
+
+    /**
+     * Lists multipart uploads for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @return A list of MultipartUpload objects, or an empty list if the listing fails
+     */
+    @Override
+    public CompletableFuture<List<MultipartUpload>> listDirectoryBucketMultipartUploads(String bucketName) {
+        log.info("Listing in-progress multipart uploads for bucket: {}", bucketName);
+
+        return orEmpty(s3AsyncClient.listMultipartUploads(ListMultipartUploadsRequest.builder().bucket(bucketName).build())
+                .thenApply(ListMultipartUploadsResponse::uploads), "list multipart uploads");
+    }
+
+    /**
+     * Lists objects in the specified S3 directory bucket, following continuation
+     * tokens until every key has been returned.
+     *
+     * @param bucketName The name of the directory bucket
+     * @return A list of object keys in the bucket
+     */
+    @Override
+    public CompletableFuture<List<String>> listDirectoryBucketObjectsV2(String bucketName) {
+        log.info("Listing objects in bucket: {}", bucketName);
+
+        // Pages are delivered one at a time, so the list needs no synchronization
+        List<String> keys = new ArrayList<>();
+        return logged(s3AsyncClient.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).build())
+                .contents()
+                .subscribe(object -> keys.add(object.key()))
+                .thenApply(ignored -> keys), "list objects");
+    }
+
+    /**
+     * Lists the parts of a multipart upload for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object being uploaded
+     * @param uploadId   The upload ID used to track the multipart upload
+     * @return Every part of the upload, following continuation markers, or an empty list if the listing fails
+     */
+    @Override
+    public CompletableFuture<List<Part>> listDirectoryBucketMultipartUploadParts(String bucketName, String objectKey, String uploadId) {
+        log.info("Listing parts for object: {} in bucket: {}", objectKey, bucketName);
+
+        ListPartsRequest listPartsRequest = ListPartsRequest.builder()
+                .bucket(bucketName)
+                .uploadId(uploadId)
+                .key(objectKey)
+                .build();
+
+        // Parts arrive one at a time, so the list needs no synchronization
+        List<Part> parts = new ArrayList<>();
+        return orEmpty(s3AsyncClient.listPartsPaginator(listPartsRequest).parts()
+                .subscribe(parts::add)
+                .thenApply(ignored -> parts), "list parts");
+    }
+
+    /**
+     * Sets the default encryption configuration for an S3 bucket as SSE-KMS.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param kmsKeyId   The ID of the customer-managed KMS key
+     */
+    @Override
+    public CompletableFuture<Void> putDirectoryBucketEncryption(String bucketName, String kmsKeyId) {
+        // For directory buckets only customer-managed KMS keys are supported and bucketKeyEnabled is enforced
+        ServerSideEncryptionRule rule = ServerSideEncryptionRule.builder()
+                .bucketKeyEnabled(true)
+                .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
+                        .sseAlgorithm(ServerSideEncryption.AWS_KMS)
+                        .kmsMasterKeyID(kmsKeyId)
+                        .build())
+                .build();
+
+        PutBucketEncryptionRequest putRequest = PutBucketEncryptionRequest.builder()
+                .bucket(bucketName)
+                .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
+                        .rules(rule)
+                        .build())
+                .build();
+
+        return logged(s3AsyncClient.putBucketEncryption(putRequest)
+                .thenRun(() -> log.info("SSE-KMS Bucket encryption configuration set for the directory bucket: {}", bucketName)), "set bucket encryption");
+    }
+
+    /**
+     * Sets the bucket policy for the specified S3 directory bucket.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param policyText The policy text to be applied
+     */
+    @Override
+    public CompletableFuture<Void> putDirectoryBucketPolicy(String bucketName, String policyText) {
+        log.info("Setting policy on bucket: {}", bucketName);
+
+        PutBucketPolicyRequest policyReq = PutBucketPolicyRequest.builder()
+                .bucket(bucketName)
+                .policy(policyText)
+                .build();
+
+        return logged(s3AsyncClient.putBucketPolicy(policyReq)
+                .thenRun(() -> log.info("Bucket policy set successfully!")), "set bucket policy");
+    }
+
+    /**
+     * Puts an object into the specified S3 directory bucket. The body is streamed
+     * from a read-only mapping of the file rather than copied onto the heap.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be placed in the bucket
+     * @param filePath   The path of the file to be uploaded
+     */
+    @Override
+    public CompletableFuture<Void> putDirectoryBucketObject(String bucketName, String objectKey, Path filePath) {
+        log.info("Putting object: {} into bucket: {}", objectKey, bucketName);
+
+        PutObjectRequest putObj = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+
+        AsyncRequestBody body;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            body = FileRegionBodies.region(filePath, channel, 0, channel.size());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(S3Exception.builder().message("Failed to read the file: " + e.getMessage()).cause(e)
+                    .awsErrorDetails(AwsErrorDetails.builder()
+                            .errorCode("ClientSideException:FailedToReadFile")
+                            .errorMessage(e.getMessage())
+                            .build())
+                    .build());
+        }
+
+        return logged(s3AsyncClient.putObject(putObj, body)
+                .thenRun(() -> log.info("Successfully placed {} into bucket {}", objectKey, bucketName)), "put object");
+    }
+
+    /**
+     * Creates part requests and uploads individual parts to S3. Each part body is
+     * a read-only mapping of its window of the file, so no part is copied onto
+     * the heap. Parts are dispatched with at most
+     * {@code cloudflare.multipart.max-concurrency} in flight at once, which also
+     * caps the file regions mapped at any time. The part size grows past
+     * {@code cloudflare.multipart.part-size} only when needed to stay within the
+     * part limit.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be uploaded
+     * @param uploadId   The upload ID used to track the multipart upload
+     * @param filePath   The path to the file to be uploaded
+     * @return A list of uploaded parts, ordered by part number; fails with an {@link IOException} if the file cannot be read
+     */
+    @Override
+    public CompletableFuture<List<CompletedPart>> multipartUploadForDirectoryBucket(String bucketName, String objectKey, String uploadId, Path filePath) {
+        log.info("Uploading parts for object: {} in bucket: {}", objectKey, bucketName);
+
+        FileChannel channel;
+        long fileSize;
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            fileSize = channel.size();
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return CompletableFuture.failedFuture(e);
+        }
+        long partSize = MultipartParts.partSize(fileSize, multipartPartSize.toBytes());
+        int partCount = MultipartParts.partCount(fileSize, partSize);
+        log.info("Uploading {} parts of {} bytes with up to {} in flight", partCount, partSize, multipartMaxConcurrency);
+
+        CompletableFuture<List<CompletedPart>> parts = BoundedDispatcher.dispatchAsync(partCount, multipartMaxConcurrency, index -> {
+            int partNumber = index + 1;
+            long position = index * partSize;
+            AsyncRequestBody body;
+            try {
+                body = FileRegionBodies.region(filePath, channel, position, MultipartParts.partLength(fileSize, partSize, index));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build();
+
+            return s3AsyncClient.uploadPart(uploadPartRequest, body)
+                    .thenApply(partResponse -> {
+                        // Log to indicate the part upload is done
+                        log.info("Uploaded part number: {} with ETag: {}", partNumber, partResponse.eTag());
+                        return CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(partResponse.eTag())
+                                .build();
+                    });
+        });
+        return logged(parts.whenComplete((result, ex) -> closeQuietly(channel)), "upload parts");
+    }
+
+    /**
+     * Uploads a file as a multipart upload that survives restarts. Each part
+     * acknowledged by R2 is appended to a local {@link UploadJournal} and forced
+     * to disk. When a journal for the same object, file size, modification time
+     * and part size exists, its upload is resumed instead of started over: a
+     * journaled part is kept only if {@code ListParts} still reports it with the
+     * same ETag and size and the local bytes still match its CRC32C, and only
+     * the remaining parts are uploaded. The upload is then completed and the
+     * journal deleted. An empty file has no parts, so it is put in one request.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be uploaded
+     * @param filePath   The path to the file to be uploaded
+     * @return The ETag of the completed object; fails with an {@link IOException} if the file or journal cannot be accessed
+     */
+    @Override
+    public CompletableFuture<String> resumableMultipartUploadForDirectoryBucket(String bucketName, String objectKey, Path filePath) {
+        // Opening the file and reading its journal block, so even the start runs on the fan-out executor
+        return logged(CompletableFuture.supplyAsync(() -> resumableMultipartUpload(bucketName, objectKey, filePath), s3FanOutExecutor)
+                .thenCompose(Function.identity()), "upload resumable multipart upload");
+    }
+
+    private CompletableFuture<String> resumableMultipartUpload(String bucketName, String objectKey, Path filePath) {
+        Path journalPath = UploadJournal.pathFor(filePath);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long fileSize;
+        long lastModified;
+        Optional<UploadJournal.Contents> previous;
+        try {
+            fileSize = channel.size();
+            lastModified = Files.getLastModifiedTime(filePath).toMillis();
+            previous = UploadJournal.read(journalPath);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (fileSize == 0) {
+            // No parts to upload, and R2 rejects completing an upload without any: an empty file is one PutObject
+            closeQuietly(channel);
+            previous.ifPresent(stale -> abortStaleUpload(stale.header()));
+            deleteQuietly(journalPath);
+            return putEmptyObject(bucketName, objectKey);
+        }
+        long partSize = MultipartParts.partSize(fileSize, multipartPartSize.toBytes());
+        int partCount = MultipartParts.partCount(fileSize, partSize);
+        UploadJournal.Header header = new UploadJournal.Header(bucketName, objectKey, null, fileSize, lastModified, partSize);
+
+        CompletableFuture<ResumePoint> resumePoint = previous
+                .filter(contents -> contents.header().resumes(bucketName, objectKey, fileSize, lastModified, partSize))
+                .map(contents -> resume(contents, channel, journalPath, header))
+                .orElseGet(() -> {
+                    // A journal for another object or an older version of the file: its parts are useless now
+                    previous.ifPresent(stale -> abortStaleUpload(stale.header()));
+                    return startJournal(journalPath, header);
+                });
+
+        CompletableFuture<String> upload = resumePoint.thenCompose(point -> {
+            List<Integer> missing = IntStream.range(0, partCount)
+                    .filter(index -> !point.done().containsKey(index + 1))
+                    .boxed()
+                    .toList();
+            log.info("Uploading {} of {} parts of {} bytes for upload: {}", missing.size(), partCount, partSize, point.uploadId());
+
+            return BoundedDispatcher.dispatchAsync(missing.size(), multipartMaxConcurrency, n -> {
+                        int index = missing.get(n);
+                        int partNumber = index + 1;
+                        long position = index * partSize;
+                        long length = MultipartParts.partLength(fileSize, partSize, index);
+
+                        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(objectKey)
+                                .uploadId(point.uploadId())
+                                .partNumber(partNumber)
+                                .build();
+
+                        // The checksum reads the whole part and the journal forces it to disk, so both run on the
+                        // fan-out executor rather than on the dispatching or completion thread
+                        return CompletableFuture.supplyAsync(() -> {
+                                    try {
+                                        long crc32c = FileRegionBodies.crc32c(channel, position, length);
+                                        return Map.entry(crc32c, FileRegionBodies.region(filePath, channel, position, length));
+                                    } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                    }
+                                }, s3FanOutExecutor)
+                                .thenCompose(part -> s3AsyncClient.uploadPart(uploadPartRequest, part.getValue())
+                                        .thenApplyAsync(partResponse -> {
+                                            try {
+                                                point.journal().record(new UploadJournal.Entry(partNumber, position, length,
+                                                        partResponse.eTag(), part.getKey()));
+                                            } catch (IOException e) {
+                                                throw new UncheckedIOException(e);
+                                            }
+                                            log.info("Uploaded part number: {} with ETag: {}", partNumber, partResponse.eTag());
+                                            return CompletedPart.builder()
+                                                    .partNumber(partNumber)
+                                                    .eTag(partResponse.eTag())
+                                                    .build();
+                                        }, s3FanOutExecutor));
+                    })
+                    .thenCompose(uploaded -> {
+                        List<CompletedPart> parts = new ArrayList<>(point.done().values());
+                        parts.addAll(uploaded);
+                        parts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+                        CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                                .bucket(bucketName)
+                                .key(objectKey)
+                                .uploadId(point.uploadId())
+                                .multipartUpload(CompletedMultipartUpload.builder()
+                                        .parts(parts)
+                                        .build())
+                                .build();
+                        return s3AsyncClient.completeMultipartUpload(completeMultipartUploadRequest);
+                    })
+                    .whenCompleteAsync((response, ex) -> {
+                        closeQuietly(point.journal());
+                        // Keep the journal after a failure: it is what the next attempt resumes from
+                        if (ex == null) {
+                            deleteQuietly(journalPath);
+                        }
+                    }, s3FanOutExecutor)
+                    .thenApply(response -> {
+                        log.info("Multipart upload completed. ETag: {}", response.eTag());
+                        return response.eTag();
+                    });
+        });
+        return upload.whenComplete((result, ex) -> closeQuietly(channel));
+    }
+
+    /**
+     * Keeps the journaled parts that R2 still holds with the same ETag and size and whose local bytes
+     * are unchanged. Starts over if the upload itself no longer exists.
+     */
+    private CompletableFuture<ResumePoint> resume(UploadJournal.Contents contents, FileChannel channel, Path journalPath,
+                                                  UploadJournal.Header header) {
+        String uploadId = contents.header().uploadId();
+        ListPartsRequest listPartsRequest = ListPartsRequest.builder()
+                .bucket(header.bucketName())
+                .key(header.objectKey())
+                .uploadId(uploadId)
+                .build();
+
+        // Parts arrive one at a time, so the map needs no synchronization
+        Map<Integer, Part> remote = new HashMap<>();
+        return s3AsyncClient.listPartsPaginator(listPartsRequest).parts()
+                .subscribe(part -> remote.put(part.partNumber(), part))
+                // Checking the local bytes re-reads every journaled part
+                .thenApplyAsync(ignored -> {
+                    Map<Integer, CompletedPart> done = new TreeMap<>();
+                    for (UploadJournal.Entry entry : contents.entries().values()) {
+                        Part part = remote.get(entry.partNumber());
+                        if (part != null && entry.eTag().equals(part.eTag()) && entry.length() == part.size()
+                                && unchanged(channel, entry, header)) {
+                            done.put(entry.partNumber(), CompletedPart.builder()
+                                    .partNumber(entry.partNumber())
+                                    .eTag(entry.eTag())
+                                    .build());
+                        }
+                    }
+                    log.info("Resuming upload: {} with {} of {} journaled parts confirmed ({} listed by R2)",
+                            uploadId, done.size(), contents.entries().size(), remote.size());
+                    try {
+                        return new ResumePoint(uploadId, UploadJournal.reopen(journalPath), done);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, s3FanOutExecutor)
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = BoundedDispatcher.unwrap(ex);
+                    if (cause instanceof NoSuchUploadException || cause instanceof S3Exception s3Exception && s3Exception.statusCode() == 404) {
+                        log.warn("Upload: {} no longer exists, starting over", uploadId);
+                        return startJournal(journalPath, header);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private static boolean unchanged(FileChannel channel, UploadJournal.Entry entry, UploadJournal.Header header) {
+        long expectedOffset = (entry.partNumber() - 1L) * header.partSize();
+        if (entry.offset() != expectedOffset || entry.length() != MultipartParts.partLength(header.fileSize(), header.partSize(), entry.partNumber() - 1)) {
+            return false;
+        }
+        try {
+            return FileRegionBodies.crc32c(channel, entry.offset(), entry.length()) == entry.crc32c();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<ResumePoint> startJournal(Path journalPath, UploadJournal.Header header) {
+        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                .bucket(header.bucketName())
+                .key(header.objectKey())
+                .build();
+
+        return s3AsyncClient.createMultipartUpload(createMultipartUploadRequest).thenApplyAsync(response -> {
+            log.info("Multipart upload initiated. Upload ID: {}, journal: {}", response.uploadId(), journalPath);
+            try {
+                UploadJournal journal = UploadJournal.create(journalPath, new UploadJournal.Header(header.bucketName(), header.objectKey(),
+                        response.uploadId(), header.fileSize(), header.lastModified(), header.partSize()));
+                return new ResumePoint(response.uploadId(), journal, new TreeMap<>());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, s3FanOutExecutor);
+    }
+
+    private CompletableFuture<String> putEmptyObject(String bucketName, String objectKey) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+
+        return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.empty()).thenApply(response -> {
+            log.info("Empty object uploaded without a multipart upload. ETag: {}", response.eTag());
+            return response.eTag();
+        });
+    }
+
+    private void abortStaleUpload(UploadJournal.Header stale) {
+        log.info("Discarding stale journal for upload: {} of {}", stale.uploadId(), stale.objectKey());
+        abortDirectoryBucketMultipartUpload(stale.bucketName(), stale.objectKey(), stale.uploadId());
+    }
+
+    /**
+     * Downloads an object to a local file using concurrent byte-range GETs.
+     * The file is preallocated to the object size from {@code HeadObject} and
+     * each range is written at its own offset, so ranges can land in any order.
+     * Every range is requested with {@code If-Match} on the ETag and its
+     * response is checked against the expected length and ETag; on any failure
+     * the partially written file is deleted.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be downloaded
+     * @param filePath   The path of the local file to write
+     * @return The number of bytes downloaded
+     */
+    @Override
+    public CompletableFuture<Long> downloadDirectoryBucketObjectToPath(String bucketName, String objectKey, Path filePath) {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+
+        // Preallocating and deleting the file are blocking file system calls, so they run on the fan-out executor
+        return logged(s3AsyncClient.headObject(headObjectRequest).thenComposeAsync(headObjectResponse -> {
+            long objectSize = headObjectResponse.contentLength();
+            String eTag = headObjectResponse.eTag();
+            long rangeSize = downloadRangeSize.toBytes();
+            int rangeCount = MultipartParts.partCount(objectSize, rangeSize);
+            log.info("Downloading object: {} ({} bytes, ETag: {}) in {} ranges with up to {} in flight",
+                    objectKey, objectSize, eTag, rangeCount, downloadMaxConcurrency);
+
+            // Preallocate the target so every range can be written at its offset
+            try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw")) {
+                file.setLength(objectSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return BoundedDispatcher.dispatchAsync(rangeCount, downloadMaxConcurrency, index -> {
+                long position = index * rangeSize;
+                long length = MultipartParts.partLength(objectSize, rangeSize, index);
+                GetObjectRequest rangeRequest = GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectKey)
+                        .range("bytes=" + position + "-" + (position + length - 1))
+                        .ifMatch(eTag)
+                        .build();
+
+                AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> toRange = AsyncResponseTransformer.toFile(filePath,
+                        FileTransformerConfiguration.builder()
+                                .fileWriteOption(FileTransformerConfiguration.FileWriteOption.WRITE_TO_POSITION)
+                                .position(position)
+                                .failureBehavior(FileTransformerConfiguration.FailureBehavior.LEAVE)
+                                .build());
+
+                return s3AsyncClient.getObject(rangeRequest, toRange).thenApply(response -> {
+                    if (response.contentLength() != length || !eTag.equals(response.eTag())) {
+                        throw new IllegalStateException(String.format(
+                                "Range %d-%d of %s does not match HeadObject: length %d, ETag %s",
+                                position, position + length - 1, objectKey, response.contentLength(), response.eTag()));
+                    }
+                    log.debug("Downloaded range {}-{} of {}", position, position + length - 1, objectKey);
+                    return length;
+                });
+            }).handleAsync((ranges, ex) -> {
+                if (ex != null) {
+                    try {
+                        Files.deleteIfExists(filePath);
+                    } catch (IOException e) {
+                        ex.addSuppressed(e);
+                    }
+                    throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+                }
+                log.info("Downloaded object: {} to {}", objectKey, filePath);
+                return objectSize;
+            }, s3FanOutExecutor);
+        }, s3FanOutExecutor), "download object");
+    }
+
+    /**
+     * Creates copy parts based on source object size and copies over individual
+     * parts, up to {@code cloudflare.copy.max-concurrency} at once. The part size
+     * starts at {@code cloudflare.copy.part-size} and grows with the source size
+     * so the copy stays within the part limit. A part that fails with a
+     * throttling, server or transport error is retried on its own before the
+     * copy fails. Each part is copied with {@code x-amz-copy-source-if-match}
+     * on the source ETag, so a source replaced during the copy fails it rather
+     * than mixing two versions.
+     *
+     * @param sourceBucket      The name of the source bucket
+     * @param sourceKey         The key (name) of the source object
+     * @param destinationBucket The name of the destination bucket
+     * @param destinationKey    The key (name) of the destination object
+     * @param uploadId          The upload ID used to track the multipart upload
+     * @return A list of completed parts, ordered by part number
+     */
+    @Override
+    public CompletableFuture<List<CompletedPart>> multipartUploadCopyForDirectoryBucket(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey, String uploadId) {
+        // Get the object size to track the end of the copy operation
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(sourceBucket)
+                .key(sourceKey)
+                .build();
+
+        return logged(s3AsyncClient.headObject(headObjectRequest).thenCompose(headObjectResponse -> {
+            long objectSize = headObjectResponse.contentLength();
+            long partSize = MultipartParts.partSize(objectSize, copyPartSize.toBytes());
+            int partCount = MultipartParts.partCount(objectSize, partSize);
+            log.info("Source Object size: {}, copying {} parts of {} bytes with up to {} in flight",
+                    objectSize, partCount, partSize, copyMaxConcurrency);
+
+            return BoundedDispatcher.dispatchAsync(partCount, copyMaxConcurrency, index -> {
+                int partNum = index + 1;
+                long bytePosition = index * partSize;
+                long lastByte = bytePosition + MultipartParts.partLength(objectSize, partSize, index) - 1;
+                log.info("Part Number: {}, Byte Position: {}, Last Byte: {}", partNum, bytePosition, lastByte);
+
+                UploadPartCopyRequest uploadPartCopyRequest = UploadPartCopyRequest.builder()
+                        .sourceBucket(sourceBucket)
+                        .sourceKey(sourceKey)
+                        .destinationBucket(destinationBucket)
+                        .destinationKey(destinationKey)
+                        .uploadId(uploadId)
+                        .copySourceRange("bytes=" + bytePosition + "-" + lastByte)
+                        // Every part must come from the version that was sized, even if the source is overwritten mid-copy
+                        .copySourceIfMatch(headObjectResponse.eTag())
+                        .partNumber(partNum)
+                        .overrideConfiguration(AsyncRetry::withoutSdkRetries)
+                        .build();
+
+                return AsyncRetry.withRetry(copyMaxPartAttempts, COPY_RETRY_BACKOFF, () ->
+                                s3AsyncClient.uploadPartCopy(uploadPartCopyRequest).whenComplete((response, ex) -> {
+                                    if (ex != null) {
+                                        log.warn("Copy of part number {} failed: {}", partNum, BoundedDispatcher.unwrap(ex).getMessage());
+                                    }
+                                }))
+                        .thenApply(uploadPartCopyResponse -> CompletedPart.builder()
+                                .partNumber(partNum)
+                                .eTag(uploadPartCopyResponse.copyPartResult().eTag())
+                                .build());
+            });
+        }), "copy parts");
+    }
+
+    /**
+     * Logs a failure of {@code future} and passes its outcome through unchanged.
+     */
+    private static <T> CompletableFuture<T> logged(CompletableFuture<T> future, String action) {
+        return future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                logFailure(action, BoundedDispatcher.unwrap(ex));
+            }
+        });
+    }
+
+    /**
+     * Runs a read of a whole object through the single-flight layer of the operation, keyed by the object's
+     * ETag in the metadata cache, so concurrent reads of the same version share one request. The cache is only
+     * peeked, never loaded, so a read costs no extra {@code HeadObject}: an object whose metadata is not cached,
+     * or is cached as missing, is read on its own.
+     * <p>
+     * {@code call} is given the ETag the read should be conditional on, or null. A coalesced read failing that
+     * condition means the cached ETag is stale, so the key is dropped from the cache and the read repeated once,
+     * unconditionally, for every caller sharing it.
+     */
+    private <T> CompletableFuture<T> coalesced(String operation, String bucketName, String objectKey, Function<String, CompletableFuture<T>> call) {
+        ObjectMetadata metadata = metadataCache.cachedObject(bucketName, objectKey);
+        if (metadata == null || !metadata.exists()) {
+            return call.apply(null);
+        }
+        return singleFlights.<T>forOperation(operation)
+                .execute(new SingleFlights.Key(bucketName, objectKey, null, metadata.eTag()), () -> call.apply(metadata.eTag())
+                        .exceptionallyCompose(ex -> {
+                            if (!isPreconditionFailed(ex)) {
+                                return CompletableFuture.failedFuture(ex);
+                            }
+                            log.info("Object: {} in bucket: {} changed since its ETag was cached", objectKey, bucketName);
+                            metadataCache.invalidateObject(bucketName, objectKey);
+                            return call.apply(null);
+                        }));
+    }
+
+    /**
+     * Maps an S3 error to {@code false}, as the blocking service does; other failures still propagate.
+     */
+    private static CompletableFuture<Boolean> succeeded(CompletableFuture<?> future, String action) {
+        return future.handle((result, ex) -> {
+            if (ex == null) {
+                return true;
+            }
+            Throwable cause = BoundedDispatcher.unwrap(ex);
+            logFailure(action, cause);
+            if (cause instanceof S3Exception) {
+                return false;
+            }
+            throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+        });
+    }
+
+    /**
+     * Maps an S3 error to an empty list, as the blocking service does; other failures still propagate.
+     */
+    private static <T> CompletableFuture<List<T>> orEmpty(CompletableFuture<List<T>> future, String action) {
+        return future.handle((result, ex) -> {
+            if (ex == null) {
+                return result;
+            }
+            Throwable cause = BoundedDispatcher.unwrap(ex);
+            logFailure(action, cause);
+            if (cause instanceof S3Exception) {
+                return List.of();
+            }
+            throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+        });
+    }
+
+    private static boolean isNotFound(Throwable ex) {
+        return BoundedDispatcher.unwrap(ex) instanceof S3Exception s3Exception && s3Exception.statusCode() == 404;
+    }
+
+    private static boolean isPreconditionFailed(Throwable ex) {
+        return BoundedDispatcher.unwrap(ex) instanceof S3Exception s3Exception && s3Exception.statusCode() == 412;
+    }
+
+    private static void logFailure(String action, Throwable cause) {
+        if (cause instanceof S3Exception e && e.awsErrorDetails() != null) {
+            log.error("Failed to {}: {} - Error code: {}", action, e.awsErrorDetails().errorMessage(), e.awsErrorDetails().errorCode());
+        } else {
+            log.error("Failed to {}: {}", action, cause.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {}: {}", closeable, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * The upload a resumable run continues, its open journal and the parts already in place.
+     */
+    private record ResumePoint(String uploadId, UploadJournal journal, Map<Integer, CompletedPart> done) {
+    }
+
+    /**
+     * A source object of a batch copy, with the size that decides how it is copied.
+     */
+    private record CopySource(String key, long size) {
+    }
+
+    /**
+     * The state of one run of a batch copy or move: its counts, and which batches have finished, so the journal
+     * only ever checkpoints a key below which every batch is done.
+     */
+    private static final class CopyJob {
+        private final String sourceBucket;
+        private final String sourcePrefix;
+        private final String destinationBucket;
+        private final String destinationPrefix;
+        private final boolean move;
+        private final String resumedAfter;
+        private final CopyJournal journal;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong copied = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<BatchCopyResult.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+        // Failed keys not yet in the journal
+        private final Queue<String> unjournaledKeys = new ConcurrentLinkedQueue<>();
+        // Guarded by this: the last keys of batches that finished ahead of an earlier one
+        private final Map<Integer, String> finishedBatches = new HashMap<>();
+        private int nextBatch;
+        private String checkpoint;
+
+        CopyJob(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix, boolean move,
+                String resumedAfter, CopyJournal journal) {
+            this.sourceBucket = sourceBucket;
+            this.sourcePrefix = sourcePrefix;
+            this.destinationBucket = destinationBucket;
+            this.destinationPrefix = destinationPrefix;
+            this.move = move;
+            this.resumedAfter = resumedAfter;
+            this.journal = journal;
+            this.checkpoint = resumedAfter;
+        }
+
+        String sourceBucket() {
+            return sourceBucket;
+        }
+
+        String sourcePrefix() {
+            return sourcePrefix;
+        }
+
+        String destinationBucket() {
+            return destinationBucket;
+        }
+
+        String destinationPrefix() {
+            return destinationPrefix;
+        }
+
+        boolean move() {
+            return move;
+        }
+
+        String resumedAfter() {
+            return resumedAfter;
+        }
+
+        /**
+         * The sources of a batch of requested keys. A missing key fails, except in a resumed move, where the run
+         * that was interrupted has already moved it.
+         */
+        List<CopySource> sources(List<ObjectExistence> existences) {
+            List<CopySource> sources = new ArrayList<>(existences.size());
+            for (ObjectExistence existence : existences) {
+                if (existence.exists()) {
+                    sources.add(new CopySource(existence.key(), existence.size()));
+                } else if (existence.error() != null) {
+                    addFailure(new BatchCopyResult.Failure(existence.key(), null, existence.error()));
+                } else if (move && resumedAfter != null) {
+                    skipped.incrementAndGet();
+                } else {
+                    addFailure(new BatchCopyResult.Failure(existence.key(), "NoSuchKey", "The source object does not exist"));
+                }
+            }
+            return sources;
+        }
+
+        void recordCopy(long size) {
+            copied.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        void recordSkip() {
+            skipped.incrementAndGet();
+        }
+
+        void recordFailure(String key, Throwable cause) {
+            String code = cause instanceof S3Exception s3Exception && s3Exception.awsErrorDetails() != null
+                    ? s3Exception.awsErrorDetails().errorCode() : null;
+            addFailure(new BatchCopyResult.Failure(key, code, cause.getMessage()));
+        }
+
+        void recordDeletes(int batchSize, List<BulkDeleteResult.Failure> errors) {
+            deleted.addAndGet(batchSize - errors.size());
+            errors.forEach(error -> addFailure(new BatchCopyResult.Failure(error.key(), error.code(), error.message())));
+        }
+
+        /**
+         * Marks a batch as finished, journals the keys that failed so far, and checkpoints the last key of the
+         * longest run of finished batches. The failed keys go first, so a checkpoint never covers a failure the
+         * journal does not hold.
+         *
+         * @param lastKey The last source key of the batch, or null if it was empty
+         */
+        synchronized void batchDone(int batchNumber, String lastKey) {
+            finishedBatches.put(batchNumber, lastKey);
+            String next = null;
+            while (finishedBatches.containsKey(nextBatch)) {
+                String batchLastKey = finishedBatches.remove(nextBatch++);
+                if (batchLastKey != null) {
+                    next = batchLastKey;
+                }
+            }
+            List<String> newlyFailed = new ArrayList<>();
+            for (String key; (key = unjournaledKeys.poll()) != null; ) {
+                newlyFailed.add(key);
+            }
+            try {
+                journal.recordFailed(newlyFailed);
+                if (next != null) {
+                    journal.record(next);
+                    checkpoint = next;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * The key the journal was last checkpointed at, or null if it has none.
+         */
+        synchronized String checkpoint() {
+            return checkpoint;
+        }
+
+        /**
+         * Every key that failed in this run, in key order.
+         */
+        List<String> failedKeys() {
+            return failedKeys.stream().sorted(ShardedListing::compareKeys).toList();
+        }
+
+        BatchCopyResult result() {
+            BatchCopyResult result = new BatchCopyResult(copied.get(), skipped.get(), failed.get(), deleted.get(), bytes.get(),
+                    resumedAfter, Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), List.copyOf(failures));
+            log.info("{} {} objects ({} bytes) from bucket: {} to bucket: {}, {} deleted, {} skipped, {} failed",
+                    move ? "Moved" : "Copied", result.copied(), result.bytes(), sourceBucket, destinationBucket,
+                    result.deleted(), result.skipped(), result.failed());
+            return result;
+        }
+
+        private void addFailure(BatchCopyResult.Failure failure) {
+            failed.incrementAndGet();
+            if (failedKeys.add(failure.key())) {
+                unjournaledKeys.add(failure.key());
+            }
+            if (failures.size() < MAX_REPORTED_COPY_FAILURES) {
+                failures.add(failure);
+            }
+        }
+    }
+
+    /**
+     * Accumulates the outcome of the batches of one bulk delete.
+     */
+    private static final class DeleteTally {
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<BulkDeleteResult.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        void record(int batchSize, List<BulkDeleteResult.Failure> errors) {
+            deleted.addAndGet(batchSize - errors.size());
+            failed.addAndGet(errors.size());
+            errors.stream()
+                    .limit(Math.max(0, MAX_REPORTED_DELETE_FAILURES - failures.size()))
+                    .forEach(failures::add);
+        }
+
+        BulkDeleteResult result(String bucketName) {
+            BulkDeleteResult result = new BulkDeleteResult(deleted.get(), failed.get(), List.copyOf(failures));
+            log.info("Deleted {} objects from bucket: {}, {} failed", result.deleted(), bucketName, result.failed());
+            return result;
+        }
+    }
+}
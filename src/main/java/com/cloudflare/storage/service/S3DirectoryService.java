@@ -1,35 +1,60 @@
 package com.cloudflare.storage.service;
 
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ListedObject;
+import com.cloudflare.storage.model.ObjectExistence;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.model.SyncResult;
+import com.cloudflare.storage.support.ObjectDiskCache;
+import com.cloudflare.storage.support.ShardedListing;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface S3DirectoryService {
     boolean abortDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId);
     boolean completeDirectoryBucketMultipartUpload(String bucketName, String objectKey, String uploadId, List<CompletedPart> uploadParts);
     void copyDirectoryBucketObject(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey);
+    BatchCopyResult copyDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys, String destinationBucket, String destinationPrefix);
+    BatchCopyResult moveDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys, String destinationBucket, String destinationPrefix);
     void createDirectoryBucket(String bucketName, String zone) throws S3Exception;
     String createDirectoryBucketMultipartUpload(String bucketName, String objectKey);
     void deleteDirectoryBucket(String bucketName);
     void deleteDirectoryBucketEncryption(String bucketName);
     void deleteDirectoryBucketPolicy(String bucketName);
     void deleteDirectoryBucketObject(String bucketName, String objectKey);
-    void deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys);
+    BulkDeleteResult deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys);
+    BulkDeleteResult deleteDirectoryBucketObjectsByPrefix(String bucketName, String prefix);
     String getDirectoryBucketEncryption(String bucketName);
     String getDirectoryBucketPolicy(String bucketName);
     boolean getDirectoryBucketObject(String bucketName, String objectKey);
+    ResponseInputStream<GetObjectResponse> getDirectoryBucketObjectStream(String bucketName, String objectKey, String range);
+    ObjectDiskCache.Hit openCachedDirectoryBucketObject(String bucketName, String objectKey);
     boolean getDirectoryBucketObjectAttributes(String bucketName, String objectKey);
     boolean headDirectoryBucket(String bucketName);
     boolean headDirectoryBucketObject(String bucketName, String objectKey);
+    ObjectMetadata headDirectoryBucketObjectMetadata(String bucketName, String objectKey);
+    List<ObjectExistence> headDirectoryBucketObjects(String bucketName, List<String> objectKeys);
     List<String> listDirectoryBuckets();
     List<MultipartUpload> listDirectoryBucketMultipartUploads(String bucketName);
     List<String> listDirectoryBucketObjectsV2(String bucketName);
+    ShardedListing listDirectoryBucketObjectsV2Sharded(String bucketName, String prefix, int fanOut, boolean ordered);
+    Stream<ListedObject> streamDirectoryBucketObjectsV2(String bucketName, String prefix, String delimiter, String startAfter, Integer maxKeys);
     List<Part> listDirectoryBucketMultipartUploadParts(String bucketName, String objectKey, String uploadId);
     void putDirectoryBucketEncryption(String bucketName, String kmsKeyId);
     void putDirectoryBucketPolicy(String bucketName, String policyText);
     void putDirectoryBucketObject(String bucketName, String objectKey, Path filePath);
+    long streamDirectoryBucketObject(String bucketName, String objectKey, String contentType, InputStream body) throws IOException;
     List<CompletedPart> multipartUploadForDirectoryBucket(String bucketName, String objectKey, String uploadId, Path filePath) throws IOException;
+    String resumableMultipartUploadForDirectoryBucket(String bucketName, String objectKey, Path filePath) throws IOException;
+    long downloadDirectoryBucketObjectToPath(String bucketName, String objectKey, Path filePath) throws IOException;
+    SyncResult syncDirectoryToBucket(Path localDirectory, String bucketName, String prefix) throws IOException;
+    SyncResult syncBucketToDirectory(String bucketName, String prefix, Path localDirectory) throws IOException;
     List<CompletedPart> multipartUploadCopyForDirectoryBucket(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey, String uploadId);
 }
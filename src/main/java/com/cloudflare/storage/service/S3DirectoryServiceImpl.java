@@ -1,29 +1,105 @@
 package com.cloudflare.storage.service;
 
+import com.cloudflare.storage.constant.S3DirectoryConstants;
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.model.ListedObject;
+import com.cloudflare.storage.model.ObjectExistence;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.model.SyncResult;
+import com.cloudflare.storage.support.BoundedDispatcher;
+import com.cloudflare.storage.support.BufferPool;
+import com.cloudflare.storage.support.ETags;
+import com.cloudflare.storage.support.MetadataCache;
+import com.cloudflare.storage.support.MultipartParts;
+import com.cloudflare.storage.support.ObjectDiskCache;
+import com.cloudflare.storage.support.ShardedListing;
+import com.cloudflare.storage.support.SingleFlights;
+import com.cloudflare.storage.support.SpooledDownload;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.FileTransformerConfiguration;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class S3DirectoryServiceImpl implements S3DirectoryService {
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final String LIST_DELIMITER = "/";
+    private static final int MAX_REPORTED_SYNC_FAILURES = 1000;
+    private static final String DOWNLOAD_SUFFIX = ".download";
+    private static final int MAX_SPOOL_OPEN_ATTEMPTS = 3;
+
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final ExecutorService s3FanOutExecutor;
+    private final S3DirectoryAsyncService s3DirectoryAsyncService;
+    private final BufferPool bufferPool;
+    private final ObjectDiskCache objectDiskCache;
+    private final MetadataCache metadataCache;
+    private final SingleFlights singleFlights;
+
+    @Value("${cloudflare.list.shard-concurrency:16}")
+    private int listShardConcurrency;
+
+    @Value("${cloudflare.multipart.part-size:5MB}")
+    private DataSize multipartPartSize;
+
+    @Value("${cloudflare.sync.max-concurrency:16}")
+    private int syncMaxConcurrency;
+
+    @Value("${cloudflare.sync.multipart-threshold:16MB}")
+    private DataSize syncMultipartThreshold;
+
+    @Value("${cloudflare.stream.part-size:8MB}")
+    private DataSize streamPartSize;
+
+    @Value("${cloudflare.stream.max-buffers:4}")
+    private int streamMaxBuffers;
+
+    @Value("${cloudflare.single-flight.spool-directory:${java.io.tmpdir}/r2-spool}")
+    private Path singleFlightSpoolDirectory;
+
+    @Value("${cloudflare.single-flight.max-spool-size:256MB}")
+    private DataSize singleFlightMaxSpoolSize;
 
     /**
      * Aborts a specific multipart upload for the specified S3 directory bucket.
@@ -122,6 +198,42 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
         }
     }
 
+    /**
+     * Copies many objects, selected by a source prefix or listed by key, to
+     * another bucket or prefix, checkpointing progress so that submitting the
+     * same job again resumes it.
+     *
+     * @param sourceBucket      The name of the source bucket
+     * @param sourcePrefix      The prefix of the source keys, replaced by the destination prefix
+     * @param objectKeys        The source keys to copy, or null to copy every key under the source prefix
+     * @param destinationBucket The name of the destination bucket
+     * @param destinationPrefix The prefix the copies are written under, or null to keep the source keys
+     * @return The copied, failed and skipped counts
+     */
+    @Override
+    public BatchCopyResult copyDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys,
+                                                      String destinationBucket, String destinationPrefix) {
+        return join(s3DirectoryAsyncService.copyDirectoryBucketObjects(sourceBucket, sourcePrefix, objectKeys, destinationBucket, destinationPrefix));
+    }
+
+    /**
+     * Moves many objects, selected by a source prefix or listed by key, to
+     * another bucket or prefix, deleting each source once it has been copied.
+     * Progress is checkpointed so that submitting the same job again resumes it.
+     *
+     * @param sourceBucket      The name of the source bucket
+     * @param sourcePrefix      The prefix of the source keys, replaced by the destination prefix
+     * @param objectKeys        The source keys to move, or null to move every key under the source prefix
+     * @param destinationBucket The name of the destination bucket
+     * @param destinationPrefix The prefix the objects are moved under, or null to keep the source keys
+     * @return The copied, deleted, failed and skipped counts
+     */
+    @Override
+    public BatchCopyResult moveDirectoryBucketObjects(String sourceBucket, String sourcePrefix, List<String> objectKeys,
+                                                      String destinationBucket, String destinationPrefix) {
+        return join(s3DirectoryAsyncService.moveDirectoryBucketObjects(sourceBucket, sourcePrefix, objectKeys, destinationBucket, destinationPrefix));
+    }
+
     /**
      * Creates a new S3 directory bucket in a specified Zone (For example, a
      * specified Availability Zone in this code example).
@@ -291,38 +403,33 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
     }
 
     /**
-     * Deletes multiple objects from the specified S3 directory bucket.
+     * Deletes multiple objects from the specified S3 directory bucket. Keys are
+     * sent in batches of {@value S3DirectoryConstants#MAX_DELETE_KEYS}, with up to
+     * {@code cloudflare.delete.max-concurrency} batches in flight. Keys reported in
+     * a response's errors are retried on their own; a batch that fails as a whole
+     * is retried when the failure is transient.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKeys The list of keys (names) of the objects to be deleted
+     * @return The deleted and failed counts
      */
     @Override
-    public void deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys) {
-        log.info("Deleting objects from bucket: {}", bucketName);
-
-        try {
-            // Create a list of ObjectIdentifier.
-            List<ObjectIdentifier> identifiers = objectKeys.stream()
-                    .map(key -> ObjectIdentifier.builder().key(key).build())
-                    .toList();
-
-            Delete delete = Delete.builder()
-                    .objects(identifiers)
-                    .build();
-
-            DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
-                    .bucket(bucketName)
-                    .delete(delete)
-                    .build();
-
-            DeleteObjectsResponse deleteObjectsResponse = s3Client.deleteObjects(deleteObjectsRequest);
-            deleteObjectsResponse.deleted().forEach(deleted -> log.info("Deleted object: {}", deleted.key()));
+    public BulkDeleteResult deleteDirectoryBucketObjects(String bucketName, List<String> objectKeys) {
+        return join(s3DirectoryAsyncService.deleteDirectoryBucketObjects(bucketName, objectKeys));
+    }
 
-        } catch (S3Exception e) {
-            log.error("Failed to delete objects: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
-                    e.awsErrorDetails().errorCode(), e);
-            throw e;
-        }
+    /**
+     * Deletes every object under a prefix in the specified S3 directory bucket.
+     * Keys are read from a paginated listing and deleted in batches as they are
+     * listed, so the key set is never held in memory.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param prefix     The prefix of the keys to delete
+     * @return The deleted and failed counts
+     */
+    @Override
+    public BulkDeleteResult deleteDirectoryBucketObjectsByPrefix(String bucketName, String prefix) {
+        return join(s3DirectoryAsyncService.deleteDirectoryBucketObjectsByPrefix(bucketName, prefix));
     }
 
     /**
@@ -389,42 +496,178 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
     }
 
     /**
-     * Retrieves an object from the specified S3 directory bucket.
+     * Retrieves an object from the specified S3 directory bucket. Objects that
+     * fit the disk cache are read through it, so a repeated read of an unchanged
+     * object costs at most a conditional GET. Other objects are streamed and
+     * discarded, so memory use does not depend on the object size; concurrent
+     * retrievals of the same version share one GET.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object to be retrieved
-     * @return The retrieved object as a ResponseInputStream
+     * @return True if the object is successfully retrieved, false otherwise
      */
     @Override
     public boolean getDirectoryBucketObject(String bucketName, String objectKey) {
-        log.info("Retrieving object: {} from bucket: {}", objectKey, bucketName);
+        try (ObjectDiskCache.Hit cached = openCachedDirectoryBucketObject(bucketName, objectKey)) {
+            if (cached != null) {
+                log.info("Retrieved object: {} ({} bytes, ETag: {}) through the disk cache", objectKey,
+                        cached.metadata().size(), cached.metadata().eTag());
+                return true;
+            }
+        } catch (UncheckedIOException e) {
+            log.error("Failed to read object: {} - {}", objectKey, e.getMessage(), e);
+            return false;
+        } catch (S3Exception e) {
+            log.error("Failed to retrieve object: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
+                    e.awsErrorDetails().errorCode(), e);
+            return false;
+        }
 
-        try {
-            // Create a GetObjectRequest
-            GetObjectRequest objectRequest = GetObjectRequest.builder()
-                    .key(objectKey)
-                    .bucket(bucketName)
-                    .build();
+        return join(s3DirectoryAsyncService.getDirectoryBucketObject(bucketName, objectKey));
+    }
 
-            // Retrieve the object as bytes
-            ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObjectAsBytes(objectRequest);
-            byte[] data = objectBytes.asByteArray();
+    /**
+     * Opens an object from the local disk cache. An object that is not cached
+     * yet is downloaded into it first; concurrent opens of the same object share
+     * that download. A cached copy that was validated within
+     * {@code cloudflare.disk-cache.revalidate-after}, and whose ETag matches the
+     * object's metadata, is served without contacting R2; otherwise it is
+     * revalidated with {@code If-None-Match}.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be opened
+     * @return The open cached object, which the caller must close, or null if
+     * the object does not exist or is too large for the cache
+     */
+    @Override
+    public ObjectDiskCache.Hit openCachedDirectoryBucketObject(String bucketName, String objectKey) {
+        ObjectMetadata metadata = headDirectoryBucketObjectMetadata(bucketName, objectKey);
+        // A missing object is left to the uncached path, which reports it as R2 does
+        if (!metadata.exists() || !objectDiskCache.accepts(metadata.size())) {
+            return null;
+        }
+        return join(objectDiskCache.open(bucketName, objectKey, metadata.eTag(),
+                (ifNoneMatch, target) -> fetchToCache(bucketName, objectKey, ifNoneMatch, target)));
+    }
 
-            // Print object contents to console
-            String objectContent = new String(data, StandardCharsets.UTF_8);
-            log.info("Object contents: \n{}", objectContent);
+    /**
+     * Downloads an object into a disk cache file, or completes with null when
+     * its ETag still equals {@code ifNoneMatch}.
+     */
+    private CompletableFuture<ObjectMetadata> fetchToCache(String bucketName, String objectKey, String ifNoneMatch, Path target) {
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .ifNoneMatch(ifNoneMatch)
+                .build();
 
-            return true;
+        return s3AsyncClient.getObject(objectRequest, AsyncResponseTransformer.toFile(target, FileTransformerConfiguration.defaultCreateNew()))
+                .handle((response, ex) -> {
+                    if (ex == null) {
+                        return new ObjectMetadata(true, response.contentLength(), response.eTag(), response.lastModified(),
+                                response.contentType());
+                    }
+                    if (BoundedDispatcher.unwrap(ex) instanceof S3Exception s3Exception
+                            && s3Exception.statusCode() == 304) {
+                        log.info("Cached object: {} is unchanged (ETag: {})", objectKey, ifNoneMatch);
+                        return null;
+                    }
+                    throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+                });
+    }
 
-        } catch (S3Exception e) {
-            log.error("Failed to retrieve object: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
-                    e.awsErrorDetails().errorCode(), e);
-            return false;
+    /**
+     * Opens a streaming read of an object in the specified S3 directory bucket.
+     * Concurrent reads of the same range of the same version of an object up
+     * to {@code cloudflare.single-flight.max-spool-size} share one GET: its body
+     * is spooled to a local file that every reader follows at its own pace.
+     * The version is the ETag in the metadata cache, and the shared GET is
+     * conditional on it. Other reads are fed by the async client on demand: data is only
+     * requested from R2 as the caller consumes it, so a slow reader applies
+     * backpressure instead of making the service buffer the object.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be retrieved
+     * @param range      An HTTP {@code Range} header value such as {@code bytes=0-1023}, or null for the whole object
+     * @return The object body; the caller must close it
+     */
+    @Override
+    public ResponseInputStream<GetObjectResponse> getDirectoryBucketObjectStream(String bucketName, String objectKey, String range) {
+        log.info("Streaming object: {} from bucket: {} (range: {})", objectKey, bucketName, range);
+
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .range(range)
+                .build();
+
+        try {
+            // Only peeked, so a read of an object whose metadata is not cached costs no extra HeadObject
+            ObjectMetadata metadata = metadataCache.cachedObject(bucketName, objectKey);
+            if (metadata != null && metadata.exists() && metadata.size() <= singleFlightMaxSpoolSize.toBytes()) {
+                SingleFlights.Key key = new SingleFlights.Key(bucketName, objectKey, range, metadata.eTag());
+                GetObjectRequest conditionalRequest = objectRequest.toBuilder().ifMatch(metadata.eTag()).build();
+                try {
+                    for (int attempt = 1; attempt <= MAX_SPOOL_OPEN_ATTEMPTS; attempt++) {
+                        ResponseInputStream<GetObjectResponse> stream = openSpooled(key, conditionalRequest);
+                        if (stream != null) {
+                            return stream;
+                        }
+                    }
+                } catch (CompletionException e) {
+                    if (!(BoundedDispatcher.unwrap(e) instanceof S3Exception s3Exception && s3Exception.statusCode() == 412)) {
+                        throw e;
+                    }
+                    // The cached ETag is stale: drop it and read the current version on its own
+                    log.info("Object: {} in bucket: {} changed since its ETag was cached", objectKey, bucketName);
+                    metadataCache.invalidateObject(bucketName, objectKey);
+                }
+            }
+            return s3AsyncClient.getObject(objectRequest, AsyncResponseTransformer.toBlockingInputStream()).join();
+        } catch (CompletionException e) {
+            Throwable cause = BoundedDispatcher.unwrap(e);
+            if (cause instanceof S3Exception s3Exception) {
+                log.error("Failed to stream object: {} - Error code: {}", s3Exception.awsErrorDetails().errorMessage(),
+                        s3Exception.awsErrorDetails().errorCode());
+                throw s3Exception;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Joins the in-flight spooled GET for the key, or starts one.
+     *
+     * @return A stream over the spooled body, or null if the download ended before it could be joined
+     */
+    private ResponseInputStream<GetObjectResponse> openSpooled(SingleFlights.Key key, GetObjectRequest objectRequest) {
+        SpooledDownload download = singleFlights.<SpooledDownload>forOperation(SingleFlights.GET_OBJECT_STREAM)
+                .execute(key, () -> {
+                    try {
+                        return CompletableFuture.completedFuture(SpooledDownload.start(singleFlightSpoolDirectory,
+                                s3AsyncClient.getObject(objectRequest, AsyncResponseTransformer.toPublisher())));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, SpooledDownload::finished)
+                .join();
+
+        SpooledDownload.Reader reader = download.open();
+        if (reader == null) {
+            return null;
+        }
+        try {
+            return new ResponseInputStream<>(download.response().join(), AbortableInputStream.create(reader, reader::close));
+        } catch (RuntimeException e) {
+            reader.close();
+            throw e;
         }
     }
 
     /**
      * Retrieves attributes for an object in the specified S3 directory bucket.
+     * Concurrent retrievals for the same version of the object share one
+     * {@code GetObjectAttributes}.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object to retrieve attributes for
@@ -433,62 +676,24 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
      */
     @Override
     public boolean getDirectoryBucketObjectAttributes(String bucketName, String objectKey) {
-        log.info("Retrieving attributes for object: {} from bucket: {}", objectKey, bucketName);
-
-        try {
-            // Create a GetObjectAttributesRequest
-            GetObjectAttributesRequest getObjectAttributesRequest = GetObjectAttributesRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .objectAttributes(ObjectAttributes.E_TAG, ObjectAttributes.STORAGE_CLASS,
-                            ObjectAttributes.OBJECT_SIZE)
-                    .build();
-
-            // Retrieve the object attributes
-            GetObjectAttributesResponse response = s3Client.getObjectAttributes(getObjectAttributesRequest);
-            log.info("Attributes for object {}:", objectKey);
-            log.info("ETag: {}", response.eTag());
-            log.info("Storage Class: {}", response.storageClass());
-            log.info("Object Size: {}", response.objectSize());
-            return true;
-
-        } catch (S3Exception e) {
-            log.error("Failed to retrieve object attributes: {} - Error code: {}",
-                    e.awsErrorDetails().errorMessage(), e.awsErrorDetails().errorCode(), e);
-            return false;
-        }
+        return join(s3DirectoryAsyncService.getDirectoryBucketObjectAttributes(bucketName, objectKey));
     }
 
     /**
-     * Checks if the specified S3 directory bucket exists and is accessible.
+     * Checks if the specified S3 directory bucket exists and is accessible. The
+     * answer is served from the metadata cache when present.
      *
      * @param bucketName The name of the directory bucket to check
-     * @return True if the bucket exists and is accessible, false otherwise
+     * @return True if the bucket exists and is accessible, false if it does not exist
      */
     @Override
     public boolean headDirectoryBucket(String bucketName) {
-        log.info("Checking if bucket exists: {}", bucketName);
-
-        try {
-            // Create a HeadBucketRequest
-            HeadBucketRequest headBucketRequest = HeadBucketRequest.builder()
-                    .bucket(bucketName)
-                    .build();
-            // If the bucket doesn't exist, the following statement throws NoSuchBucketException,
-            // which is a subclass of S3Exception.
-            s3Client.headBucket(headBucketRequest);
-            log.info("Amazon S3 directory bucket: \"{}\" found.", bucketName);
-            return true;
-
-        } catch (S3Exception e) {
-            log.error("Failed to access bucket: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
-                    e.awsErrorDetails().errorCode(), e);
-            throw e;
-        }
+        return join(s3DirectoryAsyncService.headDirectoryBucket(bucketName));
     }
 
     /**
-     * Retrieves metadata for an object in the specified S3 directory bucket.
+     * Checks whether an object exists in the specified S3 directory bucket. The
+     * answer is served from the metadata cache when present.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object to retrieve metadata for
@@ -496,29 +701,34 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
      */
     @Override
     public boolean headDirectoryBucketObject(String bucketName, String objectKey) {
-        log.info("Retrieving metadata for object: {} from bucket: {}", objectKey, bucketName);
-
-        try {
-            // Create a HeadObjectRequest
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .build();
+        return join(s3DirectoryAsyncService.headDirectoryBucketObject(bucketName, objectKey));
+    }
 
-            // Retrieve the object metadata
-            HeadObjectResponse response = s3Client.headObject(headObjectRequest);
-            log.info("Amazon S3 object: \"{}\" found in bucket: \"{}\" with ETag: \"{}\"", objectKey, bucketName,
-                    response.eTag());
-            log.info("Content-Type: {}", response.contentType());
-            log.info("Content-Length: {}", response.contentLength());
-            log.info("Last Modified: {}", response.lastModified());
-            return true;
+    /**
+     * Retrieves the metadata of an object in the specified S3 directory bucket,
+     * served from the metadata cache when present.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to retrieve metadata for
+     * @return The object's size, ETag, last-modified time and content type, or that it does not exist
+     */
+    @Override
+    public ObjectMetadata headDirectoryBucketObjectMetadata(String bucketName, String objectKey) {
+        return join(s3DirectoryAsyncService.headDirectoryBucketObjectMetadata(bucketName, objectKey));
+    }
 
-        } catch (S3Exception e) {
-            log.error("Failed to retrieve object metadata: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
-                    e.awsErrorDetails().errorCode(), e);
-            return false;
-        }
+    /**
+     * Checks whether each of many objects in the specified S3 directory bucket
+     * exists, with one listing of their key range when the keys are dense and
+     * concurrent HEADs otherwise.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKeys The keys (names) of the objects to check
+     * @return Whether each object exists, with its size and ETag when it does, in request order
+     */
+    @Override
+    public List<ObjectExistence> headDirectoryBucketObjects(String bucketName, List<String> objectKeys) {
+        return join(s3DirectoryAsyncService.headDirectoryBucketObjects(bucketName, objectKeys));
     }
 
     /**
@@ -583,7 +793,9 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
     }
 
     /**
-     * Lists objects in the specified S3 directory bucket.
+     * Lists objects in the specified S3 directory bucket, following continuation
+     * tokens until every key has been returned. For large buckets prefer
+     * {@link #streamDirectoryBucketObjectsV2}, which does not hold the keys in memory.
      *
      * @param bucketName The name of the directory bucket
      * @return A list of object keys in the bucket
@@ -598,11 +810,8 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
                     .bucket(bucketName)
                     .build();
 
-            // Retrieve the list of objects
-            ListObjectsV2Response response = s3Client.listObjectsV2(listObjectsV2Request);
-
-            // Extract and return the object keys
-            return response.contents().stream()
+            // Retrieve every page of objects and extract the object keys
+            return s3Client.listObjectsV2Paginator(listObjectsV2Request).contents().stream()
                     .map(S3Object::key)
                     .collect(Collectors.toList());
 
@@ -613,13 +822,75 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
         }
     }
 
+    /**
+     * Lazily lists objects in the specified S3 directory bucket. Pages are
+     * fetched one at a time as the stream is consumed, following continuation
+     * tokens, so memory use is bounded by a single page regardless of bucket size.
+     * When a delimiter is given, common prefixes are returned as entries too.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param prefix     Only list keys starting with this prefix, or null
+     * @param delimiter  Group keys sharing a prefix up to this delimiter, or null
+     * @param startAfter Only list keys after this key, or null
+     * @param maxKeys    The maximum number of entries to return, or null for no limit
+     * @return A lazy stream of listing entries in key order within each page
+     */
+    @Override
+    public Stream<ListedObject> streamDirectoryBucketObjectsV2(String bucketName, String prefix, String delimiter, String startAfter, Integer maxKeys) {
+        log.info("Streaming objects in bucket: {} (prefix: {}, delimiter: {}, startAfter: {}, maxKeys: {})",
+                bucketName, prefix, delimiter, startAfter, maxKeys);
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(delimiter)
+                .startAfter(startAfter)
+                .maxKeys(maxKeys == null ? null : Math.min(maxKeys, LIST_PAGE_SIZE))
+                .build();
+
+        // R2 returns the objects and the common prefixes of a page as two separate lists, each in key order
+        Stream<ListedObject> entries = s3Client.listObjectsV2Paginator(listObjectsV2Request).stream()
+                .flatMap(page -> Stream.concat(
+                                page.contents().stream().map(ListedObject::of),
+                                page.commonPrefixes().stream().map(ListedObject::of))
+                        .sorted(Comparator.comparing(
+                                (ListedObject entry) -> entry.key() != null ? entry.key() : entry.prefix(),
+                                ShardedListing::compareKeys)));
+        return maxKeys == null ? entries : entries.limit(maxKeys);
+    }
+
+    /**
+     * Lists objects in the specified S3 directory bucket as concurrently listed
+     * key-range shards. The prefix fan-out is discovered with delimiter listings
+     * and each resulting shard is listed by its own paginated chain, with up to
+     * {@code cloudflare.list.shard-concurrency} shards running at once.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param prefix     Only list keys starting with this prefix, or null
+     * @param fanOut     The number of shards to aim for
+     * @param ordered    Whether entries must be returned in key order
+     * @return The running listing; the caller must close it
+     */
+    @Override
+    public ShardedListing listDirectoryBucketObjectsV2Sharded(String bucketName, String prefix, int fanOut, boolean ordered) {
+        log.info("Sharded listing of bucket: {} (prefix: {}, fanOut: {}, ordered: {})", bucketName, prefix, fanOut, ordered);
+
+        try {
+            return ShardedListing.start(s3Client, s3FanOutExecutor, bucketName, prefix, LIST_DELIMITER, fanOut, listShardConcurrency, ordered);
+        } catch (S3Exception e) {
+            log.error("Failed to discover listing shards: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
+                    e.awsErrorDetails().errorCode());
+            throw e;
+        }
+    }
+
     /**
      * Lists the parts of a multipart upload for the specified S3 directory bucket.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object being uploaded
      * @param uploadId   The upload ID used to track the multipart upload
-     * @return A list of Part representing the parts of the multipart upload
+     * @return Every part of the multipart upload, following continuation markers
      */
     @Override
     public List<Part> listDirectoryBucketMultipartUploadParts(String bucketName, String objectKey, String uploadId) {
@@ -633,9 +904,8 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
                     .key(objectKey)
                     .build();
 
-            // List the parts of the multipart upload
-            ListPartsResponse response = s3Client.listParts(listPartsRequest);
-            List<Part> parts = response.parts();
+            // List every part of the multipart upload, following continuation markers
+            List<Part> parts = s3Client.listPartsPaginator(listPartsRequest).parts().stream().toList();
             for (Part part : parts) {
                 log.info("Uploaded part: Part number = \"{}\", etag = {}", part.partNumber(), part.eTag());
             }
@@ -739,7 +1009,8 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
     }
 
     /**
-     * Puts an object into the specified S3 directory bucket.
+     * Puts an object into the specified S3 directory bucket. The body is streamed
+     * from a read-only mapping of the file rather than copied onto the heap.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object to be placed in the bucket
@@ -747,159 +1018,532 @@ public class S3DirectoryServiceImpl implements S3DirectoryService {
      */
     @Override
     public void putDirectoryBucketObject(String bucketName, String objectKey, Path filePath) {
-        log.info("Putting object: {} into bucket: {}", objectKey, bucketName);
+        join(s3DirectoryAsyncService.putDirectoryBucketObject(bucketName, objectKey, filePath));
+    }
 
+    /**
+     * Uploads a body of unknown length as it is read, without staging it on
+     * disk. Up to {@code cloudflare.stream.part-size} bytes are read into a
+     * buffer leased from the shared {@link BufferPool}; a body that ends within
+     * the first buffer is sent as a single PUT. Otherwise a multipart upload is
+     * started and every full buffer becomes a part uploaded concurrently while
+     * the next one is read. A buffer goes back to the pool once its part is
+     * acknowledged, and at most {@code cloudflare.stream.max-buffers} are held
+     * per upload, so reading waits for R2 instead of growing memory: peak
+     * memory per upload is {@code part-size * max-buffers}, and all uploads
+     * together stay within the pool's cap. A failed part stops reading and
+     * aborts the upload.
+     *
+     * @param bucketName  The name of the directory bucket
+     * @param objectKey   The key (name) of the object to be placed in the bucket
+     * @param contentType The content type to store with the object, or null
+     * @param body        The body to upload, read until its end
+     * @return The number of bytes uploaded
+     * @throws IOException if the body cannot be read
+     */
+    @Override
+    public long streamDirectoryBucketObject(String bucketName, String objectKey, String contentType, InputStream body) throws IOException {
+        int partSize = Math.toIntExact(Math.max(streamPartSize.toBytes(), S3DirectoryConstants.MIN_PART_SIZE));
+        ReadableByteChannel channel = Channels.newChannel(body);
+        Semaphore buffers = new Semaphore(Math.max(1, streamMaxBuffers));
+        BufferPool.Lease first;
         try {
-            // Create a PutObjectRequest
-            PutObjectRequest putObj = PutObjectRequest.builder()
+            buffers.acquire();
+            first = readStreamPart(channel, partSize, buffers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part buffer");
+        }
+
+        if (first == null || first.buffer().remaining() < partSize) {
+            long length = first == null ? 0 : first.buffer().remaining();
+            log.info("Streaming object: {} to bucket: {} as a single PUT of {} bytes", objectKey, bucketName, length);
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(objectKey)
+                    .contentType(contentType)
                     .build();
+            if (first == null) {
+                join(s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.empty()));
+            } else {
+                join(first.releaseAfter(s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromRemainingByteBufferUnsafe(first.buffer()))));
+            }
+            return length;
+        }
 
-            // Upload the object
-            s3Client.putObject(putObj, filePath);
-            log.info("Successfully placed {} into bucket {}", objectKey, bucketName);
+        String uploadId;
+        try {
+            CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .contentType(contentType)
+                    .build();
+            uploadId = join(s3AsyncClient.createMultipartUpload(createMultipartUploadRequest)).uploadId();
+        } catch (RuntimeException e) {
+            first.close();
+            throw e;
+        }
+        log.info("Streaming object: {} to bucket: {} in parts of {} bytes with up to {} buffers. Upload ID: {}",
+                objectKey, bucketName, partSize, streamMaxBuffers, uploadId);
 
-        } catch (UncheckedIOException e) {
-            throw S3Exception.builder().message("Failed to read the file: " + e.getMessage()).cause(e)
-                    .awsErrorDetails(AwsErrorDetails.builder()
-                            .errorCode("ClientSideException:FailedToReadFile")
-                            .errorMessage(e.getMessage())
-                            .build())
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        long total = 0;
+        try {
+            BufferPool.Lease lease = first;
+            while (lease != null) {
+                int length = lease.buffer().remaining();
+                if (parts.size() == S3DirectoryConstants.MAX_PARTS) {
+                    lease.close();
+                    buffers.release();
+                    throw new IllegalStateException("Body exceeds " + S3DirectoryConstants.MAX_PARTS + " parts of " + partSize + " bytes");
+                }
+                parts.add(uploadStreamPart(bucketName, objectKey, uploadId, parts.size() + 1, lease, buffers, failure));
+                total += length;
+
+                lease = null;
+                if (length == partSize && failure.get() == null) {
+                    // With every buffer of this upload in flight, wait for R2 to acknowledge a part before reading more
+                    buffers.acquire();
+                    lease = readStreamPart(channel, partSize, buffers);
+                }
+            }
+
+            join(CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)));
+            List<CompletedPart> completedParts = parts.stream().map(CompletableFuture::join).toList();
+            CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
                     .build();
-        } catch (S3Exception e) {
-            log.error("Failed to put object: {}", e.getMessage(), e);
+            CompleteMultipartUploadResponse response = join(s3AsyncClient.completeMultipartUpload(completeMultipartUploadRequest));
+            log.info("Streamed {} bytes in {} parts. ETag: {}", total, completedParts.size(), response.eTag());
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortDirectoryBucketMultipartUpload(bucketName, objectKey, uploadId);
+            throw new InterruptedIOException("Interrupted while streaming upload: " + uploadId);
+        } catch (IOException | RuntimeException e) {
+            // Do not leave the parts of a failed upload behind
+            abortDirectoryBucketMultipartUpload(bucketName, objectKey, uploadId);
             throw e;
         }
     }
 
+    /**
+     * Leases a part buffer and fills it from the body. Returns null, giving the
+     * buffer and its permit back, once the body is exhausted.
+     */
+    private BufferPool.Lease readStreamPart(ReadableByteChannel channel, int partSize, Semaphore buffers) throws IOException, InterruptedException {
+        BufferPool.Lease lease = null;
+        try {
+            lease = bufferPool.acquire(partSize);
+            ByteBuffer buffer = lease.buffer();
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the part is full or the body ends
+            }
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                return lease;
+            }
+            lease.close();
+            buffers.release();
+            return null;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            if (lease != null) {
+                lease.close();
+            }
+            buffers.release();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<CompletedPart> uploadStreamPart(String bucketName, String objectKey, String uploadId, int partNumber,
+                                                              BufferPool.Lease lease, Semaphore buffers,
+                                                              AtomicReference<Throwable> failure) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .build();
+
+        // The body reads the buffer in place, so it is released only after the part (with its retries) is done
+        return s3AsyncClient.uploadPart(uploadPartRequest, AsyncRequestBody.fromRemainingByteBufferUnsafe(lease.buffer()))
+                .thenApply(partResponse -> {
+                    log.info("Uploaded part number: {} with ETag: {}", partNumber, partResponse.eTag());
+                    return CompletedPart.builder()
+                            .partNumber(partNumber)
+                            .eTag(partResponse.eTag())
+                            .build();
+                })
+                .whenComplete((part, ex) -> {
+                    if (ex != null) {
+                        failure.compareAndSet(null, ex);
+                    }
+                    lease.close();
+                    buffers.release();
+                });
+    }
+
     /**
      * This method creates part requests and uploads individual parts to S3.
-     * While it uses the UploadPart API to upload a single part, it does so
-     * sequentially to handle multiple parts of a file, returning all the completed
-     * parts.
+     * Each part body is a read-only mapping of its window of the file, so no part
+     * is copied onto the heap. Parts are dispatched concurrently over the async
+     * client with at most {@code cloudflare.multipart.max-concurrency} in flight
+     * at once, which also caps the file regions mapped at any time. The part
+     * size grows past {@code cloudflare.multipart.part-size} only when needed to
+     * stay within the part limit.
      *
      * @param bucketName The name of the directory bucket
      * @param objectKey  The key (name) of the object to be uploaded
      * @param uploadId   The upload ID used to track the multipart upload
      * @param filePath   The path to the file to be uploaded
-     * @return A list of uploaded parts
+     * @return A list of uploaded parts, ordered by part number
      * @throws IOException if an I/O error occurs
      */
     @Override
     public List<CompletedPart> multipartUploadForDirectoryBucket(String bucketName, String objectKey, String uploadId, Path filePath) throws IOException {
-        log.info("Uploading parts for object: {} in bucket: {}", objectKey, bucketName);
-
-        int partNumber = 1;
-        List<CompletedPart> uploadedParts = new ArrayList<>();
-        ByteBuffer bb = ByteBuffer.allocate(1024 * 1024 * 5); // 5 MB byte buffer
-
-        // Read the local file, break down into chunks and process
-        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r")) {
-            long fileSize = file.length();
-            int position = 0;
-
-            // Sequentially upload parts of the file
-            while (position < fileSize) {
-                file.seek(position);
-                int read = file.getChannel().read(bb);
-
-                bb.flip(); // Swap position and limit before reading from the buffer
-                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
-                        .bucket(bucketName)
-                        .key(objectKey)
-                        .uploadId(uploadId)
-                        .partNumber(partNumber)
-                        .build();
-
-                UploadPartResponse partResponse = s3Client.uploadPart(
-                        uploadPartRequest,
-                        RequestBody.fromByteBuffer(bb));
-
-                // Build the uploaded part
-                CompletedPart uploadedPart = CompletedPart.builder()
-                        .partNumber(partNumber)
-                        .eTag(partResponse.eTag())
-                        .build();
-
-                // Add the uploaded part to the list
-                uploadedParts.add(uploadedPart);
-
-                // Log to indicate the part upload is done
-                log.info("Uploaded part number: {} with ETag: {}", partNumber, partResponse.eTag());
-
-                bb.clear();
-                position += read;
-                partNumber++;
-            }
+        return joinIO(s3DirectoryAsyncService.multipartUploadForDirectoryBucket(bucketName, objectKey, uploadId, filePath));
+    }
+
+    /**
+     * Uploads a file as a multipart upload that survives restarts. Completed
+     * parts are recorded in a local journal next to the file; a later call for
+     * the same object and unchanged file reconciles the journal with
+     * {@code ListParts} and uploads only the missing parts before completing.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be uploaded
+     * @param filePath   The path to the file to be uploaded
+     * @return The ETag of the completed object
+     * @throws IOException if the file or its journal cannot be accessed
+     */
+    @Override
+    public String resumableMultipartUploadForDirectoryBucket(String bucketName, String objectKey, Path filePath) throws IOException {
+        return joinIO(s3DirectoryAsyncService.resumableMultipartUploadForDirectoryBucket(bucketName, objectKey, filePath));
+    }
+
+    /**
+     * Downloads an object to a local file using concurrent byte-range GETs.
+     * The file is preallocated to the object size from {@code HeadObject} and
+     * each range is written at its own offset, so ranges can land in any order.
+     * Every range is requested with {@code If-Match} on the ETag and its
+     * response is checked against the expected length and ETag; on any failure
+     * the partially written file is deleted.
+     *
+     * @param bucketName The name of the directory bucket
+     * @param objectKey  The key (name) of the object to be downloaded
+     * @param filePath   The path of the local file to write
+     * @return The number of bytes downloaded
+     * @throws IOException if the local file could not be prepared
+     */
+    @Override
+    public long downloadDirectoryBucketObjectToPath(String bucketName, String objectKey, Path filePath) throws IOException {
+        return joinIO(s3DirectoryAsyncService.downloadDirectoryBucketObjectToPath(bucketName, objectKey, filePath));
+    }
+
+    /**
+     * Uploads the new and changed files of a local directory tree under a key
+     * prefix. The remote side is listed once; each local file is then compared
+     * by size, and when it was modified after the object, by its ETag. Changed
+     * files go through a pipeline with up to {@code cloudflare.sync.max-concurrency}
+     * files in flight: files below {@code cloudflare.sync.multipart-threshold}
+     * are sent as a single PUT, larger ones as a multipart upload. A file that
+     * fails is reported without stopping the rest. Objects without a local file
+     * are left in place.
+     *
+     * @param localDirectory The root of the local tree
+     * @param bucketName     The name of the directory bucket
+     * @param prefix         The key prefix the tree maps to, or null for the bucket root
+     * @return The transferred, skipped and failed counts
+     * @throws IOException if the local tree cannot be walked
+     */
+    @Override
+    public SyncResult syncDirectoryToBucket(Path localDirectory, String bucketName, String prefix) throws IOException {
+        String keyPrefix = syncPrefix(prefix);
+        log.info("Syncing directory: {} to bucket: {} (prefix: {})", localDirectory, bucketName, keyPrefix);
+        long started = System.nanoTime();
+
+        // Every local file is compared with its object, so hold the remote side as a map; entries are small
+        Map<String, S3Object> remote = new HashMap<>();
+        try {
+            s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                            .bucket(bucketName)
+                            .prefix(keyPrefix.isEmpty() ? null : keyPrefix)
+                            .build())
+                    .contents()
+                    .forEach(object -> remote.put(object.key(), object));
         } catch (S3Exception e) {
-            log.error("Failed to list parts: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
+            log.error("Failed to list objects for sync: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
                     e.awsErrorDetails().errorCode());
             throw e;
         }
-        return uploadedParts;
+
+        SyncTally tally = new SyncTally();
+        try (Stream<Path> files = Files.walk(localDirectory)) {
+            BoundedDispatcher.dispatchEach(files.filter(Files::isRegularFile).iterator(), syncMaxConcurrency, file -> {
+                String key = keyPrefix + toKey(localDirectory.relativize(file));
+                // Comparing may hash the file, so it runs off the walking thread
+                return CompletableFuture.supplyAsync(() -> needsUpload(file, remote.get(key)), s3FanOutExecutor)
+                        .thenCompose(upload -> upload ? uploadFile(bucketName, key, file) : CompletableFuture.<Long>completedFuture(null))
+                        .handle((bytes, ex) -> tally.record(key, bytes, ex));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return tally.result(started, localDirectory + " -> " + bucketName + "/" + keyPrefix);
+    }
+
+    /**
+     * Downloads the new and changed objects under a key prefix into a local
+     * directory tree. The listing is consumed lazily; each object is compared
+     * with its local file by size, and when the file is older than the object,
+     * by its ETag. Changed objects go through a pipeline with up to
+     * {@code cloudflare.sync.max-concurrency} objects in flight: objects below
+     * {@code cloudflare.sync.multipart-threshold} are fetched with a single GET,
+     * larger ones with concurrent ranged GETs. Each object is written to a
+     * temporary file that replaces the target only once complete, and the
+     * file's modification time is set to the object's so the next sync can
+     * skip it. Local files without an object are left in place.
+     *
+     * @param bucketName     The name of the directory bucket
+     * @param prefix         The key prefix to download, or null for the whole bucket
+     * @param localDirectory The root of the local tree
+     * @return The transferred, skipped and failed counts
+     * @throws IOException if the local directory cannot be created
+     */
+    @Override
+    public SyncResult syncBucketToDirectory(String bucketName, String prefix, Path localDirectory) throws IOException {
+        String keyPrefix = syncPrefix(prefix);
+        log.info("Syncing bucket: {} (prefix: {}) to directory: {}", bucketName, keyPrefix, localDirectory);
+        long started = System.nanoTime();
+        Path root = Files.createDirectories(localDirectory).toAbsolutePath().normalize();
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(keyPrefix.isEmpty() ? null : keyPrefix)
+                .build();
+        // Keys ending in the delimiter are folder placeholders, not files
+        Iterator<S3Object> objects = s3Client.listObjectsV2Paginator(listObjectsV2Request).contents().stream()
+                .filter(object -> !object.key().endsWith(LIST_DELIMITER))
+                .iterator();
+
+        SyncTally tally = new SyncTally();
+        try {
+            BoundedDispatcher.dispatchEach(objects, syncMaxConcurrency, object ->
+                    CompletableFuture.supplyAsync(() -> {
+                                Path file = root.resolve(object.key().substring(keyPrefix.length())).normalize();
+                                if (!file.startsWith(root) || file.equals(root)) {
+                                    throw new IllegalArgumentException("Key does not map to a file under " + root);
+                                }
+                                return needsDownload(file, object) ? file : null;
+                            }, s3FanOutExecutor)
+                            .thenCompose(file -> file != null ? downloadFile(bucketName, object, file) : CompletableFuture.<Long>completedFuture(null))
+                            .handle((bytes, ex) -> tally.record(object.key(), bytes, ex)));
+        } catch (S3Exception e) {
+            log.error("Failed to list objects for sync: {} - Error code: {}", e.awsErrorDetails().errorMessage(),
+                    e.awsErrorDetails().errorCode());
+            throw e;
+        }
+        return tally.result(started, bucketName + "/" + keyPrefix + " -> " + localDirectory);
+    }
+
+    private boolean needsUpload(Path file, S3Object object) {
+        if (object == null) {
+            return true;
+        }
+        try {
+            long size = Files.size(file);
+            if (size != object.size()) {
+                return true;
+            }
+            if (!Files.getLastModifiedTime(file).toInstant().isAfter(object.lastModified())) {
+                return false;
+            }
+            return !ETags.matches(file, object.eTag(), MultipartParts.partSize(size, multipartPartSize.toBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean needsDownload(Path file, S3Object object) {
+        try {
+            if (!Files.isRegularFile(file) || Files.size(file) != object.size()) {
+                return true;
+            }
+            if (!Files.getLastModifiedTime(file).toInstant().isBefore(object.lastModified())) {
+                return false;
+            }
+            return !ETags.matches(file, object.eTag(), MultipartParts.partSize(object.size(), multipartPartSize.toBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Long> uploadFile(String bucketName, String objectKey, Path file) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (size < syncMultipartThreshold.toBytes()) {
+            return s3DirectoryAsyncService.putDirectoryBucketObject(bucketName, objectKey, file).thenApply(ignored -> size);
+        }
+
+        return s3DirectoryAsyncService.createDirectoryBucketMultipartUpload(bucketName, objectKey).thenCompose(uploadId ->
+                s3DirectoryAsyncService.multipartUploadForDirectoryBucket(bucketName, objectKey, uploadId, file)
+                        .thenCompose(parts -> s3DirectoryAsyncService.completeDirectoryBucketMultipartUpload(bucketName, objectKey, uploadId, parts))
+                        .thenApply(completed -> {
+                            if (!completed) {
+                                throw new IllegalStateException("Failed to complete multipart upload: " + uploadId);
+                            }
+                            return size;
+                        })
+                        .whenComplete((bytes, ex) -> {
+                            // Do not leave the parts of a failed upload behind
+                            if (ex != null) {
+                                s3DirectoryAsyncService.abortDirectoryBucketMultipartUpload(bucketName, objectKey, uploadId);
+                            }
+                        }));
+    }
+
+    private CompletableFuture<Long> downloadFile(String bucketName, S3Object object, Path file) {
+        Path download = file.resolveSibling(file.getFileName() + DOWNLOAD_SUFFIX);
+        CompletableFuture<?> transfer;
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (object.size() < syncMultipartThreshold.toBytes()) {
+            GetObjectRequest objectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(object.key())
+                    .ifMatch(object.eTag())
+                    .build();
+            transfer = s3AsyncClient.getObject(objectRequest,
+                    AsyncResponseTransformer.toFile(download, FileTransformerConfiguration.defaultCreateOrReplaceExisting()));
+        } else {
+            transfer = s3DirectoryAsyncService.downloadDirectoryBucketObjectToPath(bucketName, object.key(), download);
+        }
+
+        return transfer.handle((response, ex) -> {
+            try {
+                if (ex != null) {
+                    Files.deleteIfExists(download);
+                    throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+                }
+                Files.move(download, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.setLastModifiedTime(file, FileTime.from(object.lastModified()));
+                return object.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String syncPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return "";
+        }
+        return prefix.endsWith(LIST_DELIMITER) ? prefix : prefix + LIST_DELIMITER;
+    }
+
+    private static String toKey(Path relativePath) {
+        return StreamSupport.stream(relativePath.spliterator(), false)
+                .map(Path::toString)
+                .collect(Collectors.joining(LIST_DELIMITER));
     }
 
     /**
      * Creates copy parts based on source object size and copies over individual
-     * parts.
+     * parts. Part copies are issued concurrently over the async client, up to
+     * {@code cloudflare.copy.max-concurrency} at once. The part size starts at
+     * {@code cloudflare.copy.part-size} and grows with the source size so the
+     * copy stays within the part limit. A part that fails with a throttling,
+     * server or transport error is retried on its own before the copy fails.
      *
      * @param sourceBucket      The name of the source bucket
      * @param sourceKey         The key (name) of the source object
      * @param destinationBucket The name of the destination bucket
      * @param destinationKey    The key (name) of the destination object
      * @param uploadId          The upload ID used to track the multipart upload
-     * @return A list of completed parts
+     * @return A list of completed parts, ordered by part number
      */
     @Override
     public List<CompletedPart> multipartUploadCopyForDirectoryBucket(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey, String uploadId) {
-        // Get the object size to track the end of the copy operation
-        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                .bucket(sourceBucket)
-                .key(sourceKey)
-                .build();
-        HeadObjectResponse headObjectResponse = s3Client.headObject(headObjectRequest);
-        long objectSize = headObjectResponse.contentLength();
+        return join(s3DirectoryAsyncService.multipartUploadCopyForDirectoryBucket(sourceBucket, sourceKey, destinationBucket, destinationKey, uploadId));
+    }
 
-        log.info("Source Object size: {}", objectSize);
+    /**
+     * Accumulates the per-file outcomes of one sync.
+     */
+    private static final class SyncTally {
+        private final AtomicLong transferred = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<SyncResult.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Records one file: transferred when {@code transferredBytes} is set, skipped when it is null.
+         */
+        Void record(String key, Long transferredBytes, Throwable ex) {
+            if (ex != null) {
+                Throwable cause = BoundedDispatcher.unwrap(ex);
+                log.warn("Failed to sync: {} - {}", key, cause.getMessage());
+                failed.incrementAndGet();
+                if (failures.size() < MAX_REPORTED_SYNC_FAILURES) {
+                    failures.add(new SyncResult.Failure(key, cause.getMessage()));
+                }
+            } else if (transferredBytes != null) {
+                transferred.incrementAndGet();
+                bytes.addAndGet(transferredBytes);
+            } else {
+                skipped.incrementAndGet();
+            }
+            return null;
+        }
 
-        // Copy the object using 20 MB parts
-        long partSize = 20 * 1024 * 1024; // 20 MB
-        long bytePosition = 0;
-        int partNum = 1;
-        List<CompletedPart> uploadedParts = new ArrayList<>();
+        SyncResult result(long startedNanos, String description) {
+            long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+            SyncResult result = new SyncResult(transferred.get() + skipped.get() + failed.get(), transferred.get(), skipped.get(),
+                    failed.get(), bytes.get(), elapsedMillis, List.copyOf(failures));
+            log.info("Synced {}: {} transferred ({} bytes), {} unchanged, {} failed in {} ms", description,
+                    result.transferred(), result.bytes(), result.skipped(), result.failed(), elapsedMillis);
+            return result;
+        }
+    }
 
-        while (bytePosition < objectSize) {
-            long lastByte = Math.min(bytePosition + partSize - 1, objectSize - 1);
-            log.info("Part Number: {}, Byte Position: {}, Last Byte: {}", partNum, bytePosition, lastByte);
+    /**
+     * Waits for an operation of the async service, rethrowing its failure unwrapped.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw BoundedDispatcher.unwrap(e) instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
 
-            try {
-                UploadPartCopyRequest uploadPartCopyRequest = UploadPartCopyRequest.builder()
-                        .sourceBucket(sourceBucket)
-                        .sourceKey(sourceKey)
-                        .destinationBucket(destinationBucket)
-                        .destinationKey(destinationKey)
-                        .uploadId(uploadId)
-                        .copySourceRange("bytes=" + bytePosition + "-" + lastByte)
-                        .partNumber(partNum)
-                        .build();
-                UploadPartCopyResponse uploadPartCopyResponse = s3Client.uploadPartCopy(uploadPartCopyRequest);
-
-                CompletedPart part = CompletedPart.builder()
-                        .partNumber(partNum)
-                        .eTag(uploadPartCopyResponse.copyPartResult().eTag())
-                        .build();
-                uploadedParts.add(part);
-
-                bytePosition += partSize;
-                partNum++;
-            } catch (S3Exception e) {
-                log.error("Failed to copy part number {}: {} - Error code: {}", partNum,
-                        e.awsErrorDetails().errorMessage(), e.awsErrorDetails().errorCode());
-                throw e;
+    /**
+     * Like {@link #join}, but rethrows the I/O errors of file-backed operations as {@link IOException}.
+     */
+    private static <T> T joinIO(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = BoundedDispatcher.unwrap(e);
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
             }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw cause instanceof RuntimeException runtimeException ? runtimeException : e;
         }
-
-        return uploadedParts;
     }
 }
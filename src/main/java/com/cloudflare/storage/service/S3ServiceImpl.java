@@ -23,8 +23,8 @@ public class S3ServiceImpl {
      * @param sourceObjectKey  The key (name) of the source object
      * @param targetBucket The name of the target bucket
      * @param targetObjectKey  The key (name) of the target object
-     * @return a {@link CompletableFuture} that completes with the copy result as a {@link String}
-     * @throws RuntimeException if the URL could not be encoded or an S3 exception occurred during the copy
+     * @return a {@link CompletableFuture} that completes with the copy result as a {@link String}, or fails with
+     * the {@link S3Exception} if the copy fails
      */
     public CompletableFuture<String> copyBucketObjectAsync(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey) {
         CopyObjectRequest copyReq = CopyObjectRequest.builder()
@@ -34,16 +34,16 @@ public class S3ServiceImpl {
                 .destinationKey(targetObjectKey)
                 .build();
 
-        CompletableFuture<CopyObjectResponse> response = asyncClient.copyObject(copyReq);
-        response.whenComplete((copyRes, ex) -> {
-            if (copyRes != null) {
-                log.info("The {} was copied to {}", sourceObjectKey, targetBucket);
-            } else {
-                throw new RuntimeException("An S3 exception occurred during copy", ex);
-            }
-        });
-
-        return response.thenApply(CopyObjectResponse::copyObjectResult)
+        // Log from the returned chain so that failures still reach the caller
+        return asyncClient.copyObject(copyReq)
+                .whenComplete((copyRes, ex) -> {
+                    if (ex != null) {
+                        log.error("An S3 exception occurred during copy of {}", sourceObjectKey, ex);
+                    } else {
+                        log.info("The {} was copied to {}", sourceObjectKey, targetBucket);
+                    }
+                })
+                .thenApply(CopyObjectResponse::copyObjectResult)
                 .thenApply(Object::toString);
     }
 
@@ -52,23 +52,23 @@ public class S3ServiceImpl {
      * Deletes an S3 bucket asynchronously.
      *
      * @param bucket the name of the bucket to be deleted
-     * @return a {@link CompletableFuture} that completes when the bucket deletion is successful, or throws a {@link RuntimeException}
-     * if an error occurs during the deletion process
+     * @return a {@link CompletableFuture} that completes when the bucket deletion is successful, or fails with the
+     * {@link S3Exception} if an error occurs during the deletion process
      */
     public CompletableFuture<Void> deleteBucketAsync(String bucket) {
         DeleteBucketRequest deleteBucketRequest = DeleteBucketRequest.builder()
                 .bucket(bucket)
                 .build();
 
-        CompletableFuture<DeleteBucketResponse> response = asyncClient.deleteBucket(deleteBucketRequest);
-        response.whenComplete((deleteRes, ex) -> {
-            if (deleteRes != null) {
-                log.info("{} was deleted.", bucket);
-            } else {
-                throw new RuntimeException("An S3 exception occurred during bucket deletion", ex);
-            }
-        });
-        return response.thenApply(r -> null);
+        return asyncClient.deleteBucket(deleteBucketRequest)
+                .whenComplete((deleteRes, ex) -> {
+                    if (ex != null) {
+                        log.error("An S3 exception occurred during deletion of bucket {}", bucket, ex);
+                    } else {
+                        log.info("{} was deleted.", bucket);
+                    }
+                })
+                .thenApply(r -> null);
     }
 
 
@@ -77,8 +77,8 @@ public class S3ServiceImpl {
      * Creates an S3 bucket asynchronously.
      *
      * @param bucketName the name of the S3 bucket to create
-     * @return a {@link CompletableFuture} that completes when the bucket is created and ready
-     * @throws RuntimeException if there is a failure while creating the bucket
+     * @return a {@link CompletableFuture} that completes when the bucket is created and ready, or fails with the
+     * {@link S3Exception} if the bucket could not be created
      */
     public CompletableFuture<Void> createBucketAsync(String bucketName) {
         CreateBucketRequest bucketRequest = CreateBucketRequest.builder()
@@ -101,7 +101,7 @@ public class S3ServiceImpl {
             });
         }).whenComplete((resp, ex) -> {
             if (ex != null) {
-                throw new RuntimeException("Failed to create bucket", ex);
+                log.error("Failed to create bucket {}", bucketName, ex);
             }
         });
     }
@@ -1,36 +1,469 @@
-//package com.cloudflare.storage.service;
-//
-//import lombok.RequiredArgsConstructor;
-//import lombok.extern.slf4j.Slf4j;
-//import org.springframework.stereotype.Service;
-//import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
-//import software.amazon.awssdk.transfer.s3.S3TransferManager;
-//import software.amazon.awssdk.transfer.s3.model.CompletedCopy;
-//import software.amazon.awssdk.transfer.s3.model.Copy;
-//import software.amazon.awssdk.transfer.s3.model.CopyRequest;
-//
-//@Slf4j
-//@Service
-//@RequiredArgsConstructor
-//public class S3TransferManagerServiceImpl {
-//
-//    private final S3TransferManager transferManager;
-//
-//    public String copyObject(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey) {
-//        CopyObjectRequest copyObjectRequest = CopyObjectRequest.builder()
-//                .sourceBucket(sourceBucket)
-//                .sourceKey(sourceObjectKey)
-//                .destinationBucket(targetBucket)
-//                .destinationKey(targetObjectKey)
-//                .build();
-//
-//        CopyRequest copyRequest = CopyRequest.builder()
-//                .copyObjectRequest(copyObjectRequest)
-//                .build();
-//
-//        Copy copy = transferManager.copy(copyRequest);
-//
-//        CompletedCopy completedCopy = copy.completionFuture().join();
-//        return completedCopy.response().copyObjectResult().eTag();
-//    }
-//}
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.model.TransferStatus;
+import com.cloudflare.storage.model.TransferStatus.State;
+import com.cloudflare.storage.model.TransferStatus.Type;
+import com.cloudflare.storage.support.BoundedDispatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.*;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import software.amazon.awssdk.transfer.s3.progress.TransferProgressSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Runs uploads, downloads, copies and directory uploads through the {@link S3TransferManager} in the
+ * background. Each submission returns at once with a transfer ID that the status, pause, resume and
+ * cancel operations refer to. File uploads and downloads can be paused and resumed; an upload resumes
+ * after its last completed part, a download after its last written byte. Finished transfers are kept for
+ * {@code cloudflare.transfer.retention} so their outcome can still be queried.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class S3TransferManagerServiceImpl {
+
+    private final S3TransferManager transferManager;
+    private final S3AsyncClient s3AsyncClient;
+    private final ExecutorService s3FanOutExecutor;
+    private final Map<String, ManagedTransfer> transfers = new ConcurrentHashMap<>();
+
+    @Value("${cloudflare.transfer.retention:1h}")
+    private Duration retention;
+
+    /**
+     * Starts uploading a local file.
+     *
+     * @param bucketName The name of the bucket
+     * @param objectKey  The key of the object
+     * @param filePath   The file to upload
+     * @return The status of the new transfer
+     */
+    public TransferStatus uploadFile(String bucketName, String objectKey, Path filePath) {
+        UploadFileRequest uploadFileRequest = UploadFileRequest.builder()
+                .putObjectRequest(request -> request.bucket(bucketName).key(objectKey))
+                .source(filePath)
+                .build();
+
+        ManagedTransfer transfer = register(Type.UPLOAD_FILE, bucketName, objectKey);
+        FileUpload upload = transferManager.uploadFile(uploadFileRequest);
+        track(transfer, upload, upload.completionFuture(), completed -> completed.response().eTag());
+        return transfer.status();
+    }
+
+    /**
+     * Starts downloading an object into a local file, replacing the file if it exists.
+     *
+     * @param bucketName The name of the bucket
+     * @param objectKey  The key of the object
+     * @param filePath   The file to write
+     * @return The status of the new transfer
+     */
+    public TransferStatus downloadFile(String bucketName, String objectKey, Path filePath) {
+        DownloadFileRequest downloadFileRequest = DownloadFileRequest.builder()
+                .getObjectRequest(request -> request.bucket(bucketName).key(objectKey))
+                .destination(filePath)
+                .build();
+
+        ManagedTransfer transfer = register(Type.DOWNLOAD_FILE, bucketName, objectKey);
+        FileDownload download = transferManager.downloadFile(downloadFileRequest);
+        track(transfer, download, download.completionFuture(), completed -> completed.response().eTag());
+        return transfer.status();
+    }
+
+    /**
+     * Starts copying an object.
+     *
+     * @param sourceBucket    The name of the source bucket
+     * @param sourceObjectKey The key of the source object
+     * @param targetBucket    The name of the target bucket
+     * @param targetObjectKey The key of the target object
+     * @return The status of the new transfer
+     */
+    public TransferStatus copyObject(String sourceBucket, String sourceObjectKey, String targetBucket, String targetObjectKey) {
+        CopyObjectRequest copyObjectRequest = CopyObjectRequest.builder()
+                .sourceBucket(sourceBucket)
+                .sourceKey(sourceObjectKey)
+                .destinationBucket(targetBucket)
+                .destinationKey(targetObjectKey)
+                .build();
+
+        CopyRequest copyRequest = CopyRequest.builder()
+                .copyObjectRequest(copyObjectRequest)
+                .build();
+
+        ManagedTransfer transfer = register(Type.COPY, targetBucket, targetObjectKey);
+        Copy copy = transferManager.copy(copyRequest);
+        track(transfer, copy, copy.completionFuture(), completed -> completed.response().copyObjectResult().eTag());
+        return transfer.status();
+    }
+
+    /**
+     * Starts uploading every file of a local directory tree under a key prefix. Progress is the sum over
+     * all files; the total becomes known once the tree has been measured.
+     *
+     * @param localDirectory The root of the local tree
+     * @param bucketName     The name of the bucket
+     * @param prefix         The key prefix the tree maps to, or null for the bucket root
+     * @return The status of the new transfer
+     */
+    public TransferStatus uploadDirectory(Path localDirectory, String bucketName, String prefix) {
+        ManagedTransfer transfer = register(Type.UPLOAD_DIRECTORY, bucketName, prefix);
+
+        UploadDirectoryRequest uploadDirectoryRequest = UploadDirectoryRequest.builder()
+                .source(localDirectory)
+                .bucket(bucketName)
+                .s3Prefix(prefix)
+                .uploadFileRequestTransformer(request -> request.addTransferListener(transfer.fileListener()))
+                .build();
+
+        DirectoryUpload upload = transferManager.uploadDirectory(uploadDirectoryRequest);
+        track(transfer, upload, upload.completionFuture(), completed -> {
+            completed.failedTransfers().forEach(failed -> log.warn("Failed to upload file: {} - {}",
+                    failed.request().source(), failed.exception().getMessage()));
+            return completed.failedTransfers().size() + " failed";
+        });
+
+        // Measure the tree off the request thread; until then the transfer reports no total
+        CompletableFuture.runAsync(() -> {
+            try (Stream<Path> files = Files.walk(localDirectory)) {
+                transfer.directoryTotal(files.filter(Files::isRegularFile).mapToLong(S3TransferManagerServiceImpl::size).sum());
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to measure directory: {} - {}", localDirectory, e.getMessage());
+            }
+        }, s3FanOutExecutor);
+        return transfer.status();
+    }
+
+    /**
+     * The current state of a transfer.
+     *
+     * @param transferId The ID of the transfer
+     * @return The status of the transfer
+     */
+    public TransferStatus getTransfer(String transferId) {
+        return find(transferId).status();
+    }
+
+    /**
+     * All transfers that are running, paused, or finished within the retention period, oldest first.
+     *
+     * @return The status of each transfer
+     */
+    public List<TransferStatus> listTransfers() {
+        evictFinished();
+        return transfers.values().stream()
+                .map(ManagedTransfer::status)
+                .sorted(Comparator.comparing(TransferStatus::startedAt))
+                .toList();
+    }
+
+    /**
+     * Pauses a running file upload or download. An upload keeps its completed parts; a download keeps the
+     * bytes written so far.
+     *
+     * @param transferId The ID of the transfer
+     * @return The status of the paused transfer
+     */
+    public TransferStatus pauseTransfer(String transferId) {
+        ManagedTransfer transfer = find(transferId);
+        synchronized (transfer) {
+            transfer.expect(State.RUNNING);
+            Transfer running = transfer.current;
+            transfer.pause(() -> switch (running) {
+                case FileUpload upload -> upload.pause();
+                case FileDownload download -> download.pause();
+                default -> throw new IllegalStateException("Transfer cannot be paused: " + transfer.type);
+            });
+        }
+        log.info("Paused transfer: {}", transferId);
+        return transfer.status();
+    }
+
+    /**
+     * Resumes a paused transfer from where it stopped. An upload restarts from the beginning if the file has
+     * changed since it was paused.
+     *
+     * @param transferId The ID of the transfer
+     * @return The status of the resumed transfer
+     */
+    public TransferStatus resumeTransfer(String transferId) {
+        ManagedTransfer transfer = find(transferId);
+        synchronized (transfer) {
+            transfer.expect(State.PAUSED);
+            switch (transfer.resumable) {
+                case ResumableFileUpload resumable -> {
+                    FileUpload upload = transferManager.resumeUploadFile(resumable);
+                    track(transfer, upload, upload.completionFuture(), completed -> completed.response().eTag());
+                }
+                case ResumableFileDownload resumable -> {
+                    FileDownload download = transferManager.resumeDownloadFile(resumable);
+                    track(transfer, download, download.completionFuture(), completed -> completed.response().eTag());
+                }
+                default -> throw new IllegalStateException("Transfer cannot be resumed: " + transfer.type);
+            }
+        }
+        log.info("Resumed transfer: {}", transferId);
+        return transfer.status();
+    }
+
+    /**
+     * Cancels a running or paused transfer. A paused upload's multipart upload is aborted and a paused
+     * download's partial file is deleted.
+     *
+     * @param transferId The ID of the transfer
+     * @return The status of the cancelled transfer
+     */
+    public TransferStatus cancelTransfer(String transferId) {
+        ManagedTransfer transfer = find(transferId);
+        synchronized (transfer) {
+            if (transfer.state.finished()) {
+                throw new IllegalStateException("Transfer has already finished: " + transferId);
+            }
+            State previous = transfer.state;
+            // Finish first, so the cancellation the running transfer completes with is not taken for a failure
+            transfer.finish(State.CANCELLED, null);
+            if (previous == State.RUNNING) {
+                transfer.current.completionFuture().cancel(true);
+            } else {
+                discard(transfer.resumable);
+            }
+        }
+        log.info("Cancelled transfer: {}", transferId);
+        return transfer.status();
+    }
+
+    private ManagedTransfer register(Type type, String bucketName, String objectKey) {
+        evictFinished();
+        ManagedTransfer transfer = new ManagedTransfer(UUID.randomUUID().toString(), type, bucketName, objectKey);
+        transfers.put(transfer.id, transfer);
+        log.info("Started transfer: {} ({} {}/{})", transfer.id, type, bucketName, objectKey);
+        return transfer;
+    }
+
+    private ManagedTransfer find(String transferId) {
+        ManagedTransfer transfer = transfers.get(transferId);
+        if (transfer == null) {
+            throw new IllegalArgumentException("No such transfer: " + transferId);
+        }
+        return transfer;
+    }
+
+    private <C extends CompletedTransfer> void track(ManagedTransfer transfer, Transfer sdkTransfer,
+                                                     CompletableFuture<C> completion, Function<C, String> result) {
+        long run = transfer.start(sdkTransfer);
+        completion.whenComplete((completed, ex) -> {
+            if (ex == null) {
+                transfer.complete(run, result.apply(completed));
+            } else {
+                transfer.fail(run, BoundedDispatcher.unwrap(ex));
+            }
+        });
+    }
+
+    private void discard(Object resumable) {
+        switch (resumable) {
+            case ResumableFileUpload upload -> upload.multipartUploadId().ifPresent(uploadId ->
+                    s3AsyncClient.abortMultipartUpload(request -> request
+                            .bucket(upload.uploadFileRequest().putObjectRequest().bucket())
+                            .key(upload.uploadFileRequest().putObjectRequest().key())
+                            .uploadId(uploadId)));
+            case ResumableFileDownload download -> {
+                try {
+                    Files.deleteIfExists(download.downloadFileRequest().destination());
+                } catch (IOException e) {
+                    log.warn("Failed to delete partial download: {} - {}", download.downloadFileRequest().destination(), e.getMessage());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void evictFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        transfers.values().removeIf(transfer -> transfer.finishedBefore(cutoff));
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One registered transfer across its runs: the first submission and every resume.
+     */
+    private static final class ManagedTransfer {
+        private final String id;
+        private final Type type;
+        private final String bucketName;
+        private final String objectKey;
+        private final Instant startedAt = Instant.now();
+        // Directory uploads are summed over their files; object transfers read the SDK progress
+        private final AtomicLong directoryBytes = new AtomicLong();
+        private volatile Long directoryTotal;
+
+        private State state = State.RUNNING;
+        private Transfer current;
+        private Object resumable;
+        private long run;
+        private long runStartNanos;
+        private long runStartBytes;
+        // The full size, kept because a resumed download reports only the remaining range
+        private Long knownTotal;
+        private long carriedBytes;
+        private Instant finishedAt;
+        private String result;
+
+        private ManagedTransfer(String id, Type type, String bucketName, String objectKey) {
+            this.id = id;
+            this.type = type;
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+        }
+
+        synchronized long start(Transfer sdkTransfer) {
+            current = sdkTransfer;
+            resumable = null;
+            state = State.RUNNING;
+            runStartNanos = System.nanoTime();
+            runStartBytes = carriedBytes;
+            return ++run;
+        }
+
+        /**
+         * Pauses the running transfer. The state changes first, so the cancellation the paused run completes
+         * with is not taken for a failure.
+         */
+        synchronized void pause(Supplier<Object> pauseRun) {
+            carriedBytes = transferredBytes();
+            state = State.PAUSED;
+            try {
+                resumable = pauseRun.get();
+            } catch (RuntimeException e) {
+                state = State.RUNNING;
+                throw e;
+            }
+        }
+
+        synchronized void complete(long run, String result) {
+            if (run == this.run && state == State.RUNNING) {
+                finish(State.COMPLETED, result);
+                log.info("Completed transfer: {} ({})", id, result);
+            }
+        }
+
+        synchronized void fail(long run, Throwable cause) {
+            // A paused or cancelled run ends with a cancellation that is not a failure of the transfer
+            if (run == this.run && state == State.RUNNING) {
+                finish(State.FAILED, cause.getMessage());
+                log.error("Failed transfer: {} - {}", id, cause.getMessage());
+            }
+        }
+
+        synchronized void finish(State state, String result) {
+            carriedBytes = transferredBytes();
+            this.state = state;
+            this.result = result;
+            finishedAt = Instant.now();
+        }
+
+        synchronized boolean finishedBefore(Instant cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        void expect(State expected) {
+            if (state != expected) {
+                throw new IllegalStateException("Transfer " + id + " is " + state + ", not " + expected);
+            }
+        }
+
+        void directoryTotal(long totalBytes) {
+            directoryTotal = totalBytes;
+        }
+
+        /**
+         * A listener for one file of a directory upload, adding what the file transfers to the directory's progress.
+         */
+        TransferListener fileListener() {
+            return new TransferListener() {
+                private long reported;
+
+                @Override
+                public synchronized void bytesTransferred(Context.BytesTransferred context) {
+                    long transferred = context.progressSnapshot().transferredBytes();
+                    directoryBytes.addAndGet(transferred - reported);
+                    reported = transferred;
+                }
+            };
+        }
+
+        synchronized TransferStatus status() {
+            long transferred = state == State.RUNNING ? transferredBytes() : carriedBytes;
+            Long total = totalBytes();
+            long bytesPerSecond = 0;
+            Long etaSeconds = null;
+            if (state == State.RUNNING) {
+                long elapsedNanos = System.nanoTime() - runStartNanos;
+                if (elapsedNanos > 0) {
+                    bytesPerSecond = Math.max(0, (transferred - runStartBytes) * 1_000_000_000L / elapsedNanos);
+                }
+                if (total != null && bytesPerSecond > 0) {
+                    etaSeconds = Math.max(0, total - transferred) / bytesPerSecond;
+                }
+            }
+            return new TransferStatus(id, type, state, bucketName, objectKey, transferred, total, bytesPerSecond,
+                    etaSeconds, startedAt, finishedAt, result);
+        }
+
+        private long transferredBytes() {
+            if (!(current instanceof ObjectTransfer objectTransfer)) {
+                return directoryBytes.get();
+            }
+            totalBytes();
+            TransferProgressSnapshot snapshot = objectTransfer.progress().snapshot();
+            OptionalLong runTotal = snapshot.totalBytes();
+            long skipped = knownTotal != null && runTotal.isPresent() && runTotal.getAsLong() < knownTotal
+                    ? knownTotal - runTotal.getAsLong() : 0;
+            // Never report less than before a pause while a resumed run is still starting up
+            return Math.max(carriedBytes, skipped + snapshot.transferredBytes());
+        }
+
+        private Long totalBytes() {
+            if (!(current instanceof ObjectTransfer objectTransfer)) {
+                return directoryTotal;
+            }
+            OptionalLong runTotal = objectTransfer.progress().snapshot().totalBytes();
+            if (runTotal.isPresent() && (knownTotal == null || runTotal.getAsLong() > knownTotal)) {
+                knownTotal = runTotal.getAsLong();
+            }
+            return knownTotal;
+        }
+    }
+}
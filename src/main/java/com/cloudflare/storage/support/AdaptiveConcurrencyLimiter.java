@@ -0,0 +1,260 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ConcurrencyLimitStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Client-side AIMD limit on the R2 calls in flight, kept separately for each bucket and class of operation.
+ * <p>
+ * A call takes a slot before it is sent and returns it when it completes. While a scope is at its limit, further
+ * calls wait first come first served, without holding a thread when they come from the async client. The limit
+ * starts at the configured initial value and follows the signals R2 gives: every attempt answered with 429 or 503
+ * cuts it by the backoff ratio, at most once per decrease interval so that one burst of rejections counts once,
+ * and every call that succeeds while the scope is busy raises it by {@code 1 / limit}, about one slot per limit's
+ * worth of successes. Calls that fail for other reasons leave the limit unchanged.
+ * <p>
+ * The limit, the calls in flight and the calls waiting of each scope are exposed as the {@code r2.limiter.*}
+ * gauges, tagged with bucket and operation class.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Operations that share a limit. R2 throttles them largely independently, so a storm of uploads does not
+     * starve reads of the same bucket.
+     */
+    public enum OperationClass {
+        READ, WRITE, LIST, DELETE, BUCKET;
+
+        public static OperationClass of(String operationName) {
+            return switch (operationName) {
+                case "GetObject", "HeadObject", "GetObjectAttributes" -> READ;
+                case "PutObject", "UploadPart", "UploadPartCopy", "CopyObject", "CreateMultipartUpload",
+                     "CompleteMultipartUpload", "AbortMultipartUpload" -> WRITE;
+                case "ListObjectsV2", "ListObjects", "ListParts", "ListMultipartUploads", "ListBuckets" -> LIST;
+                case "DeleteObject", "DeleteObjects" -> DELETE;
+                default -> BUCKET;
+            };
+        }
+    }
+
+    /**
+     * The bucket and operation class a call is limited by.
+     */
+    public record Scope(String bucketName, OperationClass operationClass) {
+
+        public static Scope of(SdkRequest request) {
+            String operationName = request.getClass().getSimpleName().replaceFirst("Request$", "");
+            // Copies are charged to the bucket they write to
+            String bucketName = request.getValueForField("Bucket", String.class)
+                    .or(() -> request.getValueForField("DestinationBucket", String.class))
+                    .orElse("");
+            return new Scope(bucketName, OperationClass.of(operationName));
+        }
+    }
+
+    /**
+     * The limit of one scope. The mutable fields are guarded by the instance.
+     */
+    private final class Limit {
+        private final Scope scope;
+        private final GrantQueue<Scope, Permit> waiters;
+        private double limit = initialLimit;
+        private int inFlight;
+        private long lastDecreaseNanos = System.nanoTime() - decreaseInterval.toNanos();
+        private long throttled;
+        private long decreases;
+
+        private Limit(Scope scope, Timer waitTimer) {
+            this.scope = scope;
+            this.waiters = new GrantQueue<>(this, ignored -> tryTake(), permit -> permit.release(false), maxWait,
+                    () -> SdkClientException.create("No R2 request slot for " + scope + " within " + maxWait),
+                    waited -> waitTimer.record(waited, TimeUnit.NANOSECONDS));
+        }
+
+        private int slots() {
+            return (int) limit;
+        }
+
+        /**
+         * Takes a slot if one is free. Called with the instance locked.
+         */
+        private Permit tryTake() {
+            if (inFlight >= slots()) {
+                return null;
+            }
+            inFlight++;
+            return new Permit(this);
+        }
+
+        private ConcurrencyLimitStats stats() {
+            return new ConcurrencyLimitStats(scope.bucketName(), scope.operationClass().name(), limit, inFlight,
+                    waiters.size(), throttled, decreases, waiters.waits(), waiters.timeouts());
+        }
+    }
+
+    /**
+     * A slot held by one call. Releasing it again has no effect.
+     */
+    public final class Permit {
+        private final Limit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Limit limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Returns the slot.
+         *
+         * @param succeeded Whether the call succeeded; only successes raise the limit
+         */
+        public void release(boolean succeeded) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (limit) {
+                // Only a busy scope shows that more slots would be used
+                boolean busy = limit.inFlight >= limit.slots() || !limit.waiters.isEmpty();
+                limit.inFlight--;
+                if (succeeded && busy) {
+                    limit.limit = Math.min(maxLimit, limit.limit + 1 / limit.limit);
+                }
+            }
+            limit.waiters.serve();
+        }
+    }
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final Duration decreaseInterval;
+    private final Duration maxWait;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Scope, Limit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * @param initialLimit     The limit of a scope before R2 has throttled it
+     * @param minLimit         The limit is never cut below this
+     * @param maxLimit         The limit never grows beyond this
+     * @param backoffRatio     The factor a throttling signal multiplies the limit by
+     * @param decreaseInterval The minimum time between two cuts of the same scope
+     * @param maxWait          How long a call waits for a slot before it fails
+     * @param registry         Where the gauges of each scope are registered
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      Duration decreaseInterval, Duration maxWait, MeterRegistry registry) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.decreaseInterval = decreaseInterval;
+        this.maxWait = maxWait;
+        this.registry = registry;
+    }
+
+    /**
+     * Takes a slot, waiting while the scope is at its limit.
+     *
+     * @param scope The scope of the call
+     * @return The slot
+     * @throws SdkClientException if no slot became free within the wait limit
+     * @throws AbortedException   if interrupted while waiting
+     */
+    public Permit acquire(Scope scope) {
+        try {
+            return limit(scope).waiters.acquire(scope);
+        } catch (ExecutionException e) {
+            throw (SdkClientException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted while waiting for an R2 request slot", e);
+        }
+    }
+
+    /**
+     * Takes a slot without blocking. The future completes once a slot is free, or fails with an
+     * {@link SdkClientException} after the wait limit.
+     *
+     * @param scope The scope of the call
+     * @return A future completing with the slot
+     */
+    public CompletableFuture<Permit> acquireAsync(Scope scope) {
+        return limit(scope).waiters.acquireAsync(scope);
+    }
+
+    /**
+     * Records that R2 answered an attempt in the scope with 429 or 503, cutting its limit unless it was cut within
+     * the decrease interval.
+     */
+    public void onThrottled(Scope scope) {
+        Limit limit = limit(scope);
+        long now = System.nanoTime();
+        synchronized (limit) {
+            limit.throttled++;
+            if (now - limit.lastDecreaseNanos < decreaseInterval.toNanos()) {
+                return;
+            }
+            limit.lastDecreaseNanos = now;
+            limit.limit = Math.max(minLimit, limit.limit * backoffRatio);
+            limit.decreases++;
+        }
+    }
+
+    /**
+     * The state of every scope seen since startup.
+     */
+    public List<ConcurrencyLimitStats> stats() {
+        return limits.values().stream()
+                .map(limit -> {
+                    synchronized (limit) {
+                        return limit.stats();
+                    }
+                })
+                .sorted(Comparator.comparing(ConcurrencyLimitStats::bucketName)
+                        .thenComparing(ConcurrencyLimitStats::operationClass))
+                .toList();
+    }
+
+    private Limit limit(Scope scope) {
+        return limits.computeIfAbsent(scope, this::newLimit);
+    }
+
+    private Limit newLimit(Scope scope) {
+        Limit limit = new Limit(scope, Timer.builder("r2.limiter.wait")
+                .description("Time R2 calls waited for a slot")
+                .tags("bucket", scope.bucketName(), "operation.class", scope.operationClass().name())
+                .register(registry));
+        gauge("r2.limiter.limit", "Current limit on R2 calls in flight", limit, l -> l.limit);
+        gauge("r2.limiter.inflight", "R2 calls in flight under the limit", limit, l -> l.inFlight);
+        gauge("r2.limiter.queued", "R2 calls waiting for a slot", limit, l -> l.waiters.size());
+        return limit;
+    }
+
+    private void gauge(String name, String description, Limit limit, ToDoubleFunction<Limit> value) {
+        Gauge.builder(name, limit, l -> {
+                    synchronized (l) {
+                        return value.applyAsDouble(l);
+                    }
+                })
+                .description(description)
+                .tags("bucket", limit.scope.bucketName(), "operation.class", limit.scope.operationClass().name())
+                .register(registry);
+    }
+}
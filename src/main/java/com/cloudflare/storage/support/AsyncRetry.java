@@ -0,0 +1,77 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.SdkPlugin;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries a single asynchronous S3 operation with exponential backoff, without blocking a thread between attempts.
+ * <p>
+ * This is meant for units of work inside a larger job (a part, a batch) where giving up on one unit would otherwise
+ * throw away the whole job. It replaces the SDK's own retry strategy rather than sitting on top of it: requests it
+ * retries must be built with {@link #withoutSdkRetries}, or every attempt here would be retried again by the SDK and
+ * a throttled unit would send the product of both attempt limits.
+ */
+public final class AsyncRetry {
+
+    private static final SdkPlugin NO_SDK_RETRIES = config -> config.overrideConfiguration(
+            config.overrideConfiguration().toBuilder().retryStrategy(AwsRetryStrategy.doNotRetry()).build());
+
+    private AsyncRetry() {
+    }
+
+    /**
+     * Turns off the SDK's retries for one request, for use as
+     * {@code builder.overrideConfiguration(AsyncRetry::withoutSdkRetries)}.
+     */
+    public static void withoutSdkRetries(AwsRequestOverrideConfiguration.Builder overrideConfiguration) {
+        overrideConfiguration.addPlugin(NO_SDK_RETRIES);
+    }
+
+    /**
+     * Runs the operation, retrying transient failures up to {@code maxAttempts} attempts in total.
+     *
+     * @param maxAttempts The maximum number of attempts, including the first one
+     * @param backoff     The delay before the second attempt; doubled for each further attempt
+     * @param operation   Starts one attempt of the operation
+     * @return A future completing with the first successful result, or the last failure
+     */
+    public static <T> CompletableFuture<T> withRetry(int maxAttempts, Duration backoff, Supplier<CompletableFuture<T>> operation) {
+        return attempt(1, maxAttempts, backoff.toMillis(), operation);
+    }
+
+    /**
+     * Returns whether the failure is worth retrying: throttling, server errors other than 501 Not Implemented, and
+     * client-side transport errors. Aborted calls are not retried.
+     */
+    public static boolean isRetryable(Throwable ex) {
+        Throwable cause = BoundedDispatcher.unwrap(ex);
+        if (cause instanceof S3Exception s3Exception) {
+            int status = s3Exception.statusCode();
+            return status == 429 || status >= 500 && status != 501;
+        }
+        return cause instanceof SdkClientException && !(cause instanceof AbortedException);
+    }
+
+    private static <T> CompletableFuture<T> attempt(int attempt, int maxAttempts, long backoffMillis, Supplier<CompletableFuture<T>> operation) {
+        return operation.get().handle((result, ex) -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            if (attempt >= maxAttempts || !isRetryable(ex)) {
+                return CompletableFuture.<T>failedFuture(BoundedDispatcher.unwrap(ex));
+            }
+            long delay = backoffMillis << (attempt - 1);
+            return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attempt(attempt + 1, maxAttempts, backoffMillis, operation));
+        }).thenCompose(future -> future);
+    }
+}
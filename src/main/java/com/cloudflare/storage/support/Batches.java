@@ -0,0 +1,40 @@
+package com.cloudflare.storage.support;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Groups a lazily consumed sequence into fixed-size batches.
+ */
+public final class Batches {
+
+    private Batches() {
+    }
+
+    /**
+     * Returns an iterator over consecutive batches of at most {@code size} items; only the last batch may be smaller.
+     * The source is read one batch at a time.
+     */
+    public static <T> Iterator<List<T>> of(Iterator<T> source, int size) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!source.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<T> batch = new ArrayList<>(size);
+                while (batch.size() < size && source.hasNext()) {
+                    batch.add(source.next());
+                }
+                return batch;
+            }
+        };
+    }
+}
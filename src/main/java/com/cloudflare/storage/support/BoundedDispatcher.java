@@ -0,0 +1,265 @@
+package com.cloudflare.storage.support;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Dispatches asynchronous tasks with a hard limit on how many are in flight at once.
+ * <p>
+ * The calling thread blocks while the limit is reached, so any resources a task holds until its
+ * future completes (buffers, connections) are bounded by {@code maxInFlight} regardless of how many
+ * tasks there are. Dispatching stops at the first failure; tasks already in flight are allowed to
+ * settle before the failure is rethrown.
+ */
+public final class BoundedDispatcher {
+
+    private BoundedDispatcher() {
+    }
+
+    /**
+     * Runs {@code taskCount} tasks with at most {@code maxInFlight} outstanding and returns their results
+     * in task index order.
+     *
+     * @param taskCount   The number of tasks to run
+     * @param maxInFlight The maximum number of tasks whose futures may be incomplete at the same time
+     * @param task        Creates the future for the task with the given zero-based index
+     * @return The task results, ordered by task index
+     * @throws RuntimeException the first failure raised by a task, unwrapped from {@link CompletionException}
+     */
+    public static <T> List<T> dispatch(int taskCount, int maxInFlight, IntFunction<CompletableFuture<T>> task) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(taskCount);
+        dispatchEach(IntStream.range(0, taskCount).iterator(), maxInFlight, index -> {
+            CompletableFuture<T> future = task.apply(index);
+            futures.add(future);
+            return future;
+        });
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Runs one task per item with at most {@code maxInFlight} outstanding. Items are pulled from the
+     * iterator only when a slot is free, so a lazily produced source (such as a paginated listing) is
+     * never read further ahead than the tasks in flight.
+     *
+     * @param items       The items to process
+     * @param maxInFlight The maximum number of tasks whose futures may be incomplete at the same time
+     * @param task        Creates the future for one item
+     * @throws RuntimeException the first failure raised by a task, unwrapped from {@link CompletionException}
+     */
+    public static <S> void dispatchEach(Iterator<S> items, int maxInFlight, Function<S, ? extends CompletableFuture<?>> task) {
+        int permitCount = Math.max(1, maxInFlight);
+        Semaphore permits = new Semaphore(permitCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try {
+            while (failure.get() == null) {
+                permits.acquire();
+                if (failure.get() != null || !items.hasNext()) {
+                    permits.release();
+                    break;
+                }
+
+                CompletableFuture<?> future;
+                try {
+                    future = task.apply(items.next());
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failure.compareAndSet(null, unwrap(ex));
+                    }
+                    permits.release();
+                });
+            }
+            // Wait for every task in flight to settle
+            permits.acquire(permitCount);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+
+        Throwable ex = failure.get();
+        if (ex != null) {
+            throw ex instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(ex);
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #dispatch}: runs {@code taskCount} tasks with at most
+     * {@code maxInFlight} outstanding and completes with their results in task index order.
+     */
+    public static <T> CompletableFuture<List<T>> dispatchAsync(int taskCount, int maxInFlight, IntFunction<CompletableFuture<T>> task) {
+        AtomicReferenceArray<T> results = new AtomicReferenceArray<>(taskCount);
+        return dispatchEachAsync(IntStream.range(0, taskCount).iterator(), maxInFlight,
+                index -> task.apply(index).thenAccept(result -> results.set(index, result)))
+                .thenApply(ignored -> IntStream.range(0, taskCount).mapToObj(results::get).toList());
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #dispatchEach}. Instead of blocking the caller on a permit, it runs
+     * {@code maxInFlight} lanes that each pull the next item when their previous task completes, so no
+     * thread ever waits for a slot. The iterator must not block.
+     *
+     * @return A future completing once every task has settled, exceptionally with the first failure
+     */
+    public static <S> CompletableFuture<Void> dispatchEachAsync(Iterator<S> items, int maxInFlight, Function<S, ? extends CompletableFuture<?>> task) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.max(1, maxInFlight)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = runLane(items, task, failure);
+        }
+        return CompletableFuture.allOf(lanes).thenRun(() -> {
+            Throwable ex = failure.get();
+            if (ex != null) {
+                throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Runs one task per item emitted by a reactive publisher with at most {@code maxInFlight} outstanding.
+     * Items are requested from the publisher only as tasks complete, so a paginated listing is never
+     * fetched further ahead than the work it feeds. The subscription is cancelled at the first failure.
+     *
+     * @return A future completing once the publisher has finished and every task has settled
+     */
+    public static <S> CompletableFuture<Void> dispatchEachAsync(Publisher<S> items, int maxInFlight, Function<S, ? extends CompletableFuture<?>> task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        items.subscribe(new Subscriber<S>() {
+            // One hold for the publisher until it terminates or is cancelled, plus one per running task
+            private final AtomicInteger pending = new AtomicInteger(1);
+            private final AtomicBoolean publisherReleased = new AtomicBoolean();
+            private final AtomicReference<Throwable> failure = new AtomicReference<>();
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                request(Math.max(1, maxInFlight));
+            }
+
+            @Override
+            public void onNext(S item) {
+                if (failure.get() != null) {
+                    return;
+                }
+                pending.incrementAndGet();
+                CompletableFuture<?> future;
+                try {
+                    future = task.apply(item);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        fail(unwrap(ex));
+                    } else if (failure.get() == null) {
+                        request(1);
+                    }
+                    settle();
+                });
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                failure.compareAndSet(null, ex);
+                releasePublisher();
+            }
+
+            @Override
+            public void onComplete() {
+                releasePublisher();
+            }
+
+            private void fail(Throwable ex) {
+                if (failure.compareAndSet(null, ex)) {
+                    synchronized (this) {
+                        subscription.cancel();
+                    }
+                    releasePublisher();
+                }
+            }
+
+            // Task completions arrive on arbitrary threads, but calls on a subscription must be serial
+            private synchronized void request(long n) {
+                subscription.request(n);
+            }
+
+            private void releasePublisher() {
+                if (publisherReleased.compareAndSet(false, true)) {
+                    settle();
+                }
+            }
+
+            private void settle() {
+                if (pending.decrementAndGet() == 0) {
+                    Throwable ex = failure.get();
+                    if (ex != null) {
+                        done.completeExceptionally(ex);
+                    } else {
+                        done.complete(null);
+                    }
+                }
+            }
+        });
+        return done;
+    }
+
+    private static <S> CompletableFuture<Void> runLane(Iterator<S> items, Function<S, ? extends CompletableFuture<?>> task,
+                                                       AtomicReference<Throwable> failure) {
+        while (true) {
+            S item;
+            synchronized (items) {
+                if (failure.get() != null || !items.hasNext()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                item = items.next();
+            }
+
+            CompletableFuture<?> future;
+            try {
+                future = task.apply(item);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            // Loop over tasks that complete immediately instead of recursing, so long runs cannot overflow the stack
+            if (!future.isDone()) {
+                return future.handle((result, ex) -> {
+                    if (ex != null) {
+                        failure.compareAndSet(null, unwrap(ex));
+                    }
+                    return null;
+                }).thenCompose(ignored -> runLane(items, task, failure));
+            }
+            if (future.isCompletedExceptionally()) {
+                future.handle((result, ex) -> failure.compareAndSet(null, unwrap(ex)));
+            }
+        }
+    }
+
+    /**
+     * Strips the {@link CompletionException} wrapper that {@link CompletableFuture} adds around failures.
+     */
+    public static Throwable unwrap(Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,206 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.BufferPoolStats;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pool of off-heap buffers for part I/O.
+ * <p>
+ * Requests are rounded up to a size class (powers of two and the midpoints between them, so a class wastes at
+ * most a third of its size) and served from released buffers of that class when possible. All buffers the pool
+ * holds, leased or idle, count against one memory cap. When a request does not fit, idle buffers of other classes
+ * are dropped to make room; when it still does not fit, the caller waits, first come first served, until leases
+ * are released. A caller that waits longer than the configured limit fails instead of allocating past the cap.
+ */
+public final class BufferPool {
+    private static final int MIN_CLASS_SIZE = 4 * 1024;
+    private static final int MAX_CLASS_SIZE = 1 << 30;
+
+    private final long capacity;
+    private final Duration maxWait;
+    private final Map<Integer, ArrayDeque<ByteBuffer>> idle = new HashMap<>();
+    private final GrantQueue<Integer, Lease> waiters;
+    private long leasedBytes;
+    private long idleBytes;
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public BufferPool(long capacity, Duration maxWait) {
+        this.capacity = capacity;
+        this.maxWait = maxWait;
+        this.waiters = new GrantQueue<>(this, this::tryLease, Lease::close, maxWait,
+                () -> new TimeoutException("No buffer memory available within " + maxWait), this::recordWait);
+    }
+
+    /**
+     * A buffer on loan from the pool. Closing it returns the buffer; closing it again has no effect.
+     */
+    public final class Lease implements AutoCloseable {
+        private final ByteBuffer buffer;
+        private final int size;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        /**
+         * The leased buffer, cleared, with its limit at the requested size.
+         */
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * Returns the buffer once the future completes, successfully or not.
+         */
+        public <T> CompletableFuture<T> releaseAfter(CompletableFuture<T> future) {
+            return future.whenComplete((result, ex) -> close());
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(buffer);
+            }
+        }
+
+        private Lease reset() {
+            buffer.clear().limit(size);
+            return this;
+        }
+    }
+
+    /**
+     * Leases a buffer of at least {@code size} bytes, waiting while the pool is at its cap.
+     *
+     * @param size The number of bytes needed
+     * @return The lease
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if no memory became available within the wait limit
+     */
+    public Lease acquire(int size) throws InterruptedException {
+        checkCapacity(size);
+        leases.incrementAndGet();
+        try {
+            return waiters.acquire(size);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No buffer memory available within " + maxWait, e.getCause());
+        }
+    }
+
+    /**
+     * Leases a buffer of at least {@code size} bytes without blocking. The future completes once the buffer
+     * is available, or fails with a {@link TimeoutException} after the wait limit.
+     *
+     * @param size The number of bytes needed
+     * @return A future completing with the lease
+     */
+    public CompletableFuture<Lease> acquireAsync(int size) {
+        checkCapacity(size);
+        leases.incrementAndGet();
+        return waiters.acquireAsync(size);
+    }
+
+    /**
+     * Current usage and the counters since startup.
+     */
+    public BufferPoolStats stats() {
+        long waited = waiters.waits();
+        synchronized (this) {
+            return new BufferPoolStats(capacity, leasedBytes, idleBytes, waiters.size(), leases.get(), hits.get(),
+                    misses.get(), waited, waiters.timeouts(),
+                    waited == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos.get() / waited),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+
+    /**
+     * The size class a request is served from.
+     */
+    static int classSize(int size) {
+        if (size <= MIN_CLASS_SIZE) {
+            return MIN_CLASS_SIZE;
+        }
+        if (size > MAX_CLASS_SIZE) {
+            return size;
+        }
+        int powerOfTwo = Integer.highestOneBit(size - 1) << 1;
+        int midpoint = powerOfTwo - powerOfTwo / 4;
+        return size <= midpoint ? midpoint : powerOfTwo;
+    }
+
+    private void checkCapacity(int size) {
+        if (classSize(size) > capacity) {
+            throw new IllegalArgumentException("Buffer of " + size + " bytes exceeds the pool capacity of " + capacity + " bytes");
+        }
+    }
+
+    private Lease tryLease(int size) {
+        int classSize = classSize(size);
+        ArrayDeque<ByteBuffer> free = idle.get(classSize);
+        if (free != null && !free.isEmpty()) {
+            idleBytes -= classSize;
+            leasedBytes += classSize;
+            hits.incrementAndGet();
+            return new Lease(free.pop(), size).reset();
+        }
+        if (!reserve(classSize)) {
+            return null;
+        }
+        misses.incrementAndGet();
+        return new Lease(ByteBuffer.allocateDirect(classSize), size).reset();
+    }
+
+    /**
+     * Makes room for a new buffer under the cap, dropping idle buffers of other classes if needed.
+     */
+    private boolean reserve(int classSize) {
+        Iterator<ArrayDeque<ByteBuffer>> classes = idle.values().iterator();
+        while (leasedBytes + idleBytes + classSize > capacity && classes.hasNext()) {
+            ArrayDeque<ByteBuffer> free = classes.next();
+            while (!free.isEmpty() && leasedBytes + idleBytes + classSize > capacity) {
+                // Dropped direct buffers are freed by the garbage collector
+                idleBytes -= free.pop().capacity();
+            }
+        }
+        if (leasedBytes + idleBytes + classSize > capacity) {
+            return false;
+        }
+        leasedBytes += classSize;
+        return true;
+    }
+
+    private void release(ByteBuffer buffer) {
+        synchronized (this) {
+            leasedBytes -= buffer.capacity();
+            if (buffer.capacity() <= MAX_CLASS_SIZE) {
+                idle.computeIfAbsent(buffer.capacity(), ignored -> new ArrayDeque<>()).push(buffer);
+                idleBytes += buffer.capacity();
+            }
+        }
+        waiters.serve();
+    }
+
+    private void recordWait(long waited) {
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+}
@@ -0,0 +1,37 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.services.s3.DelegatingS3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.S3Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Runs every call of the wrapped client under a slot of the {@link AdaptiveConcurrencyLimiter}. A call whose scope
+ * is at its limit is queued without holding a thread and sent once a slot frees up; the slot is returned when the
+ * call's future completes.
+ */
+public final class ConcurrencyLimitedS3AsyncClient extends DelegatingS3AsyncClient {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedS3AsyncClient(S3AsyncClient delegate, AdaptiveConcurrencyLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected <T extends S3Request, ReturnT> CompletableFuture<ReturnT> invokeOperation(
+            T request, Function<T, CompletableFuture<ReturnT>> operation) {
+        return limiter.acquireAsync(AdaptiveConcurrencyLimiter.Scope.of(request)).thenCompose(permit -> {
+            CompletableFuture<ReturnT> call;
+            try {
+                call = operation.apply(request);
+            } catch (RuntimeException e) {
+                permit.release(false);
+                throw e;
+            }
+            return call.whenComplete((result, ex) -> permit.release(ex == null));
+        });
+    }
+}
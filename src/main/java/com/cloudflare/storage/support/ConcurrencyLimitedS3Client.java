@@ -0,0 +1,33 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.services.s3.DelegatingS3Client;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Request;
+
+import java.util.function.Function;
+
+/**
+ * Runs every call of the wrapped client under a slot of the {@link AdaptiveConcurrencyLimiter}, blocking the caller
+ * while the call's scope is at its limit. Streaming downloads hold the slot until the response headers arrive.
+ */
+public final class ConcurrencyLimitedS3Client extends DelegatingS3Client {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedS3Client(S3Client delegate, AdaptiveConcurrencyLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected <T extends S3Request, ReturnT> ReturnT invokeOperation(T request, Function<T, ReturnT> operation) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(AdaptiveConcurrencyLimiter.Scope.of(request));
+        boolean succeeded = false;
+        try {
+            ReturnT result = operation.apply(request);
+            succeeded = true;
+            return result;
+        } finally {
+            permit.release(succeeded);
+        }
+    }
+}
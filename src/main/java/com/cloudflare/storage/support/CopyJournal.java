@@ -0,0 +1,215 @@
+package com.cloudflare.storage.support;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only local journal of one batch copy or move job. The first line identifies the job; every
+ * checkpoint appends the key up to which every source object has been processed, forced to disk before
+ * the job moves on, so a job that is submitted again after a crash continues after the last checkpoint.
+ * The keys that failed are appended as well, so that the next submission retries them. A torn last line
+ * is ignored on read.
+ * <pre>
+ * job     sourceBucket  sourcePrefix  destinationBucket  destinationPrefix  move  keysDigest
+ * failed  key
+ * done    lastKey
+ * </pre>
+ */
+public final class CopyJournal implements Closeable {
+    private static final String SUFFIX = ".copy-journal";
+    private static final String JOB = "job";
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+    private static final String SEPARATOR = "\t";
+
+    private final FileChannel channel;
+
+    /**
+     * Identifies a job: what it copies, where to, and whether the sources are deleted.
+     *
+     * @param keysDigest The digest of the requested keys, or empty for a job over a whole prefix
+     */
+    public record Header(String sourceBucket, String sourcePrefix, String destinationBucket, String destinationPrefix,
+                         boolean move, String keysDigest) {
+
+        /**
+         * The journal file name of the job, the same for every submission of the same job.
+         */
+        public String fileName() {
+            return digest(List.of(line())).substring(0, 32) + SUFFIX;
+        }
+
+        private String line() {
+            return String.join(SEPARATOR, JOB, encode(sourceBucket), encode(sourcePrefix), encode(destinationBucket),
+                    encode(destinationPrefix), String.valueOf(move), keysDigest);
+        }
+    }
+
+    /**
+     * Where a job stands: the key up to which it is done, and the keys up to there that failed.
+     *
+     * @param failedKeys The failed keys, sorted and without duplicates
+     */
+    public record State(String lastKey, List<String> failedKeys) {
+    }
+
+    private CopyJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * A SHA-256 digest of a list of keys, identifying a job over exactly those keys.
+     */
+    public static String digest(List<String> keys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String key : keys) {
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the last checkpoint of an existing journal and the keys that failed up to it. Keys that failed
+     * beyond the checkpoint are left out, as the job processes them again anyway.
+     *
+     * @return The state of the job, or empty if there is no journal, it belongs to another job, or it has no
+     * checkpoint yet
+     */
+    public static Optional<State> read(Path journalPath, Header header) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (lines.isEmpty() || !lines.get(0).equals(header.line())) {
+            return Optional.empty();
+        }
+
+        String lastKey = null;
+        Set<String> failedKeys = new HashSet<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(SEPARATOR, -1);
+            if (fields.length != 2 || !DONE.equals(fields[0]) && !FAILED.equals(fields[0])) {
+                // A line torn by a crash mid-append
+                continue;
+            }
+            String key;
+            try {
+                key = decode(fields[1]);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (DONE.equals(fields[0])) {
+                lastKey = key;
+            } else {
+                failedKeys.add(key);
+            }
+        }
+        if (lastKey == null) {
+            return Optional.empty();
+        }
+        String checkpoint = lastKey;
+        return Optional.of(new State(checkpoint, failedKeys.stream()
+                .filter(key -> ShardedListing.compareKeys(key, checkpoint) <= 0)
+                .sorted(ShardedListing::compareKeys)
+                .toList()));
+    }
+
+    /**
+     * Starts a new journal, replacing any existing one.
+     */
+    public static CopyJournal create(Path journalPath, Header header) throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        CopyJournal journal = new CopyJournal(channel);
+        journal.append(header.line());
+        return journal;
+    }
+
+    /**
+     * Replaces a journal, atomically, with one holding only a checkpoint and the keys that failed up to it,
+     * dropping the lines of the runs before.
+     *
+     * @param lastKey The key up to which the job is done, or null if it has no checkpoint
+     */
+    public static void rewrite(Path journalPath, Header header, String lastKey, Collection<String> failedKeys) throws IOException {
+        Path temporary = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (CopyJournal journal = create(temporary, header)) {
+            journal.recordFailed(failedKeys);
+            if (lastKey != null) {
+                journal.record(lastKey);
+            }
+        }
+        Files.move(temporary, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reopens an existing journal to record further checkpoints.
+     */
+    public static CopyJournal reopen(Path journalPath) throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new CopyJournal(channel);
+    }
+
+    /**
+     * Durably records that every source object up to and including {@code lastKey} has been processed.
+     */
+    public void record(String lastKey) throws IOException {
+        append(String.join(SEPARATOR, DONE, encode(lastKey)));
+    }
+
+    /**
+     * Durably records that the source objects with these keys failed.
+     */
+    public void recordFailed(Collection<String> keys) throws IOException {
+        if (!keys.isEmpty()) {
+            append(keys.stream().map(key -> String.join(SEPARATOR, FAILED, encode(key))).collect(Collectors.joining("\n")));
+        }
+    }
+
+    private synchronized void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
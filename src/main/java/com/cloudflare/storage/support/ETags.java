@@ -0,0 +1,74 @@
+package com.cloudflare.storage.support;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Compares local files with object ETags without transferring them.
+ * <p>
+ * A single-request upload has the MD5 of its content as ETag. A multipart upload has the MD5 of the
+ * concatenated part MD5s followed by {@code -<partCount>}, which can only be reproduced when the part
+ * layout is known, so multipart ETags are checked against the layout this service uploads with.
+ */
+public final class ETags {
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ETags() {
+    }
+
+    /**
+     * Whether the file's content produces the given ETag.
+     *
+     * @param file     The local file
+     * @param eTag     The object's ETag, quoted or not
+     * @param partSize The part size a multipart upload of this file would use
+     * @return True if the file matches; false if it differs or the multipart layout is not the expected one
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean matches(Path file, String eTag, long partSize) throws IOException {
+        String value = eTag.replace("\"", "");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int dash = value.indexOf('-');
+            if (dash < 0) {
+                return HEX.formatHex(md5(channel, 0, size)).equalsIgnoreCase(value);
+            }
+
+            int partCount;
+            try {
+                partCount = Integer.parseInt(value.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (MultipartParts.partCount(size, partSize) != partCount) {
+                return false;
+            }
+            MessageDigest combined = newMd5();
+            for (int index = 0; index < partCount; index++) {
+                combined.update(md5(channel, index * partSize, MultipartParts.partLength(size, partSize, index)));
+            }
+            return (HEX.formatHex(combined.digest()) + "-" + partCount).equalsIgnoreCase(value);
+        }
+    }
+
+    private static byte[] md5(FileChannel channel, long position, long length) throws IOException {
+        MessageDigest digest = newMd5();
+        for (long offset = 0; offset < length; offset += Integer.MAX_VALUE) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position + offset, Math.min(Integer.MAX_VALUE, length - offset)));
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Builds request bodies that stream a window of a local file without copying it onto the heap.
+ * <p>
+ * Regions that fit in a single mapping are exposed as a read-only {@link MappedByteBuffer} slice, so the
+ * bytes go from the page cache straight to the HTTP client. Larger regions are streamed in small chunks
+ * from the file channel at the requested position.
+ */
+public final class FileRegionBodies {
+
+    private FileRegionBodies() {
+    }
+
+    /**
+     * Creates a request body for {@code length} bytes of the file starting at {@code position}.
+     *
+     * @param path     The path of the file, used when the region is too large to map
+     * @param channel  An open read channel on the same file
+     * @param position The offset of the first byte of the region
+     * @param length   The number of bytes in the region
+     * @return A request body that reads the region on subscription
+     * @throws IOException if the region could not be mapped
+     */
+    public static AsyncRequestBody region(Path path, FileChannel channel, long position, long length) throws IOException {
+        if (length <= Integer.MAX_VALUE) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            return AsyncRequestBody.fromRemainingByteBufferUnsafe(mapped);
+        }
+        return AsyncRequestBody.fromFile(config -> config
+                .path(path)
+                .position(position)
+                .numBytesToRead(length));
+    }
+
+    /**
+     * Computes the CRC32C of {@code length} bytes of the file starting at {@code position}, reading
+     * through read-only mappings rather than heap copies.
+     *
+     * @param channel  An open read channel on the file
+     * @param position The offset of the first byte of the region
+     * @param length   The number of bytes in the region
+     * @return The checksum value
+     * @throws IOException if the region could not be mapped
+     */
+    public static long crc32c(FileChannel channel, long position, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long offset = 0; offset < length; offset += Integer.MAX_VALUE) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position + offset, Math.min(Integer.MAX_VALUE, length - offset)));
+        }
+        return crc.getValue();
+    }
+}
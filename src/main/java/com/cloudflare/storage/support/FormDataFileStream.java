@@ -0,0 +1,233 @@
+package com.cloudflare.storage.support;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Streams the content of one field of a {@code multipart/form-data} body as it arrives, without parsing
+ * the body up front or spooling parts to disk the way the servlet container's multipart support does.
+ * Fields before the wanted one are skipped; reading stops at the boundary that ends it.
+ */
+public final class FormDataFileStream extends InputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    private final InputStream in;
+    // The boundary as it appears between parts: CRLF "--" boundary
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean exhausted;
+    private boolean partEnded;
+    private String fileName;
+    private String contentType;
+
+    private FormDataFileStream(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        // The first boundary has no preceding line break; supply one so every boundary looks the same
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Positions a form-data body at the content of a field.
+     *
+     * @param body      The raw request body
+     * @param boundary  The boundary parameter of the request's content type
+     * @param fieldName The name of the field to stream
+     * @return A stream over the field's content
+     * @throws IOException if the body cannot be read, is malformed or has no such field
+     */
+    public static FormDataFileStream open(InputStream body, String boundary, String fieldName) throws IOException {
+        FormDataFileStream stream = new FormDataFileStream(body, boundary);
+        while (stream.nextPart()) {
+            if (fieldName.equals(stream.readPartHeaders())) {
+                return stream;
+            }
+        }
+        throw new IOException("No form-data field named: " + fieldName);
+    }
+
+    /**
+     * The file name the client sent with the field, or null.
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * The content type the client sent with the field, or null.
+     */
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (partEnded) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        fill(delimiter.length);
+        int found = indexOfDelimiter();
+        int available;
+        if (found >= 0) {
+            available = found - position;
+            if (available == 0) {
+                partEnded = true;
+                return -1;
+            }
+        } else if (exhausted) {
+            throw new EOFException("Form-data body ended inside a field");
+        } else {
+            // The tail may be the start of a delimiter split across reads
+            available = limit - position - (delimiter.length - 1);
+        }
+        int count = Math.min(len, available);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Skips to the next part. Returns false at the closing boundary.
+     */
+    private boolean nextPart() throws IOException {
+        while (true) {
+            fill(delimiter.length);
+            int found = indexOfDelimiter();
+            if (found >= 0) {
+                position = found + delimiter.length;
+                break;
+            }
+            if (exhausted) {
+                return false;
+            }
+            position = limit - (delimiter.length - 1);
+        }
+        fill(2);
+        if (limit - position >= 2 && buffer[position] == '-' && buffer[position + 1] == '-') {
+            return false;
+        }
+        // Transport padding may follow the boundary before its line break
+        readLine();
+        return true;
+    }
+
+    /**
+     * Reads the headers of the current part and returns its field name.
+     */
+    private String readPartHeaders() throws IOException {
+        String name = null;
+        fileName = null;
+        contentType = null;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("content-type")) {
+                contentType = value;
+            } else if (header.equals("content-disposition")) {
+                for (String parameter : value.split(";")) {
+                    int equals = parameter.indexOf('=');
+                    if (equals < 0) {
+                        continue;
+                    }
+                    String key = parameter.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+                    String parameterValue = unquote(parameter.substring(equals + 1).trim());
+                    if (key.equals("name")) {
+                        name = parameterValue;
+                    } else if (key.equals("filename")) {
+                        fileName = parameterValue;
+                    }
+                }
+            }
+        }
+        return name;
+    }
+
+    private String readLine() throws IOException {
+        // Relative to the position, which moves when the buffer is compacted
+        int scanned = 0;
+        while (true) {
+            for (int i = position + scanned; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+                    position = i + 2;
+                    return line;
+                }
+            }
+            scanned = Math.max(0, limit - position - 1);
+            if (limit - position >= MAX_HEADER_LINE) {
+                throw new IOException("Form-data header line too long");
+            }
+            if (exhausted) {
+                throw new EOFException("Form-data body ended inside part headers");
+            }
+            fill(limit - position + 1);
+        }
+    }
+
+    /**
+     * Reads until at least {@code minimum} bytes are buffered past the position, or the body ends.
+     */
+    private void fill(int minimum) throws IOException {
+        if (limit - position >= minimum || exhausted) {
+            return;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < minimum || limit < buffer.length / 2) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                exhausted = true;
+                return;
+            }
+            limit += read;
+            if (limit >= minimum && in.available() == 0) {
+                return;
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        for (int i = position; i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+}
@@ -0,0 +1,177 @@
+package com.cloudflare.storage.support;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * First come first served queue of callers waiting for something their owner hands out, such as a buffer or a
+ * request slot.
+ * <p>
+ * The owner decides what can be granted, under the lock that guards its own state; the queue calls it with that
+ * lock held and completes the waiting futures outside it. A grant that reaches a waiter that gave up meanwhile,
+ * because its wait timed out, was cancelled or was interrupted, is handed straight back to the owner.
+ *
+ * @param <R> What a caller asks for
+ * @param <T> What a caller is granted
+ */
+final class GrantQueue<R, T> {
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    private record Waiter<R, T>(R request, long enqueuedNanos, CompletableFuture<T> future) {
+    }
+
+    private final Object lock;
+    private final Function<R, T> tryGrant;
+    private final Consumer<T> handBack;
+    private final Duration maxWait;
+    private final Supplier<? extends Throwable> timeout;
+    private final LongConsumer onWaited;
+    private final ArrayDeque<Waiter<R, T>> waiters = new ArrayDeque<>();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param lock     The lock guarding the owner's state and the queue
+     * @param tryGrant Grants a request now, or returns {@code null}; called with the lock held
+     * @param handBack Returns a grant no waiter took
+     * @param maxWait  How long a caller waits before it fails
+     * @param timeout  The failure of a caller that waited too long
+     * @param onWaited Told how many nanoseconds each granted caller waited
+     */
+    GrantQueue(Object lock, Function<R, T> tryGrant, Consumer<T> handBack, Duration maxWait,
+               Supplier<? extends Throwable> timeout, LongConsumer onWaited) {
+        this.lock = lock;
+        this.tryGrant = tryGrant;
+        this.handBack = handBack;
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+        this.onWaited = onWaited;
+    }
+
+    /**
+     * Waits for a grant. An interrupted caller gives up its place in the queue.
+     *
+     * @throws ExecutionException   if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    T acquire(R request) throws ExecutionException, InterruptedException {
+        CompletableFuture<T> future = acquireAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (!future.cancel(false) && !future.isCompletedExceptionally()) {
+                // Granted just as the wait was interrupted
+                handBack.accept(future.join());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Grants the request at once if nobody is queued ahead of it and the owner can, and queues it otherwise.
+     * The future fails with the timeout failure after the wait limit; cancelling it leaves the queue.
+     */
+    CompletableFuture<T> acquireAsync(R request) {
+        Waiter<R, T> waiter;
+        synchronized (lock) {
+            T granted = waiters.isEmpty() ? tryGrant.apply(request) : null;
+            if (granted != null) {
+                return CompletableFuture.completedFuture(granted);
+            }
+            waiter = new Waiter<>(request, System.nanoTime(), new CompletableFuture<>());
+            waiters.add(waiter);
+        }
+        waits.incrementAndGet();
+
+        CompletableFuture<T> future = waiter.future();
+        // Fails the wait itself, so the caller sees the owner's exception type and can cancel the future it holds
+        ScheduledFuture<?> timer = TIMER.schedule(() -> {
+            if (future.completeExceptionally(timeout.get())) {
+                timeouts.incrementAndGet();
+            }
+        }, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((granted, ex) -> {
+            timer.cancel(false);
+            if (ex == null) {
+                onWaited.accept(System.nanoTime() - waiter.enqueuedNanos());
+                return;
+            }
+            synchronized (lock) {
+                waiters.remove(waiter);
+            }
+            // The waiter left the queue; whoever is next may be granted now
+            serve();
+        });
+        return future;
+    }
+
+    /**
+     * Grants queued requests in order for as long as the owner can. Called whenever the owner gets something back.
+     */
+    void serve() {
+        List<Map.Entry<Waiter<R, T>, T>> granted = new ArrayList<>();
+        synchronized (lock) {
+            while (!waiters.isEmpty()) {
+                T grant = tryGrant.apply(waiters.peek().request());
+                if (grant == null) {
+                    break;
+                }
+                granted.add(Map.entry(waiters.poll(), grant));
+            }
+        }
+        // Complete outside the lock; a waiter that gave up meanwhile hands its grant straight back
+        for (Map.Entry<Waiter<R, T>, T> entry : granted) {
+            if (!entry.getKey().future().complete(entry.getValue())) {
+                handBack.accept(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * The number of callers waiting.
+     */
+    int size() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * The number of callers that had to wait, since startup.
+     */
+    long waits() {
+        return waits.get();
+    }
+
+    /**
+     * The number of callers that waited past the limit, since startup.
+     */
+    long timeouts() {
+        return timeouts.get();
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform()
+                .name("grant-queue-timer").daemon().factory());
+        // Most waits end well before their limit; their timers should not pile up
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,862 @@
+package com.cloudflare.storage.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory, S3-compatible endpoint for offline load and performance testing, served by the JDK HTTP server.
+ * <p>
+ * It speaks path-style S3 for the calls this service makes: buckets (create, head, delete, list), objects (PUT
+ * including {@code aws-chunked} bodies, GET with a range and {@code If-None-Match}/{@code If-Match}, HEAD, DELETE,
+ * CopyObject with {@code x-amz-copy-source-if-match}, GetObjectAttributes), ListObjectsV2 with prefix, delimiter and pagination, DeleteObjects, and
+ * multipart uploads (create, UploadPart, UploadPartCopy, complete, abort, ListParts, ListMultipartUploads).
+ * Signatures are not checked. Bucket policy and encryption calls answer 501.
+ * <p>
+ * {@link Faults} make it behave like a remote store under load: a fixed latency before each response, a bandwidth
+ * cap shared by all request and response bodies, and a share of requests rejected with 429 or 503. They can be
+ * changed while the server runs. Single keys can also be made to fail within DeleteObjects, the way R2 reports
+ * per-key errors in an otherwise successful batch, and single parts of a multipart upload can be made to fail.
+ */
+public final class LocalS3Server implements AutoCloseable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final DateTimeFormatter ISO_8601 = DateTimeFormatter.ISO_INSTANT;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
+    static {
+        // Small responses would otherwise wait for delayed ACKs, and a pooled client at high concurrency would
+        // lose keep-alive connections beyond the JDK server's default of 200 idle ones
+        System.setProperty("sun.net.httpserver.nodelay", System.getProperty("sun.net.httpserver.nodelay", "true"));
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", "10000"));
+    }
+
+    /**
+     * Faults injected into every request.
+     *
+     * @param latency        Delay before each request is answered
+     * @param bytesPerSecond Bandwidth shared by all request and response bodies, or 0 for no limit
+     * @param throttleRate   Share of requests answered with 429 Too Many Requests, from 0 to 1
+     * @param slowDownRate   Share of requests answered with 503 Slow Down, from 0 to 1
+     */
+    public record Faults(Duration latency, long bytesPerSecond, double throttleRate, double slowDownRate) {
+        public static final Faults NONE = new Faults(Duration.ZERO, 0, 0, 0);
+    }
+
+    private record Bucket(Instant created, NavigableMap<String, StoredObject> objects) {
+    }
+
+    private record StoredObject(byte[] data, String eTag, Instant lastModified, String contentType, Map<String, String> metadata) {
+    }
+
+    private record Part(byte[] data, byte[] md5, Instant lastModified) {
+    }
+
+    private record Upload(String bucket, String key, Instant initiated, String contentType,
+                          NavigableMap<Integer, Part> parts) {
+    }
+
+    private record ByteRange(int start, int end) {
+        int length() {
+            return end - start + 1;
+        }
+    }
+
+    private static final class S3Error extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String code;
+
+        S3Error(int status, String code, String message) {
+            super(message, null, false, false);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    private final HttpServer server;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> deleteFailures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> partFailures = new ConcurrentHashMap<>();
+    private final AtomicLong bandwidthFreeAt = new AtomicLong(System.nanoTime());
+    private volatile Faults faults;
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port   The port to listen on, or 0 for any free port
+     * @param faults The faults to inject
+     * @throws IOException if the port cannot be bound
+     */
+    public LocalS3Server(int port, Faults faults) throws IOException {
+        this.faults = faults;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handle(exchange);
+            } catch (InterruptedIOException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                error(exchange, new S3Error(500, "InternalError", String.valueOf(e.getMessage())));
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * The endpoint to point a path-style client at.
+     */
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    public void setFaults(Faults faults) {
+        this.faults = faults;
+    }
+
+    public void createBucket(String bucketName) {
+        // Keys are kept in the UTF-8 binary order R2 lists them in
+        buckets.putIfAbsent(bucketName, new Bucket(now(), new ConcurrentSkipListMap<>(ShardedListing::compareKeys)));
+    }
+
+    /**
+     * Stores an object directly, creating its bucket if needed.
+     */
+    public void putObject(String bucketName, String objectKey, byte[] data) {
+        createBucket(bucketName);
+        buckets.get(bucketName).objects().put(objectKey, new StoredObject(data, quote(HEX.formatHex(md5(data))),
+                now(), "application/octet-stream", Map.of()));
+    }
+
+    /**
+     * The content of an object, or null if it does not exist.
+     */
+    public byte[] getObject(String bucketName, String objectKey) {
+        Bucket bucket = buckets.get(bucketName);
+        StoredObject object = bucket == null ? null : bucket.objects().get(objectKey);
+        return object == null ? null : object.data();
+    }
+
+    /**
+     * Makes the next {@code times} DeleteObjects requests that include the key report it as failed with
+     * {@code InternalError} instead of deleting it.
+     */
+    public void failDeletes(String bucketName, String objectKey, int times) {
+        deleteFailures.put(bucketName + "/" + objectKey, new AtomicInteger(times));
+    }
+
+    /**
+     * Makes the next {@code times} UploadPart or UploadPartCopy requests for the part of an upload to the key answer
+     * 503 {@code SlowDown}.
+     */
+    public void failParts(String bucketName, String objectKey, int partNumber, int times) {
+        partFailures.put(bucketName + "/" + objectKey + "#" + partNumber, new AtomicInteger(times));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            injectFaults();
+            route(exchange);
+        } catch (S3Error e) {
+            error(exchange, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while injecting faults");
+        }
+    }
+
+    private void injectFaults() throws S3Error, InterruptedException {
+        Faults current = faults;
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (!current.latency().isZero()) {
+            Thread.sleep(current.latency());
+        }
+        if (roll < current.throttleRate()) {
+            throw new S3Error(429, "TooManyRequests", "Injected throttling");
+        }
+        if (roll < current.throttleRate() + current.slowDownRate()) {
+            throw new S3Error(503, "SlowDown", "Injected slow down");
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, S3Error, InterruptedException {
+        String path = exchange.getRequestURI().getRawPath().substring(1);
+        int slash = path.indexOf('/');
+        String bucketName = decode(slash < 0 ? path : path.substring(0, slash));
+        String key = slash < 0 ? "" : decode(path.substring(slash + 1));
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String method = exchange.getRequestMethod();
+
+        if (bucketName.isEmpty()) {
+            if (!method.equals("GET")) {
+                throw new S3Error(405, "MethodNotAllowed", "Unsupported service request");
+            }
+            listBuckets(exchange);
+            return;
+        }
+        if (key.isEmpty()) {
+            routeBucket(exchange, method, bucketName, query);
+            return;
+        }
+        switch (method) {
+            case "PUT" -> {
+                if (query.containsKey("uploadId")) {
+                    uploadPart(exchange, bucketName, key, query);
+                } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                    copyObject(exchange, bucketName, key);
+                } else {
+                    putObject(exchange, bucketName, key);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    createMultipartUpload(exchange, bucketName, key);
+                } else if (query.containsKey("uploadId")) {
+                    completeMultipartUpload(exchange, bucketName, key, query.get("uploadId"));
+                } else {
+                    throw new S3Error(405, "MethodNotAllowed", "Unsupported object request");
+                }
+            }
+            case "GET" -> {
+                if (query.containsKey("uploadId")) {
+                    listParts(exchange, bucketName, key, query);
+                } else if (query.containsKey("attributes")) {
+                    objectAttributes(exchange, bucketName, key);
+                } else {
+                    getObject(exchange, bucketName, key, false);
+                }
+            }
+            case "HEAD" -> getObject(exchange, bucketName, key, true);
+            case "DELETE" -> {
+                if (query.containsKey("uploadId")) {
+                    if (uploads.remove(query.get("uploadId")) == null) {
+                        throw noSuchUpload();
+                    }
+                } else {
+                    bucket(bucketName).objects().remove(key);
+                }
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> throw new S3Error(405, "MethodNotAllowed", "Unsupported method " + method);
+        }
+    }
+
+    private void routeBucket(HttpExchange exchange, String method, String bucketName, Map<String, String> query)
+            throws IOException, S3Error, InterruptedException {
+        if (query.containsKey("policy") || query.containsKey("encryption")) {
+            throw new S3Error(501, "NotImplemented", "Bucket policy and encryption are not supported");
+        }
+        switch (method) {
+            case "PUT" -> {
+                readBody(exchange);
+                createBucket(bucketName);
+                exchange.getResponseHeaders().add("Location", "/" + bucketName);
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "HEAD" -> {
+                bucket(bucketName);
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "DELETE" -> {
+                if (!bucket(bucketName).objects().isEmpty()) {
+                    throw new S3Error(409, "BucketNotEmpty", "The bucket you tried to delete is not empty");
+                }
+                buckets.remove(bucketName);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            case "GET" -> {
+                if (query.containsKey("uploads")) {
+                    listMultipartUploads(exchange, bucketName);
+                } else {
+                    listObjectsV2(exchange, bucketName, query);
+                }
+            }
+            case "POST" -> {
+                if (!query.containsKey("delete")) {
+                    throw new S3Error(405, "MethodNotAllowed", "Unsupported bucket request");
+                }
+                deleteObjects(exchange, bucketName);
+            }
+            default -> throw new S3Error(405, "MethodNotAllowed", "Unsupported method " + method);
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String bucketName, String key) throws IOException, S3Error, InterruptedException {
+        Bucket bucket = bucket(bucketName);
+        byte[] data = readBody(exchange);
+        StoredObject object = new StoredObject(data, quote(HEX.formatHex(md5(data))), now(),
+                contentType(exchange), userMetadata(exchange));
+        bucket.objects().put(key, object);
+        exchange.getResponseHeaders().add("ETag", object.eTag());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void copyObject(HttpExchange exchange, String bucketName, String key) throws IOException, S3Error, InterruptedException {
+        Bucket bucket = bucket(bucketName);
+        StoredObject source = copySource(exchange);
+        readBody(exchange);
+        StoredObject copy = new StoredObject(source.data(), source.eTag(), now(), source.contentType(), source.metadata());
+        bucket.objects().put(key, copy);
+        xml(exchange, 200, "<CopyObjectResult><ETag>" + escape(copy.eTag()) + "</ETag><LastModified>"
+                + ISO_8601.format(copy.lastModified()) + "</LastModified></CopyObjectResult>");
+    }
+
+    private void getObject(HttpExchange exchange, String bucketName, String key, boolean head)
+            throws IOException, S3Error, InterruptedException {
+        StoredObject object = object(bucketName, key);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        exchange.getResponseHeaders().add("ETag", object.eTag());
+        exchange.getResponseHeaders().add("Last-Modified", HTTP_DATE.format(object.lastModified()));
+        if (ifMatch != null && !ifMatch.equals("*") && !ifMatch.equals(object.eTag())) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold");
+        }
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.equals(object.eTag()))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        ByteRange range = range(exchange.getRequestHeaders().getFirst("Range"), object.data().length);
+        exchange.getResponseHeaders().add("Content-Type", object.contentType());
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        object.metadata().forEach(exchange.getResponseHeaders()::add);
+        int status = 200;
+        if (range != null) {
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + range.start() + "-" + range.end() + "/" + object.data().length);
+        } else {
+            range = new ByteRange(0, object.data().length - 1);
+        }
+        if (head) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(range.length()));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, range.length() == 0 ? -1 : range.length());
+        writeBody(exchange, object.data(), range.start(), range.length());
+    }
+
+    private void objectAttributes(HttpExchange exchange, String bucketName, String key) throws IOException, S3Error {
+        StoredObject object = object(bucketName, key);
+        exchange.getResponseHeaders().add("Last-Modified", HTTP_DATE.format(object.lastModified()));
+        xml(exchange, 200, "<GetObjectAttributesResponse><ETag>" + escape(unquote(object.eTag())) + "</ETag><ObjectSize>"
+                + object.data().length + "</ObjectSize><StorageClass>STANDARD</StorageClass></GetObjectAttributesResponse>");
+    }
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult><Owner><ID>local</ID></Owner><Buckets>");
+        buckets.forEach((name, bucket) -> xml.append("<Bucket><Name>").append(escape(name)).append("</Name><CreationDate>")
+                .append(ISO_8601.format(bucket.created())).append("</CreationDate></Bucket>"));
+        xml(exchange, 200, xml.append("</Buckets></ListAllMyBucketsResult>").toString());
+    }
+
+    private void listObjectsV2(HttpExchange exchange, String bucketName, Map<String, String> query) throws IOException, S3Error {
+        NavigableMap<String, StoredObject> objects = bucket(bucketName).objects();
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String token = query.get("continuation-token");
+        // The token names the last key or common prefix returned; everything up to and under it is skipped
+        String resumeAfter = token != null ? new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                : query.getOrDefault("start-after", "");
+
+        StringBuilder contents = new StringBuilder();
+        StringBuilder commonPrefixes = new StringBuilder();
+        int count = 0;
+        String last = null;
+        String lastPrefix = null;
+        boolean truncated = false;
+        NavigableMap<String, StoredObject> candidates = objects.tailMap(
+                ShardedListing.compareKeys(resumeAfter, prefix) > 0 ? resumeAfter : prefix, true);
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (ShardedListing.compareKeys(key, resumeAfter) <= 0 || token != null && resumeAfter.equals(lastPrefixOf(key, prefix, delimiter))
+                    || lastPrefix != null && key.startsWith(lastPrefix)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            String commonPrefix = lastPrefixOf(key, prefix, delimiter);
+            if (commonPrefix != null) {
+                commonPrefixes.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix)).append("</Prefix></CommonPrefixes>");
+                lastPrefix = commonPrefix;
+                last = commonPrefix;
+            } else {
+                StoredObject object = entry.getValue();
+                contents.append("<Contents><Key>").append(escape(key)).append("</Key><LastModified>")
+                        .append(ISO_8601.format(object.lastModified())).append("</LastModified><ETag>").append(escape(object.eTag()))
+                        .append("</ETag><Size>").append(object.data().length).append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+                last = key;
+            }
+            count++;
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(escape(bucketName)).append("</Name><Prefix>")
+                .append(escape(prefix)).append("</Prefix>");
+        if (delimiter != null) {
+            xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount><MaxKeys>").append(maxKeys).append("</MaxKeys><IsTruncated>")
+                .append(truncated).append("</IsTruncated>");
+        if (token != null) {
+            xml.append("<ContinuationToken>").append(escape(token)).append("</ContinuationToken>");
+        }
+        if (truncated) {
+            xml.append("<NextContinuationToken>")
+                    .append(Base64.getUrlEncoder().encodeToString(last.getBytes(StandardCharsets.UTF_8)))
+                    .append("</NextContinuationToken>");
+        }
+        xml(exchange, 200, xml.append(contents).append(commonPrefixes).append("</ListBucketResult>").toString());
+    }
+
+    private static String lastPrefixOf(String key, String prefix, String delimiter) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            return null;
+        }
+        int index = key.indexOf(delimiter, prefix.length());
+        return index < 0 ? null : key.substring(0, index + delimiter.length());
+    }
+
+    private void deleteObjects(HttpExchange exchange, String bucketName) throws IOException, S3Error, InterruptedException {
+        NavigableMap<String, StoredObject> objects = bucket(bucketName).objects();
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        boolean quiet = body.contains("<Quiet>true</Quiet>");
+        StringBuilder xml = new StringBuilder("<DeleteResult>");
+        Matcher keys = KEY.matcher(body);
+        while (keys.find()) {
+            String key = unescape(keys.group(1));
+            AtomicInteger failures = deleteFailures.get(bucketName + "/" + key);
+            if (failures != null && failures.getAndDecrement() > 0) {
+                xml.append("<Error><Key>").append(escape(key))
+                        .append("</Key><Code>InternalError</Code><Message>Injected delete failure</Message></Error>");
+                continue;
+            }
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+            }
+        }
+        xml(exchange, 200, xml.append("</DeleteResult>").toString());
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String bucketName, String key) throws IOException, S3Error {
+        bucket(bucketName);
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new Upload(bucketName, key, now(), contentType(exchange), new ConcurrentSkipListMap<>()));
+        xml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + escape(bucketName) + "</Bucket><Key>" + escape(key)
+                + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String bucketName, String key, Map<String, String> query)
+            throws IOException, S3Error, InterruptedException {
+        Upload upload = upload(query.get("uploadId"), bucketName, key);
+        int partNumber = Integer.parseInt(query.getOrDefault("partNumber", "0"));
+        if (partNumber < 1 || partNumber > 10_000) {
+            throw new S3Error(400, "InvalidArgument", "Part number must be an integer between 1 and 10000");
+        }
+        AtomicInteger failures = partFailures.get(bucketName + "/" + key + "#" + partNumber);
+        if (failures != null && failures.getAndDecrement() > 0) {
+            readBody(exchange);
+            throw new S3Error(503, "SlowDown", "Injected part failure");
+        }
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        byte[] data;
+        if (copySource != null) {
+            StoredObject source = copySource(exchange);
+            readBody(exchange);
+            ByteRange range = range(exchange.getRequestHeaders().getFirst("x-amz-copy-source-range"), source.data().length);
+            data = range == null ? source.data() : Arrays.copyOfRange(source.data(), range.start(), range.end() + 1);
+        } else {
+            data = readBody(exchange);
+        }
+        Part part = new Part(data, md5(data), now());
+        upload.parts().put(partNumber, part);
+        String eTag = quote(HEX.formatHex(part.md5()));
+        if (copySource != null) {
+            xml(exchange, 200, "<CopyPartResult><ETag>" + escape(eTag) + "</ETag><LastModified>"
+                    + ISO_8601.format(part.lastModified()) + "</LastModified></CopyPartResult>");
+        } else {
+            exchange.getResponseHeaders().add("ETag", eTag);
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String bucketName, String key, String uploadId)
+            throws IOException, S3Error, InterruptedException {
+        Upload upload = upload(uploadId, bucketName, key);
+        Bucket bucket = bucket(bucketName);
+        Matcher partNumbers = PART_NUMBER.matcher(new String(readBody(exchange), StandardCharsets.UTF_8));
+        List<Part> parts = new ArrayList<>();
+        while (partNumbers.find()) {
+            Part part = upload.parts().get(Integer.parseInt(partNumbers.group(1)));
+            if (part == null) {
+                throw new S3Error(400, "InvalidPart", "One or more of the specified parts could not be found");
+            }
+            parts.add(part);
+        }
+        if (parts.isEmpty()) {
+            throw new S3Error(400, "MalformedXML", "The request lists no parts");
+        }
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        MessageDigest digest = md5();
+        for (Part part : parts) {
+            assembled.writeBytes(part.data());
+            digest.update(part.md5());
+        }
+        StoredObject object = new StoredObject(assembled.toByteArray(),
+                quote(HEX.formatHex(digest.digest()) + "-" + parts.size()), now(), upload.contentType(), Map.of());
+        bucket.objects().put(key, object);
+        uploads.remove(uploadId);
+        xml(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + escape(bucketName) + "</Bucket><Key>" + escape(key)
+                + "</Key><ETag>" + escape(object.eTag()) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void listParts(HttpExchange exchange, String bucketName, String key, Map<String, String> query) throws IOException, S3Error {
+        Upload upload = upload(query.get("uploadId"), bucketName, key);
+        int marker = Integer.parseInt(query.getOrDefault("part-number-marker", "0"));
+        int maxParts = Integer.parseInt(query.getOrDefault("max-parts", "1000"));
+        StringBuilder xml = new StringBuilder("<ListPartsResult><Bucket>").append(escape(bucketName)).append("</Bucket><Key>")
+                .append(escape(key)).append("</Key><UploadId>").append(query.get("uploadId")).append("</UploadId>");
+        int count = 0;
+        int last = marker;
+        boolean truncated = false;
+        for (Map.Entry<Integer, Part> entry : upload.parts().tailMap(marker, false).entrySet()) {
+            if (count == maxParts) {
+                truncated = true;
+                break;
+            }
+            Part part = entry.getValue();
+            xml.append("<Part><PartNumber>").append(entry.getKey()).append("</PartNumber><LastModified>")
+                    .append(ISO_8601.format(part.lastModified())).append("</LastModified><ETag>")
+                    .append(escape(quote(HEX.formatHex(part.md5())))).append("</ETag><Size>").append(part.data().length)
+                    .append("</Size></Part>");
+            last = entry.getKey();
+            count++;
+        }
+        xml.append("<MaxParts>").append(maxParts).append("</MaxParts><IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextPartNumberMarker>").append(last).append("</NextPartNumberMarker>");
+        }
+        xml(exchange, 200, xml.append("</ListPartsResult>").toString());
+    }
+
+    private void listMultipartUploads(HttpExchange exchange, String bucketName) throws IOException, S3Error {
+        bucket(bucketName);
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult><Bucket>").append(escape(bucketName)).append("</Bucket>");
+        uploads.forEach((uploadId, upload) -> {
+            if (upload.bucket().equals(bucketName)) {
+                xml.append("<Upload><Key>").append(escape(upload.key())).append("</Key><UploadId>").append(uploadId)
+                        .append("</UploadId><Initiated>").append(ISO_8601.format(upload.initiated()))
+                        .append("</Initiated><StorageClass>STANDARD</StorageClass></Upload>");
+            }
+        });
+        xml(exchange, 200, xml.append("<IsTruncated>false</IsTruncated></ListMultipartUploadsResult>").toString());
+    }
+
+    private Bucket bucket(String bucketName) throws S3Error {
+        Bucket bucket = buckets.get(bucketName);
+        if (bucket == null) {
+            throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        return bucket;
+    }
+
+    private StoredObject object(String bucketName, String key) throws S3Error {
+        StoredObject object = bucket(bucketName).objects().get(key);
+        if (object == null) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist");
+        }
+        return object;
+    }
+
+    private Upload upload(String uploadId, String bucketName, String key) throws S3Error {
+        Upload upload = uploadId == null ? null : uploads.get(uploadId);
+        if (upload == null || !upload.bucket().equals(bucketName) || !upload.key().equals(key)) {
+            throw noSuchUpload();
+        }
+        return upload;
+    }
+
+    private static S3Error noSuchUpload() {
+        return new S3Error(404, "NoSuchUpload", "The specified multipart upload does not exist");
+    }
+
+    private StoredObject copySource(HttpExchange exchange) throws S3Error {
+        String source = decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"));
+        int versionId = source.indexOf("?versionId=");
+        if (versionId >= 0) {
+            source = source.substring(0, versionId);
+        }
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        int slash = source.indexOf('/');
+        if (slash <= 0) {
+            throw new S3Error(400, "InvalidArgument", "Copy Source must mention the source bucket and key");
+        }
+        StoredObject object = object(source.substring(0, slash), source.substring(slash + 1));
+        String ifMatch = exchange.getRequestHeaders().getFirst("x-amz-copy-source-if-match");
+        if (ifMatch != null && !ifMatch.equals("*") && !ifMatch.equals(object.eTag())) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold");
+        }
+        return object;
+    }
+
+    /**
+     * Parses a single {@code bytes=} range against an object of {@code size} bytes.
+     *
+     * @return The range, or null if the header is absent or not a byte range
+     */
+    private static ByteRange range(String header, int size) throws S3Error {
+        Matcher matcher = header == null ? null : RANGE.matcher(header.trim());
+        if (matcher == null || !matcher.matches() || matcher.group(1).isEmpty() && matcher.group(2).isEmpty()) {
+            return null;
+        }
+        int start;
+        int end;
+        if (matcher.group(1).isEmpty()) {
+            start = (int) Math.max(0, size - Long.parseLong(matcher.group(2)));
+            end = size - 1;
+        } else {
+            long first = Long.parseLong(matcher.group(1));
+            if (first >= size) {
+                throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable");
+            }
+            start = (int) first;
+            end = matcher.group(2).isEmpty() ? size - 1 : (int) Math.min(size - 1, Long.parseLong(matcher.group(2)));
+        }
+        if (end < start) {
+            throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable");
+        }
+        return new ByteRange(start, end);
+    }
+
+    /**
+     * Reads a request body at the configured bandwidth, decoding the {@code aws-chunked} framing of signed and
+     * trailer-checksummed streaming uploads.
+     */
+    private byte[] readBody(HttpExchange exchange) throws IOException, InterruptedException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int read;
+        while ((read = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+            consumeBandwidth(read);
+            raw.write(chunk, 0, read);
+        }
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if ((sha == null || !sha.startsWith("STREAMING-")) && (encoding == null || !encoding.contains("aws-chunked"))) {
+            return raw.toByteArray();
+        }
+        InputStream framed = new ByteArrayInputStream(raw.toByteArray());
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        while (true) {
+            String header = line(framed);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0) {
+                // Trailing checksum headers follow the last chunk
+                return decoded.toByteArray();
+            }
+            decoded.write(framed.readNBytes(size));
+            line(framed);
+        }
+    }
+
+    private void writeBody(HttpExchange exchange, byte[] data, int offset, int length) throws IOException {
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int written = 0; written < length; written += CHUNK_SIZE) {
+                int count = Math.min(CHUNK_SIZE, length - written);
+                consumeBandwidth(count);
+                out.write(data, offset + written, count);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while pacing the response body");
+        }
+    }
+
+    /**
+     * Waits until the shared bandwidth allows {@code bytes} more bytes. Each caller reserves the next free slot
+     * of the link, so concurrent transfers split the bandwidth between them.
+     */
+    private void consumeBandwidth(int bytes) throws InterruptedException {
+        long bytesPerSecond = faults.bytesPerSecond();
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long cost = TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+        long now = System.nanoTime();
+        long freeAt = bandwidthFreeAt.updateAndGet(previous -> Math.max(previous, now) + cost);
+        long wait = freeAt - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private void error(HttpExchange exchange, S3Error error) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(error.status, -1);
+            return;
+        }
+        xml(exchange, error.status, "<Error><Code>" + error.code + "</Code><Message>" + escape(error.getMessage())
+                + "</Message><RequestId>" + UUID.randomUUID() + "</RequestId></Error>");
+    }
+
+    private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String contentType(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null ? contentType : "binary/octet-stream";
+    }
+
+    private static Map<String, String> userMetadata(HttpExchange exchange) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        exchange.getRequestHeaders().forEach((name, values) -> {
+            if (name.toLowerCase().startsWith(USER_METADATA_PREFIX) && !values.isEmpty()) {
+                metadata.put(name.toLowerCase(), values.getFirst());
+            }
+        });
+        return metadata;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        // Keys may contain '+', which is only a space in form encoding
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&apos;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&#13;", "\r").replace("&#10;", "\n").replace("&amp;", "&");
+    }
+
+    private static Instant now() {
+        // S3 reports times in milliseconds
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static String quote(String eTag) {
+        return "\"" + eTag + "\"";
+    }
+
+    private static String unquote(String eTag) {
+        return eTag.replace("\"", "");
+    }
+
+    private static byte[] md5(byte[] data) {
+        return md5().digest(data);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.cloudflare.storage.model.SingleFlightStats;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of {@code HeadObject} and {@code HeadBucket} results, including negative ones.
+ * <p>
+ * Entries are bounded in number and evicted by W-TinyLFU. Existing objects and buckets live for the TTL;
+ * missing ones for the shorter negative TTL, so an object created by another writer shows up soon. Concurrent
+ * lookups of a key that is not cached share one load. Invalidating a key also drops a load still in flight, so
+ * a HEAD that raced with a write is never cached.
+ */
+public final class MetadataCache {
+
+    private record ObjectKey(String bucketName, String objectKey) {
+    }
+
+    private final AsyncCache<ObjectKey, ObjectMetadata> objects;
+    private final AsyncCache<String, Boolean> buckets;
+
+    public MetadataCache(long maxEntries, Duration ttl, Duration negativeTtl) {
+        this.objects = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(expiry(ttl, negativeTtl, ObjectMetadata::exists))
+                .recordStats()
+                .buildAsync();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(expiry(ttl, negativeTtl, Boolean::booleanValue))
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * The cached metadata of an object, loading it once for all concurrent callers when absent.
+     * A failed load is not cached.
+     *
+     * @param loader Issues the {@code HeadObject}; completes with {@link ObjectMetadata#missing()} for a missing object
+     */
+    public CompletableFuture<ObjectMetadata> object(String bucketName, String objectKey, Supplier<CompletableFuture<ObjectMetadata>> loader) {
+        // A copy, so one caller cancelling its future does not cancel the shared load
+        return objects.get(new ObjectKey(bucketName, objectKey), (key, executor) -> loader.get()).copy();
+    }
+
+    /**
+     * The cached metadata of an object, without loading it or counting the lookup in the stats.
+     *
+     * @return The metadata, or null if it is not cached or still loading
+     */
+    public ObjectMetadata cachedObject(String bucketName, String objectKey) {
+        CompletableFuture<ObjectMetadata> cached = objects.asMap().get(new ObjectKey(bucketName, objectKey));
+        return cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join() : null;
+    }
+
+    /**
+     * Whether a bucket exists, loading it once for all concurrent callers when absent. A failed load is not cached.
+     *
+     * @param loader Issues the {@code HeadBucket}; completes with false for a missing bucket
+     */
+    public CompletableFuture<Boolean> bucket(String bucketName, Supplier<CompletableFuture<Boolean>> loader) {
+        return buckets.get(bucketName, (key, executor) -> loader.get()).copy();
+    }
+
+    public void invalidateObject(String bucketName, String objectKey) {
+        objects.synchronous().invalidate(new ObjectKey(bucketName, objectKey));
+    }
+
+    public void invalidateObjects(String bucketName, Collection<String> objectKeys) {
+        objects.synchronous().invalidateAll(objectKeys.stream().map(key -> new ObjectKey(bucketName, key)).toList());
+    }
+
+    public void invalidateBucket(String bucketName) {
+        buckets.synchronous().invalidate(bucketName);
+    }
+
+    public CacheStats objectStats() {
+        return objects.synchronous().stats();
+    }
+
+    public CacheStats bucketStats() {
+        return buckets.synchronous().stats();
+    }
+
+    /**
+     * Deduplication of {@code HeadObject} and {@code HeadBucket}: a lookup answered from the cache or by a
+     * HEAD already in flight counts as shared.
+     */
+    public List<SingleFlightStats> flightStats() {
+        return List.of(flightStats("HeadBucket", buckets), flightStats("HeadObject", objects));
+    }
+
+    private static SingleFlightStats flightStats(String operation, AsyncCache<?, ?> cache) {
+        CacheStats stats = cache.synchronous().stats();
+        long inFlight = cache.asMap().values().stream().filter(future -> !future.isDone()).count();
+        return SingleFlightStats.of(operation, stats.requestCount(), stats.hitCount(), inFlight);
+    }
+
+    private static <K, V> Expiry<K, V> expiry(Duration ttl, Duration negativeTtl, Predicate<V> positive) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                return (positive.test(value) ? ttl : negativeTtl).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Drops the cached metadata of every key and bucket a request writes, on whichever client and code path issued
+ * it. It runs once the request has finished, including when it failed, since a failed or timed-out write may
+ * still have been applied.
+ */
+public final class MetadataInvalidationInterceptor implements ExecutionInterceptor {
+    private final MetadataCache metadataCache;
+
+    public MetadataInvalidationInterceptor(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        invalidate(context.request());
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        invalidate(context.request());
+    }
+
+    private void invalidate(SdkRequest request) {
+        switch (request) {
+            case PutObjectRequest put -> metadataCache.invalidateObject(put.bucket(), put.key());
+            case CopyObjectRequest copy -> metadataCache.invalidateObject(copy.destinationBucket(), copy.destinationKey());
+            case CompleteMultipartUploadRequest complete -> metadataCache.invalidateObject(complete.bucket(), complete.key());
+            case DeleteObjectRequest delete -> metadataCache.invalidateObject(delete.bucket(), delete.key());
+            case DeleteObjectsRequest delete when delete.delete() != null -> metadataCache.invalidateObjects(delete.bucket(),
+                    delete.delete().objects().stream().map(ObjectIdentifier::key).toList());
+            case CreateBucketRequest create -> metadataCache.invalidateBucket(create.bucket());
+            case DeleteBucketRequest delete -> metadataCache.invalidateBucket(delete.bucket());
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.constant.S3DirectoryConstants;
+
+/**
+ * Part sizing helpers shared by the multipart upload, copy and download paths.
+ */
+public final class MultipartParts {
+
+    private MultipartParts() {
+    }
+
+    /**
+     * Returns the part size to use for an object of the given size, starting from the preferred size
+     * and growing it when needed so the object fits in {@link S3DirectoryConstants#MAX_PARTS} parts.
+     *
+     * @param objectSize        The total size of the object in bytes
+     * @param preferredPartSize The configured part size in bytes
+     * @return The effective part size in bytes, never below {@link S3DirectoryConstants#MIN_PART_SIZE}
+     */
+    public static long partSize(long objectSize, long preferredPartSize) {
+        long partSize = Math.max(preferredPartSize, S3DirectoryConstants.MIN_PART_SIZE);
+        long minimumForLimit = ceilDiv(objectSize, S3DirectoryConstants.MAX_PARTS);
+        return Math.max(partSize, minimumForLimit);
+    }
+
+    /**
+     * Returns the number of parts needed to cover the object with parts of the given size.
+     *
+     * @param objectSize The total size of the object in bytes
+     * @param partSize   The part size in bytes
+     * @return The number of parts, zero for an empty object
+     */
+    public static int partCount(long objectSize, long partSize) {
+        return Math.toIntExact(ceilDiv(objectSize, partSize));
+    }
+
+    /**
+     * Returns the length of the part at the given zero-based index; only the last part may be shorter.
+     */
+    public static long partLength(long objectSize, long partSize, int index) {
+        return Math.min(partSize, objectSize - index * partSize);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.cloudflare.storage.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of values as newline-delimited JSON, flushing periodically so clients see entries as they arrive.
+ */
+public final class NdJson {
+
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private NdJson() {
+    }
+
+    /**
+     * Writes every value of the stream as one JSON document per line.
+     *
+     * @param objectMapper The mapper used to serialize each value
+     * @param outputStream The response stream; it is flushed but not closed
+     * @param values       The values to write, consumed lazily
+     * @return The number of values written
+     * @throws IOException if writing to the output stream fails
+     */
+    public static long write(ObjectMapper objectMapper, OutputStream outputStream, Stream<?> values) throws IOException {
+        ObjectWriter writer = objectMapper.writer().withoutFeatures(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        for (Iterator<?> it = values.iterator(); it.hasNext(); ) {
+            writer.writeValue(outputStream, it.next());
+            outputStream.write('\n');
+            if (++count % FLUSH_INTERVAL == 0) {
+                outputStream.flush();
+            }
+        }
+        outputStream.flush();
+        return count;
+    }
+}
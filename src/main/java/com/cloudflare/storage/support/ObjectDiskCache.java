@@ -0,0 +1,342 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.DiskCacheStats;
+import com.cloudflare.storage.model.ObjectMetadata;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of whole objects on local disk.
+ * <p>
+ * Cached objects together stay within a byte budget and are evicted by W-TinyLFU, so objects that are read over
+ * and over stay while one-off reads pass through. An entry is served without contacting R2 while it was validated
+ * recently and its ETag matches the expected one; otherwise it is revalidated with a conditional GET
+ * ({@code If-None-Match}), which costs a round trip but no transfer when the object is unchanged. Concurrent reads
+ * of a key that is absent or being revalidated share one request to R2.
+ * <p>
+ * Files are reference counted: an evicted or replaced file is deleted once the last reader has closed it. The
+ * cache is not kept across restarts; leftover files are removed on startup.
+ */
+@Slf4j
+public final class ObjectDiskCache {
+    private static final String FILE_SUFFIX = ".cache";
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Fetches an object from R2 into a cache file.
+     */
+    @FunctionalInterface
+    public interface Origin {
+        /**
+         * Downloads the object into {@code target}, unless {@code ifNoneMatch} is set and still is its ETag.
+         *
+         * @param ifNoneMatch The ETag of the cached copy, or null for an unconditional GET
+         * @param target      A file that does not exist yet
+         * @return A future completing with the metadata of the downloaded object, or with null when not modified
+         */
+        CompletableFuture<ObjectMetadata> fetch(String ifNoneMatch, Path target);
+    }
+
+    private record ObjectKey(String bucketName, String objectKey) {
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final FileChannel channel;
+        private final ObjectMetadata metadata;
+        // One reference for the cache, one per open reader
+        private final AtomicInteger references;
+        private volatile long validatedAt;
+
+        private Entry(Path file, FileChannel channel, ObjectMetadata metadata, int references) {
+            this.file = file;
+            this.channel = channel;
+            this.metadata = metadata;
+            this.references = new AtomicInteger(references);
+            this.validatedAt = System.nanoTime();
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    channel.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to remove cache file: {} - {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * An open cached object. Closing it lets the file be deleted once it is evicted; closing it again has no effect.
+     */
+    public static final class Hit implements AutoCloseable {
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Hit(Entry entry) {
+            this.entry = entry;
+        }
+
+        public ObjectMetadata metadata() {
+            return entry.metadata;
+        }
+
+        /**
+         * Copies {@code count} bytes starting at {@code position} to {@code target}. The file is read with
+         * positional reads straight into one heap buffer, so readers share the channel and each chunk is copied
+         * once on its way to the stream.
+         */
+        public void copyTo(long position, long count, OutputStream target) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(count, 1)));
+            while (count > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), count));
+                int read = entry.channel.read(buffer, position);
+                if (read <= 0) {
+                    throw new EOFException("Cache file " + entry.file + " ended before " + (position + count) + " bytes");
+                }
+                target.write(buffer.array(), 0, read);
+                position += read;
+                count -= read;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                entry.release();
+            }
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxObjectSize;
+    private final long revalidateAfterNanos;
+    private final AsyncCache<ObjectKey, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+
+    /**
+     * @param directory       The directory holding the cache files; created if needed and cleared of earlier files
+     * @param maxBytes        The byte budget over all cached objects; 0 disables the cache
+     * @param maxObjectSize   The largest object that is cached
+     * @param revalidateAfter How long an entry is served before it is revalidated with R2
+     */
+    public ObjectDiskCache(Path directory, long maxBytes, long maxObjectSize, Duration revalidateAfter) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxObjectSize = Math.min(maxObjectSize, maxBytes);
+        this.revalidateAfterNanos = revalidateAfter.toNanos();
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ObjectKey key, Entry entry) -> (int) Math.min(entry.metadata.size(), Integer.MAX_VALUE))
+                .removalListener((ObjectKey key, Entry entry, RemovalCause cause) -> {
+                    // A replaced entry is handed over by the revalidation that replaced it
+                    if (entry != null && cause != RemovalCause.REPLACED) {
+                        entry.release();
+                    }
+                })
+                .buildAsync();
+        if (maxBytes > 0) {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX)).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether an object of this size is served from the cache.
+     */
+    public boolean accepts(long size) {
+        return maxBytes > 0 && size <= maxObjectSize;
+    }
+
+    /**
+     * Opens an object from the cache, downloading it first when absent and revalidating it when it was last
+     * validated longer ago than the revalidation interval or its ETag differs from {@code expectedETag}.
+     *
+     * @param expectedETag The object's current ETag if known, or null
+     * @param origin       Fetches the object from R2
+     * @return A future completing with the open object; the caller must close it
+     */
+    public CompletableFuture<Hit> open(String bucketName, String objectKey, String expectedETag, Origin origin) {
+        return open(new ObjectKey(bucketName, objectKey), expectedETag, origin, 1);
+    }
+
+    public void invalidate(String bucketName, String objectKey) {
+        entries.synchronous().invalidate(new ObjectKey(bucketName, objectKey));
+    }
+
+    public DiskCacheStats stats() {
+        long usedBytes = entries.synchronous().policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+        return new DiskCacheStats(maxBytes, usedBytes, entries.synchronous().estimatedSize(), hits.get(),
+                coalesced.get(), loads.get(), revalidations.get(), notModified.get(), fetchedBytes.get());
+    }
+
+    private CompletableFuture<Hit> open(ObjectKey key, String expectedETag, Origin origin, int attempt) {
+        boolean[] loading = new boolean[1];
+        CompletableFuture<Entry> current = lookup(key, origin, loading);
+        if (loading[0]) {
+            // Just downloaded, and the entry already holds this caller's reference, so neither a revalidation nor
+            // an eviction of the new entry can come first
+            return current.thenApply(Hit::new);
+        }
+        boolean cached = current.isDone() && !current.isCompletedExceptionally();
+        return current
+                .thenCompose(entry -> {
+                    if (isFresh(entry, expectedETag)) {
+                        if (cached) {
+                            hits.incrementAndGet();
+                        }
+                        return CompletableFuture.completedFuture(entry);
+                    }
+                    return revalidate(key, current, entry, origin);
+                })
+                .thenCompose(entry -> {
+                    if (entry.retain()) {
+                        return CompletableFuture.completedFuture(new Hit(entry));
+                    }
+                    // Evicted between lookup and open; the next lookup loads it again
+                    if (attempt >= MAX_OPEN_ATTEMPTS) {
+                        return CompletableFuture.failedFuture(new IllegalStateException(
+                                "Cache entry for " + key.objectKey() + " was evicted before it could be opened"));
+                    }
+                    return open(key, expectedETag, origin, attempt + 1);
+                });
+    }
+
+    /**
+     * The entry of a key, loading it when absent. A caller that finds the load or a revalidation of another
+     * caller in flight waits for it instead of fetching the object again.
+     */
+    private CompletableFuture<Entry> lookup(ObjectKey key, Origin origin, boolean[] loading) {
+        CompletableFuture<Entry> entry = entries.get(key, (ignored, executor) -> {
+            loading[0] = true;
+            loads.incrementAndGet();
+            return load(key, origin);
+        });
+        if (!loading[0] && !entry.isDone()) {
+            coalesced.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private boolean isFresh(Entry entry, String expectedETag) {
+        return System.nanoTime() - entry.validatedAt < revalidateAfterNanos
+                && (expectedETag == null || expectedETag.equals(entry.metadata.eTag()));
+    }
+
+    /**
+     * Revalidates a cached entry, letting concurrent callers wait for the same conditional GET.
+     */
+    private CompletableFuture<Entry> revalidate(ObjectKey key, CompletableFuture<Entry> current, Entry entry, Origin origin) {
+        CompletableFuture<Entry> next = new CompletableFuture<>();
+        if (!entries.asMap().replace(key, current, next)) {
+            // Another caller is revalidating it already, or it was evicted; go with whatever is there now
+            return lookup(key, origin, new boolean[1]);
+        }
+        revalidations.incrementAndGet();
+        Path target = newFile();
+        origin.fetch(entry.metadata.eTag(), target).whenComplete((metadata, ex) -> {
+            if (ex == null && metadata == null) {
+                notModified.incrementAndGet();
+                entry.validatedAt = System.nanoTime();
+                next.complete(entry);
+                return;
+            }
+            // Changed, gone or failed: the old copy is no longer served
+            entry.release();
+            if (ex != null) {
+                deleteQuietly(target);
+                next.completeExceptionally(ex);
+                return;
+            }
+            try {
+                next.complete(newEntry(target, metadata, 1));
+            } catch (IOException e) {
+                deleteQuietly(target);
+                next.completeExceptionally(new UncheckedIOException(e));
+            }
+        });
+        return next;
+    }
+
+    private CompletableFuture<Entry> load(ObjectKey key, Origin origin) {
+        Path target = newFile();
+        log.info("Caching object: {} from bucket: {} in {}", key.objectKey(), key.bucketName(), target);
+        return origin.fetch(null, target).handle((metadata, ex) -> {
+            if (ex != null) {
+                deleteQuietly(target);
+                throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+            }
+            try {
+                // One reference for the cache and one for the caller that started the load
+                return newEntry(target, metadata, 2);
+            } catch (IOException e) {
+                deleteQuietly(target);
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Entry newEntry(Path file, ObjectMetadata metadata, int references) throws IOException {
+        fetchedBytes.addAndGet(metadata.size());
+        return new Entry(file, FileChannel.open(file, StandardOpenOption.READ), metadata, references);
+    }
+
+    private Path newFile() {
+        return directory.resolve(UUID.randomUUID() + FILE_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to remove cache file: {} - {}", file, e.getMessage());
+        }
+    }
+}
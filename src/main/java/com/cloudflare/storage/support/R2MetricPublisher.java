@@ -0,0 +1,125 @@
+package com.cloudflare.storage.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the metrics the SDK reports after every API call into Micrometer.
+ * <ul>
+ *     <li>{@code r2.api.calls}: latency of whole calls including retries, by operation and outcome</li>
+ *     <li>{@code r2.api.attempts}: latency of each attempt, by operation and HTTP status</li>
+ *     <li>{@code r2.api.retries} and {@code r2.api.throttled}: retried attempts, and attempts answered with 429 or 503</li>
+ *     <li>{@code r2.http.acquire}: time spent waiting for a pooled connection, by HTTP client</li>
+ *     <li>{@code r2.http.connections.*}: leased, pending and maximum connections of each pool, as last reported</li>
+ * </ul>
+ */
+public final class R2MetricPublisher implements MetricPublisher {
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+    private static final String API_CALL_ATTEMPT = "ApiCallAttempt";
+    private static final String HTTP_CLIENT = "HttpClient";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, AtomicLong> poolGauges = new ConcurrentHashMap<>();
+
+    public R2MetricPublisher(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        String operation = first(metrics, CoreMetric.OPERATION_NAME, "unknown");
+        Duration duration = first(metrics, CoreMetric.API_CALL_DURATION, null);
+        if (duration != null) {
+            boolean successful = first(metrics, CoreMetric.API_CALL_SUCCESSFUL, false);
+            latency("r2.api.calls", "Latency of R2 API calls, including retries")
+                    .tags("operation", operation, "outcome", successful ? "success" : "failure")
+                    .register(registry)
+                    .record(duration);
+        }
+        int retries = first(metrics, CoreMetric.RETRY_COUNT, 0);
+        if (retries > 0) {
+            Counter.builder("r2.api.retries")
+                    .description("Retried attempts of R2 API calls")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .increment(retries);
+        }
+
+        metrics.childrenWithName(API_CALL_ATTEMPT).forEach(attempt -> {
+            Integer status = first(attempt, HttpMetric.HTTP_STATUS_CODE, null);
+            String statusTag = status != null ? status.toString() : "none";
+            Duration attemptDuration = first(attempt, CoreMetric.SERVICE_CALL_DURATION, null);
+            if (attemptDuration != null) {
+                Timer.builder("r2.api.attempts")
+                        .description("Latency of single attempts of R2 API calls")
+                        .tags("operation", operation, "status", statusTag)
+                        .register(registry)
+                        .record(attemptDuration);
+            }
+            if (status != null && (status == 429 || status == 503)) {
+                Counter.builder("r2.api.throttled")
+                        .description("Attempts R2 answered with 429 Too Many Requests or 503 Slow Down")
+                        .tags("operation", operation, "status", statusTag)
+                        .register(registry)
+                        .increment();
+            }
+            attempt.childrenWithName(HTTP_CLIENT).forEach(this::recordPool);
+        });
+    }
+
+    private void recordPool(MetricCollection http) {
+        String client = first(http, HttpMetric.HTTP_CLIENT_NAME, "unknown");
+        Duration acquire = first(http, HttpMetric.CONCURRENCY_ACQUIRE_DURATION, null);
+        if (acquire != null) {
+            latency("r2.http.acquire", "Time spent waiting for a connection from the pool")
+                    .tag("http.client", client)
+                    .register(registry)
+                    .record(acquire);
+        }
+        poolGauge("r2.http.connections.leased", client, first(http, HttpMetric.LEASED_CONCURRENCY, null));
+        poolGauge("r2.http.connections.pending", client, first(http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, null));
+        poolGauge("r2.http.connections.max", client, first(http, HttpMetric.MAX_CONCURRENCY, null));
+    }
+
+    private void poolGauge(String name, String client, Integer value) {
+        if (value == null) {
+            return;
+        }
+        poolGauges.computeIfAbsent(name + "|" + client, ignored -> {
+            AtomicLong holder = new AtomicLong();
+            Gauge.builder(name, holder, AtomicLong::get)
+                    .tag("http.client", client)
+                    .register(registry);
+            return holder;
+        }).set(value);
+    }
+
+    private static Timer.Builder latency(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+    }
+
+    private static <T> T first(MetricCollection metrics, SdkMetric<T> metric, T fallback) {
+        List<T> values = metrics.metricValues(metric);
+        return values.isEmpty() ? fallback : values.getFirst();
+    }
+
+    @Override
+    public void close() {
+    }
+}
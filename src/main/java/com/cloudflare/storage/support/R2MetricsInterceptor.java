@@ -0,0 +1,93 @@
+package com.cloudflare.storage.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpMethod;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records what the SDK's own metrics leave out: the calls in flight per operation ({@code r2.api.inflight}) and the
+ * bytes sent and received per attempt ({@code r2.api.request.bytes}, {@code r2.api.response.bytes}), taken from
+ * the declared content lengths.
+ */
+public final class R2MetricsInterceptor implements ExecutionInterceptor {
+    private static final String DECODED_CONTENT_LENGTH = "x-amz-decoded-content-length";
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public R2MetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        inFlight(executionAttributes).incrementAndGet();
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        String operation = operation(executionAttributes);
+        // Chunk-signed uploads declare the payload size separately from the encoded body
+        contentLength(context.httpRequest().firstMatchingHeader(DECODED_CONTENT_LENGTH)
+                .or(() -> context.httpRequest().firstMatchingHeader(CONTENT_LENGTH)))
+                .ifPresent(bytes -> bytes("r2.api.request.bytes", "Bytes sent to R2", operation).record(bytes));
+        // A HEAD response declares the object's length without carrying it
+        if (context.httpRequest().method() != SdkHttpMethod.HEAD) {
+            contentLength(context.httpResponse().firstMatchingHeader(CONTENT_LENGTH))
+                    .ifPresent(bytes -> bytes("r2.api.response.bytes", "Bytes received from R2", operation).record(bytes));
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        inFlight(executionAttributes).decrementAndGet();
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        inFlight(executionAttributes).decrementAndGet();
+    }
+
+    private AtomicInteger inFlight(ExecutionAttributes executionAttributes) {
+        return inFlight.computeIfAbsent(operation(executionAttributes), operation -> {
+            AtomicInteger calls = new AtomicInteger();
+            Gauge.builder("r2.api.inflight", calls, AtomicInteger::get)
+                    .description("R2 API calls in flight")
+                    .tag("operation", operation)
+                    .register(registry);
+            return calls;
+        });
+    }
+
+    private DistributionSummary bytes(String name, String description, String operation) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        return operation != null ? operation : "unknown";
+    }
+
+    private static Optional<Long> contentLength(Optional<String> header) {
+        try {
+            return header.map(Long::parseLong).filter(bytes -> bytes > 0);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
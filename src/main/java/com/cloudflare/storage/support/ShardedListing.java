@@ -0,0 +1,367 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ListedObject;
+import com.cloudflare.storage.model.ShardStats;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A bucket listing split into key-range shards that are listed concurrently.
+ * <p>
+ * Shard boundaries come from delimiter listings: every common prefix found while walking down from the listing
+ * prefix splits the key space, so each shard covers a contiguous, disjoint key range {@code [fromKey, toKey)}.
+ * Shards are listed with {@code StartAfter} and stop at their upper bound, which means no key is listed twice
+ * and an ordered result is simply the shards concatenated in order. Each shard buffers at most
+ * {@link #SHARD_BUFFER} entries, so memory stays bounded while slow consumers apply backpressure to the shards.
+ */
+@Slf4j
+public final class ShardedListing implements AutoCloseable {
+
+    private static final int SHARD_BUFFER = 2_000;
+    private static final int DISCOVERY_MAX_DEPTH = 3;
+    private static final int DISCOVERY_MAX_PAGES = 5;
+    private static final Object SHARD_DONE = new Object();
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String prefix;
+    private final boolean ordered;
+    private final List<Shard> shards;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Queue<Future<?>> workers = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Object> sharedQueue;
+    private volatile boolean closed;
+
+    private ShardedListing(S3Client s3Client, ExecutorService executor, String bucketName, String prefix,
+                           List<String> boundaries, boolean ordered, int concurrency) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.ordered = ordered;
+        this.shards = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            String fromKey = i == 0 ? prefix : boundaries.get(i - 1);
+            String toKey = i == boundaries.size() ? null : boundaries.get(i);
+            shards.add(new Shard(i, fromKey, toKey));
+        }
+        this.sharedQueue = ordered ? null : new LinkedBlockingQueue<>(SHARD_BUFFER * Math.max(1, concurrency));
+        this.executor = executor;
+        this.permits = new Semaphore(Math.max(1, concurrency));
+    }
+
+    /**
+     * Discovers shard boundaries under the prefix and starts listing the shards.
+     *
+     * @param s3Client    The client used for discovery and listing
+     * @param executor    Runs the shards; each shard blocks a thread while listing, which is cheap on virtual threads
+     * @param bucketName  The name of the bucket
+     * @param prefix      Only list keys starting with this prefix; empty for the whole bucket
+     * @param delimiter   The delimiter used to discover the prefix fan-out, usually {@code /}
+     * @param fanOut      The number of shards to aim for
+     * @param concurrency The number of shards listed at the same time
+     * @param ordered     Whether entries must come out in key order; unordered output does not wait on slow shards
+     * @return The running listing; close it to stop any shard still listing
+     */
+    public static ShardedListing start(S3Client s3Client, ExecutorService executor, String bucketName, String prefix,
+                                       String delimiter, int fanOut, int concurrency, boolean ordered) {
+        String root = prefix == null ? "" : prefix;
+        List<String> boundaries = discoverBoundaries(s3Client, bucketName, root, delimiter, fanOut);
+        log.info("Sharded listing of bucket: {} prefix: \"{}\" split into {} shards ({} in parallel, ordered: {})",
+                bucketName, root, boundaries.size() + 1, concurrency, ordered);
+
+        ShardedListing listing = new ShardedListing(s3Client, executor, bucketName, root, boundaries, ordered, concurrency);
+        listing.workers.add(executor.submit(listing::dispatchShards));
+        return listing;
+    }
+
+    /**
+     * Returns the listed entries as a lazy stream. Closing the stream closes the listing.
+     */
+    public Stream<ListedObject> entries() {
+        Iterator<ListedObject> iterator = ordered ? new OrderedIterator() : new UnorderedIterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, ordered ? Spliterator.ORDERED : 0), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Returns a snapshot of the per-shard throughput.
+     */
+    public List<ShardStats> stats() {
+        return shards.stream().map(Shard::stats).toList();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            workers.forEach(worker -> worker.cancel(true));
+        }
+    }
+
+    /**
+     * Starts shards in key order as permits free up, so an ordered consumer never waits on a shard
+     * that cannot start because later shards hold every permit.
+     */
+    private void dispatchShards() {
+        try {
+            for (Shard shard : shards) {
+                permits.acquire();
+                if (closed) {
+                    return;
+                }
+                workers.add(executor.submit(() -> {
+                    try {
+                        list(shard);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void list(Shard shard) {
+        shard.startNanos = System.nanoTime();
+        try {
+            ListObjectsV2Request request = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix.isEmpty() ? null : prefix)
+                    .startAfter(shard.index == 0 ? null : predecessor(shard.fromKey))
+                    .build();
+            outer:
+            for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+                for (S3Object object : page.contents()) {
+                    if (closed || (shard.toKey != null && compareKeys(object.key(), shard.toKey) >= 0)) {
+                        break outer;
+                    }
+                    if (shard.index > 0 && compareKeys(object.key(), shard.fromKey) < 0) {
+                        continue;
+                    }
+                    put(shard, ListedObject.of(object));
+                    shard.keys.incrementAndGet();
+                }
+            }
+            shard.endNanos = System.nanoTime();
+            ShardStats stats = shard.stats();
+            log.info("Shard {} [{}, {}) listed {} keys in {} ms ({} keys/s)", stats.shard(), stats.fromKey(), stats.toKey(),
+                    stats.keys(), stats.elapsedMillis(), Math.round(stats.keysPerSecond()));
+            put(shard, SHARD_DONE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Shard {} of bucket: {} failed: {}", shard.index, bucketName, e.getMessage());
+            try {
+                put(shard, e);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void put(Shard shard, Object entry) throws InterruptedException {
+        BlockingQueue<Object> queue = ordered ? shard.queue : sharedQueue;
+        // Re-check for close while waiting so a shard never stays blocked on a consumer that has gone away
+        while (!queue.offer(entry, 100, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                throw new InterruptedException("Listing closed");
+            }
+        }
+    }
+
+    private Object take(BlockingQueue<Object> queue) {
+        try {
+            Object entry = queue.take();
+            if (entry instanceof RuntimeException e) {
+                close();
+                throw e;
+            }
+            return entry;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for listing shards", e);
+        }
+    }
+
+    private final class OrderedIterator implements Iterator<ListedObject> {
+        private int current;
+        private ListedObject next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && current < shards.size()) {
+                Object entry = take(shards.get(current).queue);
+                if (entry == SHARD_DONE) {
+                    current++;
+                } else {
+                    next = (ListedObject) entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public ListedObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ListedObject entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
+    private final class UnorderedIterator implements Iterator<ListedObject> {
+        private int finishedShards;
+        private ListedObject next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && finishedShards < shards.size()) {
+                Object entry = take(sharedQueue);
+                if (entry == SHARD_DONE) {
+                    finishedShards++;
+                } else {
+                    next = (ListedObject) entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public ListedObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ListedObject entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
+    /**
+     * Walks down from the prefix with delimiter listings, collecting common prefixes until there are enough
+     * to reach the requested fan-out. Each level is capped at a few pages: prefixes found in a partial
+     * listing are still valid boundaries, they just make the split coarser.
+     */
+    static List<String> discoverBoundaries(S3Client s3Client, String bucketName, String prefix, String delimiter, int fanOut) {
+        TreeSet<String> boundaries = new TreeSet<>(ShardedListing::compareKeys);
+        List<String> level = List.of(prefix);
+        for (int depth = 0; depth < DISCOVERY_MAX_DEPTH && boundaries.size() + 1 < fanOut && !level.isEmpty(); depth++) {
+            List<String> nextLevel = new ArrayList<>();
+            for (String parent : level) {
+                if (boundaries.size() + 1 >= fanOut) {
+                    break;
+                }
+                ListObjectsV2Request request = ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(parent.isEmpty() ? null : parent)
+                        .delimiter(delimiter)
+                        .build();
+                s3Client.listObjectsV2Paginator(request).stream()
+                        .limit(DISCOVERY_MAX_PAGES)
+                        .flatMap(page -> page.commonPrefixes().stream())
+                        .map(CommonPrefix::prefix)
+                        .forEach(child -> {
+                            boundaries.add(child);
+                            nextLevel.add(child);
+                        });
+            }
+            level = nextLevel;
+        }
+
+        List<String> sorted = new ArrayList<>(boundaries);
+        if (sorted.size() + 1 <= fanOut) {
+            return sorted;
+        }
+        // Keep evenly spaced boundaries so the shards stay contiguous and roughly balanced by prefix count
+        List<String> sampled = new ArrayList<>(fanOut - 1);
+        for (int i = 1; i < fanOut; i++) {
+            sampled.add(sorted.get((int) ((long) i * sorted.size() / fanOut)));
+        }
+        return sampled;
+    }
+
+    /**
+     * Compares keys in the UTF-8 binary order S3 lists them in (code point order, unlike {@link String#compareTo}).
+     */
+    public static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Returns a key just below the given one, for use as {@code StartAfter}; keys below the bound are filtered out.
+     * Works on whole code points, so the result is always valid UTF-16 and encodes to UTF-8 without replacement.
+     */
+    public static String predecessor(String key) {
+        int last = key.codePointBefore(key.length());
+        String head = key.substring(0, key.length() - Character.charCount(last));
+        if (last == 0) {
+            return head;
+        }
+        // The surrogate range holds no code points, so the one below U+E000 is U+D7FF
+        return head + Character.toString(last == Character.MAX_SURROGATE + 1 ? Character.MIN_SURROGATE - 1 : last - 1);
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final String fromKey;
+        private final String toKey;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(SHARD_BUFFER);
+        private final AtomicLong keys = new AtomicLong();
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Shard(int index, String fromKey, String toKey) {
+            this.index = index;
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        private ShardStats stats() {
+            long start = startNanos;
+            long end = endNanos;
+            long elapsedNanos = start == 0 ? 0 : (end == 0 ? System.nanoTime() : end) - start;
+            long listed = keys.get();
+            double keysPerSecond = elapsedNanos == 0 ? 0 : listed * 1_000_000_000d / elapsedNanos;
+            return new ShardStats(index, fromKey, toKey, listed, elapsedNanos / 1_000_000, keysPerSecond, end != 0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.SingleFlightStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share one upstream call.
+ * <p>
+ * The first caller for a key starts the call; callers arriving while it is in flight get its outcome instead of
+ * calling again. Once the flight has ended, the next caller starts a new one, so a result is never served to a
+ * caller that arrived after it was produced.
+ *
+ * @param <K> The key identifying equivalent calls
+ * @param <V> The result of a call
+ */
+public final class SingleFlight<K, V> {
+    private final String operation;
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Runs {@code call} unless a call for the same key is in flight, in which case its outcome is shared.
+     * The flight ends when the call completes.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        return execute(key, call, null);
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier)}, but a successful flight stays open to new callers until
+     * {@code activeUntil} completes, for results that keep being produced after the call completes.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call, Function<V, ? extends CompletionStage<?>> activeUntil) {
+        calls.increment();
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            // A copy, so one caller cancelling its future does not cancel the shared call
+            return existing.copy();
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, ex) -> {
+            if (ex != null || activeUntil == null) {
+                flights.remove(key, flight);
+            } else {
+                activeUntil.apply(value).whenComplete((ignored, failure) -> flights.remove(key, flight));
+            }
+            if (ex != null) {
+                flight.completeExceptionally(ex);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    public SingleFlightStats stats() {
+        return SingleFlightStats.of(operation, calls.sum(), shared.sum(), flights.size());
+    }
+}
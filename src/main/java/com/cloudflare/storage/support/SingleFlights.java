@@ -0,0 +1,42 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.SingleFlightStats;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The single-flight layers of the object reads, one per operation.
+ */
+public final class SingleFlights {
+    public static final String GET_OBJECT = "GetObject";
+    public static final String GET_OBJECT_STREAM = "GetObjectStream";
+    public static final String GET_OBJECT_ATTRIBUTES = "GetObjectAttributes";
+    public static final List<String> OPERATIONS = List.of(GET_OBJECT, GET_OBJECT_STREAM, GET_OBJECT_ATTRIBUTES);
+
+    /**
+     * Identifies reads that return the same bytes: the object, the requested range and the ETag the object had
+     * when the read was issued. A write changes the ETag, so reads after it do not join reads from before it.
+     */
+    public record Key(String bucketName, String objectKey, String range, String eTag) {
+    }
+
+    private final ConcurrentMap<String, SingleFlight<Key, ?>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * The single-flight layer of an operation, created on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> SingleFlight<Key, V> forOperation(String operation) {
+        return (SingleFlight<Key, V>) flights.computeIfAbsent(operation, SingleFlight::new);
+    }
+
+    public List<SingleFlightStats> stats() {
+        return flights.values().stream()
+                .map(SingleFlight::stats)
+                .sorted(Comparator.comparing(SingleFlightStats::operation))
+                .toList();
+    }
+}
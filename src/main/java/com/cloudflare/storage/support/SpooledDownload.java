@@ -0,0 +1,278 @@
+package com.cloudflare.storage.support;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One GET whose body is read by any number of readers.
+ * <p>
+ * The body is written to a spool file as it arrives, at the speed of R2 rather than of the slowest reader.
+ * Each reader follows the file from the start at its own pace, waiting when it catches up with the download, so
+ * a reader that opens late still gets every byte. When the last reader closes before the download has finished,
+ * the download is cancelled. The spool file is deleted once the download has ended and no reader is left.
+ */
+public final class SpooledDownload {
+    private static final String FILE_SUFFIX = ".spool";
+
+    private final FileChannel channel;
+    private final CompletableFuture<GetObjectResponse> response = new CompletableFuture<>();
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+
+    // Guarded by lock
+    private long written;
+    private boolean done;
+    private Throwable failure;
+    private int readers;
+    private boolean closed;
+    private Subscription subscription;
+
+    private SpooledDownload(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Starts spooling the body of a GET.
+     *
+     * @param directory The directory for the spool file, created if needed
+     * @param get       The GET, completing with its response and body publisher
+     * @return The download; readers can open it right away
+     * @throws IOException if the spool file could not be created
+     */
+    public static SpooledDownload start(Path directory, CompletableFuture<ResponsePublisher<GetObjectResponse>> get) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(UUID.randomUUID() + FILE_SUFFIX), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        SpooledDownload download = new SpooledDownload(channel);
+        get.whenComplete((publisher, ex) -> {
+            if (ex != null) {
+                download.response.completeExceptionally(ex);
+                download.finish(ex);
+                return;
+            }
+            download.response.complete(publisher.response());
+            publisher.subscribe(download.new Spooler());
+        });
+        return download;
+    }
+
+    /**
+     * The response of the GET, once it arrives.
+     */
+    public CompletableFuture<GetObjectResponse> response() {
+        return response.copy();
+    }
+
+    /**
+     * Completes when the whole body has been spooled, or the download failed or was cancelled.
+     */
+    public CompletableFuture<Void> finished() {
+        return finished.copy();
+    }
+
+    /**
+     * Opens a reader of the body from its first byte.
+     *
+     * @return The reader, or null if the download was already released by its last reader
+     */
+    public Reader open() {
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            readers++;
+            return new Reader();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the spooled body, blocking while the download has not reached the next byte yet.
+     */
+    public final class Reader extends InputStream {
+        private long position;
+        private boolean released;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitBytes(position);
+            if (available < 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release();
+            }
+        }
+    }
+
+    /**
+     * Writes the body into the spool file, one buffer at a time.
+     */
+    private final class Spooler implements Subscriber<ByteBuffer> {
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            lock.lock();
+            try {
+                subscription = s;
+                if (closed) {
+                    s.cancel();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            try {
+                // Only this subscriber writes, so the end of the file is stable between buffers
+                long end = written;
+                while (buffer.hasRemaining()) {
+                    end += channel.write(buffer, end);
+                }
+                advance(end);
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                finish(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            finish(t);
+        }
+
+        @Override
+        public void onComplete() {
+            finish(null);
+        }
+    }
+
+    private void advance(long end) {
+        lock.lock();
+        try {
+            written = end;
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the body extends beyond {@code position}.
+     *
+     * @return The bytes available from {@code position}, or -1 at the end of the body
+     */
+    private long awaitBytes(long position) throws IOException {
+        lock.lock();
+        try {
+            while (written <= position && !done) {
+                advanced.await();
+            }
+            if (written > position) {
+                return written - position;
+            }
+            if (failure != null) {
+                throw new IOException("Download of the object failed", failure);
+            }
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the object body");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Throwable ex) {
+        lock.lock();
+        try {
+            if (done) {
+                return;
+            }
+            done = true;
+            failure = ex;
+            advanced.signalAll();
+            if (readers == 0) {
+                close();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ex == null) {
+            finished.complete(null);
+        } else {
+            finished.completeExceptionally(ex);
+        }
+    }
+
+    private void release() {
+        Subscription cancelled = null;
+        lock.lock();
+        try {
+            if (--readers > 0) {
+                return;
+            }
+            if (!done) {
+                // Nobody is left to read the rest
+                cancelled = subscription;
+            }
+            close();
+        } finally {
+            lock.unlock();
+        }
+        if (cancelled != null) {
+            cancelled.cancel();
+        }
+        finish(new CancellationException("All readers of the object closed before it was downloaded"));
+    }
+
+    private void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // The spool file is deleted on close; nothing else holds it
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cloudflare.storage.support;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Reports every attempt R2 answers with 429 Too Many Requests or 503 Slow Down to the
+ * {@link AdaptiveConcurrencyLimiter}. It looks at each attempt rather than the final outcome, so throttling the
+ * SDK retried away still lowers the limit.
+ */
+public final class ThrottleSignalInterceptor implements ExecutionInterceptor {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ThrottleSignalInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int statusCode = context.httpResponse().statusCode();
+        if (statusCode == 429 || statusCode == 503) {
+            limiter.onThrottled(AdaptiveConcurrencyLimiter.Scope.of(context.request()));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.cloudflare.storage.support;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Append-only local journal of the parts of one multipart upload, kept next to the file being
+ * uploaded. The first line identifies the upload and the file it was started for; every completed
+ * part appends one line that is forced to disk before the part counts as done, so a crash loses at
+ * most the parts that were still in flight. A torn last line is ignored on read.
+ * <pre>
+ * upload  bucket  key  uploadId  fileSize  lastModified  partSize
+ * part    partNumber  offset  length  eTag  crc32c
+ * </pre>
+ */
+public final class UploadJournal implements Closeable {
+    private static final String SUFFIX = ".upload-journal";
+    private static final String UPLOAD = "upload";
+    private static final String PART = "part";
+    private static final String SEPARATOR = "\t";
+
+    private final FileChannel channel;
+
+    /**
+     * Identifies the upload a journal belongs to and the state of the file when it was started.
+     */
+    public record Header(String bucketName, String objectKey, String uploadId, long fileSize, long lastModified, long partSize) {
+
+        /**
+         * Whether this journal was written for the same object, file contents and part layout.
+         */
+        public boolean resumes(String bucketName, String objectKey, long fileSize, long lastModified, long partSize) {
+            return this.bucketName.equals(bucketName) && this.objectKey.equals(objectKey)
+                    && this.fileSize == fileSize && this.lastModified == lastModified && this.partSize == partSize;
+        }
+    }
+
+    /**
+     * One part that R2 acknowledged, with the CRC32C of the bytes that were sent.
+     */
+    public record Entry(int partNumber, long offset, long length, String eTag, long crc32c) {
+    }
+
+    /**
+     * The contents of an existing journal, keyed by part number.
+     */
+    public record Contents(Header header, Map<Integer, Entry> entries) {
+    }
+
+    private UploadJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * The journal location for a file: a sibling named after it.
+     */
+    public static Path pathFor(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads an existing journal.
+     *
+     * @return The journal contents, or empty if there is no journal or its header is unreadable
+     */
+    public static Optional<Contents> read(Path journalPath) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (lines.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String[] fields = lines.get(0).split(SEPARATOR);
+        if (fields.length != 7 || !UPLOAD.equals(fields[0])) {
+            return Optional.empty();
+        }
+        Header header;
+        try {
+            header = new Header(decode(fields[1]), decode(fields[2]), decode(fields[3]),
+                    Long.parseLong(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        Map<Integer, Entry> entries = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            parseEntry(line).ifPresent(entry -> entries.put(entry.partNumber(), entry));
+        }
+        return Optional.of(new Contents(header, entries));
+    }
+
+    /**
+     * Starts a new journal, replacing any existing one.
+     */
+    public static UploadJournal create(Path journalPath, Header header) throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        UploadJournal journal = new UploadJournal(channel);
+        journal.append(String.join(SEPARATOR, UPLOAD, encode(header.bucketName()), encode(header.objectKey()),
+                encode(header.uploadId()), String.valueOf(header.fileSize()), String.valueOf(header.lastModified()),
+                String.valueOf(header.partSize())));
+        return journal;
+    }
+
+    /**
+     * Reopens an existing journal to record further parts.
+     */
+    public static UploadJournal reopen(Path journalPath) throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new UploadJournal(channel);
+    }
+
+    /**
+     * Durably records a completed part. Safe to call from concurrent completions.
+     */
+    public void record(Entry entry) throws IOException {
+        append(String.join(SEPARATOR, PART, String.valueOf(entry.partNumber()), String.valueOf(entry.offset()),
+                String.valueOf(entry.length()), encode(entry.eTag()), Long.toHexString(entry.crc32c())));
+    }
+
+    private synchronized void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static Optional<Entry> parseEntry(String line) {
+        String[] fields = line.split(SEPARATOR);
+        if (fields.length != 6 || !PART.equals(fields[0])) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new Entry(Integer.parseInt(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                    decode(fields[4]), Long.parseUnsignedLong(fields[5], 16)));
+        } catch (IllegalArgumentException e) {
+            // A line torn by a crash mid-append
+            return Optional.empty();
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
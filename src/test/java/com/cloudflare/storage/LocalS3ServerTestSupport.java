@@ -0,0 +1,100 @@
+package com.cloudflare.storage;
+
+import com.cloudflare.storage.support.LocalS3Server;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runs the application against one in-process {@link LocalS3Server} shared by every test class, so the services
+ * are exercised through the real clients, interceptors and limiter. The {@link RequestRecorder} keeps the requests
+ * sent to the server, by operation.
+ */
+@SpringBootTest(classes = {S3Application.class, LocalS3ServerTestSupport.RecorderConfig.class},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "cloudflare.account-id=test",
+        "cloudflare.access-key=test",
+        "cloudflare.secret-key=test",
+        "cloudflare.disk-cache.max-size=0",
+        "logging.level.com.cloudflare=WARN"
+})
+public abstract class LocalS3ServerTestSupport {
+
+    protected static final LocalS3Server SERVER = startServer();
+
+    @Autowired
+    protected RequestRecorder requests;
+
+    @DynamicPropertySource
+    static void endpoint(DynamicPropertyRegistry registry) {
+        registry.add("cloudflare.endpoint", () -> SERVER.endpoint().toString());
+    }
+
+    @BeforeEach
+    void resetServer() {
+        SERVER.setFaults(LocalS3Server.Faults.NONE);
+        requests.reset();
+    }
+
+    private static LocalS3Server startServer() {
+        try {
+            return new LocalS3Server(0, LocalS3Server.Faults.NONE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class RecorderConfig {
+
+        @Bean
+        RequestRecorder requestRecorder() {
+            return new RequestRecorder();
+        }
+    }
+
+    /**
+     * Records every attempt sent by any client, keyed by operation name, such as {@code HeadObject}.
+     */
+    public static final class RequestRecorder implements ExecutionInterceptor {
+        private final ConcurrentMap<String, Queue<SdkRequest>> attempts = new ConcurrentHashMap<>();
+
+        @Override
+        public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+            String operation = context.request().getClass().getSimpleName().replaceFirst("Request$", "");
+            attempts.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(context.request());
+        }
+
+        public int count(String operation) {
+            return requests(operation).size();
+        }
+
+        /**
+         * The requests of the operation in the order they were sent, once per attempt.
+         */
+        public List<SdkRequest> requests(String operation) {
+            Queue<SdkRequest> requests = attempts.get(operation);
+            return requests == null ? List.of() : List.copyOf(requests);
+        }
+
+        public void reset() {
+            attempts.clear();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.cloudflare.storage.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test for the blocking S3Client at 1,000 concurrent requests: a Tomcat-sized platform pool versus virtual threads.
+ * The stub endpoint answers every HEAD after a fixed delay, standing in for R2 round-trip latency.
+ * <p>
+ * Tagged {@code perf} and left out of {@code test}: it only holds on the deployment setup (JDK 24+ and at least four
+ * cores, where the Apache pool no longer pins carrier threads), so it runs on its own with {@code ./gradlew perfTest}.
+ */
+@Tag("perf")
+class VirtualThreadLoadTests {
+
+    private static final int CONCURRENT_REQUESTS = 1_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long UPSTREAM_LATENCY_MILLIS = 50;
+
+    static {
+        // The JDK server drops idle keep-alive connections beyond 200 by default, which the pooled client would hit
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(CONCURRENT_REQUESTS * 2));
+    }
+
+    private HttpServer server;
+    private S3Client s3Client;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), CONCURRENT_REQUESTS * 2);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("ETag", "\"stub\"");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .region(Region.of("auto"))
+                .forcePathStyle(true)
+                .httpClient(ApacheHttpClient.builder().maxConnections(CONCURRENT_REQUESTS).build())
+                .build();
+    }
+
+    @AfterEach
+    void stopStub() {
+        s3Client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void virtualThreadsCutTailLatency() throws Exception {
+        // Warm up connections and class loading
+        run(Executors.newVirtualThreadPerTaskExecutor());
+
+        long platformP99 = percentile(run(Executors.newFixedThreadPool(PLATFORM_THREADS)), 0.99);
+        long virtualP99 = percentile(run(Executors.newVirtualThreadPerTaskExecutor()), 0.99);
+
+        // 1,000 requests on 200 platform threads queue in five waves; virtual threads serve them all at once
+        assertThat(platformP99).isGreaterThanOrEqualTo(CONCURRENT_REQUESTS / PLATFORM_THREADS * UPSTREAM_LATENCY_MILLIS);
+        assertThat(virtualP99).isLessThan(platformP99);
+    }
+
+    private long[] run(ExecutorService executor) throws Exception {
+        try (executor) {
+            List<Future<Long>> futures = new ArrayList<>(CONCURRENT_REQUESTS);
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    s3Client.headObject(b -> b.bucket("bucket").key("key"));
+                    return (System.nanoTime() - submitted) / 1_000_000;
+                }));
+            }
+            long[] latencies = new long[CONCURRENT_REQUESTS];
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            return latencies;
+        }
+    }
+
+    private static long percentile(long[] latencies, double percentile) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,132 @@
+package com.cloudflare.storage.controller;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.handler.GlobalExceptionHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Downloads through the controller, once for an object small enough for the disk cache and once for one that
+ * is streamed from R2.
+ */
+@TestPropertySource(properties = {
+        "cloudflare.disk-cache.max-size=1MB",
+        "cloudflare.disk-cache.max-object-size=4KB"
+})
+class S3DirectoryControllerTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "controller-download";
+    private static final String CACHED = "cached";
+    private static final String STREAMED = "streamed";
+
+    @Autowired
+    private S3DirectoryController controller;
+
+    private static final byte[] CACHED_DATA = randomBytes(1000);
+    private static final byte[] STREAMED_DATA = randomBytes(10_000);
+
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void putObjects() {
+        SERVER.putObject(BUCKET, CACHED, CACHED_DATA);
+        SERVER.putObject(BUCKET, STREAMED, STREAMED_DATA);
+    }
+
+    @BeforeEach
+    void loadTheCache() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new GlobalExceptionHandler()).build();
+        download(CACHED, null);
+        requests.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CACHED, STREAMED})
+    void aFullDownloadIsAnsweredWith200(String key) throws Exception {
+        MvcResult result = download(key, null);
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(data(key));
+        assertThat(result.getResponse().getContentLengthLong()).isEqualTo(data(key).length);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertServedBy(key);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CACHED, STREAMED})
+    void aRangeIsAnsweredWith206(String key) throws Exception {
+        MvcResult result = download(key, "bytes=100-199");
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-199/" + data(key).length);
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(data(key), 100, 200));
+        assertServedBy(key);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CACHED, STREAMED})
+    void aSuffixRangeIsAnsweredWithTheLastBytes(String key) throws Exception {
+        int size = data(key).length;
+
+        MvcResult result = download(key, "bytes=-50");
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE))
+                .isEqualTo("bytes " + (size - 50) + "-" + (size - 1) + "/" + size);
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(data(key), size - 50, size));
+        assertServedBy(key);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CACHED, STREAMED})
+    void anUnsatisfiableRangeIsAnsweredWith416(String key) throws Exception {
+        int size = data(key).length;
+
+        MvcResult result = download(key, "bytes=" + size + "-");
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(416);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + size);
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    /**
+     * The cached object costs no GET; the streamed one is fetched with the client's range.
+     */
+    private void assertServedBy(String key) {
+        assertThat(requests.count("GetObject")).isEqualTo(key.equals(CACHED) ? 0 : 1);
+    }
+
+    private MvcResult download(String key, String range) throws Exception {
+        var request = get("/s3/downloadDirectoryBucketObject").param("bucketName", BUCKET).param("objectKey", key);
+        if (range != null) {
+            request.header(HttpHeaders.RANGE, range);
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+    }
+
+    private static byte[] data(String key) {
+        return key.equals(CACHED) ? CACHED_DATA : STREAMED_DATA;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
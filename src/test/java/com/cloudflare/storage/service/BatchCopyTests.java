@@ -0,0 +1,152 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.BatchCopyResult;
+import com.cloudflare.storage.support.CopyJournal;
+import com.cloudflare.storage.support.MetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchCopyTests extends LocalS3ServerTestSupport {
+    private static final String SOURCE = "batch-copy-source";
+    private static final String DESTINATION = "batch-copy-destination";
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Value("${cloudflare.batch-copy.checkpoint-directory}")
+    private Path checkpointDirectory;
+
+    @BeforeEach
+    void destinationExistsAndNoJournalIsLeft() throws IOException {
+        SERVER.createBucket(DESTINATION);
+        Files.createDirectories(checkpointDirectory);
+        try (Stream<Path> journals = Files.list(checkpointDirectory)) {
+            for (Path journal : journals.toList()) {
+                Files.delete(journal);
+            }
+        }
+    }
+
+    @Test
+    void aResumedJobContinuesAfterTheCheckpoint() throws IOException {
+        List<String> keys = putObjects("resumed/", 10);
+        CopyJournal.Header header = new CopyJournal.Header(SOURCE, "resumed/", DESTINATION, "resumed/", false, "");
+        // A run that was interrupted once the first half was checkpointed
+        try (CopyJournal journal = CopyJournal.create(journal(header), header)) {
+            journal.record("resumed/04");
+        }
+
+        BatchCopyResult result = service.copyDirectoryBucketObjects(SOURCE, "resumed/", null, DESTINATION, null).join();
+
+        assertThat(result.resumedAfter()).isEqualTo("resumed/04");
+        assertThat(result.copied()).isEqualTo(5);
+        assertThat(result.failed()).isZero();
+        assertThat(copiedKeys()).containsExactlyElementsOf(keys.subList(5, 10));
+        assertThat(keys.subList(5, 10)).allMatch(key -> SERVER.getObject(DESTINATION, key) != null);
+        assertThat(journal(header)).doesNotExist();
+    }
+
+    @Test
+    void failedKeysAreReportedAndRetriedByTheNextSubmission() {
+        List<String> keys = IntStream.range(0, 5).mapToObj(i -> "retried/%02d".formatted(i)).toList();
+        keys.stream().filter(key -> !key.equals("retried/02")).forEach(key -> SERVER.putObject(SOURCE, key, new byte[]{1}));
+        Path journal = journal(new CopyJournal.Header(SOURCE, "retried/", DESTINATION, "retried/", false, CopyJournal.digest(keys)));
+
+        BatchCopyResult first = service.copyDirectoryBucketObjects(SOURCE, "retried/", keys, DESTINATION, null).join();
+
+        assertThat(first.copied()).isEqualTo(4);
+        assertThat(first.failed()).isOne();
+        assertThat(first.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.key()).isEqualTo("retried/02");
+            assertThat(failure.code()).isEqualTo("NoSuchKey");
+        });
+        assertThat(journal).as("kept for the failed key").exists();
+
+        // Still missing: reported again, and nothing else is copied again
+        requests.reset();
+        BatchCopyResult second = service.copyDirectoryBucketObjects(SOURCE, "retried/", keys, DESTINATION, null).join();
+
+        assertThat(second.resumedAfter()).isEqualTo("retried/04");
+        assertThat(second.copied()).isZero();
+        assertThat(second.failures()).extracting(BatchCopyResult.Failure::key).containsExactly("retried/02");
+        assertThat(requests.count("CopyObject")).isZero();
+        assertThat(journal).exists();
+
+        SERVER.putObject(SOURCE, "retried/02", new byte[]{2});
+        // Written behind the service's back, so the cached "missing" is dropped by hand
+        metadataCache.invalidateObject(SOURCE, "retried/02");
+        requests.reset();
+        BatchCopyResult third = service.copyDirectoryBucketObjects(SOURCE, "retried/", keys, DESTINATION, null).join();
+
+        assertThat(third.copied()).isOne();
+        assertThat(third.failed()).isZero();
+        assertThat(copiedKeys()).containsExactly("retried/02");
+        assertThat(SERVER.getObject(DESTINATION, "retried/02")).containsExactly(2);
+        assertThat(journal).as("removed once nothing failed").doesNotExist();
+    }
+
+    @Test
+    void aResumedMoveSkipsSourcesAlreadyMoved() throws IOException {
+        List<String> keys = IntStream.range(0, 6).mapToObj(i -> "moved/%02d".formatted(i)).toList();
+        CopyJournal.Header header = new CopyJournal.Header(SOURCE, "moved/", DESTINATION, "moved/", true, CopyJournal.digest(keys));
+        // The interrupted run moved four objects but only checkpointed the first two
+        keys.subList(0, 4).forEach(key -> SERVER.putObject(DESTINATION, key, new byte[]{1}));
+        keys.subList(4, 6).forEach(key -> SERVER.putObject(SOURCE, key, new byte[]{1}));
+        try (CopyJournal journal = CopyJournal.create(journal(header), header)) {
+            journal.record("moved/01");
+        }
+
+        BatchCopyResult result = service.moveDirectoryBucketObjects(SOURCE, "moved/", keys, DESTINATION, null).join();
+
+        assertThat(result.resumedAfter()).isEqualTo("moved/01");
+        assertThat(result.skipped()).isEqualTo(2);
+        assertThat(result.copied()).isEqualTo(2);
+        assertThat(result.deleted()).isEqualTo(2);
+        assertThat(result.failed()).isZero();
+        assertThat(copiedKeys()).containsExactly("moved/04", "moved/05");
+        assertThat(keys).allMatch(key -> SERVER.getObject(SOURCE, key) == null && SERVER.getObject(DESTINATION, key) != null);
+        assertThat(journal(header)).doesNotExist();
+    }
+
+    @Test
+    void aJobThatRanToTheEndWithoutFailuresRemovesItsJournal() {
+        putObjects("clean/", 3);
+
+        BatchCopyResult result = service.copyDirectoryBucketObjects(SOURCE, "clean/", null, DESTINATION, "copied/").join();
+
+        assertThat(result.copied()).isEqualTo(3);
+        assertThat(result.resumedAfter()).isNull();
+        assertThat(journal(new CopyJournal.Header(SOURCE, "clean/", DESTINATION, "copied/", false, ""))).doesNotExist();
+        assertThat(SERVER.getObject(DESTINATION, "copied/01")).isNotNull();
+    }
+
+    private Path journal(CopyJournal.Header header) {
+        return checkpointDirectory.resolve(header.fileName());
+    }
+
+    private List<String> copiedKeys() {
+        return requests.requests("CopyObject").stream().map(request -> ((CopyObjectRequest) request).destinationKey()).sorted().toList();
+    }
+
+    private static List<String> putObjects(String prefix, int count) {
+        List<String> keys = IntStream.range(0, count).mapToObj(i -> prefix + "%02d".formatted(i)).toList();
+        keys.forEach(key -> SERVER.putObject(SOURCE, key, new byte[]{1}));
+        return keys;
+    }
+}
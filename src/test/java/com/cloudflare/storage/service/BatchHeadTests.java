@@ -0,0 +1,108 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.ObjectExistence;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchHeadTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "batch-head";
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Value("${cloudflare.batch-head.min-keys-per-page}")
+    private int minKeysPerPage;
+
+    @Test
+    void aDenseRangeIsAnsweredByOneListing() {
+        putObjects("dense/", 100);
+        // Every other key, with missing keys in between, in no particular order
+        List<String> keys = new ArrayList<>();
+        for (int i = 98; i >= 0; i -= 2) {
+            keys.add(key("dense/", i));
+            keys.add(key("dense/", i) + "-missing");
+        }
+
+        List<ObjectExistence> results = service.headDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(results).extracting(ObjectExistence::key).containsExactlyElementsOf(keys);
+        assertAnswered(results);
+        assertThat(requests.count("ListObjectsV2")).isOne();
+        assertThat(requests.count("HeadObject")).isZero();
+    }
+
+    @Test
+    void aSparseRangeFallsBackToHeadAfterOnePage() {
+        putObjects("sparse/", 2000);
+        // One key per hundred objects: the first page of 1,000 covers only ten of them
+        List<String> keys = IntStream.range(0, 20).mapToObj(i -> key("sparse/", i * 100)).toList();
+
+        List<ObjectExistence> results = service.headDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(results).extracting(ObjectExistence::key).containsExactlyElementsOf(keys);
+        assertThat(results).allMatch(ObjectExistence::exists);
+        assertThat(requests.count("ListObjectsV2")).isOne();
+        assertThat(requests.count("HeadObject")).isEqualTo(10);
+    }
+
+    @Test
+    void aBatchTooSmallToFillAPageIsCheckedWithHead() {
+        putObjects("small/", 10);
+        List<String> keys = new ArrayList<>(IntStream.range(0, minKeysPerPage - 2).mapToObj(i -> key("small/", i)).toList());
+        keys.add("small/missing");
+
+        List<ObjectExistence> results = service.headDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(results).extracting(ObjectExistence::key).containsExactlyElementsOf(keys);
+        assertAnswered(results);
+        assertThat(requests.count("ListObjectsV2")).isZero();
+        assertThat(requests.count("HeadObject")).isEqualTo(keys.size());
+    }
+
+    @Test
+    void keysAfterTheLastListedPageAreMissingWithoutHead() {
+        putObjects("paged/", 1200);
+        // Spans two pages, and goes on past the last object
+        List<String> keys = new ArrayList<>(IntStream.range(0, 1200).mapToObj(i -> key("paged/", i)).toList());
+        keys.add("paged/9999");
+        keys.add("paged/missing");
+
+        List<ObjectExistence> results = service.headDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(results).extracting(ObjectExistence::key).containsExactlyElementsOf(keys);
+        assertAnswered(results);
+        assertThat(requests.count("ListObjectsV2")).isEqualTo(2);
+        assertThat(requests.count("HeadObject")).isZero();
+    }
+
+    /**
+     * Checks each result against the server: present keys with their size and ETag, missing keys as missing.
+     */
+    private static void assertAnswered(List<ObjectExistence> results) {
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.error()).isNull();
+            byte[] data = SERVER.getObject(BUCKET, result.key());
+            assertThat(result.exists()).as(result.key()).isEqualTo(data != null);
+            if (data != null) {
+                assertThat(result.size()).isEqualTo(data.length);
+                assertThat(result.eTag()).isNotBlank();
+            }
+        });
+    }
+
+    private static void putObjects(String prefix, int count) {
+        IntStream.range(0, count).forEach(i -> SERVER.putObject(BUCKET, key(prefix, i), new byte[i % 7 + 1]));
+    }
+
+    private static String key(String prefix, int index) {
+        return prefix + "%04d".formatted(index);
+    }
+}
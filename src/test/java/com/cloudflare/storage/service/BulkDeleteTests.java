@@ -0,0 +1,80 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.BulkDeleteResult;
+import com.cloudflare.storage.support.LocalS3Server;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkDeleteTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "bulk-delete";
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Value("${cloudflare.delete.max-attempts}")
+    private int maxAttempts;
+
+    @Test
+    void onlyTheKeysThatFailedAreRetried() {
+        List<String> keys = putObjects("retried/", 10);
+        SERVER.failDeletes(BUCKET, "retried/3", 1);
+
+        BulkDeleteResult result = service.deleteDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(result.deleted()).isEqualTo(10);
+        assertThat(result.failed()).isZero();
+        assertThat(requests.requests("DeleteObjects")).map(BulkDeleteTests::keysOf)
+                .containsExactly(keys, List.of("retried/3"));
+        assertThat(keys).allMatch(key -> SERVER.getObject(BUCKET, key) == null);
+    }
+
+    @Test
+    void keysStillFailingAfterTheLastAttemptAreReported() {
+        List<String> keys = putObjects("failing/", 10);
+        SERVER.failDeletes(BUCKET, "failing/7", Integer.MAX_VALUE);
+
+        BulkDeleteResult result = service.deleteDirectoryBucketObjects(BUCKET, keys).join();
+
+        assertThat(result.deleted()).isEqualTo(9);
+        assertThat(result.failed()).isOne();
+        assertThat(result.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.key()).isEqualTo("failing/7");
+            assertThat(failure.code()).isEqualTo("InternalError");
+        });
+        assertThat(requests.count("DeleteObjects")).isEqualTo(maxAttempts);
+        assertThat(SERVER.getObject(BUCKET, "failing/7")).isNotNull();
+    }
+
+    @Test
+    void throttledBatchesAreRetriedOnlyByTheBatchRetry() {
+        List<String> keys = putObjects("throttled/", 3);
+        SERVER.setFaults(new LocalS3Server.Faults(Duration.ZERO, 0, 1, 0));
+
+        BulkDeleteResult result = service.deleteDirectoryBucketObjects(BUCKET, keys).join();
+
+        // The SDK's retries are off for these requests, so each batch attempt is a single request
+        assertThat(result.failed()).isEqualTo(3);
+        assertThat(result.failures()).allMatch(failure -> "TooManyRequests".equals(failure.code()));
+        assertThat(requests.count("DeleteObjects")).isEqualTo(maxAttempts);
+    }
+
+    private static List<String> putObjects(String prefix, int count) {
+        List<String> keys = IntStream.range(0, count).mapToObj(i -> prefix + i).toList();
+        keys.forEach(key -> SERVER.putObject(BUCKET, key, new byte[]{1}));
+        return keys;
+    }
+
+    private static List<String> keysOf(Object request) {
+        return ((DeleteObjectsRequest) request).delete().objects().stream().map(ObjectIdentifier::key).toList();
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.support.LocalS3Server;
+import com.cloudflare.storage.support.MetadataCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescedReadTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "coalesced-read";
+    private static final int READERS = 8;
+    private static final LocalS3Server.Faults SLOW = new LocalS3Server.Faults(Duration.ofMillis(300), 0, 0, 0);
+
+    @Autowired
+    private S3DirectoryAsyncService asyncService;
+
+    @Autowired
+    private S3DirectoryService service;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Test
+    void aReadOfAnUncachedObjectCostsNoHead() {
+        SERVER.putObject(BUCKET, "uncached", randomBytes(1024));
+
+        assertThat(asyncService.getDirectoryBucketObject(BUCKET, "uncached").join()).isTrue();
+        assertThat(asyncService.getDirectoryBucketObjectAttributes(BUCKET, "uncached").join()).isTrue();
+
+        assertThat(requests.count("HeadObject")).isZero();
+        assertThat(requests.count("GetObject")).isOne();
+        assertThat(requests.count("GetObjectAttributes")).isOne();
+        assertThat(ifMatchOfGets()).containsExactly((String) null);
+    }
+
+    @Test
+    void concurrentReadsOfACachedVersionShareOneConditionalGet() {
+        SERVER.putObject(BUCKET, "shared", randomBytes(1024));
+        String eTag = cacheMetadata("shared");
+        SERVER.setFaults(SLOW);
+
+        List<CompletableFuture<Boolean>> reads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            reads.add(asyncService.getDirectoryBucketObject(BUCKET, "shared"));
+        }
+
+        assertThat(reads).allSatisfy(read -> assertThat(read.join()).isTrue());
+        assertThat(ifMatchOfGets()).containsExactly(eTag);
+    }
+
+    @Test
+    void aReadFailingOnAStaleCachedETagDropsItAndIsRepeated() {
+        SERVER.putObject(BUCKET, "stale", randomBytes(1024));
+        String eTag = cacheMetadata("stale");
+        // Replaced behind the service's back, so the cached ETag is not invalidated by the write
+        SERVER.putObject(BUCKET, "stale", randomBytes(2048));
+
+        assertThat(asyncService.getDirectoryBucketObject(BUCKET, "stale").join()).isTrue();
+
+        assertThat(ifMatchOfGets()).containsExactly(eTag, null);
+        assertThat(metadataCache.cachedObject(BUCKET, "stale")).isNull();
+    }
+
+    @Test
+    void attributesOfAnotherVersionDropTheCachedETag() {
+        SERVER.putObject(BUCKET, "stale-attributes", randomBytes(1024));
+        cacheMetadata("stale-attributes");
+        SERVER.putObject(BUCKET, "stale-attributes", randomBytes(2048));
+
+        assertThat(asyncService.getDirectoryBucketObjectAttributes(BUCKET, "stale-attributes").join()).isTrue();
+
+        assertThat(requests.count("GetObjectAttributes")).isOne();
+        assertThat(metadataCache.cachedObject(BUCKET, "stale-attributes")).isNull();
+    }
+
+    @Test
+    void concurrentStreamsOfACachedVersionGetIdenticalBytesFromOneGet() throws Exception {
+        byte[] data = randomBytes(256 * 1024);
+        SERVER.putObject(BUCKET, "streamed", data);
+        String eTag = cacheMetadata("streamed");
+        SERVER.setFaults(SLOW);
+
+        List<Future<byte[]>> readers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS)) {
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    try (ResponseInputStream<GetObjectResponse> stream = service.getDirectoryBucketObjectStream(BUCKET, "streamed", null)) {
+                        return stream.readAllBytes();
+                    }
+                }));
+            }
+            for (Future<byte[]> reader : readers) {
+                assertThat(reader.get(30, TimeUnit.SECONDS)).isEqualTo(data);
+            }
+        }
+
+        assertThat(ifMatchOfGets()).containsExactly(eTag);
+    }
+
+    @Test
+    void aStreamFailingOnAStaleCachedETagReadsTheCurrentVersion() throws IOException {
+        SERVER.putObject(BUCKET, "stale-stream", randomBytes(1024));
+        String eTag = cacheMetadata("stale-stream");
+        byte[] current = randomBytes(2048);
+        SERVER.putObject(BUCKET, "stale-stream", current);
+
+        try (ResponseInputStream<GetObjectResponse> stream = service.getDirectoryBucketObjectStream(BUCKET, "stale-stream", null)) {
+            assertThat(stream.readAllBytes()).isEqualTo(current);
+        }
+
+        assertThat(ifMatchOfGets()).containsExactly(eTag, null);
+        assertThat(metadataCache.cachedObject(BUCKET, "stale-stream")).isNull();
+    }
+
+    /**
+     * Looks up the object's metadata, so later reads find its ETag cached, and forgets that request.
+     */
+    private String cacheMetadata(String objectKey) {
+        String eTag = asyncService.headDirectoryBucketObjectMetadata(BUCKET, objectKey).join().eTag();
+        requests.reset();
+        return eTag;
+    }
+
+    private List<String> ifMatchOfGets() {
+        return requests.requests("GetObject").stream().map(request -> ((GetObjectRequest) request).ifMatch()).toList();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
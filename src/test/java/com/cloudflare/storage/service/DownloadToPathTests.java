@@ -0,0 +1,102 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.support.LocalS3Server;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownloadToPathTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "download-to-path";
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Value("${cloudflare.download.range-size}")
+    private DataSize rangeSize;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void rangesAreStitchedInPlace() throws IOException {
+        byte[] data = randomBytes(Math.toIntExact(rangeSize.toBytes() * 2 + 1234));
+        SERVER.putObject(BUCKET, "ranged", data);
+        Path file = directory.resolve("ranged.bin");
+
+        assertThat(service.downloadDirectoryBucketObjectToPath(BUCKET, "ranged", file).join()).isEqualTo(data.length);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(data);
+        assertThat(ranges()).extracting(GetObjectRequest::range).containsExactlyInAnyOrder(
+                "bytes=0-" + (rangeSize.toBytes() - 1),
+                "bytes=" + rangeSize.toBytes() + "-" + (rangeSize.toBytes() * 2 - 1),
+                "bytes=" + rangeSize.toBytes() * 2 + "-" + (data.length - 1));
+    }
+
+    @Test
+    void anEmptyObjectIsAnEmptyFile() throws IOException {
+        SERVER.putObject(BUCKET, "empty", new byte[0]);
+        Path file = directory.resolve("empty.bin");
+
+        assertThat(service.downloadDirectoryBucketObjectToPath(BUCKET, "empty", file).join()).isZero();
+
+        assertThat(file).exists();
+        assertThat(Files.size(file)).isZero();
+        assertThat(ranges()).isEmpty();
+    }
+
+    @Test
+    void anObjectReplacedAfterTheHeadFailsAndLeavesNoFile() {
+        SERVER.putObject(BUCKET, "replaced", randomBytes(Math.toIntExact(rangeSize.toBytes() * 2)));
+        Path file = directory.resolve("replaced.bin");
+        // Slow enough to replace the object while the range GETs are on their way
+        SERVER.setFaults(new LocalS3Server.Faults(Duration.ofMillis(500), 0, 0, 0));
+
+        CompletableFuture<Long> download = service.downloadDirectoryBucketObjectToPath(BUCKET, "replaced", file);
+        await(() -> requests.count("GetObject") > 0);
+        SERVER.putObject(BUCKET, "replaced", randomBytes(Math.toIntExact(rangeSize.toBytes() * 2)));
+
+        assertThatThrownBy(download::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(S3Exception.class)
+                .satisfies(ex -> assertThat(((S3Exception) ex.getCause()).statusCode()).isEqualTo(412));
+        assertThat(ranges()).extracting(GetObjectRequest::ifMatch).doesNotContainNull();
+        assertThat(file).doesNotExist();
+    }
+
+    private List<GetObjectRequest> ranges() {
+        return requests.requests("GetObject").stream().map(GetObjectRequest.class::cast).toList();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
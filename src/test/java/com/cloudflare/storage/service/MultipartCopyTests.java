@@ -0,0 +1,79 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.support.MultipartParts;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartCopyTests extends LocalS3ServerTestSupport {
+    private static final String SOURCE = "multipart-copy-source";
+    private static final String DESTINATION = "multipart-copy-destination";
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Value("${cloudflare.copy.part-size}")
+    private DataSize copyPartSize;
+
+    @Value("${cloudflare.copy.max-part-attempts}")
+    private int maxPartAttempts;
+
+    @Test
+    void aFailingPartIsRetriedOnItsOwn() {
+        byte[] data = source("retried", 3);
+        String uploadId = service.createDirectoryBucketMultipartUpload(DESTINATION, "retried").join();
+        // Fails every attempt but the last
+        SERVER.failParts(DESTINATION, "retried", 2, maxPartAttempts - 1);
+        requests.reset();
+
+        List<CompletedPart> parts = service.multipartUploadCopyForDirectoryBucket(SOURCE, "retried", DESTINATION, "retried", uploadId).join();
+        assertThat(service.completeDirectoryBucketMultipartUpload(DESTINATION, "retried", uploadId, parts).join()).isTrue();
+
+        assertThat(SERVER.getObject(DESTINATION, "retried")).isEqualTo(data);
+        assertThat(partCopies()).extracting(UploadPartCopyRequest::partNumber)
+                .containsExactlyInAnyOrder(1, 3, 2, 2, 2);
+        assertThat(partCopies()).extracting(UploadPartCopyRequest::copySourceIfMatch)
+                .containsOnly(service.headDirectoryBucketObjectMetadata(SOURCE, "retried").join().eTag());
+    }
+
+    @Test
+    void aPartThatKeepsFailingFailsTheCopy() {
+        source("exhausted", 2);
+        String uploadId = service.createDirectoryBucketMultipartUpload(DESTINATION, "exhausted").join();
+        SERVER.failParts(DESTINATION, "exhausted", 1, maxPartAttempts);
+        requests.reset();
+
+        assertThatThrownBy(() -> service.multipartUploadCopyForDirectoryBucket(SOURCE, "exhausted", DESTINATION, "exhausted", uploadId).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(S3Exception.class);
+        assertThat(partCopies()).filteredOn(request -> request.partNumber() == 1).hasSize(maxPartAttempts);
+    }
+
+    /**
+     * Stores a source object that is copied in {@code parts} parts, the last one short.
+     */
+    private byte[] source(String key, int parts) {
+        long partSize = MultipartParts.partSize(copyPartSize.toBytes() * parts, copyPartSize.toBytes());
+        byte[] data = new byte[Math.toIntExact(partSize * (parts - 1) + 1024)];
+        ThreadLocalRandom.current().nextBytes(data);
+        SERVER.putObject(SOURCE, key, data);
+        SERVER.createBucket(DESTINATION);
+        return data;
+    }
+
+    private List<UploadPartCopyRequest> partCopies() {
+        return requests.requests("UploadPartCopy").stream().map(UploadPartCopyRequest.class::cast).toList();
+    }
+}
@@ -0,0 +1,167 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.support.FileRegionBodies;
+import com.cloudflare.storage.support.MultipartParts;
+import com.cloudflare.storage.support.UploadJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResumableUploadTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "resumable-upload";
+    private static final int PART_COUNT = 3;
+
+    @Autowired
+    private S3DirectoryAsyncService service;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${cloudflare.multipart.part-size}")
+    private DataSize preferredPartSize;
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private byte[] data;
+    private long partSize;
+
+    @BeforeEach
+    void writeFile() throws IOException {
+        SERVER.createBucket(BUCKET);
+        partSize = MultipartParts.partSize(preferredPartSize.toBytes() * PART_COUNT, preferredPartSize.toBytes());
+        data = new byte[Math.toIntExact(partSize * (PART_COUNT - 1) + partSize / 2)];
+        ThreadLocalRandom.current().nextBytes(data);
+        file = Files.write(directory.resolve("upload.bin"), data);
+    }
+
+    @Test
+    void freshUploadDeletesItsJournal() {
+        String eTag = service.resumableMultipartUploadForDirectoryBucket(BUCKET, "fresh", file).join();
+
+        assertThat(eTag).isNotBlank();
+        assertThat(SERVER.getObject(BUCKET, "fresh")).isEqualTo(data);
+        assertThat(requests.count("CreateMultipartUpload")).isOne();
+        assertThat(requests.count("UploadPart")).isEqualTo(PART_COUNT);
+        assertThat(UploadJournal.pathFor(file)).doesNotExist();
+    }
+
+    @Test
+    void resumeUploadsOnlyTheMissingParts() throws IOException {
+        String uploadId = createUpload("resumed");
+        try (UploadJournal journal = UploadJournal.create(UploadJournal.pathFor(file), header("resumed", uploadId))) {
+            journal.record(uploadPart("resumed", uploadId, 1));
+            journal.record(uploadPart("resumed", uploadId, 2));
+        }
+        requests.reset();
+
+        service.resumableMultipartUploadForDirectoryBucket(BUCKET, "resumed", file).join();
+
+        assertThat(SERVER.getObject(BUCKET, "resumed")).isEqualTo(data);
+        assertThat(requests.count("ListParts")).isOne();
+        assertThat(requests.count("CreateMultipartUpload")).isZero();
+        assertThat(uploadedPartNumbers()).containsExactly(3);
+        assertThat(UploadJournal.pathFor(file)).doesNotExist();
+    }
+
+    @Test
+    void journaledPartsThatDoNotReconcileAreUploadedAgain() throws IOException {
+        String uploadId = createUpload("reconciled");
+        try (UploadJournal journal = UploadJournal.create(UploadJournal.pathFor(file), header("reconciled", uploadId))) {
+            journal.record(uploadPart("reconciled", uploadId, 1));
+            // Part 2 is on R2, but the local bytes no longer match the journaled checksum
+            UploadJournal.Entry changed = uploadPart("reconciled", uploadId, 2);
+            journal.record(new UploadJournal.Entry(changed.partNumber(), changed.offset(), changed.length(),
+                    changed.eTag(), changed.crc32c() + 1));
+            // Part 3 is journaled, but R2 never acknowledged it
+            journal.record(new UploadJournal.Entry(3, 2 * partSize, data.length - 2 * partSize, "\"lost\"", 0));
+        }
+        requests.reset();
+
+        service.resumableMultipartUploadForDirectoryBucket(BUCKET, "reconciled", file).join();
+
+        assertThat(SERVER.getObject(BUCKET, "reconciled")).isEqualTo(data);
+        assertThat(uploadedPartNumbers()).containsExactlyInAnyOrder(2, 3);
+    }
+
+    @Test
+    void uploadThatNoLongerExistsStartsOver() throws IOException {
+        try (UploadJournal journal = UploadJournal.create(UploadJournal.pathFor(file), header("restarted", "gone"))) {
+            journal.record(new UploadJournal.Entry(1, 0, partSize, "\"gone\"", 0));
+        }
+
+        service.resumableMultipartUploadForDirectoryBucket(BUCKET, "restarted", file).join();
+
+        assertThat(SERVER.getObject(BUCKET, "restarted")).isEqualTo(data);
+        assertThat(requests.count("ListParts")).isOne();
+        assertThat(requests.count("CreateMultipartUpload")).isOne();
+        assertThat(uploadedPartNumbers()).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(UploadJournal.pathFor(file)).doesNotExist();
+    }
+
+    @Test
+    void anEmptyFileIsPutWithoutAMultipartUpload() throws IOException {
+        Path empty = Files.write(directory.resolve("empty.bin"), new byte[0]);
+        // Left by an earlier, non-empty version of the file
+        String staleUploadId = createUpload("empty");
+        UploadJournal.create(UploadJournal.pathFor(empty), new UploadJournal.Header(BUCKET, "empty", staleUploadId,
+                data.length, 0, partSize)).close();
+        requests.reset();
+
+        String eTag = service.resumableMultipartUploadForDirectoryBucket(BUCKET, "empty", empty).join();
+
+        assertThat(eTag).isNotBlank();
+        assertThat(SERVER.getObject(BUCKET, "empty")).isEmpty();
+        assertThat(requests.count("PutObject")).isOne();
+        assertThat(requests.count("CreateMultipartUpload")).isZero();
+        assertThat(requests.count("CompleteMultipartUpload")).isZero();
+        assertThat(UploadJournal.pathFor(empty)).doesNotExist();
+    }
+
+    private String createUpload(String key) {
+        return s3Client.createMultipartUpload(b -> b.bucket(BUCKET).key(key)).uploadId();
+    }
+
+    private UploadJournal.Header header(String key, String uploadId) throws IOException {
+        return new UploadJournal.Header(BUCKET, key, uploadId, data.length, Files.getLastModifiedTime(file).toMillis(), partSize);
+    }
+
+    private UploadJournal.Entry uploadPart(String key, String uploadId, int partNumber) throws IOException {
+        long offset = (partNumber - 1) * partSize;
+        long length = MultipartParts.partLength(data.length, partSize, partNumber - 1);
+        byte[] part = Arrays.copyOfRange(data, Math.toIntExact(offset), Math.toIntExact(offset + length));
+        String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                .bucket(BUCKET)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .build(), RequestBody.fromBytes(part)).eTag();
+        try (FileChannel channel = FileChannel.open(file)) {
+            return new UploadJournal.Entry(partNumber, offset, length, eTag, FileRegionBodies.crc32c(channel, offset, length));
+        }
+    }
+
+    private List<Integer> uploadedPartNumbers() {
+        return requests.requests("UploadPart").stream()
+                .map(request -> ((UploadPartRequest) request).partNumber())
+                .toList();
+    }
+}
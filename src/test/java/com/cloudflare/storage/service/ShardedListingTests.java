@@ -0,0 +1,131 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.ListedObject;
+import com.cloudflare.storage.support.ShardedListing;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedListingTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "sharded-listing";
+    private static final String DEEP_BUCKET = "sharded-listing-deep";
+    private static final int FAN_OUT = 16;
+
+    private static final List<String> KEYS = List.of(
+            "ascii/0001", "ascii/0002", "ascii/sub/0003",
+            // Multi-byte and supplementary-plane keys, whose UTF-8 order differs from UTF-16 order
+            "é/1", "é/2", "中文/键", "\uE000/private", "ｚ/fullwidth", "😀/1", "😀/2", "𐀀/first-supplementary",
+            // Keys on and right around the boundary that the common prefix b/ becomes
+            "b", "b.", "b.x", "b/", "b/0", "b/é", "b0",
+            "nested/a/1", "nested/a/2", "nested/é/1", "nested/😀/1", "nested/😀/sub/2", "nested/z");
+
+    @Autowired
+    private S3DirectoryService service;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @BeforeAll
+    static void putObjects() {
+        KEYS.forEach(key -> SERVER.putObject(BUCKET, key, key.getBytes(StandardCharsets.UTF_8)));
+        // Enough per shard that every shard fills its buffer and blocks on a consumer that stopped reading
+        for (String top : List.of("a/", "b/", "c/")) {
+            IntStream.range(0, 2_500).forEach(i -> SERVER.putObject(DEEP_BUCKET, top + "%05d".formatted(i), new byte[]{1}));
+        }
+    }
+
+    @Test
+    void orderedOutputMatchesAPlainListing() {
+        List<String> plain = plainListing(BUCKET, "");
+        assertThat(plain).containsExactlyInAnyOrderElementsOf(KEYS);
+        assertThat(plain).isSortedAccordingTo(ShardedListing::compareKeys);
+
+        assertThat(shardedListing(BUCKET, "", true)).containsExactlyElementsOf(plain);
+        assertThat(shardedListing(BUCKET, null, true)).containsExactlyElementsOf(plain);
+    }
+
+    @Test
+    void unorderedOutputHasTheSameKeysOnce() {
+        assertThat(shardedListing(BUCKET, "", false)).containsExactlyInAnyOrderElementsOf(plainListing(BUCKET, ""));
+    }
+
+    @Test
+    void aPrefixedListingMatchesAPlainListing() {
+        List<String> plain = plainListing(BUCKET, "nested/");
+        assertThat(plain).hasSize(6);
+
+        assertThat(shardedListing(BUCKET, "nested/", true)).containsExactlyElementsOf(plain);
+        assertThat(shardedListing(BUCKET, "nested/", false)).containsExactlyInAnyOrderElementsOf(plain);
+        assertThat(shardedListing(BUCKET, "b", true)).containsExactlyElementsOf(plainListing(BUCKET, "b"));
+    }
+
+    @Test
+    void theShardsSplitAtTheDiscoveredPrefixes() {
+        try (ShardedListing listing = service.listDirectoryBucketObjectsV2Sharded(BUCKET, "", FAN_OUT, true);
+             Stream<ListedObject> entries = listing.entries()) {
+            assertThat(entries.count()).isEqualTo(KEYS.size());
+            assertThat(listing.stats()).hasSizeGreaterThan(1)
+                    .anySatisfy(shard -> assertThat(shard.fromKey()).isEqualTo("b/"))
+                    .anySatisfy(shard -> assertThat(shard.fromKey()).isEqualTo("😀/"));
+        }
+    }
+
+    @Test
+    void aConsumerThatStopsEarlyLeavesNoShardRunning() throws InterruptedException {
+        for (boolean ordered : List.of(true, false)) {
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            ShardedListing listing = ShardedListing.start(s3Client, executor, DEEP_BUCKET, "", "/", FAN_OUT, FAN_OUT, ordered);
+
+            try (Stream<ListedObject> entries = listing.entries()) {
+                assertThat(entries.limit(10)).hasSize(10);
+            }
+
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).as("shards stopped, ordered: %s", ordered).isTrue();
+            if (ordered) {
+                // Each shard holds more keys than its buffer, so the later shards were stopped part way
+                assertThat(listing.stats()).anySatisfy(shard -> assertThat(shard.finished()).isFalse());
+            }
+        }
+    }
+
+    @Test
+    void predecessorsAreValidKeysJustBelow() {
+        List<String> keys = Stream.concat(KEYS.stream(),
+                Stream.of("a\uE000", "a𐀀", "a😀", "a\u0000", "a\u0080", "a\uFFFF")).toList();
+        assertThat(keys).allSatisfy(key -> {
+            String predecessor = ShardedListing.predecessor(key);
+            assertThat(ShardedListing.compareKeys(predecessor, key)).as(key).isNegative();
+            assertThat(new String(predecessor.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)).as(key).isEqualTo(predecessor);
+        });
+        assertThat(ShardedListing.predecessor("a\uE000")).isEqualTo("a\uD7FF");
+        assertThat(ShardedListing.predecessor("a𐀀")).isEqualTo("a\uFFFF");
+        assertThat(ShardedListing.predecessor("a\u0000")).isEqualTo("a");
+    }
+
+    private List<String> plainListing(String bucketName, String prefix) {
+        return s3Client.listObjectsV2Paginator(b -> b.bucket(bucketName).prefix(prefix.isEmpty() ? null : prefix)).contents().stream()
+                .map(S3Object::key)
+                .toList();
+    }
+
+    private List<String> shardedListing(String bucketName, String prefix, boolean ordered) {
+        try (ShardedListing listing = service.listDirectoryBucketObjectsV2Sharded(bucketName, prefix, FAN_OUT, ordered);
+             Stream<ListedObject> entries = listing.entries()) {
+            return entries.map(ListedObject::key).toList();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.ListedObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamListingTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "stream-listing";
+
+    @Autowired
+    private S3DirectoryService service;
+
+    @Test
+    void objectsAndCommonPrefixesAreMergedInKeyOrder() {
+        for (String key : List.of("a", "b/1", "b/2", "c", "d/1", "e")) {
+            SERVER.putObject(BUCKET, key, new byte[1]);
+        }
+
+        List<String> entries;
+        try (var stream = service.streamDirectoryBucketObjectsV2(BUCKET, null, "/", null, null)) {
+            entries = stream.map(entry -> entry.key() != null ? entry.key() : entry.prefix()).toList();
+        }
+
+        assertThat(entries).containsExactly("a", "b/", "c", "d/", "e");
+    }
+
+    @Test
+    void maxKeysCountsObjectsAndPrefixesTogether() {
+        for (String key : List.of("x/1", "y", "z/1")) {
+            SERVER.putObject(BUCKET + "-limited", key, new byte[1]);
+        }
+
+        List<ListedObject> entries;
+        try (var stream = service.streamDirectoryBucketObjectsV2(BUCKET + "-limited", null, "/", null, 2)) {
+            entries = stream.toList();
+        }
+
+        assertThat(entries).extracting(ListedObject::prefix).containsExactly("x/", null);
+        assertThat(entries).extracting(ListedObject::key).containsExactly(null, "y");
+    }
+}
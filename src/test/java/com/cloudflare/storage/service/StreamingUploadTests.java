@@ -0,0 +1,89 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.support.BufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingUploadTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "streaming-upload";
+
+    @Autowired
+    private S3DirectoryService service;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Value("${cloudflare.stream.part-size}")
+    private DataSize partSize;
+
+    @AfterEach
+    void everyBufferIsReturned() {
+        assertThat(bufferPool.stats().leasedBytes()).isZero();
+    }
+
+    @Test
+    void emptyBodyIsASinglePut() throws IOException {
+        long uploaded = upload("empty", new byte[0]);
+
+        assertThat(uploaded).isZero();
+        assertThat(SERVER.getObject(BUCKET, "empty")).isEmpty();
+        assertThat(requests.count("PutObject")).isOne();
+        assertThat(requests.count("CreateMultipartUpload")).isZero();
+    }
+
+    @Test
+    void bodyShorterThanAPartIsASinglePut() throws IOException {
+        byte[] data = randomBytes(partSize() - 1);
+
+        assertThat(upload("short", data)).isEqualTo(data.length);
+        assertThat(SERVER.getObject(BUCKET, "short")).isEqualTo(data);
+        assertThat(requests.count("PutObject")).isOne();
+        assertThat(requests.count("CreateMultipartUpload")).isZero();
+    }
+
+    @Test
+    void bodyOfExactlyOnePartIsAOnePartUpload() throws IOException {
+        byte[] data = randomBytes(partSize());
+
+        assertThat(upload("one-part", data)).isEqualTo(data.length);
+        assertThat(SERVER.getObject(BUCKET, "one-part")).isEqualTo(data);
+        assertThat(requests.count("PutObject")).isZero();
+        assertThat(requests.count("UploadPart")).isOne();
+        assertThat(requests.count("CompleteMultipartUpload")).isOne();
+    }
+
+    @Test
+    void bodyOfSeveralPartsEndsWithAPartialPart() throws IOException {
+        byte[] data = randomBytes(3 * partSize() + partSize() / 3);
+
+        assertThat(upload("several-parts", data)).isEqualTo(data.length);
+        assertThat(SERVER.getObject(BUCKET, "several-parts")).isEqualTo(data);
+        assertThat(requests.count("UploadPart")).isEqualTo(4);
+        assertThat(requests.count("CompleteMultipartUpload")).isOne();
+    }
+
+    private long upload(String key, byte[] data) throws IOException {
+        SERVER.createBucket(BUCKET);
+        return service.streamDirectoryBucketObject(BUCKET, key, "application/octet-stream", new ByteArrayInputStream(data));
+    }
+
+    private int partSize() {
+        return Math.toIntExact(partSize.toBytes());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
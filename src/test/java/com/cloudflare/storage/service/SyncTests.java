@@ -0,0 +1,146 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.SyncResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyncTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "sync";
+
+    @Autowired
+    private S3DirectoryService service;
+
+    @Value("${cloudflare.sync.multipart-threshold}")
+    private DataSize multipartThreshold;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void bucketExists() {
+        SERVER.createBucket(BUCKET);
+    }
+
+    @Test
+    void aSecondSyncTransfersNothing() throws IOException {
+        Path source = directory.resolve("source");
+        write(source.resolve("a.txt"), randomBytes(100));
+        write(source.resolve("nested/b.bin"), randomBytes(4096));
+        write(source.resolve("nested/deeper/c.bin"), randomBytes(1));
+
+        assertThat(service.syncDirectoryToBucket(source, BUCKET, "round-trip").transferred()).isEqualTo(3);
+        requests.reset();
+        SyncResult upload = service.syncDirectoryToBucket(source, BUCKET, "round-trip");
+
+        assertThat(upload.transferred()).isZero();
+        assertThat(upload.skipped()).isEqualTo(3);
+        assertThat(requests.count("PutObject")).isZero();
+        assertThat(SERVER.getObject(BUCKET, "round-trip/nested/deeper/c.bin")).isEqualTo(Files.readAllBytes(source.resolve("nested/deeper/c.bin")));
+
+        Path target = directory.resolve("target");
+        assertThat(service.syncBucketToDirectory(BUCKET, "round-trip", target).transferred()).isEqualTo(3);
+        requests.reset();
+        SyncResult download = service.syncBucketToDirectory(BUCKET, "round-trip", target);
+
+        assertThat(download.transferred()).isZero();
+        assertThat(download.skipped()).isEqualTo(3);
+        assertThat(requests.count("GetObject")).isZero();
+        assertThat(Files.readAllBytes(target.resolve("nested/b.bin"))).isEqualTo(Files.readAllBytes(source.resolve("nested/b.bin")));
+    }
+
+    @Test
+    void aFileChangedAtTheSameSizeIsSentAgain() throws IOException {
+        Path source = directory.resolve("source");
+        Path file = write(source.resolve("same-size.bin"), randomBytes(1024));
+        service.syncDirectoryToBucket(source, BUCKET, "same-size");
+
+        byte[] changed = randomBytes(1024);
+        write(file, changed);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plus(Duration.ofMinutes(1))));
+        SyncResult upload = service.syncDirectoryToBucket(source, BUCKET, "same-size");
+
+        assertThat(upload.transferred()).isOne();
+        assertThat(SERVER.getObject(BUCKET, "same-size/same-size.bin")).isEqualTo(changed);
+
+        Path target = directory.resolve("target");
+        service.syncBucketToDirectory(BUCKET, "same-size", target);
+        byte[] replaced = randomBytes(1024);
+        SERVER.putObject(BUCKET, "same-size/same-size.bin", replaced);
+        Files.setLastModifiedTime(target.resolve("same-size.bin"), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        SyncResult download = service.syncBucketToDirectory(BUCKET, "same-size", target);
+
+        assertThat(download.transferred()).isOne();
+        assertThat(Files.readAllBytes(target.resolve("same-size.bin"))).isEqualTo(replaced);
+    }
+
+    @Test
+    void aLargeFileIsMatchedByItsMultipartETag() throws IOException {
+        Path source = directory.resolve("source");
+        Path file = write(source.resolve("large.bin"), randomBytes(Math.toIntExact(multipartThreshold.toBytes() + 1024)));
+        service.syncDirectoryToBucket(source, BUCKET, "large");
+        assertThat(requests.count("UploadPart")).isGreaterThan(1);
+
+        // Newer than the object, so only its multipart ETag tells that it is unchanged
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plus(Duration.ofMinutes(1))));
+        requests.reset();
+        SyncResult upload = service.syncDirectoryToBucket(source, BUCKET, "large");
+
+        assertThat(upload.skipped()).isOne();
+        assertThat(requests.count("PutObject") + requests.count("UploadPart")).isZero();
+
+        Path target = directory.resolve("target");
+        assertThat(service.syncBucketToDirectory(BUCKET, "large", target).transferred()).isOne();
+        assertThat(Files.readAllBytes(target.resolve("large.bin"))).isEqualTo(Files.readAllBytes(file));
+        // Older than the object, so again only the ETag tells
+        Files.setLastModifiedTime(target.resolve("large.bin"), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        requests.reset();
+        SyncResult download = service.syncBucketToDirectory(BUCKET, "large", target);
+
+        assertThat(download.skipped()).isOne();
+        assertThat(requests.count("GetObject") + requests.count("HeadObject")).isZero();
+    }
+
+    @Test
+    void aKeyLeadingOutOfTheDirectoryFailsWithoutWriting() throws IOException {
+        SERVER.putObject(BUCKET, "escape/../outside.bin", randomBytes(16));
+        SERVER.putObject(BUCKET, "escape/inside.bin", randomBytes(16));
+        Path target = directory.resolve("target");
+
+        SyncResult result = service.syncBucketToDirectory(BUCKET, "escape", target);
+
+        assertThat(result.transferred()).isOne();
+        assertThat(result.failed()).isOne();
+        assertThat(result.failures()).extracting(SyncResult.Failure::key).containsExactly("escape/../outside.bin");
+        assertThat(target.resolve("inside.bin")).exists();
+        assertThat(directory.resolve("outside.bin")).doesNotExist();
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(target);
+        }
+    }
+
+    private static Path write(Path file, byte[] data) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, data);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
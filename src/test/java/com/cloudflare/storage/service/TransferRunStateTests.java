@@ -0,0 +1,134 @@
+package com.cloudflare.storage.service;
+
+import com.cloudflare.storage.LocalS3ServerTestSupport;
+import com.cloudflare.storage.model.TransferStatus;
+import com.cloudflare.storage.model.TransferStatus.State;
+import com.cloudflare.storage.support.LocalS3Server;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferRunStateTests extends LocalS3ServerTestSupport {
+    private static final String BUCKET = "transfer-run-state";
+
+    @Autowired
+    private S3TransferManagerServiceImpl service;
+
+    @Autowired
+    private S3DirectoryAsyncService asyncService;
+
+    @Value("${cloudflare.transfer.part-size}")
+    private DataSize partSize;
+
+    @TempDir
+    private Path directory;
+
+    private byte[] data;
+    private Path file;
+
+    @BeforeEach
+    void writeFileAndThrottle() throws IOException {
+        SERVER.createBucket(BUCKET);
+        data = new byte[Math.toIntExact(partSize.toBytes() * 3)];
+        ThreadLocalRandom.current().nextBytes(data);
+        file = Files.write(directory.resolve("upload.bin"), data);
+        // Slow enough that the upload is still running when it is paused or cancelled
+        SERVER.setFaults(new LocalS3Server.Faults(Duration.ZERO, data.length / 5, 0, 0));
+    }
+
+    @Test
+    void aPausedUploadResumesWithoutLosingProgress() {
+        List<Long> reported = new ArrayList<>();
+        String id = service.uploadFile(BUCKET, "paused", file).transferId();
+        await(id, status -> status.transferredBytes() > 0, reported);
+
+        TransferStatus paused = service.pauseTransfer(id);
+        assertThat(paused.state()).isEqualTo(State.PAUSED);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(service.getTransfer(id).transferredBytes()).as("no progress while paused").isEqualTo(paused.transferredBytes());
+        reported.add(paused.transferredBytes());
+
+        assertThat(service.resumeTransfer(id).state()).isEqualTo(State.RUNNING);
+        TransferStatus completed = await(id, status -> status.state().finished(), reported);
+
+        assertThat(completed.state()).isEqualTo(State.COMPLETED);
+        assertThat(completed.transferredBytes()).isEqualTo(data.length);
+        assertThat(reported).as("reported bytes").isSorted();
+        assertThat(SERVER.getObject(BUCKET, "paused")).isEqualTo(data);
+    }
+
+    @Test
+    void cancellingAPausedUploadAbortsIt() {
+        String id = service.uploadFile(BUCKET, "cancelled-paused", file).transferId();
+        await(id, status -> requests.count("UploadPart") > 0, new ArrayList<>());
+        service.pauseTransfer(id);
+        List<String> uploadIds = pendingUploads("cancelled-paused");
+        assertThat(uploadIds).hasSize(1);
+
+        TransferStatus cancelled = service.cancelTransfer(id);
+
+        assertThat(cancelled.state()).isEqualTo(State.CANCELLED);
+        await(id, status -> pendingUploads("cancelled-paused").isEmpty(), new ArrayList<>());
+        assertThat(requests.requests("AbortMultipartUpload")).extracting(request -> ((AbortMultipartUploadRequest) request).uploadId())
+                .containsExactlyElementsOf(uploadIds);
+        assertThat(SERVER.getObject(BUCKET, "cancelled-paused")).isNull();
+    }
+
+    @Test
+    void cancellingARunningUploadIsNotAFailure() {
+        String id = service.uploadFile(BUCKET, "cancelled-running", file).transferId();
+        await(id, status -> status.transferredBytes() > 0, new ArrayList<>());
+
+        TransferStatus cancelled = service.cancelTransfer(id);
+        assertThat(cancelled.state()).isEqualTo(State.CANCELLED);
+        assertThat(cancelled.finishedAt()).isNotNull();
+
+        // The cancelled run completes exceptionally some time later; that must not turn the transfer into a failure
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500));
+        TransferStatus later = service.getTransfer(id);
+        assertThat(later.state()).isEqualTo(State.CANCELLED);
+        assertThat(later.result()).isNull();
+        assertThat(SERVER.getObject(BUCKET, "cancelled-running")).isNull();
+    }
+
+    private List<String> pendingUploads(String objectKey) {
+        return asyncService.listDirectoryBucketMultipartUploads(BUCKET).join().stream()
+                .filter(upload -> upload.key().equals(objectKey))
+                .map(MultipartUpload::uploadId)
+                .toList();
+    }
+
+    /**
+     * Polls the transfer until {@code condition} holds, adding the bytes of every status seen to {@code reported}.
+     */
+    private TransferStatus await(String id, Predicate<TransferStatus> condition, List<Long> reported) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            TransferStatus status = service.getTransfer(id);
+            reported.add(status.transferredBytes());
+            if (condition.test(status)) {
+                return status;
+            }
+            assertThat(System.nanoTime()).as("condition not met within 30s").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ConcurrencyLimitStats;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter.OperationClass;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter.Permit;
+import com.cloudflare.storage.support.AdaptiveConcurrencyLimiter.Scope;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final Scope SCOPE = new Scope("bucket", OperationClass.READ);
+    private static final Duration LONG = Duration.ofHours(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void throttlingCutsTheLimitAtMostOncePerDecreaseInterval() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 20, LONG, LONG);
+
+        limiter.onThrottled(SCOPE);
+        limiter.onThrottled(SCOPE);
+        limiter.onThrottled(SCOPE);
+
+        assertThat(stats(limiter).limit()).isEqualTo(5);
+        assertThat(stats(limiter).decreases()).isOne();
+        assertThat(stats(limiter).throttled()).isEqualTo(3);
+    }
+
+    @Test
+    void throttlingNeverCutsTheLimitBelowTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 20, Duration.ZERO, LONG);
+
+        limiter.onThrottled(SCOPE);
+        assertThat(stats(limiter).limit()).isEqualTo(5);
+        limiter.onThrottled(SCOPE);
+        assertThat(stats(limiter).limit()).isEqualTo(2.5);
+        limiter.onThrottled(SCOPE);
+        limiter.onThrottled(SCOPE);
+
+        assertThat(stats(limiter).limit()).isEqualTo(2);
+        assertThat(stats(limiter).decreases()).isEqualTo(4);
+    }
+
+    @Test
+    void successesRaiseTheLimitOnlyWhileTheScopeIsBusy() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10, LONG, LONG);
+
+        // One call of two slots in flight: not busy
+        limiter.acquire(SCOPE).release(true);
+        assertThat(stats(limiter).limit()).isEqualTo(2);
+
+        Permit first = limiter.acquire(SCOPE);
+        Permit second = limiter.acquire(SCOPE);
+        first.release(false);
+        assertThat(stats(limiter).limit()).as("a failure while busy").isEqualTo(2);
+
+        first = limiter.acquire(SCOPE);
+        first.release(true);
+        assertThat(stats(limiter).limit()).as("a success while busy adds 1 / limit").isEqualTo(2.5);
+        second.release(true);
+        assertThat(stats(limiter).limit()).as("a success after the scope drained").isEqualTo(2.5);
+        assertThat(stats(limiter).inFlight()).isZero();
+    }
+
+    @Test
+    void theLimitNeverGrowsBeyondTheMaximum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 2, LONG, LONG);
+
+        Permit first = limiter.acquire(SCOPE);
+        Permit second = limiter.acquire(SCOPE);
+        first.release(true);
+        second.release(true);
+
+        assertThat(stats(limiter).limit()).isEqualTo(2);
+    }
+
+    @Test
+    void waitersAreServedFirstComeFirstServed() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, LONG, LONG);
+        Permit held = limiter.acquire(SCOPE);
+
+        List<CompletableFuture<Permit>> waiters = List.of(limiter.acquireAsync(SCOPE), limiter.acquireAsync(SCOPE),
+                limiter.acquireAsync(SCOPE));
+        assertThat(waiters).noneMatch(CompletableFuture::isDone);
+        assertThat(stats(limiter).queued()).isEqualTo(3);
+
+        held.release(true);
+        for (int i = 0; i < waiters.size(); i++) {
+            assertThat(waiters.get(i)).as("waiter %d", i).isCompletedWithValueMatching(permit -> permit != null);
+            assertThat(waiters.subList(i + 1, waiters.size())).noneMatch(CompletableFuture::isDone);
+            waiters.get(i).join().release(true);
+        }
+
+        assertThat(stats(limiter).inFlight()).isZero();
+        assertThat(stats(limiter).waits()).isEqualTo(3);
+        // One timer per scope, recording every wait
+        assertThat(registry.find("r2.limiter.wait").timers()).singleElement()
+                .extracting(Timer::count).isEqualTo(3L);
+    }
+
+    @Test
+    void aWaiterThatTimesOutLeavesTheQueue() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, LONG, Duration.ofMillis(50));
+        Permit held = limiter.acquire(SCOPE);
+
+        CompletableFuture<Permit> waiter = limiter.acquireAsync(SCOPE);
+
+        assertThatThrownBy(() -> waiter.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(SdkClientException.class);
+        // The waiter leaves the queue and is counted once its future has failed
+        await(() -> stats(limiter).queued() == 0 && stats(limiter).timeouts() == 1);
+        held.release(true);
+        assertThat(stats(limiter).inFlight()).isZero();
+        // The slot the waiter did not take is still there
+        limiter.acquire(SCOPE).release(true);
+    }
+
+    @Test
+    void aSlotGrantedAsTheWaitTimesOutIsReturned() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, LONG, Duration.ofMillis(1));
+
+        // Releases straddling the timeout, so some grants race with it
+        for (int i = 0; i < 500; i++) {
+            Permit held = limiter.acquire(SCOPE);
+            CompletableFuture<Permit> waiter = limiter.acquireAsync(SCOPE);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+            held.release(true);
+            waiter.handle((permit, ex) -> {
+                if (permit != null) {
+                    permit.release(true);
+                }
+                return null;
+            }).join();
+        }
+
+        await(() -> stats(limiter).inFlight() == 0 && stats(limiter).queued() == 0);
+    }
+
+    @Test
+    void releasingAPermitTwiceReturnsOneSlot() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 2, LONG, LONG);
+        Permit first = limiter.acquire(SCOPE);
+        limiter.acquire(SCOPE);
+
+        first.release(true);
+        first.release(true);
+
+        assertThat(stats(limiter).inFlight()).isOne();
+    }
+
+    @Test
+    void copiesAreChargedToTheBucketTheyWriteTo() {
+        assertThat(Scope.of(CopyObjectRequest.builder()
+                .sourceBucket("source").sourceKey("a").destinationBucket("destination").destinationKey("b").build()))
+                .isEqualTo(new Scope("destination", OperationClass.WRITE));
+        assertThat(Scope.of(UploadPartCopyRequest.builder()
+                .sourceBucket("source").sourceKey("a").destinationBucket("destination").destinationKey("b")
+                .uploadId("upload").partNumber(1).build()))
+                .isEqualTo(new Scope("destination", OperationClass.WRITE));
+        assertThat(Scope.of(GetObjectRequest.builder().bucket("bucket").key("a").build()))
+                .isEqualTo(new Scope("bucket", OperationClass.READ));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, Duration decreaseInterval,
+                                               Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, 0.5, decreaseInterval, maxWait, registry);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static ConcurrencyLimitStats stats(AdaptiveConcurrencyLimiter limiter) {
+        return limiter.stats().stream()
+                .filter(stats -> stats.bucketName().equals(SCOPE.bucketName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
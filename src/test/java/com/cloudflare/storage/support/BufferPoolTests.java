@@ -0,0 +1,161 @@
+package com.cloudflare.storage.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BufferPoolTests {
+
+    private static final int KIB = 1024;
+    private static final int MIB = 1024 * KIB;
+    private static final int GIB = 1024 * MIB;
+
+    @Test
+    void sizesAreRoundedUpToPowersOfTwoAndTheirMidpoints() {
+        assertThat(BufferPool.classSize(1)).isEqualTo(4 * KIB);
+        assertThat(BufferPool.classSize(4 * KIB)).isEqualTo(4 * KIB);
+        assertThat(BufferPool.classSize(4 * KIB + 1)).isEqualTo(6 * KIB);
+        assertThat(BufferPool.classSize(5 * MIB)).isEqualTo(6 * MIB);
+        assertThat(BufferPool.classSize(6 * MIB)).isEqualTo(6 * MIB);
+        assertThat(BufferPool.classSize(6 * MIB + 1)).isEqualTo(8 * MIB);
+        assertThat(BufferPool.classSize(8 * MIB)).isEqualTo(8 * MIB);
+        assertThat(BufferPool.classSize(GIB)).isEqualTo(GIB);
+        // Beyond the largest class a request gets exactly what it asked for
+        assertThat(BufferPool.classSize(GIB + 1)).isEqualTo(GIB + 1);
+        assertThat(BufferPool.classSize(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void releasedBuffersAreReusedWithinTheirClass() throws InterruptedException {
+        BufferPool pool = new BufferPool(64 * MIB, Duration.ofSeconds(10));
+
+        BufferPool.Lease first = pool.acquire(5 * MIB);
+        first.buffer().put((byte) 1);
+        first.close();
+        BufferPool.Lease second = pool.acquire(5 * MIB + 512 * KIB);
+
+        assertThat(second.buffer()).isSameAs(first.buffer());
+        assertThat(second.buffer().position()).isZero();
+        assertThat(second.buffer().limit()).isEqualTo(5 * MIB + 512 * KIB);
+        assertThat(pool.stats().hits()).isOne();
+        assertThat(pool.stats().misses()).isOne();
+        second.close();
+    }
+
+    @Test
+    void idleBuffersOfOtherClassesAreDroppedAtTheCap() throws InterruptedException {
+        BufferPool pool = new BufferPool(12 * KIB, Duration.ofSeconds(10));
+        List<BufferPool.Lease> small = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            small.add(pool.acquire(4 * KIB));
+        }
+        small.forEach(BufferPool.Lease::close);
+        assertThat(pool.stats().idleBytes()).isEqualTo(12 * KIB);
+
+        CompletableFuture<BufferPool.Lease> large = pool.acquireAsync(8 * KIB);
+
+        assertThat(large).isCompleted();
+        assertThat(pool.stats().leasedBytes()).isEqualTo(8 * KIB);
+        assertThat(pool.stats().idleBytes()).isEqualTo(4 * KIB);
+        assertThat(pool.stats().waits()).isZero();
+        large.join().close();
+    }
+
+    @Test
+    void waitersAreServedInArrivalOrder() throws InterruptedException {
+        BufferPool pool = new BufferPool(8 * KIB, Duration.ofSeconds(10));
+        BufferPool.Lease held = pool.acquire(8 * KIB);
+
+        CompletableFuture<BufferPool.Lease> first = pool.acquireAsync(4 * KIB);
+        CompletableFuture<BufferPool.Lease> second = pool.acquireAsync(8 * KIB);
+        CompletableFuture<BufferPool.Lease> third = pool.acquireAsync(4 * KIB);
+        assertThat(pool.stats().waiting()).isEqualTo(3);
+
+        held.close();
+        // The third would fit beside the first, but must not overtake the second
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+        assertThat(third).isNotDone();
+
+        first.join().close();
+        assertThat(second).isCompleted();
+        assertThat(third).isNotDone();
+
+        second.join().close();
+        assertThat(third).isCompleted();
+        third.join().close();
+        assertThat(pool.stats().waits()).isEqualTo(3);
+        assertThat(pool.stats().leasedBytes()).isZero();
+    }
+
+    @Test
+    void waitingPastTheLimitFails() throws InterruptedException {
+        BufferPool pool = new BufferPool(4 * KIB, Duration.ofMillis(50));
+        BufferPool.Lease held = pool.acquire(4 * KIB);
+
+        CompletableFuture<BufferPool.Lease> waiting = pool.acquireAsync(4 * KIB);
+
+        assertThatThrownBy(() -> waiting.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThatThrownBy(() -> pool.acquire(4 * KIB)).isInstanceOf(IllegalStateException.class);
+        assertThat(pool.stats().timeouts()).isEqualTo(2);
+        assertThat(pool.stats().waiting()).isZero();
+        held.close();
+    }
+
+    @Test
+    void buffersGrantedAsTheirWaiterTimesOutGoBackToThePool() throws InterruptedException {
+        BufferPool pool = new BufferPool(4 * KIB, Duration.ofMillis(1));
+        // Releases race the timeouts; whichever wins, no buffer may stay leased
+        for (int i = 0; i < 500; i++) {
+            BufferPool.Lease held = pool.acquire(4 * KIB);
+            CompletableFuture<BufferPool.Lease> waiting = pool.acquireAsync(4 * KIB);
+            TimeUnit.MICROSECONDS.sleep(900 + i % 200);
+            held.close();
+            try {
+                waiting.join().close();
+            } catch (RuntimeException e) {
+                assertThat(e).hasCauseInstanceOf(TimeoutException.class);
+            }
+        }
+
+        assertThat(pool.stats().leasedBytes()).isZero();
+        assertThat(pool.stats().waiting()).isZero();
+        assertThat(pool.stats().idleBytes()).isEqualTo(4 * KIB);
+    }
+
+    @Test
+    void closingALeaseTwiceReturnsItOnce() throws InterruptedException {
+        BufferPool pool = new BufferPool(8 * KIB, Duration.ofSeconds(10));
+        BufferPool.Lease lease = pool.acquire(4 * KIB);
+
+        lease.close();
+        lease.close();
+
+        assertThat(pool.stats().leasedBytes()).isZero();
+        assertThat(pool.stats().idleBytes()).isEqualTo(4 * KIB);
+        BufferPool.Lease first = pool.acquire(4 * KIB);
+        BufferPool.Lease second = pool.acquire(4 * KIB);
+        assertThat(second.buffer()).isNotSameAs(first.buffer());
+        assertThat(pool.stats().hits()).isOne();
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void requestsLargerThanTheCapAreRejected() {
+        BufferPool pool = new BufferPool(4 * KIB, Duration.ofSeconds(10));
+
+        assertThatThrownBy(() -> pool.acquireAsync(4 * KIB + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
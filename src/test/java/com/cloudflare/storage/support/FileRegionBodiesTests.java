@@ -0,0 +1,139 @@
+package com.cloudflare.storage.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares heap allocation of the previous heap-buffer part bodies against mapped file-region bodies.
+ */
+class FileRegionBodiesTests {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+    private static final int PARTS = 8;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mappedRegionsAvoidHeapCopies() throws IOException {
+        // The comparison reads per-thread allocation counters, which not every JVM provides
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(), "needs thread allocation counters");
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        Path file = tempDir.resolve("parts.bin");
+        Files.write(file, new byte[PART_SIZE * PARTS]);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Warm up both paths so class loading does not skew the measurement
+            heapBufferParts(channel);
+            mappedParts(file, channel);
+
+            long heapBytes = allocatedBytes(() -> heapBufferParts(channel));
+            long mappedBytes = allocatedBytes(() -> mappedParts(file, channel));
+
+            assertThat(heapBytes).isGreaterThanOrEqualTo((long) PART_SIZE * PARTS);
+            assertThat(mappedBytes).isLessThan(heapBytes / 100);
+        }
+    }
+
+    @Test
+    void regionPublishesExactWindow() throws IOException {
+        Path file = tempDir.resolve("window.bin");
+        byte[] content = new byte[1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(file, content);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            AsyncRequestBody body = FileRegionBodies.region(file, channel, 100, 200);
+            ByteBuffer received = ByteBuffer.allocate(200);
+            body.subscribe(new DrainingSubscriber(received::put));
+
+            assertThat(body.contentLength()).contains(200L);
+            assertThat(received.flip().get(0)).isEqualTo((byte) 100);
+            assertThat(received.remaining()).isEqualTo(200);
+        }
+    }
+
+    /**
+     * Mirrors the previous upload path: one heap buffer per part, copied again by the request body.
+     */
+    private static long heapBufferParts(FileChannel channel) throws IOException {
+        long total = 0;
+        for (int i = 0; i < PARTS; i++) {
+            ByteBuffer bb = ByteBuffer.allocate(PART_SIZE);
+            channel.read(bb, (long) i * PART_SIZE);
+            bb.flip();
+            total += RequestBody.fromByteBuffer(bb).optionalContentLength().orElse(0L);
+        }
+        return total;
+    }
+
+    private static long mappedParts(Path file, FileChannel channel) throws IOException {
+        AtomicLong total = new AtomicLong();
+        for (int i = 0; i < PARTS; i++) {
+            AsyncRequestBody body = FileRegionBodies.region(file, channel, (long) i * PART_SIZE, PART_SIZE);
+            body.subscribe(new DrainingSubscriber(buffer -> total.addAndGet(buffer.remaining())));
+        }
+        return total.get();
+    }
+
+    private static long allocatedBytes(IoAction action) throws IOException {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        action.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads ? threads : null;
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        long run() throws IOException;
+    }
+
+    private record DrainingSubscriber(Consumer<ByteBuffer> sink) implements Subscriber<ByteBuffer> {
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            sink.accept(buffer);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
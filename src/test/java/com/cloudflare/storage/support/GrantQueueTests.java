@@ -0,0 +1,132 @@
+package com.cloudflare.storage.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GrantQueueTests {
+
+    /**
+     * Hands out units of a fixed supply; a request asks for a number of units.
+     */
+    private static final class Units {
+        private int available;
+        private final GrantQueue<Integer, Integer> waiters;
+
+        private Units(int available, Duration maxWait) {
+            this.available = available;
+            this.waiters = new GrantQueue<>(this, this::tryTake, this::giveBack, maxWait, TimeoutException::new,
+                    waited -> {
+                    });
+        }
+
+        private Integer tryTake(int units) {
+            if (units > available) {
+                return null;
+            }
+            available -= units;
+            return units;
+        }
+
+        private void giveBack(int units) {
+            synchronized (this) {
+                available += units;
+            }
+            waiters.serve();
+        }
+
+        private synchronized int available() {
+            return available;
+        }
+    }
+
+    @Test
+    void aRequestThatDoesNotFitHoldsBackTheOnesBehindIt() {
+        Units units = new Units(2, Duration.ofHours(1));
+        int held = units.waiters.acquireAsync(2).join();
+
+        CompletableFuture<Integer> large = units.waiters.acquireAsync(2);
+        CompletableFuture<Integer> small = units.waiters.acquireAsync(1);
+        units.giveBack(1);
+        assertThat(small).as("queued behind a request that does not fit yet").isNotDone();
+
+        units.giveBack(held - 1);
+        assertThat(large).isCompletedWithValue(2);
+        assertThat(small).isNotDone();
+        units.giveBack(large.join());
+        assertThat(small).isCompletedWithValue(1);
+        assertThat(units.waiters.waits()).isEqualTo(2);
+    }
+
+    @Test
+    void aWaiterThatTimesOutLeavesTheQueue() {
+        Units units = new Units(1, Duration.ofMillis(50));
+        units.waiters.acquireAsync(1).join();
+        CompletableFuture<Integer> large = units.waiters.acquireAsync(2);
+
+        assertThatThrownBy(() -> large.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(units.waiters.isEmpty()).isTrue();
+        // Counted once the failure has reached the waiter
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (units.waiters.timeouts() == 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(units.waiters.timeouts()).isOne();
+    }
+
+    @Test
+    void anInterruptedWaitLeavesTheQueueAndReturnsNothing() throws InterruptedException {
+        Units units = new Units(1, Duration.ofHours(1));
+        int held = units.waiters.acquireAsync(1).join();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try {
+                units.waiters.acquire(1);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        while (units.waiters.isEmpty()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+        assertThat(units.waiters.isEmpty()).isTrue();
+        units.giveBack(held);
+        assertThat(units.available()).isOne();
+    }
+
+    @Test
+    void aGrantRacingTheTimeoutIsHandedBack() {
+        Units units = new Units(1, Duration.ofMillis(1));
+
+        // Returns straddling the timeout, so some grants reach waiters that already gave up
+        for (int i = 0; i < 500; i++) {
+            int held = units.waiters.acquireAsync(1).join();
+            CompletableFuture<Integer> waiter = units.waiters.acquireAsync(1);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+            units.giveBack(held);
+            waiter.handle((granted, ex) -> {
+                if (granted != null) {
+                    units.giveBack(granted);
+                }
+                return null;
+            }).join();
+        }
+
+        assertThat(units.waiters.isEmpty()).isTrue();
+        assertThat(units.available()).isOne();
+    }
+}
@@ -0,0 +1,145 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ObjectMetadata;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Every write drops the cached HEAD result of the key it writes, positive or negative, whether it succeeds or fails.
+ */
+class MetadataInvalidationInterceptorTests {
+
+    private static final String BUCKET = "invalidation";
+    private static final String MISSING_BUCKET = "invalidation-missing";
+    private static final ObjectMetadata EXISTING = new ObjectMetadata(true, 1L, "\"cached\"", Instant.EPOCH, "text/plain");
+
+    private static LocalS3Server server;
+    private static MetadataCache metadataCache;
+    private static S3Client s3Client;
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = new LocalS3Server(0, LocalS3Server.Faults.NONE);
+        server.putObject(BUCKET, "source", new byte[]{1});
+        metadataCache = new MetadataCache(1_000, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        s3Client = S3Client.builder()
+                .endpointOverride(server.endpoint())
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .region(Region.of("auto"))
+                .forcePathStyle(true)
+                .overrideConfiguration(override -> override
+                        .retryStrategy(AwsRetryStrategy.doNotRetry())
+                        .addExecutionInterceptor(new MetadataInvalidationInterceptor(metadataCache)))
+                .build();
+    }
+
+    @AfterAll
+    static void stop() {
+        s3Client.close();
+        server.close();
+    }
+
+    static Stream<Arguments> writes() {
+        return Stream.of(
+                Arguments.of("PutObject", (BiConsumer<String, String>) (bucket, key) ->
+                        s3Client.putObject(b -> b.bucket(bucket).key(key), RequestBody.fromString("x"))),
+                Arguments.of("CopyObject", (BiConsumer<String, String>) (bucket, key) ->
+                        s3Client.copyObject(b -> b.sourceBucket(BUCKET).sourceKey("source")
+                                .destinationBucket(bucket).destinationKey(key))),
+                Arguments.of("CompleteMultipartUpload", (BiConsumer<String, String>) (bucket, key) -> {
+                    String uploadId = bucket.equals(BUCKET)
+                            ? s3Client.createMultipartUpload(b -> b.bucket(bucket).key(key)).uploadId()
+                            : "unknown";
+                    String eTag = bucket.equals(BUCKET)
+                            ? s3Client.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId).partNumber(1),
+                            RequestBody.fromString("x")).eTag()
+                            : "\"unknown\"";
+                    s3Client.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                            .multipartUpload(upload -> upload.parts(CompletedPart.builder().partNumber(1).eTag(eTag).build())));
+                }),
+                Arguments.of("DeleteObject", (BiConsumer<String, String>) (bucket, key) ->
+                        s3Client.deleteObject(b -> b.bucket(bucket).key(key))),
+                Arguments.of("DeleteObjects", (BiConsumer<String, String>) (bucket, key) ->
+                        s3Client.deleteObjects(b -> b.bucket(bucket).delete(delete -> delete
+                                .objects(ObjectIdentifier.builder().key("other").build(),
+                                        ObjectIdentifier.builder().key(key).build())))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("writes")
+    void successfulWritesInvalidateCachedEntries(String operation, BiConsumer<String, String> write) {
+        for (ObjectMetadata cached : new ObjectMetadata[]{EXISTING, ObjectMetadata.missing()}) {
+            String key = operation + "/" + cached.exists();
+            seed(BUCKET, key, cached);
+
+            write.accept(BUCKET, key);
+
+            assertThat(isCached(BUCKET, key)).as("%s cached after %s", cached, operation).isFalse();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("writes")
+    void failedWritesInvalidateCachedEntries(String operation, BiConsumer<String, String> write) {
+        for (ObjectMetadata cached : new ObjectMetadata[]{EXISTING, ObjectMetadata.missing()}) {
+            String key = operation + "/" + cached.exists();
+            seed(MISSING_BUCKET, key, cached);
+
+            assertThatThrownBy(() -> write.accept(MISSING_BUCKET, key)).isInstanceOf(S3Exception.class);
+
+            assertThat(isCached(MISSING_BUCKET, key)).as("%s cached after failed %s", cached, operation).isFalse();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("writes")
+    void writesLeaveOtherKeysCached(String operation, BiConsumer<String, String> write) {
+        String key = operation + "/untouched";
+        seed(BUCKET, key, EXISTING);
+
+        write.accept(BUCKET, operation + "/written");
+
+        assertThat(isCached(BUCKET, key)).isTrue();
+    }
+
+    private static void seed(String bucketName, String objectKey, ObjectMetadata metadata) {
+        metadataCache.object(bucketName, objectKey, () -> CompletableFuture.completedFuture(metadata)).join();
+        assertThat(isCached(bucketName, objectKey)).isTrue();
+    }
+
+    private static boolean isCached(String bucketName, String objectKey) {
+        AtomicBoolean loaded = new AtomicBoolean();
+        metadataCache.object(bucketName, objectKey, () -> {
+            loaded.set(true);
+            return CompletableFuture.completedFuture(ObjectMetadata.missing());
+        }).join();
+        if (loaded.get()) {
+            // Do not leave the probe's own negative entry behind
+            metadataCache.invalidateObject(bucketName, objectKey);
+        }
+        return !loaded.get();
+    }
+}
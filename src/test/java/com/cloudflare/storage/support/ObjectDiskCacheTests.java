@@ -0,0 +1,225 @@
+package com.cloudflare.storage.support;
+
+import com.cloudflare.storage.model.ObjectMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectDiskCacheTests {
+
+    private static final String BUCKET = "bucket";
+    private static final Duration LONG = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Stands in for R2: serves the current content of each key, answering a matching If-None-Match with
+     * "not modified", and records every fetch.
+     */
+    private static final class FakeOrigin {
+        private final ConcurrentMap<String, String> contents = new ConcurrentHashMap<>();
+        private final List<String> fetches = new CopyOnWriteArrayList<>();
+        private volatile CompletableFuture<Void> gate = CompletableFuture.completedFuture(null);
+
+        ObjectDiskCache.Origin of(String key) {
+            return (ifNoneMatch, target) -> {
+                fetches.add(key + (ifNoneMatch == null ? "" : " if-none-match " + ifNoneMatch));
+                return gate.thenApply(ignored -> {
+                    String content = contents.get(key);
+                    String eTag = eTag(content);
+                    if (eTag.equals(ifNoneMatch)) {
+                        return null;
+                    }
+                    try {
+                        Files.writeString(target, content);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return new ObjectMetadata(true, (long) content.length(), eTag, Instant.EPOCH, "text/plain");
+                });
+            };
+        }
+
+        static String eTag(String content) {
+            return "\"" + Integer.toHexString(content.hashCode()) + "\"";
+        }
+    }
+
+    @Test
+    void cachedObjectsStayWithinTheBudgetAndEvictedFilesAreDeleted() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        FakeOrigin origin = new FakeOrigin();
+        for (int i = 0; i < 20; i++) {
+            String key = "object-" + i;
+            origin.contents.put(key, String.valueOf((char) ('a' + i)).repeat(1024));
+            cache.open(BUCKET, key, null, origin.of(key)).join().close();
+        }
+
+        await(() -> cache.stats().usedBytes() <= 4 * 1024);
+        await(() -> cacheFiles() == cache.stats().entries());
+        assertThat(cache.stats().loads()).isEqualTo(20);
+        assertThat(cache.stats().fetchedBytes()).isEqualTo(20 * 1024);
+    }
+
+    @Test
+    void anEvictedFileIsDeletedOnlyOnceItsLastReaderCloses() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("held", "held content");
+        ObjectDiskCache.Hit hit = cache.open(BUCKET, "held", null, origin.of("held")).join();
+
+        cache.invalidate(BUCKET, "held");
+
+        assertThat(read(hit, 0, 4)).isEqualTo("held");
+        assertThat(cacheFiles()).isOne();
+        hit.close();
+        hit.close();
+        await(() -> cacheFiles() == 0);
+    }
+
+    @Test
+    void freshEntriesAreServedWithoutContactingTheOrigin() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("hot", "hot content");
+        String eTag = FakeOrigin.eTag("hot content");
+
+        cache.open(BUCKET, "hot", eTag, origin.of("hot")).join().close();
+        try (ObjectDiskCache.Hit hit = cache.open(BUCKET, "hot", eTag, origin.of("hot")).join()) {
+            assertThat(read(hit, 4, 7)).isEqualTo("content");
+        }
+
+        assertThat(origin.fetches).containsExactly("hot");
+        assertThat(cache.stats().hits()).isOne();
+    }
+
+    @Test
+    void staleEntriesAreRevalidatedWithIfNoneMatch() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, Duration.ZERO);
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("stale", "version one");
+        String firstETag = FakeOrigin.eTag("version one");
+        cache.open(BUCKET, "stale", null, origin.of("stale")).join().close();
+
+        // Unchanged: answered "not modified" and served from the same file
+        try (ObjectDiskCache.Hit hit = cache.open(BUCKET, "stale", null, origin.of("stale")).join()) {
+            assertThat(read(hit, 0, hit.metadata().size())).isEqualTo("version one");
+        }
+        assertThat(cache.stats().notModified()).isOne();
+        assertThat(cacheFiles()).isOne();
+
+        // Changed: the new version replaces the old file
+        origin.contents.put("stale", "version two");
+        try (ObjectDiskCache.Hit hit = cache.open(BUCKET, "stale", null, origin.of("stale")).join()) {
+            assertThat(hit.metadata().eTag()).isEqualTo(FakeOrigin.eTag("version two"));
+            assertThat(read(hit, 0, hit.metadata().size())).isEqualTo("version two");
+        }
+        assertThat(origin.fetches).containsExactly("stale", "stale if-none-match " + firstETag,
+                "stale if-none-match " + firstETag);
+        assertThat(cache.stats().revalidations()).isEqualTo(2);
+        assertThat(cacheFiles()).isOne();
+    }
+
+    @Test
+    void aDifferentExpectedETagForcesRevalidationOfAFreshEntry() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("changed", "old");
+        cache.open(BUCKET, "changed", null, origin.of("changed")).join().close();
+
+        origin.contents.put("changed", "new");
+        try (ObjectDiskCache.Hit hit = cache.open(BUCKET, "changed", FakeOrigin.eTag("new"), origin.of("changed")).join()) {
+            assertThat(read(hit, 0, 3)).isEqualTo("new");
+        }
+
+        assertThat(cache.stats().revalidations()).isOne();
+        assertThat(cache.stats().hits()).isZero();
+    }
+
+    @Test
+    void concurrentColdReadsShareOneDownload() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("cold", "cold content");
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        origin.gate = gate;
+
+        List<CompletableFuture<ObjectDiskCache.Hit>> reads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            reads.add(cache.open(BUCKET, "cold", null, origin.of("cold")));
+        }
+        assertThat(reads).noneMatch(CompletableFuture::isDone);
+        gate.complete(null);
+
+        for (CompletableFuture<ObjectDiskCache.Hit> read : reads) {
+            try (ObjectDiskCache.Hit hit = read.join()) {
+                assertThat(read(hit, 0, hit.metadata().size())).isEqualTo("cold content");
+            }
+        }
+        assertThat(origin.fetches).containsExactly("cold");
+        assertThat(cache.stats().loads()).isOne();
+        assertThat(cache.stats().coalesced()).isEqualTo(15);
+    }
+
+    @Test
+    void aFailedDownloadIsNotCached() throws IOException {
+        ObjectDiskCache cache = new ObjectDiskCache(directory, 4 * 1024, 1024, LONG);
+        ObjectDiskCache.Origin failing = (ifNoneMatch, target) -> CompletableFuture.failedFuture(new IOException("unreachable"));
+        FakeOrigin origin = new FakeOrigin();
+        origin.contents.put("flaky", "recovered");
+
+        assertThat(cache.open(BUCKET, "flaky", null, failing)).isCompletedExceptionally();
+        try (ObjectDiskCache.Hit hit = cache.open(BUCKET, "flaky", null, origin.of("flaky")).join()) {
+            assertThat(read(hit, 0, hit.metadata().size())).isEqualTo("recovered");
+        }
+        assertThat(cache.stats().loads()).isEqualTo(2);
+    }
+
+    private static String read(ObjectDiskCache.Hit hit, long position, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        hit.copyTo(position, count, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private long cacheFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        // Caffeine applies evictions and removal listeners asynchronously
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
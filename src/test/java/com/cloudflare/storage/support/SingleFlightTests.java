@@ -0,0 +1,115 @@
+package com.cloudflare.storage.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 32;
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("Test");
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> origin = new CompletableFuture<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<CompletableFuture<String>>> callers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < CALLERS; i++) {
+                callers.add(executor.submit(() -> {
+                    start.await();
+                    return flight.execute("key", () -> {
+                        calls.incrementAndGet();
+                        return origin;
+                    });
+                }));
+            }
+            start.countDown();
+        }
+        // Every caller has joined while the call is still in flight
+        origin.complete("result");
+
+        for (Future<CompletableFuture<String>> caller : callers) {
+            assertThat(caller.get().join()).isEqualTo("result");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(flight.stats().calls()).isEqualTo(CALLERS);
+        assertThat(flight.stats().upstreamCalls()).isOne();
+        assertThat(flight.stats().shared()).isEqualTo(CALLERS - 1);
+        assertThat(flight.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void aCallerArrivingAfterTheFlightEndedStartsANewOne() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("Test");
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(flight.execute("key", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).join()).isEqualTo(1);
+        assertThat(flight.execute("key", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).join()).isEqualTo(2);
+        assertThat(flight.execute("other", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).join()).isEqualTo(3);
+    }
+
+    @Test
+    void aFailureIsSharedButNotKept() {
+        SingleFlight<String, String> flight = new SingleFlight<>("Test");
+        CompletableFuture<String> origin = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("key", () -> origin);
+        CompletableFuture<String> second = flight.execute("key", () -> CompletableFuture.completedFuture("unused"));
+        origin.completeExceptionally(new IllegalStateException("unreachable"));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(flight.execute("key", () -> CompletableFuture.completedFuture("recovered")).join()).isEqualTo("recovered");
+    }
+
+    @Test
+    void aCallerCancellingDoesNotCancelTheSharedCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>("Test");
+        CompletableFuture<String> origin = new CompletableFuture<>();
+
+        CompletableFuture<String> impatient = flight.execute("key", () -> origin);
+        CompletableFuture<String> patient = flight.execute("key", () -> origin);
+        impatient.cancel(true);
+        origin.complete("result");
+
+        assertThat(origin).isCompletedWithValue("result");
+        assertThat(patient.join()).isEqualTo("result");
+    }
+
+    @Test
+    void aFlightStaysOpenUntilItsResultIsNoLongerActive() {
+        SingleFlight<String, CompletableFuture<Void>> flight = new SingleFlight<>("Test");
+        CompletableFuture<Void> active = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Void> first = flight.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(active);
+        }, result -> result).join();
+        CompletableFuture<Void> joined = flight.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(new CompletableFuture<>());
+        }, result -> result).join();
+        active.complete(null);
+        flight.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(CompletableFuture.completedFuture(null));
+        }, result -> result).join();
+
+        assertThat(joined).isSameAs(first);
+        assertThat(calls).hasValue(2);
+    }
+}
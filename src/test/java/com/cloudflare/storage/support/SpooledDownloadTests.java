@@ -0,0 +1,202 @@
+package com.cloudflare.storage.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpooledDownloadTests {
+
+    private static final int CHUNK = 8 * 1024;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Stands in for the body of a GET: emits {@code data} in chunks as they are requested, and only the first
+     * {@code available} chunks until {@link #release()}.
+     */
+    private static final class ChunkedBody implements SdkPublisher<ByteBuffer> {
+        private final byte[] data;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile int available;
+        private Subscriber<? super ByteBuffer> subscriber;
+        private int emitted;
+        private long requested;
+        private boolean completed;
+
+        ChunkedBody(byte[] data, int available) {
+            this.data = data;
+            this.available = available;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ByteBuffer> s) {
+            subscriber = s;
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    synchronized (ChunkedBody.this) {
+                        requested += n;
+                    }
+                    drain();
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+
+        void release() {
+            available = Integer.MAX_VALUE;
+            drain();
+        }
+
+        private void drain() {
+            while (true) {
+                int offset;
+                synchronized (this) {
+                    offset = emitted * CHUNK;
+                    if (cancelled.get() || requested == 0 || emitted >= available || offset >= data.length) {
+                        break;
+                    }
+                    requested--;
+                    emitted++;
+                }
+                subscriber.onNext(ByteBuffer.wrap(data, offset, Math.min(CHUNK, data.length - offset)));
+            }
+            synchronized (this) {
+                if (cancelled.get() || completed || emitted * CHUNK < data.length) {
+                    return;
+                }
+                completed = true;
+            }
+            subscriber.onComplete();
+        }
+    }
+
+    @Test
+    void concurrentReadersGetIdenticalBytesFromOneGet() throws Exception {
+        byte[] data = randomBytes(64 * CHUNK + 123);
+        CompletableFuture<ResponsePublisher<GetObjectResponse>> get = new CompletableFuture<>();
+        SpooledDownload download = SpooledDownload.start(directory, get);
+
+        List<Future<byte[]>> readers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 16; i++) {
+                SpooledDownload.Reader reader = download.open();
+                readers.add(executor.submit(() -> {
+                    try (InputStream in = reader) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            // The readers wait for the body, then follow it as it is spooled
+            get.complete(new ResponsePublisher<>(response(data), new ChunkedBody(data, Integer.MAX_VALUE)));
+
+            for (Future<byte[]> reader : readers) {
+                assertThat(reader.get(10, TimeUnit.SECONDS)).isEqualTo(data);
+            }
+        }
+        download.finished().get(10, TimeUnit.SECONDS);
+        assertThat(download.response().join().contentLength()).isEqualTo(data.length);
+        assertThat(spoolFiles()).isZero();
+    }
+
+    @Test
+    void aReaderOpeningLateStillReadsFromTheFirstByte() throws Exception {
+        byte[] data = randomBytes(4 * CHUNK);
+        ChunkedBody body = new ChunkedBody(data, 2);
+        SpooledDownload download = SpooledDownload.start(directory, CompletableFuture.completedFuture(
+                new ResponsePublisher<>(response(data), body)));
+
+        try (SpooledDownload.Reader early = download.open()) {
+            assertThat(early.readNBytes(2 * CHUNK)).isEqualTo(slice(data, 0, 2 * CHUNK));
+            body.release();
+            try (SpooledDownload.Reader late = download.open()) {
+                assertThat(late.readAllBytes()).isEqualTo(data);
+            }
+            assertThat(early.readAllBytes()).isEqualTo(slice(data, 2 * CHUNK, data.length));
+        }
+        assertThat(download.open()).isNull();
+    }
+
+    @Test
+    void theLastReaderClosingEarlyCancelsTheDownload() throws Exception {
+        byte[] data = randomBytes(4 * CHUNK);
+        ChunkedBody body = new ChunkedBody(data, 1);
+        SpooledDownload download = SpooledDownload.start(directory, CompletableFuture.completedFuture(
+                new ResponsePublisher<>(response(data), body)));
+
+        try (SpooledDownload.Reader reader = download.open()) {
+            assertThat(reader.readNBytes(CHUNK)).isEqualTo(slice(data, 0, CHUNK));
+        }
+
+        assertThat(body.cancelled).isTrue();
+        assertThat(download.finished()).isCompletedExceptionally();
+        assertThat(download.open()).isNull();
+        assertThat(spoolFiles()).isZero();
+    }
+
+    @Test
+    void aFailedGetFailsEveryReader() throws IOException {
+        CompletableFuture<ResponsePublisher<GetObjectResponse>> get = new CompletableFuture<>();
+        SpooledDownload download = SpooledDownload.start(directory, get);
+
+        try (SpooledDownload.Reader reader = download.open()) {
+            get.completeExceptionally(new IOException("unreachable"));
+
+            assertThatThrownBy(reader::read).isInstanceOf(IOException.class).hasRootCauseMessage("unreachable");
+            assertThat(download.response()).isCompletedExceptionally();
+            assertThat(download.finished()).isCompletedExceptionally();
+        }
+        assertThat(download.open()).isNull();
+        assertThat(spoolFiles()).isZero();
+    }
+
+    private static GetObjectResponse response(byte[] data) {
+        return GetObjectResponse.builder().contentLength((long) data.length).eTag("\"etag\"").build();
+    }
+
+    private long spoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] slice(byte[] data, int from, int to) {
+        byte[] slice = new byte[to - from];
+        System.arraycopy(data, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}